@@ -58,6 +58,11 @@ public abstract class AbstractQueryRunner {
      */
     private final StatementConfiguration stmtConfig;
 
+    /**
+     * Cache of prepared statements, <code>null</code> if statements are not cached.
+     */
+    private volatile StatementCache statementCache;
+
     /**
      * Default constructor, sets pmdKnownBroken to false, ds to null and stmtConfig to null.
      */
@@ -184,13 +189,40 @@ public abstract class AbstractQueryRunner {
         return pmdKnownBroken;
     }
 
+    /**
+     * Returns the cache of prepared statements.
+     *
+     * @return the statement cache, or <code>null</code> if statements are not cached
+     * @since DbUtils 1.8
+     */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Sets a cache of prepared statements. While a cache is set,
+     * {@link #prepareStatement(Connection, String)} and
+     * {@link #prepareStatement(Connection, String, int)} reuse statements
+     * previously prepared on the same <code>Connection</code>,
+     * {@link #close(Statement)} returns them to the cache instead of closing
+     * them, and {@link #close(Connection)} closes the connection's cached
+     * statements first.
+     *
+     * @param statementCache the statement cache, or <code>null</code> to stop caching
+     * @since DbUtils 1.8
+     */
+    public void setStatementCache(StatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
     /**
      * Factory method that creates and initializes a
      * <code>PreparedStatement</code> object for the given SQL.
      * <code>QueryRunner</code> methods always call this method to prepare
      * statements for them. Subclasses can override this method to provide
      * special PreparedStatement configuration if needed. This implementation
-     * simply calls <code>conn.prepareStatement(sql)</code>.
+     * simply calls <code>conn.prepareStatement(sql)</code>, or takes the
+     * statement from the {@link StatementCache} if one is set.
      *
      * @param conn
      *            The <code>Connection</code> used to create the
@@ -204,8 +236,19 @@ public abstract class AbstractQueryRunner {
     protected PreparedStatement prepareStatement(Connection conn, String sql)
             throws SQLException {
 
+        StatementCache cache = this.statementCache;
+        if (cache != null) {
+            PreparedStatement ps = cache.take(conn, sql, ResultSet.TYPE_FORWARD_ONLY,
+                    Statement.NO_GENERATED_KEYS);
+            if (ps != null) {
+                return ps;
+            }
+        }
         PreparedStatement ps = conn.prepareStatement(sql);
         configureStatement(ps);
+        if (cache != null) {
+            cache.borrow(conn, sql, ResultSet.TYPE_FORWARD_ONLY, Statement.NO_GENERATED_KEYS, ps);
+        }
         return ps;
     }
 
@@ -217,7 +260,8 @@ public abstract class AbstractQueryRunner {
      * special PreparedStatement configuration if needed. This implementation
      * simply calls <code>conn.prepareStatement(sql, returnedKeys)</code>
      * which will result in the ability to retrieve the automatically-generated
-     * keys from an auto_increment column.
+     * keys from an auto_increment column, or takes the statement from the
+     * {@link StatementCache} if one is set.
      *
      * @param conn
      *            The <code>Connection</code> used to create the
@@ -235,8 +279,18 @@ public abstract class AbstractQueryRunner {
     protected PreparedStatement prepareStatement(Connection conn, String sql, int returnedKeys)
             throws SQLException {
 
+        StatementCache cache = this.statementCache;
+        if (cache != null) {
+            PreparedStatement ps = cache.take(conn, sql, ResultSet.TYPE_FORWARD_ONLY, returnedKeys);
+            if (ps != null) {
+                return ps;
+            }
+        }
         PreparedStatement ps = conn.prepareStatement(sql, returnedKeys);
         configureStatement(ps);
+        if (cache != null) {
+            cache.borrow(conn, sql, ResultSet.TYPE_FORWARD_ONLY, returnedKeys, ps);
+        }
         return ps;
     }
 
@@ -550,7 +604,8 @@ public abstract class AbstractQueryRunner {
     /**
      * Close a <code>Connection</code>. This implementation avoids closing if
      * null and does <strong>not</strong> suppress any exceptions. Subclasses
-     * can override to provide special handling like logging.
+     * can override to provide special handling like logging. Statements of
+     * the connection held by the {@link StatementCache} are closed first.
      *
      * @param conn
      *            Connection to close
@@ -559,13 +614,19 @@ public abstract class AbstractQueryRunner {
      * @since DbUtils 1.1
      */
     protected void close(Connection conn) throws SQLException {
+        StatementCache cache = this.statementCache;
+        if (cache != null && conn != null) {
+            cache.invalidate(conn);
+        }
         DbUtils.close(conn);
     }
 
     /**
      * Close a <code>Statement</code>. This implementation avoids closing if
      * null and does <strong>not</strong> suppress any exceptions. Subclasses
-     * can override to provide special handling like logging.
+     * can override to provide special handling like logging. Statements
+     * prepared through the {@link StatementCache} are returned to it
+     * instead of being closed.
      *
      * @param stmt
      *            Statement to close
@@ -574,6 +635,10 @@ public abstract class AbstractQueryRunner {
      * @since DbUtils 1.1
      */
     protected void close(Statement stmt) throws SQLException {
+        StatementCache cache = this.statementCache;
+        if (cache != null && stmt != null && cache.release(stmt)) {
+            return;
+        }
         DbUtils.close(stmt);
     }
 
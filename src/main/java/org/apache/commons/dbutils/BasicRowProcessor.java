@@ -19,10 +19,7 @@ package org.apache.commons.dbutils;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -64,6 +61,14 @@ public class BasicRowProcessor implements RowProcessor {
      */
     private final BeanProcessor convert;
 
+    /**
+     * The column layout of each <code>ResultSet</code> converted by
+     * <code>toArray</code> or <code>toMap</code>, so that the metadata is read
+     * once per <code>ResultSet</code> rather than once per row, even when
+     * concurrent queries share this processor.
+     */
+    private final ResultSetCache<ColumnLayout> layouts = new ResultSetCache<ColumnLayout>();
+
     /**
      * BasicRowProcessor constructor.  Bean processing defaults to a
      * BeanProcessor instance.
@@ -96,8 +101,7 @@ public class BasicRowProcessor implements RowProcessor {
      */
     @Override
     public Object[] toArray(ResultSet rs) throws SQLException {
-        ResultSetMetaData meta = rs.getMetaData();
-        int cols = meta.getColumnCount();
+        int cols = this.columnLayout(rs).columns;
         Object[] result = new Object[cols];
 
         for (int i = 0; i < cols; i++) {
@@ -150,6 +154,10 @@ public class BasicRowProcessor implements RowProcessor {
      * the entry set of the returned map will return the first column of the ResultSet, then the second and so forth.
      * </p>
      *
+     * <p>
+     * The map is a {@link RowMap} whose keys and case insensitive index are shared by all rows of the ResultSet.
+     * </p>
+     *
      * @param rs ResultSet that supplies the map data
      * @return the newly created Map
      * @throws SQLException if a database access error occurs
@@ -157,109 +165,69 @@ public class BasicRowProcessor implements RowProcessor {
      */
     @Override
     public Map<String, Object> toMap(ResultSet rs) throws SQLException {
-        Map<String, Object> result = new CaseInsensitiveHashMap();
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int cols = rsmd.getColumnCount();
+        RowMap.Schema schema = this.columnLayout(rs).schema;
+        Object[] values = new Object[schema.size()];
 
-        for (int i = 1; i <= cols; i++) {
-            String columnName = rsmd.getColumnLabel(i);
-            if (null == columnName || 0 == columnName.length()) {
-              columnName = rsmd.getColumnName(i);
-            }
-            result.put(columnName, rs.getObject(i));
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(schema.getColumn(i));
         }
 
-        return result;
+        return new RowMap(schema, values);
     }
 
     /**
-     * A Map that converts all keys to lowercase Strings for case insensitive
-     * lookups.  This is needed for the toMap() implementation because
-     * databases don't consistently handle the casing of column names.
-     *
-     * <p>The keys are stored as they are given [BUG #DBUTILS-34], so we maintain
-     * an internal mapping from lowercase keys to the real keys in order to
-     * achieve the case insensitive lookup.
+     * Returns the column layout of a <code>ResultSet</code>, reading its
+     * metadata only the first time the <code>ResultSet</code> is seen.
      *
-     * <p>Note: This implementation does not allow {@code null}
-     * for key, whereas {@link LinkedHashMap} does, because of the code:
-     * <pre>
-     * key.toString().toLowerCase()
-     * </pre>
+     * @param rs The <code>ResultSet</code> being converted.
+     * @return The column layout.
+     * @throws SQLException if a database access error occurs
+     */
+    private ColumnLayout columnLayout(ResultSet rs) throws SQLException {
+        ColumnLayout layout = this.layouts.get(rs);
+        if (layout == null) {
+            layout = new ColumnLayout(rs);
+            this.layouts.put(rs, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * The column count and row map schema of one <code>ResultSet</code>.
      */
-    private static class CaseInsensitiveHashMap extends LinkedHashMap<String, Object> {
+    private static final class ColumnLayout {
+
         /**
-         * The internal mapping from lowercase keys to the real keys.
-         *
-         * <p>
-         * Any query operation using the key
-         * ({@link #get(Object)}, {@link #containsKey(Object)})
-         * is done in three steps:
-         * <ul>
-         * <li>convert the parameter key to lower case</li>
-         * <li>get the actual key that corresponds to the lower case key</li>
-         * <li>query the map with the actual key</li>
-         * </ul>
-         * </p>
+         * The number of columns.
          */
-        private final Map<String, String> lowerCaseMap = new HashMap<String, String>();
+        private final int columns;
 
         /**
-         * Required for serialization support.
-         *
-         * @see java.io.Serializable
+         * The row map keys: the column labels, falling back to the column names.
          */
-        private static final long serialVersionUID = -2848100435296897392L;
-
-        /** {@inheritDoc} */
-        @Override
-        public boolean containsKey(Object key) {
-            Object realKey = lowerCaseMap.get(key.toString().toLowerCase(Locale.ENGLISH));
-            return super.containsKey(realKey);
-            // Possible optimisation here:
-            // Since the lowerCaseMap contains a mapping for all the keys,
-            // we could just do this:
-            // return lowerCaseMap.containsKey(key.toString().toLowerCase());
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public Object get(Object key) {
-            Object realKey = lowerCaseMap.get(key.toString().toLowerCase(Locale.ENGLISH));
-            return super.get(realKey);
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public Object put(String key, Object value) {
-            /*
-             * In order to keep the map and lowerCaseMap synchronized,
-             * we have to remove the old mapping before putting the
-             * new one. Indeed, oldKey and key are not necessaliry equals.
-             * (That's why we call super.remove(oldKey) and not just
-             * super.put(key, value))
-             */
-            Object oldKey = lowerCaseMap.put(key.toLowerCase(Locale.ENGLISH), key);
-            Object oldValue = super.remove(oldKey);
-            super.put(key, value);
-            return oldValue;
-        }
+        private final RowMap.Schema schema;
 
-        /** {@inheritDoc} */
-        @Override
-        public void putAll(Map<? extends String, ?> m) {
-            for (Map.Entry<? extends String, ?> entry : m.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-                this.put(key, value);
+        /**
+         * Reads the column layout of a <code>ResultSet</code>.
+         *
+         * @param rs The <code>ResultSet</code>.
+         * @throws SQLException if a database access error occurs
+         */
+        ColumnLayout(ResultSet rs) throws SQLException {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            int cols = rsmd.getColumnCount();
+            String[] labels = new String[cols];
+
+            for (int i = 1; i <= cols; i++) {
+                String columnName = rsmd.getColumnLabel(i);
+                if (null == columnName || 0 == columnName.length()) {
+                  columnName = rsmd.getColumnName(i);
+                }
+                labels[i - 1] = columnName;
             }
-        }
 
-        /** {@inheritDoc} */
-        @Override
-        public Object remove(Object key) {
-            Object realKey = lowerCaseMap.remove(key.toString().toLowerCase(Locale.ENGLISH));
-            return super.remove(realKey);
+            this.columns = cols;
+            this.schema = RowMap.Schema.of(labels);
         }
     }
 
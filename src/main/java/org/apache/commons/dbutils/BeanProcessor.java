@@ -20,7 +20,8 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
@@ -28,10 +29,15 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>
@@ -66,24 +72,96 @@ public class BeanProcessor {
     private static final Map<Class<?>, Object> primitiveDefaults = new HashMap<Class<?>, Object>();
 
     /**
-     * ServiceLoader to find <code>ColumnHandler</code> implementations on the classpath.  The iterator for this is
-     * lazy and each time <code>iterator()</code> is called.
+     * Upper bound on the number of distinct column layouts remembered per bean
+     * class.  Exceeding it discards the layouts cached so far for that class.
      */
-    // FIXME: I think this instantiates new handlers on each iterator() call. This might be worth caching upfront.
-    private static final ServiceLoader<ColumnHandler> columnHandlers = ServiceLoader.load(ColumnHandler.class);
+    static final int MAX_CACHED_LAYOUTS = 64;
 
     /**
-     * ServiceLoader to find <code>PropertyHandler</code> implementations on the classpath.  The iterator for this is
-     * lazy and each time <code>iterator()</code> is called.
+     * Case-folded property name to property index, per property descriptor
+     * array.  Arrays hash by identity, so each array handed to
+     * <code>mapColumnsToProperties</code> is indexed once; keys are weak so
+     * short-lived arrays do not accumulate.
      */
-    // FIXME: I think this instantiates new handlers on each iterator() call. This might be worth caching upfront.
-    private static final ServiceLoader<PropertyHandler> propertyHandlers = ServiceLoader.load(PropertyHandler.class);
+    private static final Map<PropertyDescriptor[], Map<String, Integer>> propertyIndexes =
+        Collections.synchronizedMap(new WeakHashMap<PropertyDescriptor[], Map<String, Integer>>());
+
+    /**
+     * <code>ColumnHandler</code> implementations found on the classpath by a
+     * <code>ServiceLoader</code>.  The loader is iterated once, when this class
+     * is initialized, because its iterators are neither cheap nor thread-safe.
+     */
+    private static final List<ColumnHandler> serviceColumnHandlers = loadServices(ColumnHandler.class);
+
+    /**
+     * <code>PropertyHandler</code> implementations found on the classpath by a
+     * <code>ServiceLoader</code>, loaded once like the column handlers.
+     */
+    private static final List<PropertyHandler> servicePropertyHandlers = loadServices(PropertyHandler.class);
+
+    /**
+     * Marks a property type in <code>columnHandlersByType</code> that no
+     * <code>ColumnHandler</code> matches.
+     */
+    private static final ColumnHandler NO_COLUMN_HANDLER = new ColumnHandler() {
+        @Override
+        public boolean match(Class<?> propType) {
+            return false;
+        }
+
+        @Override
+        public Object apply(ResultSet rs, int columnIndex) throws SQLException {
+            return rs.getObject(columnIndex);
+        }
+    };
 
     /**
      * ResultSet column to bean property name overrides.
      */
     private final Map<String, String> columnToPropertyOverrides;
 
+    /**
+     * The column handlers consulted by this processor, in order.
+     */
+    private final ColumnHandler[] columnHandlers;
+
+    /**
+     * The property handlers consulted by this processor, in order.
+     */
+    private final PropertyHandler[] propertyHandlers;
+
+    /**
+     * Whether a subclass overrides <code>processColumn</code>, in which case
+     * the column handlers resolved per layout are bypassed in its favor.
+     */
+    private final boolean processColumnOverridden;
+
+    /**
+     * The column handler resolved for each property type.  Only types loaded
+     * by the bootstrap class loader are recorded so that the table never pins
+     * an application class loader.
+     */
+    private final ConcurrentMap<Class<?>, ColumnHandler> columnHandlersByType =
+        new ConcurrentHashMap<Class<?>, ColumnHandler>();
+
+    /**
+     * Mapping metadata cached per bean class.  Keys are weak so a cached class
+     * does not pin its class loader; values are soft because the property
+     * descriptors they hold refer back to the class.
+     */
+    private final Map<Class<?>, Reference<BeanMapping>> mappings =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<BeanMapping>>());
+
+    /**
+     * Number of column-to-property lookups served from the mapping cache.
+     */
+    private final AtomicLong mappingHits = new AtomicLong();
+
+    /**
+     * Number of column-to-property lookups that had to build a new mapping.
+     */
+    private final AtomicLong mappingMisses = new AtomicLong();
+
     static {
         primitiveDefaults.put(Integer.TYPE, Integer.valueOf(0));
         primitiveDefaults.put(Short.TYPE, Short.valueOf((short) 0));
@@ -109,11 +187,81 @@ public class BeanProcessor {
      * @since 1.5
      */
     public BeanProcessor(Map<String, String> columnToPropertyOverrides) {
+        this(columnToPropertyOverrides, Collections.<ColumnHandler>emptyList(),
+                Collections.<PropertyHandler>emptyList());
+    }
+
+    /**
+     * Constructor for BeanProcessor configured with column to property name
+     * overrides and additional column and property handlers.  The given
+     * handlers are consulted in order, before the ones found on the classpath.
+     *
+     * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+     * @param columnHandlers Column handlers to use ahead of the classpath ones
+     * @param propertyHandlers Property handlers to use ahead of the classpath ones
+     * @since 1.8
+     */
+    public BeanProcessor(Map<String, String> columnToPropertyOverrides,
+            List<? extends ColumnHandler> columnHandlers,
+            List<? extends PropertyHandler> propertyHandlers) {
         super();
         if (columnToPropertyOverrides == null) {
             throw new IllegalArgumentException("columnToPropertyOverrides map cannot be null");
         }
+        if (columnHandlers == null) {
+            throw new IllegalArgumentException("columnHandlers list cannot be null");
+        }
+        if (propertyHandlers == null) {
+            throw new IllegalArgumentException("propertyHandlers list cannot be null");
+        }
         this.columnToPropertyOverrides = columnToPropertyOverrides;
+
+        List<ColumnHandler> columns = new ArrayList<ColumnHandler>(columnHandlers);
+        columns.addAll(serviceColumnHandlers);
+        this.columnHandlers = columns.toArray(new ColumnHandler[columns.size()]);
+
+        List<PropertyHandler> properties = new ArrayList<PropertyHandler>(propertyHandlers);
+        properties.addAll(servicePropertyHandlers);
+        this.propertyHandlers = properties.toArray(new PropertyHandler[properties.size()]);
+
+        this.processColumnOverridden = overridden(this.getClass(), "processColumn",
+                ResultSet.class, int.class, Class.class);
+    }
+
+    /**
+     * Checks whether a subclass of <code>BeanProcessor</code>, up to but
+     * excluding <code>BeanProcessor</code> itself, declares the given method.
+     *
+     * @param c The runtime class of the processor.
+     * @param name The method name.
+     * @param parameterTypes The method parameter types.
+     * @return <code>true</code> if the method is overridden.
+     */
+    private static boolean overridden(Class<?> c, String name, Class<?>... parameterTypes) {
+        for (; c != BeanProcessor.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared here, look at the superclass
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Instantiates every implementation of a service found on the classpath.
+     *
+     * @param <S> The service type
+     * @param service The service interface.
+     * @return The implementations, in classpath order.
+     */
+    private static <S> List<S> loadServices(Class<S> service) {
+        List<S> implementations = new ArrayList<S>();
+        for (S implementation : ServiceLoader.load(service)) {
+            implementations.add(implementation);
+        }
+        return Collections.unmodifiableList(implementations);
     }
 
     /**
@@ -194,12 +342,12 @@ public class BeanProcessor {
             return results;
         }
 
-        PropertyDescriptor[] props = this.propertyDescriptors(type);
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int[] columnToProperty = this.mapColumnsToProperties(rsmd, props);
+        BeanMapping mapping = this.beanMapping(type);
+        PropertyDescriptor[] props = mapping.props;
+        LayoutMapping layout = this.layoutMapping(mapping, rs.getMetaData());
 
         do {
-            results.add(this.createBean(rs, type, props, columnToProperty));
+            results.add(this.createBean(rs, type, props, layout));
         } while (rs.next());
 
         return results;
@@ -211,16 +359,16 @@ public class BeanProcessor {
      * @param rs The result set.
      * @param type The bean type (the return type of the object).
      * @param props The property descriptors.
-     * @param columnToProperty The column indices in the result set.
+     * @param layout The mapping resolved for the column layout.
      * @return An initialized object.
      * @throws SQLException if a database error occurs.
      */
     private <T> T createBean(ResultSet rs, Class<T> type,
-                             PropertyDescriptor[] props, int[] columnToProperty)
+                             PropertyDescriptor[] props, LayoutMapping layout)
     throws SQLException {
 
         T bean = this.newInstance(type);
-        return populateBean(rs, bean, props, columnToProperty);
+        return populateBean(rs, bean, props, layout);
     }
 
     /**
@@ -232,11 +380,10 @@ public class BeanProcessor {
      * @throws SQLException if a database error occurs.
      */
     public <T> T populateBean(ResultSet rs, T bean) throws SQLException {
-        PropertyDescriptor[] props = this.propertyDescriptors(bean.getClass());
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int[] columnToProperty = this.mapColumnsToProperties(rsmd, props);
+        BeanMapping mapping = this.beanMapping(bean.getClass());
+        LayoutMapping layout = this.layoutMapping(mapping, rs.getMetaData());
 
-        return populateBean(rs, bean, props, columnToProperty);
+        return populateBean(rs, bean, mapping.props, layout);
     }
 
     /**
@@ -246,14 +393,15 @@ public class BeanProcessor {
      * @param rs The result set.
      * @param bean The bean to be populated.
      * @param props The property descriptors.
-     * @param columnToProperty The column indices in the result set.
+     * @param layout The mapping resolved for the column layout.
      * @return An initialized object.
      * @throws SQLException if a database error occurs.
      */
     private <T> T populateBean(ResultSet rs, T bean,
-            PropertyDescriptor[] props, int[] columnToProperty)
+            PropertyDescriptor[] props, LayoutMapping layout)
             throws SQLException {
 
+        int[] columnToProperty = layout.columnToProperty;
         for (int i = 1; i < columnToProperty.length; i++) {
 
             if (columnToProperty[i] == PROPERTY_NOT_FOUND) {
@@ -265,14 +413,18 @@ public class BeanProcessor {
 
             Object value = null;
             if(propType != null) {
-                value = this.processColumn(rs, i, propType);
+                if (this.processColumnOverridden) {
+                    value = this.processColumn(rs, i, propType);
+                } else {
+                    value = this.readColumn(rs, i, propType, layout.columnHandlers[i]);
+                }
 
                 if (value == null && propType.isPrimitive()) {
                     value = primitiveDefaults.get(propType);
                 }
             }
 
-            this.callSetter(bean, prop, value);
+            this.callSetter(bean, prop, value, layout.propertyMatches, i);
         }
 
         return bean;
@@ -284,10 +436,12 @@ public class BeanProcessor {
      * @param target The object to set the property on.
      * @param prop The property to set.
      * @param value The value to pass into the setter.
+     * @param matches The property handler dispatch remembered per column.
+     * @param index The column the value was read from.
      * @throws SQLException if an error occurs setting the property.
      */
-    private void callSetter(Object target, PropertyDescriptor prop, Object value)
-            throws SQLException {
+    private void callSetter(Object target, PropertyDescriptor prop, Object value,
+            PropertyMatch[] matches, int index) throws SQLException {
 
         Method setter = getWriteMethod(target, prop, value);
 
@@ -297,12 +451,9 @@ public class BeanProcessor {
 
         try {
             Class<?> firstParam = setter.getParameterTypes()[0];
-            for (PropertyHandler handler : propertyHandlers) {
-                if (handler.match(firstParam, value)) {
-                    value = handler.apply(firstParam, value);
-                    break;
-                }
-            }
+            PropertyMatch match = this.propertyMatch(matches[index], firstParam, value);
+            matches[index] = match;
+            value = match.apply(value);
 
             // Don't call setter if the value object isn't the right type
             if (this.isCompatibleType(value, firstParam)) {
@@ -328,6 +479,68 @@ public class BeanProcessor {
         }
     }
 
+    /**
+     * Returns the value a primitive property is set to when its column is SQL NULL.
+     *
+     * @param type The property type.
+     * @return The default value, or <code>null</code> if <code>type</code> is not primitive.
+     */
+    static Object primitiveDefault(Class<?> type) {
+        return primitiveDefaults.get(type);
+    }
+
+    /**
+     * Returns the <code>PropertyHandler</code> dispatch for passing
+     * <code>value</code> into a parameter of the given type.  The
+     * <code>last</code> dispatch is reused without consulting the handlers
+     * when it was resolved for the same parameter type and value class, so
+     * handlers are expected to decide by types the way the bundled ones do.
+     *
+     * @param last The dispatch resolved for the previous value, or <code>null</code>.
+     * @param parameter The setter's parameter type.
+     * @param value The value to be passed into the setter method.
+     * @return The dispatch for <code>value</code>.
+     */
+    PropertyMatch propertyMatch(PropertyMatch last, Class<?> parameter, Object value) {
+        Class<?> valueClass = (value == null) ? null : value.getClass();
+        if (last != null && last.parameter == parameter && last.valueClass == valueClass) {
+            return last;
+        }
+
+        PropertyHandler handler = null;
+        for (int i = 0; i < propertyHandlers.length; i++) {
+            if (propertyHandlers[i].match(parameter, value)) {
+                handler = propertyHandlers[i];
+                break;
+            }
+        }
+        return new PropertyMatch(parameter, valueClass, handler);
+    }
+
+    /**
+     * Returns the first <code>ColumnHandler</code> that wants to handle
+     * columns targeted at the given property type.
+     *
+     * @param propType The bean property type.
+     * @return The matching handler, or <code>null</code> if there is none.
+     */
+    ColumnHandler columnHandler(Class<?> propType) {
+        ColumnHandler handler = columnHandlersByType.get(propType);
+        if (handler == null) {
+            handler = NO_COLUMN_HANDLER;
+            for (int i = 0; i < columnHandlers.length; i++) {
+                if (columnHandlers[i].match(propType)) {
+                    handler = columnHandlers[i];
+                    break;
+                }
+            }
+            if (propType.getClassLoader() == null) {
+                columnHandlersByType.put(propType, handler);
+            }
+        }
+        return (handler == NO_COLUMN_HANDLER) ? null : handler;
+    }
+
     /**
      * ResultSet.getObject() returns an Integer object for an INT column.  The
      * setter method for the property might take an Integer or a primitive int.
@@ -339,7 +552,7 @@ public class BeanProcessor {
      * @param type The setter's parameter type (non-null)
      * @return boolean True if the value is compatible (null => true)
      */
-    private boolean isCompatibleType(Object value, Class<?> type) {
+    boolean isCompatibleType(Object value, Class<?> type) {
         // Do object check first, then primitives
         if (value == null || type.isInstance(value) || matchesPrimitive(type, value.getClass())) {
             return true;
@@ -357,26 +570,9 @@ public class BeanProcessor {
      * @return Whether <code>valueType</code> can be coerced (e.g. autoboxed) into <code>targetType</code>.
      */
     private boolean matchesPrimitive(Class<?> targetType, Class<?> valueType) {
-        if (!targetType.isPrimitive()) {
-            return false;
-        }
-
-        try {
-            // see if there is a "TYPE" field.  This is present for primitive wrappers.
-            Field typeField = valueType.getField("TYPE");
-            Object primitiveValueType = typeField.get(valueType);
-
-            if (targetType == primitiveValueType) {
-                return true;
-            }
-        } catch (NoSuchFieldException e) {
-            // lacking the TYPE field is a good sign that we're not working with a primitive wrapper.
-            // we can't match for compatibility
-        } catch (IllegalAccessException e) {
-            // an inaccessible TYPE field is a good sign that we're not working with a primitive wrapper.
-            // nothing to do.  we can't match for compatibility
-        }
-        return false;
+        // the default value of a primitive type is an instance of its wrapper class
+        Object primitiveDefault = primitiveDefaults.get(targetType);
+        return primitiveDefault != null && primitiveDefault.getClass() == valueType;
     }
 
     /**
@@ -417,6 +613,175 @@ public class BeanProcessor {
         }
     }
 
+    /**
+     * Returns the number of bean mappings that were served from the cache
+     * instead of being rebuilt from the bean class and column layout.
+     *
+     * @return The number of mapping cache hits.
+     * @since 1.8
+     */
+    public long getMappingCacheHits() {
+        return mappingHits.get();
+    }
+
+    /**
+     * Returns the number of bean mappings that had to be built because no
+     * cached mapping existed for the bean class and column layout.
+     *
+     * @return The number of mapping cache misses.
+     * @since 1.8
+     */
+    public long getMappingCacheMisses() {
+        return mappingMisses.get();
+    }
+
+    /**
+     * Discards all cached bean mappings.  Mappings are built from the column
+     * labels of a <code>ResultSet</code> and the column to property overrides
+     * given at construction, so this must be called if the overrides map is
+     * modified afterwards.
+     *
+     * @since 1.8
+     */
+    public void clearMappingCache() {
+        mappings.clear();
+    }
+
+    /**
+     * Returns the cached mapping metadata for the given bean class, creating
+     * it if the class has not been seen yet or its entry has been reclaimed.
+     *
+     * @param c The bean class.
+     * @return The mapping metadata for <code>c</code>.
+     * @throws SQLException if introspection failed.
+     */
+    BeanMapping beanMapping(Class<?> c) throws SQLException {
+        Reference<BeanMapping> ref = mappings.get(c);
+        BeanMapping mapping = (ref == null) ? null : ref.get();
+        if (mapping == null) {
+            mapping = new BeanMapping(this.propertyDescriptors(c));
+            mappings.put(c, new SoftReference<BeanMapping>(mapping));
+        }
+        return mapping;
+    }
+
+    /**
+     * Returns the column to property mapping for the given column layout,
+     * calling <code>mapColumnsToProperties</code> only the first time a
+     * layout is seen for the bean class.
+     *
+     * @param mapping The bean class mapping metadata.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The column index to property index mappings.
+     * @throws SQLException if a database access error occurs
+     */
+    int[] columnToProperty(BeanMapping mapping, ResultSetMetaData rsmd)
+            throws SQLException {
+
+        return this.layoutMapping(mapping, rsmd).columnToProperty;
+    }
+
+    /**
+     * Returns the mapping for the given column layout: the column to property
+     * indexes and the column handler of each mapped column.  They are
+     * resolved only the first time a layout is seen for the bean class.
+     *
+     * @param mapping The bean class mapping metadata.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The mapping for the column layout.
+     * @throws SQLException if a database access error occurs
+     */
+    LayoutMapping layoutMapping(BeanMapping mapping, ResultSetMetaData rsmd)
+            throws SQLException {
+
+        String key = columnLayout(rsmd);
+        LayoutMapping layout = mapping.layouts.get(key);
+        if (layout != null) {
+            mappingHits.incrementAndGet();
+            return layout;
+        }
+
+        mappingMisses.incrementAndGet();
+        int[] columnToProperty = this.mapColumnsToProperties(rsmd, mapping.props);
+        ColumnHandler[] handlers = new ColumnHandler[columnToProperty.length];
+        for (int col = 1; col < columnToProperty.length; col++) {
+            if (columnToProperty[col] != PROPERTY_NOT_FOUND) {
+                Class<?> propType = mapping.props[columnToProperty[col]].getPropertyType();
+                handlers[col] = (propType == null) ? null : this.columnHandler(propType);
+            }
+        }
+
+        layout = new LayoutMapping(columnToProperty, handlers);
+        if (mapping.layouts.size() >= MAX_CACHED_LAYOUTS) {
+            mapping.layouts.clear();
+        }
+        mapping.layouts.put(key, layout);
+        return layout;
+    }
+
+    /**
+     * Builds a key identifying the column labels of a <code>ResultSet</code>,
+     * in order.  Labels fall back to column names the same way
+     * <code>mapColumnsToProperties</code> does.
+     *
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The column layout key.
+     * @throws SQLException if a database access error occurs
+     */
+    static String columnLayout(ResultSetMetaData rsmd) throws SQLException {
+        int cols = rsmd.getColumnCount();
+        StringBuilder layout = new StringBuilder(cols * 16);
+        for (int col = 1; col <= cols; col++) {
+            String columnName = rsmd.getColumnLabel(col);
+            if (null == columnName || 0 == columnName.length()) {
+              columnName = rsmd.getColumnName(col);
+            }
+            layout.append(columnName).append('\u0000');
+        }
+        return layout.toString();
+    }
+
+    /**
+     * Returns the index of the first property whose name equals
+     * <code>name</code> ignoring case, the way
+     * <code>String.equalsIgnoreCase</code> compares them.  The properties are
+     * hashed by case-folded name the first time an array is seen, so each
+     * lookup after that is a single hash probe.
+     *
+     * @param props The bean property descriptors.
+     * @param name The name to look up.
+     * @return The property index, or <code>PROPERTY_NOT_FOUND</code>.
+     */
+    static int propertyIndex(PropertyDescriptor[] props, String name) {
+        Map<String, Integer> index = propertyIndexes.get(props);
+        if (index == null) {
+            index = new HashMap<String, Integer>(props.length * 2);
+            for (int i = props.length - 1; i >= 0; i--) {
+                index.put(foldCase(props[i].getName()), Integer.valueOf(i));
+            }
+            propertyIndexes.put(props, index);
+        }
+
+        Integer i = index.get(foldCase(name));
+        return (i == null) ? PROPERTY_NOT_FOUND : i.intValue();
+    }
+
+    /**
+     * Folds the case of each character the way
+     * <code>String.equalsIgnoreCase</code> does, so two names fold to the
+     * same string exactly when they are equal ignoring case.
+     *
+     * @param name The name to fold.
+     * @return The folded name.
+     */
+    private static String foldCase(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
     /**
      * Returns a PropertyDescriptor[] for the given Class.
      *
@@ -472,13 +837,7 @@ public class BeanProcessor {
             if (propertyName == null) {
                 propertyName = columnName;
             }
-            for (int i = 0; i < props.length; i++) {
-
-                if (propertyName.equalsIgnoreCase(props[i].getName())) {
-                    columnToProperty[col] = i;
-                    break;
-                }
-            }
+            columnToProperty[col] = propertyIndex(props, propertyName);
         }
 
         return columnToProperty;
@@ -514,21 +873,142 @@ public class BeanProcessor {
     protected Object processColumn(ResultSet rs, int index, Class<?> propType)
         throws SQLException {
 
+        return this.readColumn(rs, index, propType, columnHandler(propType));
+    }
+
+    /**
+     * Converts a <code>ResultSet</code> column into an object the way
+     * <code>processColumn</code> does, with an already resolved handler.
+     *
+     * @param rs The <code>ResultSet</code> positioned on a valid row.
+     * @param index The column index.
+     * @param propType The bean property type.
+     * @param handler The column handler for <code>propType</code>, or <code>null</code>.
+     * @return The column value, or <code>null</code> if it was SQL NULL.
+     * @throws SQLException if a database access error occurs
+     */
+    private Object readColumn(ResultSet rs, int index, Class<?> propType, ColumnHandler handler)
+        throws SQLException {
+
         Object retval = rs.getObject(index);
 
         if ( !propType.isPrimitive() && retval == null ) {
             return null;
         }
 
-        for (ColumnHandler handler : columnHandlers) {
-            if (handler.match(propType)) {
-                retval = handler.apply(rs, index);
-                break;
-            }
+        if (handler != null) {
+            retval = handler.apply(rs, index);
         }
 
         return retval;
 
     }
 
+    /**
+     * Mapping metadata for one bean class: its property descriptors and the
+     * column to property mappings built so far for each column layout.
+     */
+    static final class BeanMapping {
+
+        /**
+         * The bean property descriptors.
+         */
+        final PropertyDescriptor[] props;
+
+        /**
+         * Column to property mappings keyed by column layout.
+         */
+        private final ConcurrentMap<String, LayoutMapping> layouts =
+            new ConcurrentHashMap<String, LayoutMapping>();
+
+        /**
+         * Creates the mapping metadata for a bean class.
+         *
+         * @param props The bean property descriptors.
+         */
+        BeanMapping(PropertyDescriptor[] props) {
+            this.props = props;
+        }
+    }
+
+    /**
+     * The mapping of one column layout onto a bean class, indexed by column.
+     */
+    static final class LayoutMapping {
+
+        /**
+         * The property index of each column, or <code>PROPERTY_NOT_FOUND</code>.
+         */
+        final int[] columnToProperty;
+
+        /**
+         * The column handler for each mapped column's property type, or
+         * <code>null</code> where none matches.
+         */
+        final ColumnHandler[] columnHandlers;
+
+        /**
+         * The property handler dispatch last used for each column.  Entries
+         * are immutable, so threads racing to replace one only repeat work.
+         */
+        final PropertyMatch[] propertyMatches;
+
+        /**
+         * Creates the mapping of a column layout.
+         *
+         * @param columnToProperty The property index of each column.
+         * @param columnHandlers The column handler of each column.
+         */
+        LayoutMapping(int[] columnToProperty, ColumnHandler[] columnHandlers) {
+            this.columnToProperty = columnToProperty;
+            this.columnHandlers = columnHandlers;
+            this.propertyMatches = new PropertyMatch[columnToProperty.length];
+        }
+    }
+
+    /**
+     * The <code>PropertyHandler</code>, if any, that applies to values of one
+     * class passed into parameters of one type.
+     */
+    static final class PropertyMatch {
+
+        /**
+         * The setter parameter type.
+         */
+        final Class<?> parameter;
+
+        /**
+         * The value class, <code>null</code> for a <code>null</code> value.
+         */
+        final Class<?> valueClass;
+
+        /**
+         * The matching handler, or <code>null</code> if none matched.
+         */
+        private final PropertyHandler handler;
+
+        /**
+         * Creates a property handler dispatch.
+         *
+         * @param parameter The setter parameter type.
+         * @param valueClass The value class.
+         * @param handler The matching handler, or <code>null</code>.
+         */
+        PropertyMatch(Class<?> parameter, Class<?> valueClass, PropertyHandler handler) {
+            this.parameter = parameter;
+            this.valueClass = valueClass;
+            this.handler = handler;
+        }
+
+        /**
+         * Passes a value through the matching handler.
+         *
+         * @param value The value to be passed into the setter method.
+         * @return The converted value, or <code>value</code> if no handler matched.
+         */
+        Object apply(Object value) {
+            return (handler == null) ? value : handler.apply(parameter, value);
+        }
+    }
+
 }
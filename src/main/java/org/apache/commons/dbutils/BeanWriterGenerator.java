@@ -0,0 +1,651 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.dbutils.CompiledBeanProcessor.ColumnWriter;
+import org.apache.commons.dbutils.GeneratedBeanProcessor.BeanWriter;
+
+/**
+ * Generates <code>BeanWriter</code> classes for
+ * <code>GeneratedBeanProcessor</code>.  The class files are written directly
+ * in the Java 5 format, which needs no stack map frames, and are defined in a
+ * class loader of their own whose parent is the bean's class loader.
+ */
+final class BeanWriterGenerator {
+
+    /**
+     * Internal name of the generated classes, completed by a sequence number.
+     */
+    private static final String CLASS_NAME = "org/apache/commons/dbutils/GeneratedBeanWriter$";
+
+    /**
+     * Internal name of <code>java.sql.ResultSet</code>.
+     */
+    private static final String RESULT_SET = "java/sql/ResultSet";
+
+    /**
+     * Sequence used to give each generated class a distinct name.
+     */
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * <code>ResultSet</code> getter name for each typed reader.
+     */
+    private static final Map<Integer, String> getters = new HashMap<Integer, String>();
+
+    /**
+     * Primitive type returned by the getter for each typed reader.
+     */
+    private static final Map<Integer, Class<?>> primitives = new HashMap<Integer, Class<?>>();
+
+    static {
+        reader(CompiledBeanProcessor.READ_INT, "getInt", Integer.TYPE);
+        reader(CompiledBeanProcessor.READ_LONG, "getLong", Long.TYPE);
+        reader(CompiledBeanProcessor.READ_DOUBLE, "getDouble", Double.TYPE);
+        reader(CompiledBeanProcessor.READ_FLOAT, "getFloat", Float.TYPE);
+        reader(CompiledBeanProcessor.READ_SHORT, "getShort", Short.TYPE);
+        reader(CompiledBeanProcessor.READ_BYTE, "getByte", Byte.TYPE);
+        reader(CompiledBeanProcessor.READ_BOOLEAN, "getBoolean", Boolean.TYPE);
+        reader(CompiledBeanProcessor.READ_STRING, "getString", null);
+        reader(CompiledBeanProcessor.READ_TIMESTAMP, "getTimestamp", null);
+    }
+
+    /**
+     * Utility class.
+     */
+    private BeanWriterGenerator() {
+        super();
+    }
+
+    /**
+     * Registers the getter for a typed reader.
+     *
+     * @param reader The <code>READ_*</code> constant.
+     * @param getter The <code>ResultSet</code> getter name.
+     * @param primitive The primitive type the getter returns, or <code>null</code>.
+     */
+    private static void reader(int reader, String getter, Class<?> primitive) {
+        getters.put(Integer.valueOf(reader), getter);
+        if (primitive != null) {
+            primitives.put(Integer.valueOf(reader), primitive);
+        }
+    }
+
+    /**
+     * Tests whether generated code can write the given column.
+     *
+     * @param writer The reflective column writer.
+     * @return true if the column uses a typed reader and a public setter.
+     */
+    static boolean supports(ColumnWriter writer) {
+        return writer.reader != CompiledBeanProcessor.READ_OBJECT
+            && writer.paramType == writer.propType
+            && Modifier.isPublic(writer.setter.getModifiers());
+    }
+
+    /**
+     * Generates and instantiates a writer for the given columns.
+     *
+     * @param type The public bean class.
+     * @param writers The columns to write; each must be <code>supported</code>.
+     * @return The writer, or <code>null</code> if the class could not be defined.
+     */
+    static BeanWriter generate(Class<?> type, List<ColumnWriter> writers) {
+        String name = CLASS_NAME + sequence.incrementAndGet();
+        try {
+            byte[] bytes = new ClassFile(name, type, writers).toByteArray();
+            ClassLoader parent = type.getClassLoader();
+            if (parent == null) {
+                parent = BeanWriter.class.getClassLoader();
+            }
+            Class<?> c = new WriterClassLoader(parent).define(name.replace('/', '.'), bytes);
+            return (BeanWriter) c.getConstructor().newInstance();
+
+        } catch (IOException e) {
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (InstantiationException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the JVM descriptor of a type.
+     *
+     * @param c The type.
+     * @return The descriptor.
+     */
+    private static String descriptor(Class<?> c) {
+        if (c == Void.TYPE) {
+            return "V";
+        } else if (c == Integer.TYPE) {
+            return "I";
+        } else if (c == Long.TYPE) {
+            return "J";
+        } else if (c == Double.TYPE) {
+            return "D";
+        } else if (c == Float.TYPE) {
+            return "F";
+        } else if (c == Short.TYPE) {
+            return "S";
+        } else if (c == Byte.TYPE) {
+            return "B";
+        } else if (c == Boolean.TYPE) {
+            return "Z";
+        } else if (c == Character.TYPE) {
+            return "C";
+        } else if (c.isArray()) {
+            return internalName(c);
+        }
+        return "L" + internalName(c) + ";";
+    }
+
+    /**
+     * Returns the JVM internal name of a class.
+     *
+     * @param c The class.
+     * @return The internal name.
+     */
+    private static String internalName(Class<?> c) {
+        return c.getName().replace('.', '/');
+    }
+
+    /**
+     * Returns the JVM descriptor of a method.
+     *
+     * @param m The method.
+     * @return The descriptor.
+     */
+    private static String descriptor(Method m) {
+        StringBuilder desc = new StringBuilder("(");
+        Class<?>[] params = m.getParameterTypes();
+        for (int i = 0; i < params.length; i++) {
+            desc.append(descriptor(params[i]));
+        }
+        return desc.append(')').append(descriptor(m.getReturnType())).toString();
+    }
+
+    /**
+     * Class loader holding one generated class.  The <code>BeanWriter</code>
+     * interface is always resolved to DbUtils' own copy, whether or not the
+     * bean's class loader can see it.
+     */
+    private static final class WriterClassLoader extends ClassLoader {
+
+        /**
+         * Creates a loader delegating to the bean's class loader.
+         *
+         * @param parent The bean's class loader.
+         */
+        WriterClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        /**
+         * Defines the generated class.
+         *
+         * @param name The binary class name.
+         * @param bytes The class file.
+         * @return The defined class.
+         */
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (BeanWriter.class.getName().equals(name)) {
+                return BeanWriter.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    /**
+     * Writer for a single generated class file.
+     */
+    private static final class ClassFile {
+
+        /**
+         * Constant pool entries written so far.
+         */
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+        /**
+         * Stream over <code>pool</code>.
+         */
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+
+        /**
+         * Constant pool indexes by entry key, so each entry is written once.
+         */
+        private final Map<String, Integer> poolIndexes = new HashMap<String, Integer>();
+
+        /**
+         * The next free constant pool index.
+         */
+        private int poolSize = 1;
+
+        /**
+         * The internal name of the generated class.
+         */
+        private final String name;
+
+        /**
+         * The bean class.
+         */
+        private final Class<?> type;
+
+        /**
+         * The columns to write.
+         */
+        private final List<ColumnWriter> writers;
+
+        /**
+         * Creates a class file writer.
+         *
+         * @param name The internal name of the generated class.
+         * @param type The bean class.
+         * @param writers The columns to write.
+         */
+        ClassFile(String name, Class<?> type, List<ColumnWriter> writers) {
+            this.name = name;
+            this.type = type;
+            this.writers = writers;
+        }
+
+        /**
+         * Assembles the class file.
+         *
+         * @return The class file bytes.
+         * @throws IOException never, the streams are in memory
+         */
+        byte[] toByteArray() throws IOException {
+            byte[] init = this.constructor();
+            byte[] write = this.writeMethod();
+
+            int thisClass = this.classRef(name);
+            int superClass = this.classRef("java/lang/Object");
+            int iface = this.classRef(internalName(BeanWriter.class));
+            int initName = this.utf8("<init>");
+            int initDesc = this.utf8("()V");
+            int writeName = this.utf8("write");
+            int writeDesc = this.utf8("(Ljava/sql/ResultSet;Ljava/lang/Object;)V");
+            int codeName = this.utf8("Code");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolSize);
+            pool.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+            out.writeShort(0);
+            out.writeShort(2);
+            method(out, initName, initDesc, codeName, init);
+            method(out, writeName, writeDesc, codeName, write);
+            out.writeShort(0);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Writes a public method with the given Code attribute.
+         *
+         * @param out The class file stream.
+         * @param nameIndex The method name.
+         * @param descIndex The method descriptor.
+         * @param codeName The "Code" attribute name.
+         * @param code The complete Code attribute body.
+         * @throws IOException never
+         */
+        private static void method(DataOutputStream out, int nameIndex, int descIndex, int codeName,
+                byte[] code) throws IOException {
+            out.writeShort(0x0001);
+            out.writeShort(nameIndex);
+            out.writeShort(descIndex);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(code.length);
+            out.write(code);
+        }
+
+        /**
+         * Builds the Code attribute body of the no-argument constructor.
+         *
+         * @return The attribute body.
+         * @throws IOException never
+         */
+        private byte[] constructor() throws IOException {
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(code);
+            out.writeByte(0x2A);                       // aload_0
+            out.writeByte(0xB7);                       // invokespecial Object.<init>
+            out.writeShort(this.methodRef("java/lang/Object", "<init>", "()V"));
+            out.writeByte(0xB1);                       // return
+            return codeAttribute(1, 1, code.toByteArray());
+        }
+
+        /**
+         * Builds the Code attribute body of <code>write(ResultSet, Object)</code>.
+         * Local 1 is the result set, 2 the bean argument, 3 the cast bean and
+         * 4-5 hold a primitive value while its null check runs.
+         *
+         * @return The attribute body.
+         * @throws IOException never
+         */
+        private byte[] writeMethod() throws IOException {
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(code);
+            String beanClass = internalName(type);
+
+            out.writeByte(0x2C);                       // aload_2
+            out.writeByte(0xC0);                       // checkcast bean
+            out.writeShort(this.classRef(beanClass));
+            out.writeByte(0x4E);                       // astore_3
+
+            for (ColumnWriter writer : writers) {
+                Integer reader = Integer.valueOf(writer.reader);
+                Class<?> primitive = primitives.get(reader);
+                String getterDesc = "(I)" + (primitive != null ? descriptor(primitive)
+                        : writer.paramType == String.class ? "Ljava/lang/String;" : "Ljava/sql/Timestamp;");
+                int getter = this.interfaceMethodRef(RESULT_SET, getters.get(reader), getterDesc);
+                int setter = this.methodRef(beanClass, writer.setter.getName(), descriptor(writer.setter));
+                Class<?> returned = writer.setter.getReturnType();
+
+                if (primitive == null || writer.paramType.isPrimitive()) {
+                    out.writeByte(0x2D);               // aload_3
+                    out.writeByte(0x2B);               // aload_1
+                    pushInt(out, writer.column);
+                    invokeInterface(out, getter, 2);
+                    invokeSetter(out, setter, returned);
+                    continue;
+                }
+
+                // wrapper property: box the value unless the column was SQL NULL
+                int store = primitive == Long.TYPE ? 0x37 : primitive == Double.TYPE ? 0x39
+                        : primitive == Float.TYPE ? 0x38 : 0x36;
+                int load = store - 0x21;
+                int valueOf = this.methodRef(internalName(writer.paramType), "valueOf",
+                        "(" + descriptor(primitive) + ")" + descriptor(writer.paramType));
+
+                ByteArrayOutputStream nullBlock = new ByteArrayOutputStream();
+                DataOutputStream nullOut = new DataOutputStream(nullBlock);
+                nullOut.writeByte(0x2D);               // aload_3
+                nullOut.writeByte(0x01);               // aconst_null
+                invokeSetter(nullOut, setter, returned);
+
+                ByteArrayOutputStream valueBlock = new ByteArrayOutputStream();
+                DataOutputStream valueOut = new DataOutputStream(valueBlock);
+                valueOut.writeByte(0x2D);              // aload_3
+                valueOut.writeByte(load);              // xload 4
+                valueOut.writeByte(4);
+                valueOut.writeByte(0xB8);              // invokestatic valueOf
+                valueOut.writeShort(valueOf);
+                invokeSetter(valueOut, setter, returned);
+
+                out.writeByte(0x2B);                   // aload_1
+                pushInt(out, writer.column);
+                invokeInterface(out, getter, 2);
+                out.writeByte(store);                  // xstore 4
+                out.writeByte(4);
+                out.writeByte(0x2B);                   // aload_1
+                invokeInterface(out, this.interfaceMethodRef(RESULT_SET, "wasNull", "()Z"), 1);
+                out.writeByte(0x99);                   // ifeq value block
+                out.writeShort(3 + nullBlock.size() + 3);
+                nullBlock.writeTo(out);
+                out.writeByte(0xA7);                   // goto end
+                out.writeShort(3 + valueBlock.size());
+                valueBlock.writeTo(out);
+            }
+
+            out.writeByte(0xB1);                       // return
+            return codeAttribute(4, 6, code.toByteArray());
+        }
+
+        /**
+         * Wraps bytecode into a Code attribute body without exception
+         * handlers or nested attributes.
+         *
+         * @param maxStack The maximum operand stack depth.
+         * @param maxLocals The number of local variable slots.
+         * @param code The bytecode.
+         * @return The attribute body.
+         * @throws IOException never
+         */
+        private static byte[] codeAttribute(int maxStack, int maxLocals, byte[] code) throws IOException {
+            ByteArrayOutputStream attr = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(attr);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0);
+            out.writeShort(0);
+            return attr.toByteArray();
+        }
+
+        /**
+         * Emits an <code>invokeinterface</code> instruction.
+         *
+         * @param out The code stream.
+         * @param method The interface method reference.
+         * @param slots The argument slots including the receiver.
+         * @throws IOException never
+         */
+        private static void invokeInterface(DataOutputStream out, int method, int slots) throws IOException {
+            out.writeByte(0xB9);
+            out.writeShort(method);
+            out.writeByte(slots);
+            out.writeByte(0);
+        }
+
+        /**
+         * Emits the setter call and discards whatever it returns.
+         *
+         * @param out The code stream.
+         * @param setter The setter method reference.
+         * @param returned The setter's return type.
+         * @throws IOException never
+         */
+        private static void invokeSetter(DataOutputStream out, int setter, Class<?> returned) throws IOException {
+            out.writeByte(0xB6);                       // invokevirtual
+            out.writeShort(setter);
+            if (returned == Long.TYPE || returned == Double.TYPE) {
+                out.writeByte(0x58);                   // pop2
+            } else if (returned != Void.TYPE) {
+                out.writeByte(0x57);                   // pop
+            }
+        }
+
+        /**
+         * Emits the shortest instruction pushing an int constant.
+         *
+         * @param out The code stream.
+         * @param value The constant.
+         * @throws IOException never
+         */
+        private void pushInt(DataOutputStream out, int value) throws IOException {
+            if (value >= -1 && value <= 5) {
+                out.writeByte(0x03 + value);           // iconst_<n>
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                out.writeByte(0x10);                   // bipush
+                out.writeByte(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                out.writeByte(0x11);                   // sipush
+                out.writeShort(value);
+            } else {
+                out.writeByte(0x13);                   // ldc_w
+                out.writeShort(this.integer(value));
+            }
+        }
+
+        /**
+         * Returns the index of a CONSTANT_Utf8 entry, adding it if needed.
+         *
+         * @param value The string.
+         * @return The constant pool index.
+         * @throws IOException never
+         */
+        private int utf8(String value) throws IOException {
+            String key = "U" + value;
+            Integer index = poolIndexes.get(key);
+            if (index == null) {
+                poolOut.writeByte(1);
+                poolOut.writeUTF(value);
+                index = this.add(key);
+            }
+            return index.intValue();
+        }
+
+        /**
+         * Returns the index of a CONSTANT_Integer entry, adding it if needed.
+         *
+         * @param value The constant.
+         * @return The constant pool index.
+         * @throws IOException never
+         */
+        private int integer(int value) throws IOException {
+            String key = "I" + value;
+            Integer index = poolIndexes.get(key);
+            if (index == null) {
+                poolOut.writeByte(3);
+                poolOut.writeInt(value);
+                index = this.add(key);
+            }
+            return index.intValue();
+        }
+
+        /**
+         * Returns the index of a CONSTANT_Class entry, adding it if needed.
+         *
+         * @param internalName The class's internal name.
+         * @return The constant pool index.
+         * @throws IOException never
+         */
+        private int classRef(String internalName) throws IOException {
+            String key = "C" + internalName;
+            Integer index = poolIndexes.get(key);
+            if (index == null) {
+                int nameIndex = this.utf8(internalName);
+                poolOut.writeByte(7);
+                poolOut.writeShort(nameIndex);
+                index = this.add(key);
+            }
+            return index.intValue();
+        }
+
+        /**
+         * Returns the index of a CONSTANT_Methodref entry, adding it if needed.
+         *
+         * @param owner The owner's internal name.
+         * @param methodName The method name.
+         * @param desc The method descriptor.
+         * @return The constant pool index.
+         * @throws IOException never
+         */
+        private int methodRef(String owner, String methodName, String desc) throws IOException {
+            return this.memberRef(10, owner, methodName, desc);
+        }
+
+        /**
+         * Returns the index of a CONSTANT_InterfaceMethodref entry, adding it if needed.
+         *
+         * @param owner The owner's internal name.
+         * @param methodName The method name.
+         * @param desc The method descriptor.
+         * @return The constant pool index.
+         * @throws IOException never
+         */
+        private int interfaceMethodRef(String owner, String methodName, String desc) throws IOException {
+            return this.memberRef(11, owner, methodName, desc);
+        }
+
+        /**
+         * Returns the index of a member reference entry, adding it and its
+         * CONSTANT_NameAndType entry if needed.
+         *
+         * @param tag The constant pool tag.
+         * @param owner The owner's internal name.
+         * @param methodName The member name.
+         * @param desc The member descriptor.
+         * @return The constant pool index.
+         * @throws IOException never
+         */
+        private int memberRef(int tag, String owner, String methodName, String desc) throws IOException {
+            String key = tag + owner + "." + methodName + desc;
+            Integer index = poolIndexes.get(key);
+            if (index == null) {
+                int ownerIndex = this.classRef(owner);
+                String natKey = "N" + methodName + desc;
+                Integer nat = poolIndexes.get(natKey);
+                if (nat == null) {
+                    int nameIndex = this.utf8(methodName);
+                    int descIndex = this.utf8(desc);
+                    poolOut.writeByte(12);
+                    poolOut.writeShort(nameIndex);
+                    poolOut.writeShort(descIndex);
+                    nat = this.add(natKey);
+                }
+                poolOut.writeByte(tag);
+                poolOut.writeShort(ownerIndex);
+                poolOut.writeShort(nat.intValue());
+                index = this.add(key);
+            }
+            return index.intValue();
+        }
+
+        /**
+         * Records the entry just written to the pool under the given key.
+         *
+         * @param key The entry key.
+         * @return The entry's constant pool index.
+         */
+        private Integer add(String key) {
+            Integer index = Integer.valueOf(poolSize++);
+            poolIndexes.put(key, index);
+            return index;
+        }
+    }
+
+}
@@ -0,0 +1,557 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.dbutils.handlers.columns.BooleanColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.ByteColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.DoubleColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.FloatColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.IntegerColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.LongColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.ShortColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.StringColumnHandler;
+import org.apache.commons.dbutils.handlers.columns.TimestampColumnHandler;
+
+/**
+ * <p>
+ * <code>CompiledBeanProcessor</code> compiles, once per bean class and column
+ * layout, a row mapper that reads each column with the typed
+ * <code>ResultSet</code> getter matching its property (<code>getInt</code>
+ * for an <code>int</code> property and so on) and calls a setter resolved up
+ * front.  Rows are then populated without scanning the
+ * <code>ColumnHandler</code> and <code>PropertyHandler</code> services,
+ * without the extra <code>getObject</code> call per column and with one
+ * argument array per result set instead of one per column.
+ * </p>
+ *
+ * <p>
+ * Properties whose type has no dedicated getter, or whose
+ * <code>ColumnHandler</code> is not one of the built-in ones, are read with the
+ * handler resolved when the mapper was compiled and go through the
+ * <code>PropertyHandler</code> services as usual.  Overrides of
+ * <code>processColumn</code> and <code>getWriteMethod</code> are not consulted
+ * by compiled mappers; <code>mapColumnsToProperties</code> and
+ * <code>newInstance</code> are.
+ * </p>
+ *
+ * <p>
+ * Use it by handing an instance to a <code>BasicRowProcessor</code>:
+ * <pre>
+ * RowProcessor rp = new BasicRowProcessor(new CompiledBeanProcessor());
+ * List&lt;Person&gt; people = run.query(sql, new BeanListHandler&lt;Person&gt;(Person.class, rp));
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 1.8
+ */
+public class CompiledBeanProcessor extends BeanProcessor {
+
+    /**
+     * Read the column with <code>getObject</code> and the resolved handlers.
+     */
+    static final int READ_OBJECT = 0;
+
+    /**
+     * Read the column with <code>getInt</code>.
+     */
+    static final int READ_INT = 1;
+
+    /**
+     * Read the column with <code>getLong</code>.
+     */
+    static final int READ_LONG = 2;
+
+    /**
+     * Read the column with <code>getDouble</code>.
+     */
+    static final int READ_DOUBLE = 3;
+
+    /**
+     * Read the column with <code>getFloat</code>.
+     */
+    static final int READ_FLOAT = 4;
+
+    /**
+     * Read the column with <code>getShort</code>.
+     */
+    static final int READ_SHORT = 5;
+
+    /**
+     * Read the column with <code>getByte</code>.
+     */
+    static final int READ_BYTE = 6;
+
+    /**
+     * Read the column with <code>getBoolean</code>.
+     */
+    static final int READ_BOOLEAN = 7;
+
+    /**
+     * Read the column with <code>getString</code>.
+     */
+    static final int READ_STRING = 8;
+
+    /**
+     * Read the column with <code>getTimestamp</code>.
+     */
+    static final int READ_TIMESTAMP = 9;
+
+    /**
+     * Typed getter to use for each built-in <code>ColumnHandler</code>.
+     */
+    private static final Map<Class<?>, Integer> readers = new HashMap<Class<?>, Integer>();
+
+    static {
+        readers.put(IntegerColumnHandler.class, Integer.valueOf(READ_INT));
+        readers.put(LongColumnHandler.class, Integer.valueOf(READ_LONG));
+        readers.put(DoubleColumnHandler.class, Integer.valueOf(READ_DOUBLE));
+        readers.put(FloatColumnHandler.class, Integer.valueOf(READ_FLOAT));
+        readers.put(ShortColumnHandler.class, Integer.valueOf(READ_SHORT));
+        readers.put(ByteColumnHandler.class, Integer.valueOf(READ_BYTE));
+        readers.put(BooleanColumnHandler.class, Integer.valueOf(READ_BOOLEAN));
+        readers.put(StringColumnHandler.class, Integer.valueOf(READ_STRING));
+        readers.put(TimestampColumnHandler.class, Integer.valueOf(READ_TIMESTAMP));
+    }
+
+    /**
+     * Compiled row mappers per bean class, keyed by column layout.  Keys are
+     * weak and values soft for the same reasons as the mapping cache in
+     * <code>BeanProcessor</code>, and like it at most
+     * <code>MAX_CACHED_LAYOUTS</code> layouts are kept per class.
+     */
+    private final Map<Class<?>, Reference<ConcurrentMap<String, RowMapper>>> mappers =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<ConcurrentMap<String, RowMapper>>>());
+
+    /**
+     * Constructor for CompiledBeanProcessor.
+     */
+    public CompiledBeanProcessor() {
+        super();
+    }
+
+    /**
+     * Constructor for CompiledBeanProcessor configured with column to property name overrides.
+     *
+     * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+     */
+    public CompiledBeanProcessor(Map<String, String> columnToPropertyOverrides) {
+        super(columnToPropertyOverrides);
+    }
+
+    /**
+     * Constructor for CompiledBeanProcessor configured with column to property
+     * name overrides and additional column and property handlers.
+     *
+     * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+     * @param columnHandlers Column handlers to use ahead of the classpath ones
+     * @param propertyHandlers Property handlers to use ahead of the classpath ones
+     */
+    public CompiledBeanProcessor(Map<String, String> columnToPropertyOverrides,
+            List<? extends ColumnHandler> columnHandlers,
+            List<? extends PropertyHandler> propertyHandlers) {
+        super(columnToPropertyOverrides, columnHandlers, propertyHandlers);
+    }
+
+    /**
+     * Convert a <code>ResultSet</code> row into a JavaBean using the
+     * compiled mapper for the bean class and column layout.
+     *
+     * @param <T> The type of bean to create
+     * @param rs ResultSet that supplies the bean data
+     * @param type Class from which to create the bean instance
+     * @throws SQLException if a database access error occurs
+     * @return the newly created bean
+     */
+    @Override
+    public <T> T toBean(ResultSet rs, Class<? extends T> type) throws SQLException {
+        RowMapper mapper = this.rowMapper(type, rs.getMetaData());
+        return this.createBean(rs, type, mapper, new Object[1]);
+    }
+
+    /**
+     * Convert a <code>ResultSet</code> into a <code>List</code> of JavaBeans
+     * using the compiled mapper for the bean class and column layout.
+     *
+     * @param <T> The type of bean to create
+     * @param rs ResultSet that supplies the bean data
+     * @param type Class from which to create the bean instance
+     * @throws SQLException if a database access error occurs
+     * @return the newly created List of beans
+     */
+    @Override
+    public <T> List<T> toBeanList(ResultSet rs, Class<? extends T> type) throws SQLException {
+        List<T> results = new ArrayList<T>();
+
+        if (!rs.next()) {
+            return results;
+        }
+
+        RowMapper mapper = this.rowMapper(type, rs.getMetaData());
+        Object[] args = new Object[1];
+
+        do {
+            results.add(this.createBean(rs, type, mapper, args));
+        } while (rs.next());
+
+        return results;
+    }
+
+    /**
+     * Initializes the fields of the provided bean from the ResultSet using
+     * the compiled mapper for the bean class and column layout.
+     *
+     * @param <T> The type of bean
+     * @param rs The result set.
+     * @param bean The bean to be populated.
+     * @return An initialized object.
+     * @throws SQLException if a database error occurs.
+     */
+    @Override
+    public <T> T populateBean(ResultSet rs, T bean) throws SQLException {
+        RowMapper mapper = this.rowMapper(bean.getClass(), rs.getMetaData());
+        return mapper.populate(rs, bean, new Object[1]);
+    }
+
+    /**
+     * Creates a bean from the current row with the given compiled mapper.
+     *
+     * @param <T> The type of bean to create
+     * @param rs The <code>ResultSet</code> positioned on a valid row.
+     * @param type The bean class.
+     * @param mapper The mapper compiled for the bean class and column layout.
+     * @param args A reusable single element argument array.
+     * @return The new bean.
+     * @throws SQLException if the bean cannot be created or populated
+     */
+    <T> T createBean(ResultSet rs, Class<T> type, RowMapper mapper, Object[] args) throws SQLException {
+        T bean = this.newInstance(type);
+        return mapper.populate(rs, bean, args);
+    }
+
+    /**
+     * Returns the compiled mapper for the given bean class and column
+     * layout, compiling it the first time the combination is seen.
+     *
+     * @param type The bean class.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The row mapper.
+     * @throws SQLException if introspection or a database access fails
+     */
+    private RowMapper rowMapper(Class<?> type, ResultSetMetaData rsmd) throws SQLException {
+        Reference<ConcurrentMap<String, RowMapper>> ref = mappers.get(type);
+        ConcurrentMap<String, RowMapper> layouts = (ref == null) ? null : ref.get();
+        if (layouts == null) {
+            layouts = new ConcurrentHashMap<String, RowMapper>();
+            mappers.put(type, new SoftReference<ConcurrentMap<String, RowMapper>>(layouts));
+        }
+
+        String layout = columnLayout(rsmd);
+        RowMapper mapper = layouts.get(layout);
+        if (mapper == null) {
+            mapper = this.compile(type, rsmd);
+            if (layouts.size() >= MAX_CACHED_LAYOUTS) {
+                layouts.clear();
+            }
+            layouts.put(layout, mapper);
+        }
+        return mapper;
+    }
+
+    /**
+     * Compiles the row mapper for the given bean class and column layout.
+     *
+     * @param type The bean class.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The row mapper.
+     * @throws SQLException if introspection or a database access fails
+     */
+    RowMapper compile(Class<?> type, ResultSetMetaData rsmd) throws SQLException {
+        BeanMapping mapping = this.beanMapping(type);
+        int[] columnToProperty = this.columnToProperty(mapping, rsmd);
+
+        List<ColumnWriter> writers = new ArrayList<ColumnWriter>();
+        for (int col = 1; col < columnToProperty.length; col++) {
+            if (columnToProperty[col] == PROPERTY_NOT_FOUND) {
+                continue;
+            }
+
+            PropertyDescriptor prop = mapping.props[columnToProperty[col]];
+            Method setter = prop.getWriteMethod();
+            if (setter == null || setter.getParameterTypes().length != 1) {
+                continue;
+            }
+
+            writers.add(new ColumnWriter(col, prop.getName(), setter, prop.getPropertyType()));
+        }
+
+        return new RowMapper(writers.toArray(new ColumnWriter[writers.size()]));
+    }
+
+    /**
+     * Reads one column, with the typed getter or the column handler resolved
+     * for the target type.
+     */
+    class ColumnReader {
+
+        /**
+         * The <code>ResultSet</code> column index.
+         */
+        final int column;
+
+        /**
+         * The target property or parameter name, for error messages.
+         */
+        final String name;
+
+        /**
+         * The type the value is passed as.
+         */
+        final Class<?> paramType;
+
+        /**
+         * The type the column is read for; <code>null</code> for indexed-only properties.
+         */
+        final Class<?> propType;
+
+        /**
+         * The resolved column handler used when reading with <code>READ_OBJECT</code>.
+         */
+        private final ColumnHandler handler;
+
+        /**
+         * The property handler dispatch used for the last value read.
+         */
+        private PropertyMatch match;
+
+        /**
+         * One of the <code>READ_*</code> constants.
+         */
+        final int reader;
+
+        /**
+         * Whether a typed read has to report SQL NULL as <code>null</code>.
+         */
+        private final boolean nullable;
+
+        /**
+         * Creates a column reader.
+         *
+         * @param column The column index.
+         * @param name The property or parameter name.
+         * @param paramType The type the value is passed as.
+         * @param propType The type the column is read for.
+         */
+        ColumnReader(int column, String name, Class<?> paramType, Class<?> propType) {
+            this.column = column;
+            this.name = name;
+            this.paramType = paramType;
+            this.propType = propType;
+            this.handler = (propType == null) ? null : columnHandler(propType);
+            Integer typed = (handler == null) ? null : readers.get(handler.getClass());
+            this.reader = (typed == null) ? READ_OBJECT : typed.intValue();
+            this.nullable = propType == null || !propType.isPrimitive();
+        }
+
+        /**
+         * Reads the column value from the current row.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @return The value, converted to <code>paramType</code> where possible.
+         * @throws SQLException if a database access error occurs or the value
+         * is not compatible with <code>paramType</code>
+         */
+        Object read(ResultSet rs) throws SQLException {
+            Object value;
+            switch (reader) {
+            case READ_INT:
+                value = Integer.valueOf(rs.getInt(column));
+                break;
+            case READ_LONG:
+                value = Long.valueOf(rs.getLong(column));
+                break;
+            case READ_DOUBLE:
+                value = Double.valueOf(rs.getDouble(column));
+                break;
+            case READ_FLOAT:
+                value = Float.valueOf(rs.getFloat(column));
+                break;
+            case READ_SHORT:
+                value = Short.valueOf(rs.getShort(column));
+                break;
+            case READ_BYTE:
+                value = Byte.valueOf(rs.getByte(column));
+                break;
+            case READ_BOOLEAN:
+                value = Boolean.valueOf(rs.getBoolean(column));
+                break;
+            case READ_STRING:
+                return rs.getString(column);
+            case READ_TIMESTAMP:
+                return rs.getTimestamp(column);
+            default:
+                value = this.readObject(rs);
+                if (!isCompatibleType(value, paramType)) {
+                    throw new SQLException(
+                        "Cannot set " + name + ": incompatible types, cannot convert "
+                        + value.getClass().getName() + " to " + paramType.getName());
+                }
+                return value;
+            }
+            return (nullable && rs.wasNull()) ? null : value;
+        }
+
+        /**
+         * Reads the column the way <code>BeanProcessor.processColumn</code>
+         * does, with the handlers resolved at compile time.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @return The value to pass on.
+         * @throws SQLException if a database access error occurs
+         */
+        private Object readObject(ResultSet rs) throws SQLException {
+            if (propType == null) {
+                return null;
+            }
+
+            Object value = rs.getObject(column);
+            if (value == null && !propType.isPrimitive()) {
+                return null;
+            }
+            if (handler != null) {
+                value = handler.apply(rs, column);
+            }
+            if (value == null) {
+                value = primitiveDefault(propType);
+            }
+            PropertyMatch last = propertyMatch(this.match, paramType, value);
+            this.match = last;
+            return last.apply(value);
+        }
+    }
+
+    /**
+     * Reads one column and writes it into one bean property.
+     */
+    final class ColumnWriter extends ColumnReader {
+
+        /**
+         * The resolved write method.
+         */
+        final Method setter;
+
+        /**
+         * Creates a column writer.
+         *
+         * @param column The column index.
+         * @param name The property name.
+         * @param setter The write method.
+         * @param propType The property type.
+         */
+        ColumnWriter(int column, String name, Method setter, Class<?> propType) {
+            super(column, name, setter.getParameterTypes()[0], propType);
+            this.setter = setter;
+        }
+
+        /**
+         * Reads the column and calls the setter with it.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param bean The bean to populate.
+         * @param args A reusable single element argument array.
+         * @throws SQLException if the value cannot be read or set
+         */
+        void write(ResultSet rs, Object bean, Object[] args) throws SQLException {
+            args[0] = this.read(rs);
+            try {
+                setter.invoke(bean, args);
+
+            } catch (IllegalArgumentException e) {
+                throw new SQLException(
+                    "Cannot set " + name + ": " + e.getMessage());
+
+            } catch (IllegalAccessException e) {
+                throw new SQLException(
+                    "Cannot set " + name + ": " + e.getMessage());
+
+            } catch (InvocationTargetException e) {
+                throw new SQLException(
+                    "Cannot set " + name + ": " + e.getMessage());
+            } finally {
+                args[0] = null;
+            }
+        }
+    }
+
+    /**
+     * The column writers compiled for one bean class and column layout.
+     */
+    static class RowMapper {
+
+        /**
+         * The writers, in column order.
+         */
+        final ColumnWriter[] writers;
+
+        /**
+         * Creates a row mapper.
+         *
+         * @param writers The column writers.
+         */
+        RowMapper(ColumnWriter[] writers) {
+            this.writers = writers;
+        }
+
+        /**
+         * Populates the bean from the current row.
+         *
+         * @param <T> The type of bean
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param bean The bean to populate.
+         * @param args A reusable single element argument array.
+         * @return The populated bean.
+         * @throws SQLException if a value cannot be read or set
+         */
+        <T> T populate(ResultSet rs, T bean, Object[] args) throws SQLException {
+            for (int i = 0; i < writers.length; i++) {
+                writers[i].write(rs, bean, args);
+            }
+            return bean;
+        }
+    }
+
+}
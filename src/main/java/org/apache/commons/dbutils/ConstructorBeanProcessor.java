@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.beans.ConstructorProperties;
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * <code>ConstructorBeanProcessor</code> creates immutable objects by passing
+ * the columns of a row straight to a constructor, so each row is
+ * materialized with a single constructor call and no setters.  The
+ * constructor is chosen, in order of preference, as:
+ * </p>
+ * <ol>
+ *     <li>the canonical constructor of a Java record;</li>
+ *     <li>a public constructor annotated with
+ *     <code>java.beans.ConstructorProperties</code> (the one with the most
+ *     parameters if there are several);</li>
+ *     <li>for classes without a public no-argument constructor, the only
+ *     public constructor, if the class was compiled with parameter names
+ *     (<code>javac -parameters</code>).</li>
+ * </ol>
+ *
+ * <p>
+ * Columns are matched to parameter names exactly like they are matched to
+ * property names, including <code>columnToPropertyOverrides</code> and
+ * overrides of <code>mapColumnsToProperties</code>.  Parameters without a
+ * matching column receive <code>null</code> or their primitive default.  The
+ * argument plan is computed once per class and column layout.  Classes with
+ * none of the constructors above are populated through setters as by
+ * <code>CompiledBeanProcessor</code>, as is any bean passed to
+ * <code>populateBean</code>.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 1.8
+ */
+public class ConstructorBeanProcessor extends CompiledBeanProcessor {
+
+    /**
+     * <code>Class.isRecord()</code>, or <code>null</code> before Java 16.
+     */
+    private static final Method IS_RECORD = method(Class.class, "isRecord");
+
+    /**
+     * <code>Class.getRecordComponents()</code>, or <code>null</code> before Java 16.
+     */
+    private static final Method GET_RECORD_COMPONENTS = method(Class.class, "getRecordComponents");
+
+    /**
+     * <code>Constructor.getParameters()</code>, or <code>null</code> before Java 8.
+     */
+    private static final Method GET_PARAMETERS = method(Constructor.class, "getParameters");
+
+    /**
+     * Constructor for ConstructorBeanProcessor.
+     */
+    public ConstructorBeanProcessor() {
+        super();
+    }
+
+    /**
+     * Constructor for ConstructorBeanProcessor configured with column to property name overrides.
+     *
+     * @param columnToPropertyOverrides ResultSet column to parameter name overrides
+     */
+    public ConstructorBeanProcessor(Map<String, String> columnToPropertyOverrides) {
+        super(columnToPropertyOverrides);
+    }
+
+    /**
+     * Constructor for ConstructorBeanProcessor configured with column to property
+     * name overrides and additional column and property handlers.
+     *
+     * @param columnToPropertyOverrides ResultSet column to parameter name overrides
+     * @param columnHandlers Column handlers to use ahead of the classpath ones
+     * @param propertyHandlers Property handlers to use ahead of the classpath ones
+     */
+    public ConstructorBeanProcessor(Map<String, String> columnToPropertyOverrides,
+            List<? extends ColumnHandler> columnHandlers,
+            List<? extends PropertyHandler> propertyHandlers) {
+        super(columnToPropertyOverrides, columnHandlers, propertyHandlers);
+    }
+
+    /**
+     * Creates the bean by calling the bound constructor when the mapper has one.
+     *
+     * @param <T> The type of bean to create
+     * @param rs The <code>ResultSet</code> positioned on a valid row.
+     * @param type The bean class.
+     * @param mapper The mapper compiled for the bean class and column layout.
+     * @param args A reusable single element argument array.
+     * @return The new bean.
+     * @throws SQLException if the bean cannot be created or populated
+     */
+    @Override
+    <T> T createBean(ResultSet rs, Class<T> type, RowMapper mapper, Object[] args) throws SQLException {
+        if (mapper instanceof ConstructorMapper) {
+            return type.cast(((ConstructorMapper) mapper).construct(rs));
+        }
+        return super.createBean(rs, type, mapper, args);
+    }
+
+    /**
+     * Compiles the setter based mapper and, if the class has a bindable
+     * constructor, the argument plan for it.
+     *
+     * @param type The bean class.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The row mapper.
+     * @throws SQLException if introspection or a database access fails
+     */
+    @Override
+    RowMapper compile(Class<?> type, ResultSetMetaData rsmd) throws SQLException {
+        RowMapper setters = super.compile(type, rsmd);
+
+        Constructor<?> ctor = null;
+        String[] names = null;
+        Object[] components = recordComponents(type);
+        if (components != null) {
+            Class<?>[] types = new Class<?>[components.length];
+            names = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                names[i] = (String) invoke(method(components[i].getClass(), "getName"), components[i]);
+                types[i] = (Class<?>) invoke(method(components[i].getClass(), "getType"), components[i]);
+            }
+            try {
+                ctor = type.getDeclaredConstructor(types);
+            } catch (NoSuchMethodException e) {
+                ctor = null;
+            }
+        } else {
+            ctor = annotatedConstructor(type);
+            if (ctor != null) {
+                names = ctor.getAnnotation(ConstructorProperties.class).value();
+            } else {
+                ctor = namedConstructor(type);
+                names = (ctor == null) ? null : parameterNames(ctor);
+            }
+        }
+
+        if (ctor == null || names == null || names.length != ctor.getParameterTypes().length) {
+            return setters;
+        }
+        if (!Modifier.isPublic(ctor.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+            try {
+                ctor.setAccessible(true);
+            } catch (SecurityException e) {
+                return setters;
+            }
+        }
+
+        PropertyDescriptor[] params = new PropertyDescriptor[names.length];
+        try {
+            for (int i = 0; i < names.length; i++) {
+                params[i] = new PropertyDescriptor(names[i], null, null);
+            }
+        } catch (IntrospectionException e) {
+            throw new SQLException(
+                "Bean introspection failed: " + e.getMessage());
+        }
+
+        int[] columnToParam = this.mapColumnsToProperties(rsmd, params);
+        Class<?>[] paramTypes = ctor.getParameterTypes();
+        ColumnReader[] arguments = new ColumnReader[names.length];
+        for (int col = 1; col < columnToParam.length; col++) {
+            int param = columnToParam[col];
+            if (param != PROPERTY_NOT_FOUND && arguments[param] == null) {
+                arguments[param] = new ColumnReader(col, names[param], paramTypes[param], paramTypes[param]);
+            }
+        }
+
+        Object[] defaults = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            defaults[i] = primitiveDefault(paramTypes[i]);
+        }
+
+        return new ConstructorMapper(setters.writers, ctor, arguments, defaults);
+    }
+
+    /**
+     * Returns the record components of a record class.
+     *
+     * @param type The class.
+     * @return The <code>RecordComponent</code> objects, or <code>null</code>
+     * if <code>type</code> is not a record.
+     */
+    private static Object[] recordComponents(Class<?> type) {
+        if (IS_RECORD == null || GET_RECORD_COMPONENTS == null
+                || !Boolean.TRUE.equals(invoke(IS_RECORD, type))) {
+            return null;
+        }
+        Object components = invoke(GET_RECORD_COMPONENTS, type);
+        if (components == null) {
+            return null;
+        }
+        Object[] result = new Object[Array.getLength(components)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Array.get(components, i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the public constructor annotated with
+     * <code>ConstructorProperties</code> that has the most parameters.
+     *
+     * @param type The class.
+     * @return The constructor, or <code>null</code> if there is none.
+     */
+    private static Constructor<?> annotatedConstructor(Class<?> type) {
+        Constructor<?> found = null;
+        Constructor<?>[] ctors = type.getConstructors();
+        for (int i = 0; i < ctors.length; i++) {
+            if (ctors[i].isAnnotationPresent(ConstructorProperties.class)
+                    && (found == null
+                        || ctors[i].getParameterTypes().length > found.getParameterTypes().length)) {
+                found = ctors[i];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the only public constructor of a class that has no public
+     * no-argument constructor.
+     *
+     * @param type The class.
+     * @return The constructor, or <code>null</code>.
+     */
+    private static Constructor<?> namedConstructor(Class<?> type) {
+        Constructor<?>[] ctors = type.getConstructors();
+        if (ctors.length != 1 || ctors[0].getParameterTypes().length == 0) {
+            return null;
+        }
+        return ctors[0];
+    }
+
+    /**
+     * Returns the parameter names of a constructor compiled with
+     * <code>javac -parameters</code>.
+     *
+     * @param ctor The constructor.
+     * @return The names, or <code>null</code> if they were not compiled in.
+     */
+    private static String[] parameterNames(Constructor<?> ctor) {
+        if (GET_PARAMETERS == null) {
+            return null;
+        }
+        Object params = invoke(GET_PARAMETERS, ctor);
+        if (params == null) {
+            return null;
+        }
+        String[] names = new String[Array.getLength(params)];
+        for (int i = 0; i < names.length; i++) {
+            Object param = Array.get(params, i);
+            if (!Boolean.TRUE.equals(invoke(method(param.getClass(), "isNamePresent"), param))) {
+                return null;
+            }
+            names[i] = (String) invoke(method(param.getClass(), "getName"), param);
+        }
+        return names;
+    }
+
+    /**
+     * Looks up a public no-argument method that may not exist on this JVM.
+     *
+     * @param c The class declaring the method.
+     * @param name The method name.
+     * @return The method, or <code>null</code>.
+     */
+    private static Method method(Class<?> c, String name) {
+        try {
+            return c.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Invokes a no-argument method, swallowing any failure.
+     *
+     * @param m The method, possibly <code>null</code>.
+     * @param target The receiver.
+     * @return The result, or <code>null</code> if the call failed.
+     */
+    private static Object invoke(Method m, Object target) {
+        if (m == null) {
+            return null;
+        }
+        try {
+            return m.invoke(target);
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A row mapper that can also create the bean through a bound constructor.
+     */
+    private static final class ConstructorMapper extends RowMapper {
+
+        /**
+         * The bound constructor.
+         */
+        private final Constructor<?> ctor;
+
+        /**
+         * The reader for each constructor parameter; <code>null</code> for
+         * parameters without a matching column.
+         */
+        private final ColumnReader[] arguments;
+
+        /**
+         * The value passed for each parameter without a matching column.
+         */
+        private final Object[] defaults;
+
+        /**
+         * Creates a constructor mapper.
+         *
+         * @param writers The setter based column writers, for <code>populateBean</code>.
+         * @param ctor The bound constructor.
+         * @param arguments The reader for each parameter.
+         * @param defaults The value for each parameter without a column.
+         */
+        ConstructorMapper(ColumnWriter[] writers, Constructor<?> ctor,
+                ColumnReader[] arguments, Object[] defaults) {
+            super(writers);
+            this.ctor = ctor;
+            this.arguments = arguments;
+            this.defaults = defaults;
+        }
+
+        /**
+         * Creates the bean from the current row.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @return The new bean.
+         * @throws SQLException if a value cannot be read or the constructor fails
+         */
+        Object construct(ResultSet rs) throws SQLException {
+            Object[] values = new Object[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = (arguments[i] == null) ? defaults[i] : arguments[i].read(rs);
+            }
+
+            try {
+                return ctor.newInstance(values);
+
+            } catch (IllegalArgumentException e) {
+                throw new SQLException(
+                    "Cannot create " + ctor.getDeclaringClass().getName() + ": " + e.getMessage());
+
+            } catch (InstantiationException e) {
+                throw new SQLException(
+                    "Cannot create " + ctor.getDeclaringClass().getName() + ": " + e.getMessage());
+
+            } catch (IllegalAccessException e) {
+                throw new SQLException(
+                    "Cannot create " + ctor.getDeclaringClass().getName() + ": " + e.getMessage());
+
+            } catch (InvocationTargetException e) {
+                throw new SQLException(
+                    "Cannot create " + ctor.getDeclaringClass().getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+}
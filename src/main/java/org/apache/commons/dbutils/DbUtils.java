@@ -47,9 +47,11 @@ import org.apache.commons.dbutils.handlers.BeanListHandler;
 import org.apache.commons.dbutils.handlers.ColumnListHandler;
 import org.apache.commons.dbutils.handlers.MapHandler;
 import org.apache.commons.dbutils.handlers.MapListHandler;
+import org.apache.commons.kettas.Dialect;
 import org.apache.commons.kettas.HandlerUtil;
 import org.apache.commons.kettas.JDBCPaginRunner;
 import org.apache.commons.kettas.NoClobRowProcessor;
+import org.apache.commons.kettas.PaginPrefetcher;
 
 /**
  * A collection of JDBC helper methods.  This class is thread safe.
@@ -64,7 +66,16 @@ public final class DbUtils {
 	private boolean autoClose  = true;//自动关闭Con
 	private static boolean CONNCETION_DATASOURCE=true;
 	private static JDBCPaginRunner run = new JDBCPaginRunner();// 分页扩展类
+	private static DataSource dialectSource = null;// run的方言是按这个数据源识别的
 	public NoClobRowProcessor rowProcessor=null;
+	/**
+	 * 没有自定义rowProcessor时分页共用的processor和handler;分页预取按handler和processor实例区分,
+	 * 共用同一个实例才能命中
+	 */
+	private static final NoClobRowProcessor PAGIN_PROCESSOR=new NoClobRowProcessor();
+	private static final ResultSetHandler PAGIN_HANDLER=new MapListHandler(PAGIN_PROCESSOR);
+	private ResultSetHandler paginHandler=null;
+	private NoClobRowProcessor paginHandlerProcessor=null;
     /**
      * Default constructor.
      *
@@ -141,6 +152,7 @@ public final class DbUtils {
 		if(CONNCETION_DATASOURCE
 				&& (this.connection == null || connection.isClosed())){
 			connection=ds.getConnection();
+			resolveDialect(ds, connection);
 		}
 		if(connection==null){
 			throw new SQLException("connection is null ");
@@ -174,6 +186,22 @@ public final class DbUtils {
 		}
 		return rows;
 	}
+	/**
+	 * 批量导入数据,PostgreSql使用COPY,其他数据库使用insert批处理
+	 * @param table 表名
+	 * @param columns 列名
+	 * @param rows 每行的值,顺序同columns
+	 * @return 导入的行数
+	 * @throws SQLException
+	 */
+	public long bulkLoad(String table, String[] columns, Object[][] rows) throws SQLException {
+		try {
+			getConnection();
+			return run.bulkLoad(connection, table, columns, rows);
+		} finally {
+			closeConnection();
+		}
+	}
 	/**
 	 * 批量执行INSERT,UPDATE,或者DELETE方面的SQL语句
 	 * @param sql 需要执行的SQL
@@ -316,6 +344,22 @@ public final class DbUtils {
 
 		return result;
 	}
+	/**
+	 * 分页使用的handler:没有自定义rowProcessor时用共用的实例,否则每个rowProcessor一个
+	 */
+	private ResultSetHandler getPaginHandler(){
+		if(rowProcessor==null){
+			return PAGIN_HANDLER;
+		}
+		if(paginHandler==null||paginHandlerProcessor!=rowProcessor){
+			paginHandler=new MapListHandler(rowProcessor);
+			paginHandlerProcessor=rowProcessor;
+		}
+		return paginHandler;
+	}
+	private RowProcessor getPaginRowProcessor(){
+		return rowProcessor==null?PAGIN_PROCESSOR:rowProcessor;
+	}
 	public RowProcessor getRowProcessor() {
 		if(rowProcessor==null){
 			rowProcessor=new NoClobRowProcessor();
@@ -733,7 +777,7 @@ public final class DbUtils {
 	 * 带参数的分页查询
 	 * @param pageNum 需要查询页码页码
 	 * @param maxRow 分页时每页的最大允许显示的总数
-	 * @param countSql 分页时统计信息总数的sql语句(select count(*) from table1)
+	 * @param countSql 分页时统计信息总数的sql语句(select count(*) from table1),为null时由queryAllSql生成
 	 * @param queryAllSql 分页时显示当前页内容的sql
 	 * @param params sql中需要的参数(允许为空)
 	 * @return Pagin
@@ -741,9 +785,9 @@ public final class DbUtils {
 	 */
 	@SuppressWarnings("unchecked")
 	public Pagin pagin(int pageNum,int maxRow,String countSql,String queryAllSql,Object...params)throws Exception{
-		ResultSetHandler h = new MapListHandler(getRowProcessor());
+		ResultSetHandler h = getPaginHandler();
 		try{
-			return run.pagin(getQueryConnection(), countSql, queryAllSql, params,h,getRowProcessor(), pageNum, maxRow);
+			return run.pagin(getQueryConnection(), countSql, queryAllSql, params,h,getPaginRowProcessor(), pageNum, maxRow);
 		}finally{
 			closeConnection();
 		}
@@ -752,15 +796,33 @@ public final class DbUtils {
 	 * 不带参数的分页查询
 	 * @param pageNum 需要查询页码页码
 	 * @param maxRow 分页时每页的最大允许显示的总数
-	 * @param countSql 分页时统计信息总数的sql语句(select count(*) from table1)
+	 * @param countSql 分页时统计信息总数的sql语句(select count(*) from table1),为null时由queryAllSql生成
 	 * @param queryAllSql 用于查询全部的SQL(一定是查询全部如select * from table,底层已经对分页作优化不会加载多余数据)
 	 * @return Pagin
 	 * @throws Exception
 	 */
 	public Pagin pagin(int pageNum,int maxRow,String countSql,String queryAllSql)throws Exception{
+		ResultSetHandler h = getPaginHandler();
+		try{
+			return run.pagin(getQueryConnection(), countSql, queryAllSql, null,h,getPaginRowProcessor(), pageNum, maxRow);
+		}finally{
+			closeConnection();
+		}
+	}
+	/**
+	 * 键集(seek)分页查询,不统计总数,深度翻页和第一页一样快
+	 * @param maxRow 分页时每页的最大允许显示的总数
+	 * @param queryAllSql 用于查询全部的SQL(不能带order by,排序由keyColumns决定)
+	 * @param keyColumns 排序键,组合起来必须唯一,降序的键写成"列名 desc"
+	 * @param after 上一页的游标(KeysetPagin.getCursor()),第一页为null
+	 * @param params sql中需要的参数(允许为空)
+	 * @return KeysetPagin
+	 * @throws Exception
+	 */
+	public KeysetPagin seek(int maxRow,String queryAllSql,String[] keyColumns,Object[] after,Object...params)throws Exception{
 		ResultSetHandler h = new MapListHandler(getRowProcessor());
 		try{
-			return run.pagin(getQueryConnection(), countSql, queryAllSql, null,h,getRowProcessor(), pageNum, maxRow);
+			return run.seek(getQueryConnection(), queryAllSql, params, h, keyColumns, after, maxRow);
 		}finally{
 			closeConnection();
 		}
@@ -768,8 +830,29 @@ public final class DbUtils {
 	public void refresh(){
 		close();
 		ds=null;
+		resolveDialect(null, null);
 		CONNCETION_DATASOURCE=true;
 	}
+	/**
+	 * 数据源变化后用从它取得的第一个连接识别一次方言并设置给run(见Dialect.of(DataSource, Connection)),
+	 * 之后的分页不再按连接识别;dataSource为null时清除
+	 */
+	private static synchronized void resolveDialect(DataSource dataSource,Connection conn){
+		if(dataSource==dialectSource){
+			return;
+		}
+		Dialect dialect=null;
+		if(dataSource!=null){
+			try{
+				dialect=Dialect.of(dataSource, conn);
+			}catch(SQLException e){
+				// 不明类型的数据库只是不能分页,由分页时按连接识别并报告
+				dialect=null;
+			}
+		}
+		run.setDialect(dialect);
+		dialectSource=dataSource;
+	}
 	/**
 	 * 如果autoCommit(默认true)为true则直接关闭,反之则需要commit后再关闭
      */
@@ -1234,6 +1317,13 @@ public final class DbUtils {
 	public static void setPropertiesFile(String _propertiesFile) {
 		propertiesFile = _propertiesFile;
 	}
+	/**
+	 * 开启分页预取:pagin返回第N页后异步查询第N+1页。
+	 * 预取使用新的连接,prefetcher需要指定DataSource(如DbUtils.getDataSource()),null时关闭预取
+	 */
+	public static void setPaginPrefetcher(PaginPrefetcher prefetcher) {
+		run.setPrefetcher(prefetcher);
+	}
 	/**
 	 * ResultSet 取出列名转换为小写
 	 */
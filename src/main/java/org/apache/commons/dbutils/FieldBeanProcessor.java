@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ * <code>FieldBeanProcessor</code> writes columns straight into the fields
+ * of a bean instead of calling its setters.  Every non-static, non-final
+ * field declared by the bean class or one of its superclasses is a
+ * candidate, whatever its access modifier; a field hides a field of the
+ * same name in a superclass.  Columns are matched to field names exactly
+ * like they are matched to property names, including
+ * <code>columnToPropertyOverrides</code> and overrides of
+ * <code>mapColumnsToProperties</code>.
+ * </p>
+ *
+ * <p>
+ * Primitive fields read with a typed getter are written with
+ * <code>Field.setInt</code> and friends, so they are never boxed.  The
+ * field list is computed once per class and the column plan once per class
+ * and column layout.  Columns that match no field but match a writable
+ * property are still set through the setter, as by
+ * <code>CompiledBeanProcessor</code>.
+ * </p>
+ *
+ * <p>
+ * Non-public fields are made accessible with <code>setAccessible</code>;
+ * fields for which a security manager denies that are ignored.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 1.8
+ */
+public class FieldBeanProcessor extends CompiledBeanProcessor {
+
+    /**
+     * The bindable fields per bean class.  Keys are weak and values soft
+     * for the same reasons as the mapping cache in <code>BeanProcessor</code>.
+     */
+    private final Map<Class<?>, Reference<Field[]>> fieldPlans =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<Field[]>>());
+
+    /**
+     * Constructor for FieldBeanProcessor.
+     */
+    public FieldBeanProcessor() {
+        super();
+    }
+
+    /**
+     * Constructor for FieldBeanProcessor configured with column to property name overrides.
+     *
+     * @param columnToPropertyOverrides ResultSet column to field name overrides
+     */
+    public FieldBeanProcessor(Map<String, String> columnToPropertyOverrides) {
+        super(columnToPropertyOverrides);
+    }
+
+    /**
+     * Constructor for FieldBeanProcessor configured with column to property
+     * name overrides and additional column and property handlers.
+     *
+     * @param columnToPropertyOverrides ResultSet column to field name overrides
+     * @param columnHandlers Column handlers to use ahead of the classpath ones
+     * @param propertyHandlers Property handlers to use ahead of the classpath ones
+     */
+    public FieldBeanProcessor(Map<String, String> columnToPropertyOverrides,
+            List<? extends ColumnHandler> columnHandlers,
+            List<? extends PropertyHandler> propertyHandlers) {
+        super(columnToPropertyOverrides, columnHandlers, propertyHandlers);
+    }
+
+    /**
+     * Compiles a mapper that writes the columns matching a field directly
+     * and the remaining columns through their setters.
+     *
+     * @param type The bean class.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The row mapper.
+     * @throws SQLException if introspection or a database access fails
+     */
+    @Override
+    RowMapper compile(Class<?> type, ResultSetMetaData rsmd) throws SQLException {
+        RowMapper setters = super.compile(type, rsmd);
+
+        Field[] fields = this.fields(type);
+        if (fields.length == 0) {
+            return setters;
+        }
+
+        PropertyDescriptor[] names = new PropertyDescriptor[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                names[i] = new PropertyDescriptor(fields[i].getName(), null, null);
+            }
+        } catch (IntrospectionException e) {
+            throw new SQLException(
+                "Bean introspection failed: " + e.getMessage());
+        }
+
+        int[] columnToField = this.mapColumnsToProperties(rsmd, names);
+        List<FieldWriter> writers = new ArrayList<FieldWriter>();
+        Set<Integer> bound = new HashSet<Integer>();
+        for (int col = 1; col < columnToField.length; col++) {
+            if (columnToField[col] != PROPERTY_NOT_FOUND) {
+                writers.add(new FieldWriter(col, fields[columnToField[col]]));
+                bound.add(Integer.valueOf(col));
+            }
+        }
+        if (writers.isEmpty()) {
+            return setters;
+        }
+
+        List<ColumnWriter> rest = new ArrayList<ColumnWriter>();
+        for (int i = 0; i < setters.writers.length; i++) {
+            if (!bound.contains(Integer.valueOf(setters.writers[i].column))) {
+                rest.add(setters.writers[i]);
+            }
+        }
+
+        return new FieldMapper(writers.toArray(new FieldWriter[writers.size()]),
+            rest.toArray(new ColumnWriter[rest.size()]));
+    }
+
+    /**
+     * Returns the bindable fields of a class, computing them the first time
+     * the class is seen.
+     *
+     * @param type The bean class.
+     * @return The fields, subclass fields first.
+     */
+    private Field[] fields(Class<?> type) {
+        Reference<Field[]> ref = fieldPlans.get(type);
+        Field[] fields = (ref == null) ? null : ref.get();
+        if (fields != null) {
+            return fields;
+        }
+
+        List<Field> found = new ArrayList<Field>();
+        Set<String> seen = new HashSet<String>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            Field[] declared = c.getDeclaredFields();
+            for (int i = 0; i < declared.length; i++) {
+                Field field = declared[i];
+                int mod = field.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isFinal(mod) || field.isSynthetic()
+                        || !seen.add(field.getName())) {
+                    continue;
+                }
+                if (!Modifier.isPublic(mod) || !Modifier.isPublic(c.getModifiers())) {
+                    try {
+                        field.setAccessible(true);
+                    } catch (SecurityException e) {
+                        continue;
+                    }
+                }
+                found.add(field);
+            }
+        }
+
+        fields = found.toArray(new Field[found.size()]);
+        fieldPlans.put(type, new SoftReference<Field[]>(fields));
+        return fields;
+    }
+
+    /**
+     * Reads one column and writes it into one field.
+     */
+    private final class FieldWriter extends ColumnReader {
+
+        /**
+         * The target field.
+         */
+        private final Field field;
+
+        /**
+         * Whether the field has a primitive type.
+         */
+        private final boolean primitive;
+
+        /**
+         * Creates a field writer.
+         *
+         * @param column The column index.
+         * @param field The target field.
+         */
+        FieldWriter(int column, Field field) {
+            super(column, field.getName(), field.getType(), field.getType());
+            this.field = field;
+            this.primitive = field.getType().isPrimitive();
+        }
+
+        /**
+         * Reads the column and stores it in the field.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param bean The bean to populate.
+         * @throws SQLException if the value cannot be read or set
+         */
+        void write(ResultSet rs, Object bean) throws SQLException {
+            try {
+                if (primitive) {
+                    switch (reader) {
+                    case READ_INT:
+                        field.setInt(bean, rs.getInt(column));
+                        return;
+                    case READ_LONG:
+                        field.setLong(bean, rs.getLong(column));
+                        return;
+                    case READ_DOUBLE:
+                        field.setDouble(bean, rs.getDouble(column));
+                        return;
+                    case READ_FLOAT:
+                        field.setFloat(bean, rs.getFloat(column));
+                        return;
+                    case READ_SHORT:
+                        field.setShort(bean, rs.getShort(column));
+                        return;
+                    case READ_BYTE:
+                        field.setByte(bean, rs.getByte(column));
+                        return;
+                    case READ_BOOLEAN:
+                        field.setBoolean(bean, rs.getBoolean(column));
+                        return;
+                    default:
+                        break;
+                    }
+                }
+                field.set(bean, this.read(rs));
+
+            } catch (IllegalArgumentException e) {
+                throw new SQLException(
+                    "Cannot set " + name + ": " + e.getMessage());
+
+            } catch (IllegalAccessException e) {
+                throw new SQLException(
+                    "Cannot set " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A row mapper that writes fields before the remaining setter based
+     * column writers.
+     */
+    private static final class FieldMapper extends RowMapper {
+
+        /**
+         * The field writers, in column order.
+         */
+        private final FieldWriter[] fields;
+
+        /**
+         * Creates a field mapper.
+         *
+         * @param fields The field writers.
+         * @param rest The column writers for columns without a field.
+         */
+        FieldMapper(FieldWriter[] fields, ColumnWriter[] rest) {
+            super(rest);
+            this.fields = fields;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        <T> T populate(ResultSet rs, T bean, Object[] args) throws SQLException {
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].write(rs, bean);
+            }
+            return super.populate(rs, bean, args);
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * <code>GeneratedBeanProcessor</code> goes one step further than
+ * <code>CompiledBeanProcessor</code>: for each bean class and column layout
+ * it defines a class whose <code>write</code> method is straight-line
+ * <code>bean.setXxx(rs.getXxx(i))</code> code for every column read with a
+ * typed getter, so those columns are set without reflection or boxing.
+ * </p>
+ *
+ * <p>
+ * Code is only generated for public bean classes and public setters.
+ * Columns that need a <code>ColumnHandler</code> or
+ * <code>PropertyHandler</code>, and whole layouts for which class definition
+ * fails (for instance because the bean's class loader cannot see DbUtils),
+ * fall back to the reflective mapper of <code>CompiledBeanProcessor</code>.
+ * So does a layout whose generated code fails to link when it first runs;
+ * the fallback is permanent for that layout.
+ * Generated columns are set before the reflective ones.
+ * </p>
+ *
+ * <p>
+ * Use it like any other <code>BeanProcessor</code>:
+ * <pre>
+ * RowProcessor rp = new BasicRowProcessor(new GeneratedBeanProcessor());
+ * List&lt;Person&gt; people = run.query(sql, new BeanListHandler&lt;Person&gt;(Person.class, rp));
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 1.8
+ */
+public class GeneratedBeanProcessor extends CompiledBeanProcessor {
+
+    /**
+     * Constructor for GeneratedBeanProcessor.
+     */
+    public GeneratedBeanProcessor() {
+        super();
+    }
+
+    /**
+     * Constructor for GeneratedBeanProcessor configured with column to property name overrides.
+     *
+     * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+     */
+    public GeneratedBeanProcessor(Map<String, String> columnToPropertyOverrides) {
+        super(columnToPropertyOverrides);
+    }
+
+    /**
+     * Constructor for GeneratedBeanProcessor configured with column to property
+     * name overrides and additional column and property handlers.
+     *
+     * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+     * @param columnHandlers Column handlers to use ahead of the classpath ones
+     * @param propertyHandlers Property handlers to use ahead of the classpath ones
+     */
+    public GeneratedBeanProcessor(Map<String, String> columnToPropertyOverrides,
+            List<? extends ColumnHandler> columnHandlers,
+            List<? extends PropertyHandler> propertyHandlers) {
+        super(columnToPropertyOverrides, columnHandlers, propertyHandlers);
+    }
+
+    /**
+     * Compiles the reflective row mapper and then replaces the columns that
+     * can be written by generated code with a generated writer.
+     *
+     * @param type The bean class.
+     * @param rsmd The <code>ResultSetMetaData</code> describing the columns.
+     * @return The row mapper.
+     * @throws SQLException if introspection or a database access fails
+     */
+    @Override
+    RowMapper compile(Class<?> type, ResultSetMetaData rsmd) throws SQLException {
+        RowMapper mapper = super.compile(type, rsmd);
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return mapper;
+        }
+
+        List<ColumnWriter> generated = new ArrayList<ColumnWriter>();
+        List<ColumnWriter> rest = new ArrayList<ColumnWriter>();
+        for (int i = 0; i < mapper.writers.length; i++) {
+            if (BeanWriterGenerator.supports(mapper.writers[i])) {
+                generated.add(mapper.writers[i]);
+            } else {
+                rest.add(mapper.writers[i]);
+            }
+        }
+        if (generated.isEmpty()) {
+            return mapper;
+        }
+
+        BeanWriter writer = BeanWriterGenerator.generate(type, generated);
+        if (writer == null) {
+            return mapper;
+        }
+        return new GeneratedRowMapper(writer, rest.toArray(new ColumnWriter[rest.size()]), mapper);
+    }
+
+    /**
+     * Writes the columns of the current row into a bean.  Implemented by the
+     * generated classes; it is public only so that classes defined in
+     * another class loader can implement it.
+     */
+    public interface BeanWriter {
+
+        /**
+         * Writes the columns of the current row into the bean.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param bean The bean to populate.
+         * @throws SQLException if a database access error occurs
+         */
+        void write(ResultSet rs, Object bean) throws SQLException;
+    }
+
+    /**
+     * A row mapper that runs a generated writer before the remaining
+     * reflective column writers.
+     */
+    private static final class GeneratedRowMapper extends RowMapper {
+
+        /**
+         * The generated writer.
+         */
+        private final BeanWriter generated;
+
+        /**
+         * The reflective mapper for all columns, used once the generated
+         * writer failed to link.
+         */
+        private final RowMapper fallback;
+
+        /**
+         * Whether the generated writer failed to link.
+         */
+        private volatile boolean unlinked;
+
+        /**
+         * Creates a row mapper.
+         *
+         * @param generated The generated writer.
+         * @param rest The column writers not covered by <code>generated</code>.
+         * @param fallback The reflective mapper for all columns.
+         */
+        GeneratedRowMapper(BeanWriter generated, ColumnWriter[] rest, RowMapper fallback) {
+            super(rest);
+            this.generated = generated;
+            this.fallback = fallback;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        <T> T populate(ResultSet rs, T bean, Object[] args) throws SQLException {
+            if (unlinked) {
+                return fallback.populate(rs, bean, args);
+            }
+            try {
+                generated.write(rs, bean);
+            } catch (RuntimeException e) {
+                throw new SQLException(
+                    "Cannot populate " + bean.getClass().getName() + ": " + e.getMessage(), e);
+            } catch (LinkageError e) {
+                // verification or resolution failed on first use, e.g. a setter is not accessible
+                // from the generated class; every column is written again by reflection
+                unlinked = true;
+                return fallback.populate(rs, bean, args);
+            }
+            return super.populate(rs, bean, args);
+        }
+    }
+
+}
@@ -55,16 +55,15 @@ public class GenerousBeanProcessor extends BeanProcessor {
 
             final String generousColumnName = columnName.replace("_", "");
 
-            for (int i = 0; i < props.length; i++) {
-                final String propName = props[i].getName();
-
-                // see if either the column name, or the generous one matches
-                if (columnName.equalsIgnoreCase(propName) ||
-                        generousColumnName.equalsIgnoreCase(propName)) {
-                    columnToProperty[col] = i;
-                    break;
-                }
+            // see if either the column name, or the generous one matches;
+            // the earlier property wins, as with a linear scan
+            int match = propertyIndex(props, columnName);
+            final int generousMatch = propertyIndex(props, generousColumnName);
+            if (generousMatch != PROPERTY_NOT_FOUND
+                    && (match == PROPERTY_NOT_FOUND || generousMatch < match)) {
+                match = generousMatch;
             }
+            columnToProperty[col] = match;
         }
 
         return columnToProperty;
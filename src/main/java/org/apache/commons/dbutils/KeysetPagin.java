@@ -0,0 +1,76 @@
+package org.apache.commons.dbutils;
+
+import java.io.Serializable;
+import java.util.List;
+/**
+ * 键集(seek)分页bean 通过getRows()获得当前页列表,通过getCursor()获得翻下一页时需要传回的游标
+ * KeysetPagin page=run.seek(conn, sql, params, rsh, new String[]{"createTime desc","id"}, null, 20);
+ * page=run.seek(conn, sql, params, rsh, page.getKeyColumns(), page.getCursor(), 20);
+ * 游标是当前页最后一行的排序键值,下一页用"排序键大于游标"的条件查询,翻到多深都和第一页一样快。
+ * 键集分页不统计总数,只知道是否还有下一页。
+ */
+public class KeysetPagin<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private int pageMaxRows = 10;// 每页显示记录
+	private long times=0l;//查询时间(毫秒)
+	private List<T> rows;// 当前页数据
+	private String[] keyColumns;// 排序键,如"id"或"createTime desc"
+	private Object[] cursor;// 当前页最后一行的排序键值,没有数据时为查询时传入的游标
+	private boolean nextPage = false;// 没有下一页
+	private boolean previousPage = false;// 没有上一页
+	/**
+	 * @param keyColumns 排序键
+	 * @param after 本页查询时使用的游标(第一页为null)
+	 * @param cursor 当前页最后一行的排序键值,没有数据时传after
+	 * @param pageMaxRow 每页显示总数
+	 * @param nextPage 是否还有下一页
+	 * @param list 当前页数据
+	 */
+	public KeysetPagin(String[] keyColumns,Object[] after,Object[] cursor,int pageMaxRow,boolean nextPage,List<T> list){
+		this.keyColumns=keyColumns;
+		this.cursor=cursor;
+		this.pageMaxRows=pageMaxRow<0?0:pageMaxRow;
+		this.nextPage=nextPage;
+		this.previousPage=after!=null;
+		this.rows=list;
+	}
+	public int getPageMaxRows() {
+		return pageMaxRows;
+	}
+	public void setPageMaxRows(int pageMaxRows) {
+		this.pageMaxRows = pageMaxRows;
+	}
+	public List<T> getRows() {
+		return rows;
+	}
+	public void setRows(List<T> rows) {
+		this.rows = rows;
+	}
+	public String[] getKeyColumns() {
+		return keyColumns;
+	}
+	public Object[] getCursor() {
+		return cursor;
+	}
+	public void setCursor(Object[] cursor) {
+		this.cursor = cursor;
+	}
+	public boolean isNextPage() {
+		return nextPage;
+	}
+	public void setNextPage(boolean nextPage) {
+		this.nextPage = nextPage;
+	}
+	public boolean isPreviousPage() {
+		return previousPage;
+	}
+	public void setPreviousPage(boolean previousPage) {
+		this.previousPage = previousPage;
+	}
+	public void setTimes(long times) {
+		this.times = times;
+	}
+	public long getTimes() {
+		return times;
+	}
+}
@@ -9,6 +9,13 @@ import java.util.List;
  * 2:57:56 PM
  */
 public class Pagin<T> {
+	/**
+	 * 总数的来源:EXACT统计得到;CACHED取自缓存,可能过期;ESTIMATED为数据库执行计划的估算值;
+	 * UNKNOWN未统计,totalRows只是已经翻过的行数,只能通过nextPage判断是否有下一页
+	 */
+	public enum Total {
+		EXACT,CACHED,ESTIMATED,UNKNOWN;
+	}
 	private int pageMaxRows = 10;// 每页显示记录
 	private int totalRows = 0;// 总行数
 	private int totalPages = 0;// 总页数
@@ -18,6 +25,7 @@ public class Pagin<T> {
 	private List<T> rows;// 传过一个list，就可以对list进行分页
 	private boolean nextPage = false;// 没有下一页
 	private boolean previousPage = false;// 没有上一页
+	private Total total = Total.EXACT;// 总数的来源
 //	/**
 //	 * 指针构造方法
 //	 * @param start 当前页开始数
@@ -66,6 +74,23 @@ public class Pagin<T> {
 		this.nextPage=this.currentPage<this.totalPages;
 		this.previousPage=pageNumber>1;
 	}
+	/**
+	 * 不统计总数的构造方法(多取一行判断是否有下一页)
+	 * @param pageNumber 当前页码
+	 * @param pageMaxRow 每页显示总数
+	 * @param list 当前页数据
+	 * @param nextPage 是否还有下一页
+	 */
+	public Pagin(int pageNumber,int pageMaxRow,List<T> list,boolean nextPage){
+		this.rows=list;
+		this.currentPage=pageNumber<1?1:pageNumber;
+		this.pageMaxRows=pageMaxRow<0?0:pageMaxRow;
+		this.totalRows=(this.currentPage-1)*this.pageMaxRows+(list==null?0:list.size());
+		this.totalPages=nextPage?this.currentPage+1:this.currentPage;
+		this.nextPage=nextPage;
+		this.previousPage=pageNumber>1;
+		this.total=Total.UNKNOWN;
+	}
 	public void setTimes(long times) {
 		this.times = times;
 	}
@@ -118,4 +143,10 @@ public class Pagin<T> {
 	public long getTimes() {
 		return times;
 	}
+	public Total getTotal() {
+		return total;
+	}
+	public void setTotal(Total total) {
+		this.total = total;
+	}
 }
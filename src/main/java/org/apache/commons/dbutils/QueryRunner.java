@@ -638,20 +638,25 @@ public class QueryRunner extends AbstractQueryRunner {
         }
 
         PreparedStatement stmt = null;
+        ResultSet resultSet = null;
         T generatedKeys = null;
 
         try {
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            stmt = this.prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
             this.fillStatement(stmt, params);
             stmt.executeUpdate();
-            ResultSet resultSet = stmt.getGeneratedKeys();
+            resultSet = stmt.getGeneratedKeys();
             generatedKeys = rsh.handle(resultSet);
         } catch (SQLException e) {
             this.rethrow(e, sql, params);
         } finally {
-            close(stmt);
-            if (closeConn) {
-                close(conn);
+            try {
+                close(resultSet);
+            } finally {
+                close(stmt);
+                if (closeConn) {
+                    close(conn);
+                }
             }
         }
 
@@ -725,6 +730,7 @@ public class QueryRunner extends AbstractQueryRunner {
         }
 
         PreparedStatement stmt = null;
+        ResultSet rs = null;
         T generatedKeys = null;
         try {
             stmt = this.prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
@@ -734,15 +740,19 @@ public class QueryRunner extends AbstractQueryRunner {
                 stmt.addBatch();
             }
             stmt.executeBatch();
-            ResultSet rs = stmt.getGeneratedKeys();
+            rs = stmt.getGeneratedKeys();
             generatedKeys = rsh.handle(rs);
 
         } catch (SQLException e) {
             this.rethrow(e, sql, (Object[])params);
         } finally {
-            close(stmt);
-            if (closeConn) {
-                close(conn);
+            try {
+                close(rs);
+            } finally {
+                close(stmt);
+                if (closeConn) {
+                    close(conn);
+                }
             }
         }
 
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Values computed once per <code>ResultSet</code>, such as its column
+ * layout, for processors that convert its rows one at a time.  Result sets
+ * are compared by identity and only weakly referenced: an entry disappears
+ * once its <code>ResultSet</code> is no longer reachable, so a processor kept
+ * in a static field does not hold on to the result sets it has seen.
+ * </p>
+ *
+ * <p>
+ * Each <code>ResultSet</code> has its own entry, so processors shared by
+ * concurrent queries keep one value per query instead of replacing each
+ * other's.  This class is thread-safe; lookups do not lock.
+ * </p>
+ *
+ * @param <V> the type of the cached values
+ * @since 1.8
+ */
+public final class ResultSetCache<V> {
+
+    /**
+     * The values by <code>ResultSet</code>.
+     */
+    private final ConcurrentMap<Key, V> values = new ConcurrentHashMap<Key, V>();
+
+    /**
+     * The keys whose <code>ResultSet</code> has been reclaimed.
+     */
+    private final ReferenceQueue<ResultSet> reclaimed = new ReferenceQueue<ResultSet>();
+
+    /**
+     * Returns the value cached for a <code>ResultSet</code>.
+     *
+     * @param rs The <code>ResultSet</code>.
+     * @return The value, or <code>null</code> if none is cached.
+     */
+    public V get(ResultSet rs) {
+        return values.get(new Key(rs, null));
+    }
+
+    /**
+     * Caches the value of a <code>ResultSet</code>, replacing any previous one.
+     *
+     * @param rs The <code>ResultSet</code>.
+     * @param value The value.
+     */
+    public void put(ResultSet rs, V value) {
+        this.expunge();
+        values.put(new Key(rs, reclaimed), value);
+    }
+
+    /**
+     * Returns the number of result sets that have a value cached.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        this.expunge();
+        return values.size();
+    }
+
+    /**
+     * Removes the entries whose <code>ResultSet</code> has been reclaimed.
+     */
+    private void expunge() {
+        Reference<? extends ResultSet> key;
+        while ((key = reclaimed.poll()) != null) {
+            values.remove(key);
+        }
+    }
+
+    /**
+     * A weak reference to a <code>ResultSet</code> that hashes and compares
+     * by the identity of its referent.
+     */
+    private static final class Key extends WeakReference<ResultSet> {
+
+        /**
+         * The identity hash code of the referent.
+         */
+        private final int hash;
+
+        /**
+         * Creates a key.
+         *
+         * @param rs The <code>ResultSet</code>.
+         * @param queue The queue to enqueue the key on once the
+         * <code>ResultSet</code> is reclaimed, <code>null</code> for lookups.
+         */
+        Key(ResultSet rs, ReferenceQueue<ResultSet> queue) {
+            super(rs, queue);
+            this.hash = System.identityHashCode(rs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            ResultSet rs = this.get();
+            return rs != null && rs == ((Key) obj).get();
+        }
+    }
+}
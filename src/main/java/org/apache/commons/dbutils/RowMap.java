@@ -0,0 +1,591 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>
+ * A <code>Map</code> holding one row, with case insensitive column names as
+ * keys.  Calls to <code>map.get("COL")</code> and <code>map.get("col")</code>
+ * return the same value, and iteration follows the column order.
+ * </p>
+ *
+ * <p>
+ * The keys and their case insensitive index live in a {@link Schema} that is
+ * built once per <code>ResultSet</code> and shared by all of its rows, so a
+ * row costs one value array and a small header, and lookups do not allocate.
+ * Keys are compared like <code>String.equalsIgnoreCase</code> does.  When a
+ * column label occurs more than once, the last column wins.
+ * </p>
+ *
+ * <p>
+ * A row may be given a {@link Decoder}, in which case it holds the raw
+ * column values and converts each one the first time it is read, so columns
+ * that are never read never pay for their conversion.  A value that fails
+ * to decode throws <code>IllegalStateException</code> from the accessor.
+ * Serializing a row decodes all of its values first.
+ * </p>
+ *
+ * <p>
+ * The map is modifiable.  Replacing the value of an existing key writes
+ * into the value array; adding or removing keys gives the row a private
+ * copy of its schema.  <code>null</code> keys are not supported.  Like
+ * <code>HashMap</code>, this class is not thread-safe.
+ * </p>
+ *
+ * @since 1.8
+ */
+public final class RowMap extends AbstractMap<String, Object> implements Serializable {
+
+    /**
+     * Required for serialization support.
+     *
+     * @see java.io.Serializable
+     */
+    private static final long serialVersionUID = 4139285106231620938L;
+
+    /**
+     * The keys of this row.
+     */
+    private Schema schema;
+
+    /**
+     * The values, in key order.
+     */
+    private Object[] values;
+
+    /**
+     * Converts raw values on first access; <code>null</code> when the
+     * values are stored decoded.
+     */
+    private transient Decoder decoder;
+
+    /**
+     * The entry set view, created on first use.
+     */
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+    /**
+     * Creates a row with all values <code>null</code>.
+     *
+     * @param schema The keys of the row.
+     */
+    public RowMap(Schema schema) {
+        this(schema, new Object[schema.size()]);
+    }
+
+    /**
+     * Creates a row.  The array is used as is, not copied.
+     *
+     * @param schema The keys of the row.
+     * @param values The values, in key order.
+     */
+    public RowMap(Schema schema, Object[] values) {
+        this(schema, values, null);
+    }
+
+    /**
+     * Creates a row whose values are decoded on first access.  The array
+     * is used as is, not copied.
+     *
+     * @param schema The keys of the row.
+     * @param values The raw values, in key order.
+     * @param decoder Converts the raw values, or <code>null</code> if they
+     * need no conversion.
+     */
+    public RowMap(Schema schema, Object[] values, Decoder decoder) {
+        super();
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException(
+                "Expected " + schema.size() + " values but got " + values.length);
+        }
+        this.schema = schema;
+        this.values = values;
+        this.decoder = decoder;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return schema.indexOf(key) >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object get(Object key) {
+        int i = schema.indexOf(key);
+        return (i < 0) ? null : this.value(i);
+    }
+
+    /**
+     * Tells whether the value of a key can be read without decoding it,
+     * so that callers can inspect a row without paying for, or triggering
+     * side effects of, conversions nobody asked for.
+     *
+     * @param key The key.
+     * @return <code>false</code> if the value is still encoded;
+     * <code>true</code> otherwise, including when the key is absent.
+     */
+    public boolean isDecoded(Object key) {
+        int i = schema.indexOf(key);
+        return i < 0 || decoder == null || values[i] == null || !decoder.isEncoded(values[i]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object put(String key, Object value) {
+        int i = schema.indexOf(key);
+        if (i >= 0 && schema.names[i].equals(key)) {
+            Object old = this.value(i);
+            values[i] = value;
+            return old;
+        }
+
+        // a key spelled differently replaces the old one, which moves to the end
+        Object old = (i < 0) ? null : this.removeAt(i);
+        String[] names = new String[values.length + 1];
+        System.arraycopy(schema.names, 0, names, 0, values.length);
+        names[values.length] = key;
+        Object[] grown = new Object[names.length];
+        System.arraycopy(values, 0, grown, 0, values.length);
+        grown[values.length] = value;
+
+        this.schema = new Schema(names, null);
+        this.values = grown;
+        return old;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object remove(Object key) {
+        int i = schema.indexOf(key);
+        return (i < 0) ? null : this.removeAt(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        this.schema = Schema.EMPTY;
+        this.values = new Object[0];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Returns the value at the given position, decoding it first if needed.
+     *
+     * @param index The key position.
+     * @return The value.
+     */
+    private Object value(int index) {
+        Object value = values[index];
+        if (decoder != null && value != null && decoder.isEncoded(value)) {
+            try {
+                value = decoder.decode(value, schema.names[index]);
+            } catch (SQLException e) {
+                throw new IllegalStateException(
+                    "Cannot decode " + schema.names[index] + ": " + e.getMessage(), e);
+            }
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes every value before the row is serialized, since the decoder
+     * is not serialized with it.
+     *
+     * @param out The stream to write to.
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            this.value(i);
+        }
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Removes the key at the given position.
+     *
+     * @param index The key position.
+     * @return The value removed.
+     */
+    private Object removeAt(int index) {
+        Object old = this.value(index);
+        String[] names = new String[values.length - 1];
+        Object[] shrunk = new Object[names.length];
+        System.arraycopy(schema.names, 0, names, 0, index);
+        System.arraycopy(schema.names, index + 1, names, index, names.length - index);
+        System.arraycopy(values, 0, shrunk, 0, index);
+        System.arraycopy(values, index + 1, shrunk, index, shrunk.length - index);
+
+        this.schema = new Schema(names, null);
+        this.values = shrunk;
+        return old;
+    }
+
+    /**
+     * The entries of the row, in key order.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        /** {@inheritDoc} */
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void clear() {
+            RowMap.this.clear();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new Iterator<Map.Entry<String, Object>>() {
+
+                private int next = 0;
+
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < values.length;
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    if (next >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next++;
+                    return new Entry(schema.names[last], last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+    }
+
+    /**
+     * An entry that reads and writes the value array of the row.
+     */
+    private final class Entry implements Map.Entry<String, Object> {
+
+        /**
+         * The key.
+         */
+        private final String key;
+
+        /**
+         * The key position when the entry was returned.
+         */
+        private final int index;
+
+        /**
+         * Creates an entry.
+         *
+         * @param key The key.
+         * @param index The key position.
+         */
+        Entry(String key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object getValue() {
+            return RowMap.this.value(index);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object setValue(Object value) {
+            Object old = RowMap.this.value(index);
+            values[index] = value;
+            return old;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object value = this.getValue();
+            return key.equals(e.getKey())
+                && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            Object value = this.getValue();
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return key + "=" + this.getValue();
+        }
+    }
+
+    /**
+     * Converts the raw column values of a row on first access.
+     */
+    public interface Decoder {
+
+        /**
+         * Tells whether a raw value still needs to be decoded.
+         *
+         * @param value The raw value, never <code>null</code>.
+         * @return <code>true</code> if <code>decode</code> must be called.
+         */
+        boolean isEncoded(Object value);
+
+        /**
+         * Decodes a raw value.
+         *
+         * @param value The raw value.
+         * @param name The key the value is stored under.
+         * @return The decoded value.
+         * @throws SQLException if the value cannot be decoded
+         */
+        Object decode(Object value, String name) throws SQLException;
+    }
+
+    /**
+     * <p>
+     * The keys of a row and their case insensitive index.  A schema is
+     * immutable and is meant to be built once per <code>ResultSet</code> and
+     * shared by every <code>RowMap</code> created from it.
+     * </p>
+     *
+     * <p>
+     * This class is thread-safe.
+     * </p>
+     */
+    public static final class Schema implements Serializable {
+
+        /**
+         * Required for serialization support.
+         *
+         * @see java.io.Serializable
+         */
+        private static final long serialVersionUID = -6010932561946331871L;
+
+        /**
+         * The schema without keys.
+         */
+        static final Schema EMPTY = new Schema(new String[0], new int[0]);
+
+        /**
+         * The keys, in order.
+         */
+        private final String[] names;
+
+        /**
+         * The 1-based column each key was read from.
+         */
+        private final int[] columns;
+
+        /**
+         * Open addressing hash table of key positions plus one; zero marks
+         * an empty slot.  Its length is a power of two.
+         */
+        private final int[] table;
+
+        /**
+         * Creates a schema for column labels in column order.  When a label
+         * occurs more than once ignoring case, the last column wins and
+         * takes the position of that last occurrence.
+         *
+         * @param labels The column labels.
+         * @return The schema.
+         */
+        public static Schema of(String[] labels) {
+            boolean[] hidden = new boolean[labels.length];
+            int size = labels.length;
+            Set<String> seen = new HashSet<String>();
+            for (int i = labels.length - 1; i >= 0; i--) {
+                if (!seen.add(fold(labels[i]))) {
+                    hidden[i] = true;
+                    size--;
+                }
+            }
+
+            String[] names = new String[size];
+            int[] columns = new int[size];
+            for (int i = 0, k = 0; i < labels.length; i++) {
+                if (!hidden[i]) {
+                    names[k] = labels[i];
+                    columns[k++] = i + 1;
+                }
+            }
+            return new Schema(names, columns);
+        }
+
+        /**
+         * Creates a schema of distinct keys.
+         *
+         * @param names The keys, distinct ignoring case.
+         * @param columns The column of each key, or <code>null</code>.
+         */
+        private Schema(String[] names, int[] columns) {
+            this.names = names;
+            this.columns = columns;
+
+            int capacity = 2;
+            while (capacity < names.length * 2) {
+                capacity <<= 1;
+            }
+            this.table = new int[capacity];
+            for (int i = 0; i < names.length; i++) {
+                int slot = hash(names[i]) & (capacity - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                table[slot] = i + 1;
+            }
+        }
+
+        /**
+         * Returns the number of keys.
+         *
+         * @return The number of keys.
+         */
+        public int size() {
+            return names.length;
+        }
+
+        /**
+         * Returns the key at a position.
+         *
+         * @param index The key position.
+         * @return The key.
+         */
+        public String getName(int index) {
+            return names[index];
+        }
+
+        /**
+         * Returns the 1-based <code>ResultSet</code> column the key at a
+         * position was read from.
+         *
+         * @param index The key position.
+         * @return The column index.
+         */
+        public int getColumn(int index) {
+            return columns[index];
+        }
+
+        /**
+         * Returns the position of a key, ignoring case.
+         *
+         * @param key The key.
+         * @return The position, or -1 if the key is not present.
+         */
+        public int indexOf(Object key) {
+            if (key == null) {
+                return -1;
+            }
+            String name = (key instanceof String) ? (String) key : key.toString();
+            int mask = table.length - 1;
+            for (int slot = hash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int i = table[slot] - 1;
+                if (names[i].equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Folds the case of each character the way
+         * <code>String.equalsIgnoreCase</code> does.
+         *
+         * @param name The name.
+         * @return The folded name.
+         */
+        private static String fold(String name) {
+            char[] chars = name.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+            }
+            return new String(chars);
+        }
+
+        /**
+         * Hashes a name so that names equal ignoring case hash alike.
+         *
+         * @param name The name.
+         * @return The hash.
+         */
+        private static int hash(String name) {
+            int h = 0;
+            for (int i = 0; i < name.length(); i++) {
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+}
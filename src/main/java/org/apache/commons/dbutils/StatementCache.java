@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A per-<code>Connection</code> LRU cache of <code>PreparedStatement</code>s
+ * for {@link AbstractQueryRunner}. When a cache is set with
+ * {@link AbstractQueryRunner#setStatementCache(StatementCache)}, statements
+ * the runner closes are kept open and handed out again the next time the
+ * same SQL is prepared on the same <code>Connection</code>, so the driver
+ * and server do not parse hot queries over and over.
+ *
+ * <p>
+ * Statements are keyed by SQL, result set type and the generated-keys flag.
+ * A statement is removed from the cache while it is in use, so concurrent
+ * callers never share one. Each connection keeps at most
+ * <code>maxStatements</code> idle statements and at most
+ * <code>maxConnections</code> connections are tracked; the least recently
+ * used statement or connection is closed when a limit is exceeded.
+ * </p>
+ *
+ * <p>
+ * Cached statements belong to their connection. The runner invalidates a
+ * connection's statements when it closes the connection itself; connections
+ * closed elsewhere are detected with <code>isClosed()</code> before a
+ * statement is reused and when a new connection is tracked. Call
+ * {@link #invalidate(Connection)} before closing a connection the runner
+ * did not open to release its statements right away. The cache is most
+ * useful when a <code>Connection</code> is reused across many calls; pooled
+ * connections that close their statements on return gain little.
+ * </p>
+ *
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @since DbUtils 1.8
+ */
+public class StatementCache {
+
+    /**
+     * The default number of connections tracked, 16.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+    /**
+     * Idle statements per connection, least recently used connection first.
+     */
+    private final LinkedHashMap<Connection, LinkedHashMap<Key, PreparedStatement>> connections;
+
+    /**
+     * Statements handed out and not yet released.
+     */
+    private final Map<Statement, Borrowed> borrowed = new IdentityHashMap<Statement, Borrowed>();
+
+    private final int maxStatements;
+
+    private final int maxConnections;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long evictions = 0;
+
+    /**
+     * Creates a cache tracking up to {@link #DEFAULT_MAX_CONNECTIONS}
+     * connections.
+     *
+     * @param maxStatements The maximum number of idle statements kept per
+     *        connection.
+     */
+    public StatementCache(int maxStatements) {
+        this(maxStatements, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxStatements The maximum number of idle statements kept per
+     *        connection.
+     * @param maxConnections The maximum number of connections tracked.
+     */
+    public StatementCache(int maxStatements, int maxConnections) {
+        if (maxStatements < 1 || maxConnections < 1) {
+            throw new IllegalArgumentException("maxStatements and maxConnections must be positive");
+        }
+        this.maxStatements = maxStatements;
+        this.maxConnections = maxConnections;
+        this.connections = new LinkedHashMap<Connection, LinkedHashMap<Key, PreparedStatement>>(16, 0.75f, true);
+    }
+
+    /**
+     * Takes an idle statement out of the cache.
+     *
+     * @param conn The connection the statement belongs to.
+     * @param sql The SQL of the statement.
+     * @param resultSetType The result set type of the statement.
+     * @param autoGeneratedKeys The generated-keys flag of the statement.
+     * @return The statement, or <code>null</code> if none is cached; the
+     *         caller must prepare a new one and register it with
+     *         {@link #borrow(Connection, String, int, int, PreparedStatement)}.
+     */
+    synchronized PreparedStatement take(Connection conn, String sql, int resultSetType, int autoGeneratedKeys) {
+        Key key = new Key(sql, resultSetType, autoGeneratedKeys);
+        LinkedHashMap<Key, PreparedStatement> idle = connections.get(conn);
+        PreparedStatement stmt = idle == null ? null : idle.remove(key);
+        if (stmt != null && isClosed(stmt)) {
+            // the connection was closed elsewhere
+            invalidate(conn);
+            stmt = null;
+        }
+        if (stmt == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        borrowed.put(stmt, new Borrowed(conn, key));
+        return stmt;
+    }
+
+    /**
+     * Registers a newly prepared statement as in use, so it is cached when
+     * released.
+     */
+    synchronized void borrow(Connection conn, String sql, int resultSetType, int autoGeneratedKeys,
+            PreparedStatement stmt) {
+        if (!connections.containsKey(conn)) {
+            track(conn);
+        }
+        borrowed.put(stmt, new Borrowed(conn, new Key(sql, resultSetType, autoGeneratedKeys)));
+    }
+
+    /**
+     * Returns a statement to the cache.
+     *
+     * @param stmt The statement the caller is done with.
+     * @return <code>true</code> if the statement was cached and must not be
+     *         closed; <code>false</code> if the caller should close it.
+     */
+    synchronized boolean release(Statement stmt) {
+        Borrowed entry = borrowed.remove(stmt);
+        if (entry == null) {
+            return false;
+        }
+        LinkedHashMap<Key, PreparedStatement> idle = connections.get(entry.conn);
+        if (idle == null || idle.containsKey(entry.key)) {
+            return false;
+        }
+        PreparedStatement ps = (PreparedStatement) stmt;
+        try {
+            ps.clearParameters();
+            ps.clearBatch();
+        } catch (SQLException e) {
+            return false;
+        }
+        idle.put(entry.key, ps);
+        if (idle.size() > maxStatements) {
+            Iterator<PreparedStatement> eldest = idle.values().iterator();
+            DbUtils.closeQuietly(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+        return true;
+    }
+
+    /**
+     * Closes and removes the idle statements of a connection. Statements of
+     * the connection still in use are closed by their callers.
+     *
+     * @param conn The connection about to be closed.
+     */
+    public synchronized void invalidate(Connection conn) {
+        LinkedHashMap<Key, PreparedStatement> idle = connections.remove(conn);
+        if (idle != null) {
+            closeAll(idle);
+        }
+    }
+
+    /**
+     * Closes and removes all idle statements.
+     */
+    public synchronized void clear() {
+        for (LinkedHashMap<Key, PreparedStatement> idle : connections.values()) {
+            closeAll(idle);
+        }
+        connections.clear();
+    }
+
+    /**
+     * Returns the number of idle statements in the cache.
+     *
+     * @return the number of idle statements
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (LinkedHashMap<Key, PreparedStatement> idle : connections.values()) {
+            size += idle.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of prepares served from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of prepares that created a new statement.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of idle statements closed because a connection's
+     * cache or the number of tracked connections was full.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Starts tracking a connection, dropping closed connections and the least
+     * recently used one if the limit is reached.
+     */
+    private void track(Connection conn) {
+        for (Iterator<Map.Entry<Connection, LinkedHashMap<Key, PreparedStatement>>> it =
+                connections.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Connection, LinkedHashMap<Key, PreparedStatement>> e = it.next();
+            if (isClosed(e.getKey())) {
+                closeAll(e.getValue());
+                it.remove();
+            }
+        }
+        if (connections.size() >= maxConnections) {
+            Iterator<LinkedHashMap<Key, PreparedStatement>> eldest = connections.values().iterator();
+            LinkedHashMap<Key, PreparedStatement> idle = eldest.next();
+            evictions += idle.size();
+            closeAll(idle);
+            eldest.remove();
+        }
+        connections.put(conn, new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true));
+    }
+
+    private static void closeAll(Map<Key, PreparedStatement> idle) {
+        for (PreparedStatement stmt : idle.values()) {
+            DbUtils.closeQuietly(stmt);
+        }
+        idle.clear();
+    }
+
+    private static boolean isClosed(Statement stmt) {
+        try {
+            return stmt.isClosed();
+        } catch (SQLException e) {
+            return true;
+        } catch (AbstractMethodError e) { // JDBC 3 driver
+            return false;
+        }
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Cache key: SQL, result set type and generated-keys flag.
+     */
+    private static final class Key {
+        private final String sql;
+        private final int resultSetType;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int resultSetType, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public int hashCode() {
+            return (sql.hashCode() * 31 + resultSetType) * 31 + autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return resultSetType == other.resultSetType && autoGeneratedKeys == other.autoGeneratedKeys
+                    && sql.equals(other.sql);
+        }
+    }
+
+    /**
+     * Where a statement in use came from.
+     */
+    private static final class Borrowed {
+        private final Connection conn;
+        private final Key key;
+
+        Borrowed(Connection conn, Key key) {
+            this.conn = conn;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,764 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.RowProcessor;
+
+/**
+ * <p>
+ * <code>ResultSetHandler</code> implementation that converts a joined
+ * <code>ResultSet</code> into a <code>List</code> of bean graphs in a single
+ * pass, so that associated beans do not need a query of their own.
+ * </p>
+ * <p>
+ * Columns are routed to beans by prefix.  Columns without a registered
+ * prefix belong to the top-level bean; columns starting with the prefix of
+ * an association or collection (by default its path followed by a dot)
+ * belong to that bean, with the prefix removed before they are matched to
+ * properties.  When prefixes overlap, the longest one wins.  Each bean is
+ * built from its own columns by the <code>RowProcessor</code>, so the usual
+ * column to property matching and overrides apply.
+ * </p>
+ * <p>
+ * Beans with key columns are identity mapped: a key seen before yields the
+ * bean built the first time, so a parent repeated over several rows of a
+ * join is created once.  Associated beans and collection elements are
+ * identity mapped within their parent bean, because their keys are often
+ * only unique per parent (a line number, for instance): the same key under
+ * two parents yields two beans, and collection elements are added once per
+ * parent and key.  A joined bean whose key columns, or all columns when it
+ * has no key, are SQL NULL is absent from that row, as with an outer join.
+ * </p>
+ * <p>
+ * For example:
+ *
+ * <pre>
+ * ResultSetHandler&lt;List&lt;Order&gt;&gt; h = new BeanGraphHandler&lt;Order&gt;(Order.class, &quot;id&quot;)
+ *     .association(&quot;customer&quot;, Customer.class, &quot;id&quot;)
+ *     .collection(&quot;lines&quot;, &quot;line_&quot;, OrderLine.class, &quot;id&quot;);
+ * List&lt;Order&gt; orders = queryRunner.query(
+ *     &quot;select o.id, o.placed, c.id as \&quot;customer.id\&quot;, c.name as \&quot;customer.name\&quot;,&quot;
+ *     + &quot; l.id as line_id, l.qty as line_qty&quot;
+ *     + &quot; from orders o join customer c on c.id = o.customer_id&quot;
+ *     + &quot; left join order_line l on l.order_id = o.id order by o.id&quot;, h);
+ * </pre>
+ * </p>
+ * <p>
+ * Associations and collections must be registered before the handler is
+ * first used; after that this class is thread safe.  Collection properties
+ * are filled through their getter when it returns a collection, otherwise a
+ * new <code>List</code>, <code>SortedSet</code> or <code>Set</code> matching
+ * the property type is set.  A collection that cannot be added to is replaced
+ * through the setter by a new one holding the same elements.  The elements
+ * of a new <code>SortedSet</code> must be <code>Comparable</code> unless the
+ * set it replaces has a comparator.
+ * </p>
+ *
+ * @param <T> the type of the top-level beans
+ * @see org.apache.commons.dbutils.ResultSetHandler
+ * @since DbUtils 1.8
+ */
+public class BeanGraphHandler<T> implements ResultSetHandler<List<T>> {
+
+    /**
+     * Label reported for the columns that do not belong to a bean, so that
+     * they never match one of its properties.
+     */
+    private static final String HIDDEN_COLUMN = "\u0000";
+
+    /**
+     * The Class of top-level beans produced by this handler.
+     */
+    private final Class<T> type;
+
+    /**
+     * The RowProcessor implementation to use when converting rows
+     * into beans.
+     */
+    private final RowProcessor convert;
+
+    /**
+     * The top-level bean.
+     */
+    private final Node root;
+
+    /**
+     * The registered associations and collections by path.
+     */
+    private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+
+    /**
+     * Creates a new instance of BeanGraphHandler.
+     *
+     * @param type The Class of the top-level beans.
+     * @param keys The columns identifying a top-level bean; rows with the
+     * same key values are merged into one bean.
+     */
+    public BeanGraphHandler(Class<T> type, String... keys) {
+        this(type, ArrayHandler.ROW_PROCESSOR, keys);
+    }
+
+    /**
+     * Creates a new instance of BeanGraphHandler.
+     *
+     * @param type The Class of the top-level beans.
+     * @param convert The <code>RowProcessor</code> implementation
+     * to use when converting columns into beans.
+     * @param keys The columns identifying a top-level bean; rows with the
+     * same key values are merged into one bean.
+     */
+    public BeanGraphHandler(Class<T> type, RowProcessor convert, String... keys) {
+        this.type = type;
+        this.convert = convert;
+        this.root = new Node(null, "", type, keys, false, null);
+    }
+
+    /**
+     * Maps a single-valued property to the columns prefixed with the path
+     * followed by a dot.
+     *
+     * @param path The dotted property path from the top-level bean, for
+     * instance <code>customer</code> or <code>lines.product</code>.  The
+     * parent path must already be mapped.
+     * @param type The Class of the associated beans.
+     * @param keys The columns identifying an associated bean, without the prefix.
+     * @return this handler
+     */
+    public BeanGraphHandler<T> association(String path, Class<?> type, String... keys) {
+        return this.association(path, path + ".", type, keys);
+    }
+
+    /**
+     * Maps a single-valued property to the columns with the given prefix.
+     *
+     * @param path The dotted property path from the top-level bean.
+     * @param prefix The column label prefix, compared ignoring case.
+     * @param type The Class of the associated beans.
+     * @param keys The columns identifying an associated bean, without the prefix.
+     * @return this handler
+     */
+    public BeanGraphHandler<T> association(String path, String prefix, Class<?> type, String... keys) {
+        return this.add(path, prefix, type, keys, false);
+    }
+
+    /**
+     * Maps a collection property to the columns prefixed with the path
+     * followed by a dot.
+     *
+     * @param path The dotted property path from the top-level bean.
+     * @param type The Class of the collection elements.
+     * @param keys The columns identifying an element, without the prefix.
+     * Without keys, every row adds an element.
+     * @return this handler
+     */
+    public BeanGraphHandler<T> collection(String path, Class<?> type, String... keys) {
+        return this.collection(path, path + ".", type, keys);
+    }
+
+    /**
+     * Maps a collection property to the columns with the given prefix.
+     *
+     * @param path The dotted property path from the top-level bean.
+     * @param prefix The column label prefix, compared ignoring case.
+     * @param type The Class of the collection elements.
+     * @param keys The columns identifying an element, without the prefix.
+     * Without keys, every row adds an element.
+     * @return this handler
+     */
+    public BeanGraphHandler<T> collection(String path, String prefix, Class<?> type, String... keys) {
+        return this.add(path, prefix, type, keys, true);
+    }
+
+    /**
+     * Registers an association or collection.
+     *
+     * @param path The dotted property path from the top-level bean.
+     * @param prefix The column label prefix.
+     * @param type The Class of the associated beans.
+     * @param keys The key columns, without the prefix.
+     * @param collection Whether the property holds a collection.
+     * @return this handler
+     */
+    private BeanGraphHandler<T> add(String path, String prefix, Class<?> type, String[] keys,
+            boolean collection) {
+
+        if (prefix == null || prefix.length() == 0) {
+            throw new IllegalArgumentException("Column prefix of " + path + " is empty");
+        }
+        if (nodes.containsKey(path)) {
+            throw new IllegalArgumentException("Path " + path + " is already mapped");
+        }
+
+        int dot = path.lastIndexOf('.');
+        Node parent = (dot < 0) ? root : nodes.get(path.substring(0, dot));
+        if (parent == null) {
+            throw new IllegalArgumentException("Parent of " + path + " is not mapped");
+        }
+
+        String name = path.substring(dot + 1);
+        PropertyDescriptor property = null;
+        try {
+            PropertyDescriptor[] props = Introspector.getBeanInfo(parent.type).getPropertyDescriptors();
+            for (int i = 0; i < props.length; i++) {
+                if (props[i].getName().equals(name)) {
+                    property = props[i];
+                    break;
+                }
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException("Bean introspection failed: " + e.getMessage());
+        }
+        if (property == null
+                || (property.getWriteMethod() == null && (!collection || property.getReadMethod() == null))) {
+            throw new IllegalArgumentException(
+                "No writable property " + name + " in " + parent.type.getName());
+        }
+        if (collection && !Collection.class.isAssignableFrom(property.getPropertyType())) {
+            throw new IllegalArgumentException(
+                "Property " + path + " is not a Collection");
+        }
+        if (collection && property.getReadMethod() == null
+                && SortedSet.class.isAssignableFrom(property.getPropertyType())
+                && !Comparable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(
+                "Property " + path + " is a SortedSet but " + type.getName() + " is not Comparable");
+        }
+
+        Node node = new Node(path, prefix, type, keys, collection, property);
+        parent.children.add(node);
+        nodes.put(path, node);
+        return this;
+    }
+
+    /**
+     * Convert the whole <code>ResultSet</code> into a List of bean graphs.
+     *
+     * @param rs The <code>ResultSet</code> to handle.
+     *
+     * @return A List of top-level beans in the order they first appear,
+     * never <code>null</code>.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public List<T> handle(ResultSet rs) throws SQLException {
+        List<T> results = new ArrayList<T>();
+        if (!rs.next()) {
+            return results;
+        }
+
+        Binder binder = this.bind(rs);
+        do {
+            Object bean = binder.resolve(rs, null);
+            if (binder.created) {
+                results.add(type.cast(bean));
+            }
+            binder.bindChildren(rs, bean, binder.created);
+        } while (rs.next());
+
+        return results;
+    }
+
+    /**
+     * Assigns each column to the node with the longest matching prefix and
+     * builds the per-call binding state.
+     *
+     * @param rs The <code>ResultSet</code> to handle.
+     * @return The binder of the top-level bean.
+     * @throws SQLException if a database access error occurs or a key
+     * column is missing
+     */
+    private Binder bind(ResultSet rs) throws SQLException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        int cols = rsmd.getColumnCount();
+
+        List<Node> all = new ArrayList<Node>(nodes.values());
+        all.add(root);
+
+        Map<Node, String[]> labels = new HashMap<Node, String[]>();
+        for (Node node : all) {
+            String[] hidden = new String[cols + 1];
+            Arrays.fill(hidden, HIDDEN_COLUMN);
+            labels.put(node, hidden);
+        }
+
+        for (int col = 1; col <= cols; col++) {
+            String columnName = rsmd.getColumnLabel(col);
+            if (null == columnName || 0 == columnName.length()) {
+                columnName = rsmd.getColumnName(col);
+            }
+
+            Node owner = root;
+            for (Node node : nodes.values()) {
+                if (columnName.length() > node.prefix.length()
+                        && columnName.regionMatches(true, 0, node.prefix, 0, node.prefix.length())
+                        && node.prefix.length() > owner.prefix.length()) {
+                    owner = node;
+                }
+            }
+            labels.get(owner)[col] = columnName.substring(owner.prefix.length());
+        }
+
+        return new Binder(root, rs, labels);
+    }
+
+    /**
+     * A mapped bean: the top-level bean, an association or a collection element.
+     */
+    private static final class Node {
+
+        /**
+         * The dotted property path, <code>null</code> for the top-level bean.
+         */
+        private final String path;
+
+        /**
+         * The column label prefix; empty for the top-level bean.
+         */
+        private final String prefix;
+
+        /**
+         * The bean class.
+         */
+        private final Class<?> type;
+
+        /**
+         * The key column labels, without the prefix.
+         */
+        private final String[] keys;
+
+        /**
+         * Whether the parent property holds a collection of these beans.
+         */
+        private final boolean collection;
+
+        /**
+         * The parent property; <code>null</code> for the top-level bean.
+         */
+        private final PropertyDescriptor property;
+
+        /**
+         * The associations and collections of this bean.
+         */
+        private final List<Node> children = new ArrayList<Node>();
+
+        /**
+         * Creates a node.
+         *
+         * @param path The dotted property path.
+         * @param prefix The column label prefix.
+         * @param type The bean class.
+         * @param keys The key column labels.
+         * @param collection Whether the parent property holds a collection.
+         * @param property The parent property.
+         */
+        Node(String path, String prefix, Class<?> type, String[] keys, boolean collection,
+                PropertyDescriptor property) {
+            this.path = path;
+            this.prefix = prefix;
+            this.type = type;
+            this.keys = keys.clone();
+            this.collection = collection;
+            this.property = property;
+        }
+    }
+
+    /**
+     * The state of one node while one <code>ResultSet</code> is handled.
+     */
+    private final class Binder {
+
+        /**
+         * The mapped bean.
+         */
+        private final Node node;
+
+        /**
+         * The view of the result set that shows only this bean's columns,
+         * renumbered from 1.
+         */
+        private final ResultSet view;
+
+        /**
+         * The indexes of this bean's columns.
+         */
+        private final int[] columns;
+
+        /**
+         * The indexes of the key columns.
+         */
+        private final int[] keyColumns;
+
+        /**
+         * The binders of the associations and collections.
+         */
+        private final List<Binder> children;
+
+        /**
+         * The beans created so far, by key, for each parent bean; the
+         * top-level beans are kept under this binder.
+         */
+        private final Map<Object, Map<Object, Object>> instances =
+            new IdentityHashMap<Object, Map<Object, Object>>();
+
+        /**
+         * The collection elements are added to, for each parent bean.
+         */
+        private final Map<Object, Collection<Object>> collections =
+            new IdentityHashMap<Object, Collection<Object>>();
+
+        /**
+         * Whether the last <code>resolve</code> created a new bean.
+         */
+        private boolean created;
+
+        /**
+         * Creates the binder of a node and its children.
+         *
+         * @param node The mapped bean.
+         * @param rs The underlying <code>ResultSet</code>.
+         * @param labels The column labels of every node.
+         * @throws SQLException if a database access error occurs or a key
+         * column is missing
+         */
+        Binder(Node node, ResultSet rs, Map<Node, String[]> labels) throws SQLException {
+            this.node = node;
+            String[] own = labels.get(node);
+
+            List<Integer> cols = new ArrayList<Integer>();
+            for (int col = 1; col < own.length; col++) {
+                if (!HIDDEN_COLUMN.equals(own[col])) {
+                    cols.add(Integer.valueOf(col));
+                }
+            }
+            this.columns = new int[cols.size()];
+            String[] viewLabels = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = cols.get(i).intValue();
+                viewLabels[i] = own[columns[i]];
+            }
+            this.view = new ColumnViewResultSet(rs, columns, viewLabels);
+
+            this.keyColumns = new int[node.keys.length];
+            for (int i = 0; i < keyColumns.length; i++) {
+                for (int col = 1; col < own.length; col++) {
+                    if (!HIDDEN_COLUMN.equals(own[col]) && own[col].equalsIgnoreCase(node.keys[i])) {
+                        keyColumns[i] = col;
+                        break;
+                    }
+                }
+                if (keyColumns[i] == 0) {
+                    throw new SQLException("Key column not found: " + node.prefix + node.keys[i]);
+                }
+            }
+
+            this.children = new ArrayList<Binder>(node.children.size());
+            for (Node child : node.children) {
+                children.add(new Binder(child, rs, labels));
+            }
+        }
+
+        /**
+         * Returns the bean for the current row, creating it if its key has
+         * not been seen before under the same parent.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param parent The parent bean, <code>null</code> for a top-level bean.
+         * @return The bean, or <code>null</code> if a joined bean is absent
+         * from the row.
+         * @throws SQLException if a database access error occurs
+         */
+        Object resolve(ResultSet rs, Object parent) throws SQLException {
+            created = false;
+            Object key = (keyColumns.length == 0) ? null : this.key(rs);
+
+            if (key == null) {
+                if (node.property != null && (keyColumns.length > 0 || this.allNull(rs))) {
+                    return null;
+                }
+                created = true;
+                return convert.toBean(view, node.type);
+            }
+
+            Object scope = (parent == null) ? this : parent;
+            Map<Object, Object> beans = instances.get(scope);
+            if (beans == null) {
+                beans = new HashMap<Object, Object>();
+                instances.put(scope, beans);
+            }
+            Object bean = beans.get(key);
+            if (bean == null) {
+                bean = convert.toBean(view, node.type);
+                beans.put(key, bean);
+                created = true;
+            }
+            return bean;
+        }
+
+        /**
+         * Resolves and links the associations and collections of a bean.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param bean The bean.
+         * @param beanCreated Whether the bean was created on this row.
+         * @throws SQLException if a database access error occurs or a
+         * property cannot be set
+         */
+        void bindChildren(ResultSet rs, Object bean, boolean beanCreated) throws SQLException {
+            for (Binder child : children) {
+                Object value;
+                boolean valueCreated;
+
+                if (!child.node.collection && !beanCreated && child.keyColumns.length == 0) {
+                    // already linked on an earlier row and cannot be looked up by key
+                    value = child.get(bean);
+                    valueCreated = false;
+                } else {
+                    value = child.resolve(rs, bean);
+                    if (value == null) {
+                        continue;
+                    }
+                    valueCreated = child.created;
+                    child.link(bean, value, beanCreated, valueCreated);
+                }
+
+                if (value != null && !child.children.isEmpty()) {
+                    child.bindChildren(rs, value, valueCreated);
+                }
+            }
+        }
+
+        /**
+         * Links a resolved bean to its parent.
+         *
+         * @param parent The parent bean.
+         * @param value The resolved bean.
+         * @param parentCreated Whether the parent was created on this row.
+         * @param valueCreated Whether the bean was created on this row; an
+         * element seen before under the same parent is already in its collection.
+         * @throws SQLException if the property cannot be read or set
+         */
+        @SuppressWarnings("unchecked")
+        private void link(Object parent, Object value, boolean parentCreated, boolean valueCreated)
+                throws SQLException {
+            if (!node.collection) {
+                if (parentCreated) {
+                    this.set(parent, value);
+                }
+                return;
+            }
+
+            if (!valueCreated) {
+                return;
+            }
+
+            Collection<Object> elements = collections.get(parent);
+            if (elements == null) {
+                elements = (Collection<Object>) this.get(parent);
+                if (elements == null) {
+                    elements = this.newCollection(null);
+                    this.set(parent, elements);
+                }
+                collections.put(parent, elements);
+            }
+
+            if (!this.add(elements, value)) {
+                // the getter returned an unmodifiable collection
+                elements = this.newCollection(elements);
+                this.set(parent, elements);
+                collections.put(parent, elements);
+                this.add(elements, value);
+            }
+        }
+
+        /**
+         * Adds an element to a collection.
+         *
+         * @param elements The collection.
+         * @param value The element.
+         * @return <code>false</code> if the collection cannot be modified.
+         * @throws SQLException if the collection rejects the element
+         */
+        private boolean add(Collection<Object> elements, Object value) throws SQLException {
+            try {
+                elements.add(value);
+                return true;
+
+            } catch (UnsupportedOperationException e) {
+                return false;
+
+            } catch (ClassCastException e) {
+                throw new SQLException(
+                    "Cannot add to " + node.path + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Creates a modifiable collection assignable to the parent property.
+         *
+         * @param elements The elements to copy, <code>null</code> for none.
+         * @return The collection.
+         * @throws SQLException if a <code>SortedSet</code> is needed for
+         * elements that are not <code>Comparable</code>
+         */
+        @SuppressWarnings("unchecked")
+        private Collection<Object> newCollection(Collection<Object> elements) throws SQLException {
+            Class<?> propType = node.property.getPropertyType();
+            Collection<Object> collection;
+            if (SortedSet.class.isAssignableFrom(propType) || elements instanceof SortedSet) {
+                Comparator<Object> comparator = (elements instanceof SortedSet)
+                    ? ((SortedSet<Object>) elements).comparator() : null;
+                if (comparator == null && !Comparable.class.isAssignableFrom(node.type)) {
+                    throw new SQLException(
+                        "Cannot create a SortedSet for " + node.path + ": "
+                        + node.type.getName() + " is not Comparable");
+                }
+                collection = new TreeSet<Object>(comparator);
+            } else if (Set.class.isAssignableFrom(propType)) {
+                collection = new LinkedHashSet<Object>();
+            } else {
+                collection = new ArrayList<Object>();
+            }
+
+            if (elements != null) {
+                collection.addAll(elements);
+            }
+            return collection;
+        }
+
+        /**
+         * Reads the key of the current row.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @return The key value, a <code>List</code> of values for composite
+         * keys, or <code>null</code> if every key column is SQL NULL.
+         * @throws SQLException if a database access error occurs
+         */
+        private Object key(ResultSet rs) throws SQLException {
+            if (keyColumns.length == 1) {
+                return rs.getObject(keyColumns[0]);
+            }
+
+            Object[] values = new Object[keyColumns.length];
+            boolean any = false;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(keyColumns[i]);
+                any |= values[i] != null;
+            }
+            return any ? Arrays.asList(values) : null;
+        }
+
+        /**
+         * Tells whether every column of this bean is SQL NULL on the current row.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @return <code>true</code> if no column has a value.
+         * @throws SQLException if a database access error occurs
+         */
+        private boolean allNull(ResultSet rs) throws SQLException {
+            for (int i = 0; i < columns.length; i++) {
+                if (rs.getObject(columns[i]) != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reads the parent property.
+         *
+         * @param parent The parent bean.
+         * @return The property value, or <code>null</code> if it has no getter.
+         * @throws SQLException if the getter fails
+         */
+        private Object get(Object parent) throws SQLException {
+            Method getter = node.property.getReadMethod();
+            if (getter == null) {
+                return null;
+            }
+            try {
+                return getter.invoke(parent);
+
+            } catch (IllegalArgumentException e) {
+                throw new SQLException(
+                    "Cannot get " + node.path + ": " + e.getMessage());
+
+            } catch (IllegalAccessException e) {
+                throw new SQLException(
+                    "Cannot get " + node.path + ": " + e.getMessage());
+
+            } catch (InvocationTargetException e) {
+                throw new SQLException(
+                    "Cannot get " + node.path + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Sets the parent property.
+         *
+         * @param parent The parent bean.
+         * @param value The value to set.
+         * @throws SQLException if the property has no setter or the setter fails
+         */
+        private void set(Object parent, Object value) throws SQLException {
+            Method setter = node.property.getWriteMethod();
+            if (setter == null) {
+                throw new SQLException(
+                    "Cannot set " + node.path + ": no write method");
+            }
+            try {
+                setter.invoke(parent, value);
+
+            } catch (IllegalArgumentException e) {
+                throw new SQLException(
+                    "Cannot set " + node.path + ": " + e.getMessage());
+
+            } catch (IllegalAccessException e) {
+                throw new SQLException(
+                    "Cannot set " + node.path + ": " + e.getMessage());
+
+            } catch (InvocationTargetException e) {
+                throw new SQLException(
+                    "Cannot set " + node.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,763 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A <code>ResultSet</code> stored column by column, as produced by
+ * {@link ColumnarHandler}.  Integer, long and floating point columns are kept
+ * in primitive arrays with a null bitmap, character columns as dictionary
+ * codes, and all other columns as objects.
+ * </p>
+ * <p>
+ * Values are stored in chunks of {@link #CHUNK_SIZE} rows, so that growing a
+ * column never copies what has been read so far; only the first chunk starts
+ * small and doubles up to the chunk size.  Row <code>r</code> of a column is
+ * element <code>r % CHUNK_SIZE</code> of chunk <code>r / CHUNK_SIZE</code>,
+ * which lets aggregation loops run over the primitive chunk arrays directly.
+ * </p>
+ * <p>
+ * A batch is not modified once returned by the handler and may then be read
+ * by several threads.
+ * </p>
+ *
+ * @since DbUtils 1.8
+ */
+public final class ColumnarBatch {
+
+    /**
+     * The number of rows per chunk; a power of two.
+     */
+    public static final int CHUNK_SIZE = 1 << 13;
+
+    /**
+     * <code>log2(CHUNK_SIZE)</code>.
+     */
+    private static final int CHUNK_SHIFT = 13;
+
+    /**
+     * <code>CHUNK_SIZE - 1</code>.
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The initial length of the first chunk.
+     */
+    private static final int FIRST_CHUNK = 64;
+
+    /**
+     * How the values of a column are stored.
+     */
+    public enum Type {
+        /** <code>int</code> values with a null bitmap. */
+        INT,
+        /** <code>long</code> values with a null bitmap. */
+        LONG,
+        /** <code>double</code> values with a null bitmap. */
+        DOUBLE,
+        /** Dictionary codes into the distinct <code>String</code> values. */
+        STRING,
+        /** <code>getObject</code> values. */
+        OBJECT
+    }
+
+    /**
+     * The columns, in <code>ResultSet</code> order.
+     */
+    private final Column[] columns;
+
+    /**
+     * The number of rows.
+     */
+    private int rows;
+
+    /**
+     * Creates an empty batch with one column per <code>ResultSet</code> column.
+     *
+     * @param rsmd The metadata of the <code>ResultSet</code>.
+     * @throws SQLException if a database access error occurs
+     */
+    ColumnarBatch(ResultSetMetaData rsmd) throws SQLException {
+        int cols = rsmd.getColumnCount();
+        this.columns = new Column[cols];
+        for (int i = 1; i <= cols; i++) {
+            String columnName = rsmd.getColumnLabel(i);
+            if (null == columnName || 0 == columnName.length()) {
+                columnName = rsmd.getColumnName(i);
+            }
+            switch (typeOf(rsmd, i)) {
+            case INT:
+                columns[i - 1] = new IntColumn(columnName, i);
+                break;
+            case LONG:
+                columns[i - 1] = new LongColumn(columnName, i);
+                break;
+            case DOUBLE:
+                columns[i - 1] = new DoubleColumn(columnName, i);
+                break;
+            case STRING:
+                columns[i - 1] = new StringColumn(columnName, i);
+                break;
+            default:
+                columns[i - 1] = new ObjectColumn(columnName, i);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Chooses the storage of a column from its SQL type.  Exact numerics
+     * with no scale are stored as <code>int</code> or <code>long</code> when
+     * their precision allows it.  Unsigned integers, as MySQL reports them,
+     * move up one size: an unsigned <code>INTEGER</code> is stored as
+     * <code>long</code> and an unsigned <code>BIGINT</code> as objects, since
+     * their largest values do not fit the signed type.
+     *
+     * @param rsmd The metadata of the <code>ResultSet</code>.
+     * @param column The column index.
+     * @return The storage type.
+     * @throws SQLException if a database access error occurs
+     */
+    static Type typeOf(ResultSetMetaData rsmd, int column) throws SQLException {
+        switch (rsmd.getColumnType(column)) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+            return Type.INT;
+        case Types.INTEGER:
+            return rsmd.isSigned(column) ? Type.INT : Type.LONG;
+        case Types.BIGINT:
+            return rsmd.isSigned(column) ? Type.LONG : Type.OBJECT;
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return Type.DOUBLE;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            int precision = rsmd.getPrecision(column);
+            if (rsmd.getScale(column) != 0 || precision <= 0) {
+                return Type.OBJECT;
+            }
+            return (precision <= 9) ? Type.INT : (precision <= 18) ? Type.LONG : Type.OBJECT;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+            return Type.STRING;
+        default:
+            return Type.OBJECT;
+        }
+    }
+
+    /**
+     * Appends the current row of a <code>ResultSet</code>.
+     *
+     * @param rs The <code>ResultSet</code> positioned on a valid row.
+     * @throws SQLException if a database access error occurs
+     */
+    void append(ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].append(rs, rows);
+        }
+        rows++;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns a column by position.
+     *
+     * @param index The 0-based column position.
+     * @return The column.
+     */
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Returns a column by label, ignoring case.
+     *
+     * @param name The column label.
+     * @return The column, or <code>null</code> if there is none.
+     */
+    public Column getColumn(String name) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].name.equalsIgnoreCase(name)) {
+                return columns[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of chunks a column of this batch is stored in.
+     *
+     * @return The number of chunks.
+     */
+    public int getChunkCount() {
+        return (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * Returns the number of rows stored in a chunk.
+     *
+     * @param chunk The chunk index.
+     * @return The number of rows in the chunk.
+     */
+    public int getChunkLength(int chunk) {
+        return Math.min(CHUNK_SIZE, rows - (chunk << CHUNK_SHIFT));
+    }
+
+    /**
+     * One column of a batch.  The typed getters convert between the
+     * numeric storage types; reading a value of another storage type throws
+     * <code>UnsupportedOperationException</code>.  Null values read as
+     * <code>0</code> from the primitive getters, as with
+     * <code>ResultSet</code>.
+     */
+    public abstract static class Column {
+
+        /**
+         * The column label.
+         */
+        final String name;
+
+        /**
+         * The 1-based <code>ResultSet</code> column index.
+         */
+        final int index;
+
+        /**
+         * The null bitmap of each chunk, allocated at the first null.
+         */
+        private long[][] nulls = new long[0][];
+
+        /**
+         * Creates a column.
+         *
+         * @param name The column label.
+         * @param index The <code>ResultSet</code> column index.
+         */
+        Column(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        /**
+         * Returns the column label.
+         *
+         * @return The column label.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns how the values are stored.
+         *
+         * @return The storage type.
+         */
+        public abstract Type getType();
+
+        /**
+         * Tells whether a value is SQL NULL.
+         *
+         * @param row The 0-based row.
+         * @return <code>true</code> if the value is SQL NULL.
+         */
+        public boolean isNull(int row) {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk >= nulls.length || nulls[chunk] == null) {
+                return false;
+            }
+            int bit = row & CHUNK_MASK;
+            return (nulls[chunk][bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        /**
+         * Returns the null bitmap of a chunk: bit <code>i % 64</code> of
+         * element <code>i / 64</code> is set when row <code>i</code> of the
+         * chunk is SQL NULL.
+         *
+         * @param chunk The chunk index.
+         * @return The bitmap, or <code>null</code> if the chunk has no nulls.
+         */
+        public long[] getNulls(int chunk) {
+            return (chunk < nulls.length) ? nulls[chunk] : null;
+        }
+
+        /**
+         * Returns a value as an <code>int</code>.
+         *
+         * @param row The 0-based row.
+         * @return The value.
+         */
+        public int getInt(int row) {
+            throw new UnsupportedOperationException(name + " is stored as " + this.getType());
+        }
+
+        /**
+         * Returns a value as a <code>long</code>.
+         *
+         * @param row The 0-based row.
+         * @return The value.
+         */
+        public long getLong(int row) {
+            throw new UnsupportedOperationException(name + " is stored as " + this.getType());
+        }
+
+        /**
+         * Returns a value as a <code>double</code>.
+         *
+         * @param row The 0-based row.
+         * @return The value.
+         */
+        public double getDouble(int row) {
+            throw new UnsupportedOperationException(name + " is stored as " + this.getType());
+        }
+
+        /**
+         * Returns a value as a <code>String</code>.
+         *
+         * @param row The 0-based row.
+         * @return The value, or <code>null</code> if it is SQL NULL.
+         */
+        public String getString(int row) {
+            Object value = this.getObject(row);
+            return (value == null) ? null : value.toString();
+        }
+
+        /**
+         * Returns the dictionary code of a <code>STRING</code> value.
+         *
+         * @param row The 0-based row.
+         * @return The code, or -1 for SQL NULL.
+         */
+        public int getCode(int row) {
+            throw new UnsupportedOperationException(name + " is stored as " + this.getType());
+        }
+
+        /**
+         * Returns the distinct values of a <code>STRING</code> column,
+         * indexed by code.
+         *
+         * @return A copy of the dictionary.
+         */
+        public String[] getDictionary() {
+            throw new UnsupportedOperationException(name + " is stored as " + this.getType());
+        }
+
+        /**
+         * Returns a value as an object, boxing primitives.
+         *
+         * @param row The 0-based row.
+         * @return The value, or <code>null</code> if it is SQL NULL.
+         */
+        public abstract Object getObject(int row);
+
+        /**
+         * Returns the storage array of a chunk: an <code>int[]</code>,
+         * <code>long[]</code> or <code>double[]</code> for the numeric types,
+         * the dictionary codes as an <code>int[]</code> for
+         * <code>STRING</code> and an <code>Object[]</code> otherwise.  The
+         * array may be longer than the chunk; the batch must not be modified
+         * through it.
+         *
+         * @param chunk The chunk index.
+         * @return The chunk array.
+         */
+        public abstract Object getChunk(int chunk);
+
+        /**
+         * Reads the value of the current row into the given row.
+         *
+         * @param rs The <code>ResultSet</code> positioned on a valid row.
+         * @param row The row being appended.
+         * @throws SQLException if a database access error occurs
+         */
+        abstract void append(ResultSet rs, int row) throws SQLException;
+
+        /**
+         * Marks a row as SQL NULL.
+         *
+         * @param row The row.
+         */
+        final void setNull(int row) {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max(chunk + 1, nulls.length * 2));
+            }
+            if (nulls[chunk] == null) {
+                nulls[chunk] = new long[CHUNK_SIZE >>> 6];
+            }
+            int bit = row & CHUNK_MASK;
+            nulls[chunk][bit >>> 6] |= 1L << bit;
+        }
+
+        /**
+         * Returns the length a chunk array must have to hold the given row,
+         * or -1 if the current array is long enough.
+         *
+         * @param current The current length of the chunk array, or -1 if
+         * the chunk is not allocated yet.
+         * @param row The row about to be written.
+         * @return The new length, or -1.
+         */
+        static int grow(int current, int row) {
+            int offset = row & CHUNK_MASK;
+            if (current < 0) {
+                return (row >>> CHUNK_SHIFT == 0) ? FIRST_CHUNK : CHUNK_SIZE;
+            }
+            return (offset < current) ? -1 : Math.min(CHUNK_SIZE, current * 2);
+        }
+    }
+
+    /**
+     * A column of <code>int</code> values.
+     */
+    private static final class IntColumn extends Column {
+
+        /**
+         * The chunks.
+         */
+        private int[][] chunks = new int[4][];
+
+        IntColumn(String name, int index) {
+            super(name, index);
+        }
+
+        @Override
+        public Type getType() {
+            return Type.INT;
+        }
+
+        @Override
+        public int getInt(int row) {
+            return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        @Override
+        public long getLong(int row) {
+            return this.getInt(row);
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return this.getInt(row);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return this.isNull(row) ? null : Integer.valueOf(this.getInt(row));
+        }
+
+        @Override
+        public Object getChunk(int chunk) {
+            return chunks[chunk];
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunk * 2);
+            }
+            int length = grow((chunks[chunk] == null) ? -1 : chunks[chunk].length, row);
+            if (length > 0) {
+                chunks[chunk] = (chunks[chunk] == null) ? new int[length] : Arrays.copyOf(chunks[chunk], length);
+            }
+
+            int value = rs.getInt(index);
+            if (rs.wasNull()) {
+                this.setNull(row);
+            }
+            chunks[chunk][row & CHUNK_MASK] = value;
+        }
+    }
+
+    /**
+     * A column of <code>long</code> values.
+     */
+    private static final class LongColumn extends Column {
+
+        /**
+         * The chunks.
+         */
+        private long[][] chunks = new long[4][];
+
+        LongColumn(String name, int index) {
+            super(name, index);
+        }
+
+        @Override
+        public Type getType() {
+            return Type.LONG;
+        }
+
+        @Override
+        public long getLong(int row) {
+            return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return this.getLong(row);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return this.isNull(row) ? null : Long.valueOf(this.getLong(row));
+        }
+
+        @Override
+        public Object getChunk(int chunk) {
+            return chunks[chunk];
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunk * 2);
+            }
+            int length = grow((chunks[chunk] == null) ? -1 : chunks[chunk].length, row);
+            if (length > 0) {
+                chunks[chunk] = (chunks[chunk] == null) ? new long[length] : Arrays.copyOf(chunks[chunk], length);
+            }
+
+            long value = rs.getLong(index);
+            if (rs.wasNull()) {
+                this.setNull(row);
+            }
+            chunks[chunk][row & CHUNK_MASK] = value;
+        }
+    }
+
+    /**
+     * A column of <code>double</code> values.
+     */
+    private static final class DoubleColumn extends Column {
+
+        /**
+         * The chunks.
+         */
+        private double[][] chunks = new double[4][];
+
+        DoubleColumn(String name, int index) {
+            super(name, index);
+        }
+
+        @Override
+        public Type getType() {
+            return Type.DOUBLE;
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return this.isNull(row) ? null : Double.valueOf(this.getDouble(row));
+        }
+
+        @Override
+        public Object getChunk(int chunk) {
+            return chunks[chunk];
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunk * 2);
+            }
+            int length = grow((chunks[chunk] == null) ? -1 : chunks[chunk].length, row);
+            if (length > 0) {
+                chunks[chunk] = (chunks[chunk] == null) ? new double[length] : Arrays.copyOf(chunks[chunk], length);
+            }
+
+            double value = rs.getDouble(index);
+            if (rs.wasNull()) {
+                this.setNull(row);
+            }
+            chunks[chunk][row & CHUNK_MASK] = value;
+        }
+    }
+
+    /**
+     * A dictionary encoded column of <code>String</code> values.  SQL NULL
+     * is stored as code -1.
+     */
+    private static final class StringColumn extends Column {
+
+        /**
+         * The dictionary codes per chunk.
+         */
+        private int[][] chunks = new int[4][];
+
+        /**
+         * The distinct values, by code.
+         */
+        private final List<String> dictionary = new ArrayList<String>();
+
+        /**
+         * The code of each distinct value.
+         */
+        private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+        StringColumn(String name, int index) {
+            super(name, index);
+        }
+
+        @Override
+        public Type getType() {
+            return Type.STRING;
+        }
+
+        @Override
+        public boolean isNull(int row) {
+            return this.getCode(row) < 0;
+        }
+
+        @Override
+        public String getString(int row) {
+            int code = this.getCode(row);
+            return (code < 0) ? null : dictionary.get(code);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return this.getString(row);
+        }
+
+        @Override
+        public Object getChunk(int chunk) {
+            return chunks[chunk];
+        }
+
+        @Override
+        public int getCode(int row) {
+            return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        @Override
+        public String[] getDictionary() {
+            return dictionary.toArray(new String[dictionary.size()]);
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunk * 2);
+            }
+            int length = grow((chunks[chunk] == null) ? -1 : chunks[chunk].length, row);
+            if (length > 0) {
+                chunks[chunk] = (chunks[chunk] == null) ? new int[length] : Arrays.copyOf(chunks[chunk], length);
+            }
+
+            String value = rs.getString(index);
+            int code = -1;
+            if (value != null) {
+                Integer known = codes.get(value);
+                if (known == null) {
+                    known = Integer.valueOf(dictionary.size());
+                    dictionary.add(value);
+                    codes.put(value, known);
+                }
+                code = known.intValue();
+            }
+            chunks[chunk][row & CHUNK_MASK] = code;
+        }
+    }
+
+    /**
+     * A column of <code>getObject</code> values.
+     */
+    private static final class ObjectColumn extends Column {
+
+        /**
+         * The chunks.
+         */
+        private Object[][] chunks = new Object[4][];
+
+        ObjectColumn(String name, int index) {
+            super(name, index);
+        }
+
+        @Override
+        public Type getType() {
+            return Type.OBJECT;
+        }
+
+        @Override
+        public boolean isNull(int row) {
+            return this.getObject(row) == null;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        @Override
+        public Object getChunk(int chunk) {
+            return chunks[chunk];
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            int chunk = row >>> CHUNK_SHIFT;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunk * 2);
+            }
+            int length = grow((chunks[chunk] == null) ? -1 : chunks[chunk].length, row);
+            if (length > 0) {
+                chunks[chunk] = (chunks[chunk] == null) ? new Object[length] : Arrays.copyOf(chunks[chunk], length);
+            }
+            chunks[chunk][row & CHUNK_MASK] = rs.getObject(index);
+        }
+    }
+
+}
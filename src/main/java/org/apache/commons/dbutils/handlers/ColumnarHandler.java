@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * <p>
+ * <code>ResultSetHandler</code> implementation that converts a
+ * <code>ResultSet</code> into a {@link ColumnarBatch}: integer, long and
+ * floating point columns become chunked primitive arrays with null bitmaps,
+ * character columns are dictionary encoded and other columns are kept as
+ * objects.  Compared to <code>ArrayListHandler</code> there is no
+ * <code>Object[]</code> per row and no boxed number per value, and the
+ * primitive chunks can be aggregated with plain loops:
+ * </p>
+ *
+ * <pre>
+ * ColumnarBatch batch = queryRunner.query(&quot;select region, amount from sales&quot;, new ColumnarHandler());
+ * ColumnarBatch.Column amount = batch.getColumn(&quot;amount&quot;);
+ * double total = 0;
+ * for (int c = 0; c &lt; batch.getChunkCount(); c++) {
+ *     double[] values = (double[]) amount.getChunk(c);
+ *     for (int i = 0; i &lt; batch.getChunkLength(c); i++) {
+ *         total += values[i];
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * Null values are stored as <code>0</code> in the primitive chunks, so sums
+ * need no null check.  This class is thread safe.
+ * </p>
+ *
+ * @see org.apache.commons.dbutils.ResultSetHandler
+ * @since DbUtils 1.8
+ */
+public class ColumnarHandler implements ResultSetHandler<ColumnarBatch> {
+
+    /**
+     * Creates a new instance of ColumnarHandler.
+     */
+    public ColumnarHandler() {
+        super();
+    }
+
+    /**
+     * Reads the whole <code>ResultSet</code> into a columnar batch.
+     *
+     * @param rs The <code>ResultSet</code> to handle.
+     * @return A batch with one column per <code>ResultSet</code> column,
+     * never <code>null</code>.
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public ColumnarBatch handle(ResultSet rs) throws SQLException {
+        ColumnarBatch batch = new ColumnarBatch(rs.getMetaData());
+        while (rs.next()) {
+            batch.append(rs);
+        }
+        return batch;
+    }
+
+}
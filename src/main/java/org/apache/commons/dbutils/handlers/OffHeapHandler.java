@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * <p>
+ * <code>ResultSetHandler</code> implementation that buffers a
+ * <code>ResultSet</code> outside the Java heap.  It returns an
+ * {@link OffHeapRows} list that can be used where the
+ * <code>List&lt;Object[]&gt;</code> of <code>ArrayListHandler</code> was,
+ * decoding each row when it is read, and can also return rows as maps like
+ * <code>MapListHandler</code> does.  Very large results then cost an offset
+ * per row on the heap instead of an object graph per row.
+ * </p>
+ *
+ * <pre>
+ * OffHeapRows rows = queryRunner.query(sql, new OffHeapHandler(256L &lt;&lt; 20, null));
+ * try {
+ *     for (Object[] row : rows) {
+ *         ...
+ *     }
+ * } finally {
+ *     rows.close();
+ * }
+ * </pre>
+ *
+ * <p>
+ * Up to the memory budget, rows are held in direct buffers; beyond it they
+ * go to a memory-mapped temporary file.  This class is thread safe.
+ * </p>
+ *
+ * @see org.apache.commons.dbutils.ResultSetHandler
+ * @since DbUtils 1.8
+ */
+public class OffHeapHandler implements ResultSetHandler<OffHeapRows> {
+
+    /**
+     * The default memory budget, 64 MiB.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    /**
+     * The size of a segment, 1 MiB.  Rows larger than a segment get a
+     * segment of their own.
+     */
+    private static final int SEGMENT_SIZE = 1 << 20;
+
+    /**
+     * The number of bytes of direct memory a result may use.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The directory of the temporary files; <code>null</code> for the default.
+     */
+    private final File spillDir;
+
+    /**
+     * Creates a new instance of OffHeapHandler with the default memory
+     * budget, spilling to the default temporary directory.
+     */
+    public OffHeapHandler() {
+        this(DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * Creates a new instance of OffHeapHandler.
+     *
+     * @param memoryBudget The number of bytes of direct memory one result
+     * may use before it continues in a memory-mapped temporary file; 0 maps
+     * every row to the file.
+     * @param spillDir The directory of the temporary files, or
+     * <code>null</code> for the default temporary directory.
+     */
+    public OffHeapHandler(long memoryBudget, File spillDir) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Negative memory budget: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Buffers the whole <code>ResultSet</code>.
+     *
+     * @param rs The <code>ResultSet</code> to handle.
+     * @return The buffered rows, never <code>null</code>.
+     * @throws SQLException if a database access error occurs or a value
+     * cannot be buffered
+     */
+    @Override
+    public OffHeapRows handle(ResultSet rs) throws SQLException {
+        OffHeapRows rows = new OffHeapRows(rs.getMetaData(), memoryBudget, SEGMENT_SIZE, spillDir);
+        try {
+            while (rs.next()) {
+                rows.append(rs);
+            }
+        } catch (SQLException e) {
+            this.discard(rows);
+            throw e;
+        } catch (RuntimeException e) {
+            this.discard(rows);
+            throw e;
+        }
+        return rows;
+    }
+
+    /**
+     * Releases a partially filled buffer after a failure.
+     *
+     * @param rows The buffer.
+     */
+    private void discard(OffHeapRows rows) {
+        try {
+            rows.close();
+        } catch (IOException e) { // NOPMD
+            // the original failure matters more
+        }
+    }
+
+}
@@ -0,0 +1,926 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.dbutils.ProxyFactory;
+import org.apache.commons.dbutils.RowMap;
+
+/**
+ * <p>
+ * The rows of a <code>ResultSet</code> serialized into a compact binary
+ * format outside the Java heap, as produced by {@link OffHeapHandler}.  Rows
+ * are decoded on demand, each call to <code>get</code> returning a new
+ * <code>Object[]</code>; only an offset per row stays on the heap.
+ * </p>
+ * <p>
+ * Rows are written into direct <code>ByteBuffer</code> segments until the
+ * memory budget is used up, and into segments of a memory-mapped temporary
+ * file after that.  Values of the common JDBC types (numbers, strings, dates
+ * and times, byte arrays) are stored natively; <code>Clob</code> and
+ * <code>Blob</code> values are read into a <code>String</code> and a
+ * <code>byte[]</code>; other values must be <code>Serializable</code>.
+ * </p>
+ * <p>
+ * The list is read-only.  Call {@link #close()} when done: it frees the
+ * direct buffers, unmaps and deletes the temporary file.  Without it the
+ * file is left behind and the memory is only released once the garbage
+ * collector finds the buffers unreachable, which a small heap may put off
+ * long enough to exhaust <code>-XX:MaxDirectMemorySize</code>.  Reading is
+ * thread safe; closing while another thread reads is not, since the freed
+ * memory must no longer be accessed.
+ * </p>
+ *
+ * @since DbUtils 1.8
+ */
+public final class OffHeapRows extends AbstractList<Object[]> implements RandomAccess, Closeable {
+
+    /**
+     * Reports temporary files that cannot be deleted.
+     */
+    private static final Logger LOG = Logger.getLogger(OffHeapRows.class.getName());
+
+    /**
+     * Value tags of the binary row format.
+     */
+    private static final byte NULL = 0, INT = 1, LONG = 2, DOUBLE = 3, FLOAT = 4, SHORT = 5,
+        BYTE = 6, BOOLEAN = 7, STRING = 8, DECIMAL = 9, TIMESTAMP = 10, DATE = 11, TIME = 12,
+        BYTES = 13, BIGINT = 14, SERIALIZED = 15;
+
+    /**
+     * The encoding of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Frees the memory of a direct or mapped buffer:
+     * <code>Unsafe.invokeCleaner</code> on Java 9 and later, the buffer's
+     * <code>Cleaner</code> before; <code>null</code> if neither is
+     * accessible.
+     */
+    private static final Method FREE;
+
+    /**
+     * The target of {@link #FREE}: the <code>Unsafe</code> instance, or
+     * <code>null</code> when <code>FREE</code> is invoked on the cleaner.
+     */
+    private static final Object FREE_TARGET;
+
+    /**
+     * The <code>cleaner()</code> accessor of direct buffers, when freeing
+     * goes through the <code>Cleaner</code>.
+     */
+    private static final Method CLEANER;
+
+    static {
+        Method free = null;
+        Object target = null;
+        Method cleaner = null;
+        try {
+            Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+            free = unsafe.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafe.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            target = field.get(null);
+        } catch (Exception e) { // NOPMD
+            free = null;
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                free = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (Exception e2) {
+                cleaner = null;
+                free = null;
+                LOG.log(Level.FINE, "Direct buffers are freed by the garbage collector", e2);
+            }
+        }
+        FREE = free;
+        FREE_TARGET = target;
+        CLEANER = cleaner;
+    }
+
+    /**
+     * The column labels.
+     */
+    private final String[] names;
+
+    /**
+     * The <code>java.sql.Types</code> of the columns.
+     */
+    private final int[] types;
+
+    /**
+     * The precision of the columns, as reported by the driver.
+     */
+    private final int[] precisions;
+
+    /**
+     * The scale of the columns, as reported by the driver.
+     */
+    private final int[] scales;
+
+    /**
+     * Whether the columns hold signed numbers.
+     */
+    private final boolean[] signed;
+
+    /**
+     * The nullability of the columns, one of the
+     * <code>ResultSetMetaData.column*</code> constants.
+     */
+    private final int[] nullable;
+
+    /**
+     * The shared keys of the maps returned by <code>getMap</code>.
+     */
+    private final RowMap.Schema schema;
+
+    /**
+     * The size of a regular segment.
+     */
+    private final int segmentSize;
+
+    /**
+     * The number of bytes that may still be allocated as direct buffers.
+     */
+    private long budget;
+
+    /**
+     * The directory of the temporary file; <code>null</code> for the default.
+     */
+    private final File spillDir;
+
+    /**
+     * The segments, in allocation order.
+     */
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+    /**
+     * The position of each row: segment index in the high and offset in
+     * the low 32 bits.
+     */
+    private long[] positions = new long[1024];
+
+    /**
+     * The number of rows.
+     */
+    private int rows;
+
+    /**
+     * The row being encoded.
+     */
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+
+    /**
+     * The temporary file, once the budget is exhausted.
+     */
+    private RandomAccessFile file;
+
+    /**
+     * The temporary file path.
+     */
+    private File path;
+
+    /**
+     * The length of the temporary file mapped so far.
+     */
+    private long fileLength;
+
+    /**
+     * The number of bytes held in direct buffers.
+     */
+    private long directBytes;
+
+    /**
+     * Creates an empty buffer for the columns of a <code>ResultSet</code>.
+     *
+     * @param rsmd The metadata of the <code>ResultSet</code>.
+     * @param memoryBudget The number of bytes that may be held in direct buffers.
+     * @param segmentSize The size of a segment.
+     * @param spillDir The directory of the temporary file, or <code>null</code>.
+     * @throws SQLException if a database access error occurs
+     */
+    OffHeapRows(ResultSetMetaData rsmd, long memoryBudget, int segmentSize, File spillDir)
+            throws SQLException {
+        int cols = rsmd.getColumnCount();
+        this.names = new String[cols];
+        this.types = new int[cols];
+        this.precisions = new int[cols];
+        this.scales = new int[cols];
+        this.signed = new boolean[cols];
+        this.nullable = new int[cols];
+        for (int i = 1; i <= cols; i++) {
+            String columnName = rsmd.getColumnLabel(i);
+            if (null == columnName || 0 == columnName.length()) {
+                columnName = rsmd.getColumnName(i);
+            }
+            names[i - 1] = columnName;
+            types[i - 1] = rsmd.getColumnType(i);
+            precisions[i - 1] = rsmd.getPrecision(i);
+            scales[i - 1] = rsmd.getScale(i);
+            signed[i - 1] = rsmd.isSigned(i);
+            nullable[i - 1] = rsmd.isNullable(i);
+        }
+        this.schema = RowMap.Schema.of(names);
+        this.budget = memoryBudget;
+        this.segmentSize = segmentSize;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Returns the column labels.
+     *
+     * @return A copy of the column labels.
+     */
+    public String[] getColumnNames() {
+        return names.clone();
+    }
+
+    /**
+     * Returns the <code>java.sql.Types</code> of the columns.
+     *
+     * @return A copy of the column types.
+     */
+    public int[] getColumnTypes() {
+        return types.clone();
+    }
+
+    /**
+     * Returns the number of bytes held in direct buffers.
+     *
+     * @return The direct memory in use.
+     */
+    public long getDirectBytes() {
+        return directBytes;
+    }
+
+    /**
+     * Returns the number of bytes written to the memory-mapped temporary file.
+     *
+     * @return The mapped file length.
+     */
+    public long getMappedBytes() {
+        return fileLength;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Decodes a row.
+     *
+     * @param row The 0-based row.
+     * @return The column values, in column order.
+     */
+    @Override
+    public Object[] get(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+        long position = positions[row];
+        ByteBuffer in = segments.get((int) (position >>> 32)).duplicate();
+        in.position((int) position);
+
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = read(in);
+        }
+        return values;
+    }
+
+    /**
+     * Decodes a row as a map with case insensitive column names as keys,
+     * like <code>MapListHandler</code> returns.
+     *
+     * @param row The 0-based row.
+     * @return The row.
+     */
+    public Map<String, Object> getMap(int row) {
+        Object[] values = this.get(row);
+        Object[] mapped = new Object[schema.size()];
+        for (int i = 0; i < mapped.length; i++) {
+            mapped[i] = values[schema.getColumn(i) - 1];
+        }
+        return new RowMap(schema, mapped);
+    }
+
+    /**
+     * Returns a forward only, read only <code>ResultSet</code> over a range
+     * of rows, so that the usual handlers and <code>RowProcessor</code>s can
+     * convert buffered rows.  The typed getters convert the buffered values
+     * the way lenient drivers do; the metadata reports the column labels,
+     * types, precision, scale, signedness and nullability recorded when the
+     * rows were buffered.
+     *
+     * @param fromRow The first row, inclusive.
+     * @param toRow The last row, exclusive.
+     * @return A <code>ResultSet</code> positioned before <code>fromRow</code>.
+     */
+    public ResultSet resultSet(int fromRow, int toRow) {
+        if (fromRow < 0 || fromRow > toRow || toRow > rows) {
+            throw new IndexOutOfBoundsException("Rows " + fromRow + " to " + toRow + " of " + rows);
+        }
+        return ProxyFactory.instance().createResultSet(new Cursor(fromRow, toRow));
+    }
+
+    /**
+     * Frees the direct buffers, unmaps and deletes the temporary file, if
+     * any, and empties the list.  Where the JVM does not give access to the
+     * buffers' cleaner the memory is left to the garbage collector.  A file
+     * that cannot be deleted is logged and left behind.  Rows read before
+     * remain valid; reading must not go on concurrently.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        rows = 0;
+        for (ByteBuffer segment : segments) {
+            free(segment);
+        }
+        segments.clear();
+        budget += directBytes;
+        directBytes = 0;
+        if (file != null) {
+            try {
+                file.close();
+            } finally {
+                file = null;
+                if (!path.delete() && path.exists()) {
+                    LOG.warning("Cannot delete result buffer " + path.getPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Frees the memory of a direct or mapped buffer now rather than when it
+     * is garbage collected.
+     *
+     * @param buffer The buffer, which must not be accessed afterwards.
+     */
+    private static void free(ByteBuffer buffer) {
+        if (FREE == null) {
+            return;
+        }
+        try {
+            if (CLEANER == null) {
+                FREE.invoke(FREE_TARGET, buffer);
+            } else {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    FREE.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "Cannot free result buffer", e);
+        }
+    }
+
+    /**
+     * Encodes the current row of a <code>ResultSet</code> and stores it.
+     *
+     * @param rs The <code>ResultSet</code> positioned on a valid row.
+     * @throws SQLException if a database access error occurs or a value
+     * cannot be stored
+     */
+    void append(ResultSet rs) throws SQLException {
+        scratch.clear();
+        for (int i = 1; i <= names.length; i++) {
+            this.write(rs.getObject(i), names[i - 1]);
+        }
+        scratch.flip();
+
+        ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.remaining() < scratch.remaining()) {
+            segment = this.newSegment(Math.max(segmentSize, scratch.remaining()));
+        }
+
+        if (rows == positions.length) {
+            positions = Arrays.copyOf(positions, rows * 2);
+        }
+        positions[rows++] = ((long) (segments.size() - 1) << 32) | segment.position();
+        segment.put(scratch);
+    }
+
+    /**
+     * Allocates a segment: a direct buffer while the budget allows it,
+     * otherwise a new region of the temporary file.
+     *
+     * @param size The segment size.
+     * @return The segment.
+     * @throws SQLException if the temporary file cannot be extended
+     */
+    private ByteBuffer newSegment(int size) throws SQLException {
+        ByteBuffer segment;
+        if (size <= budget) {
+            segment = ByteBuffer.allocateDirect(size);
+            budget -= size;
+            directBytes += size;
+        } else {
+            try {
+                if (file == null) {
+                    path = File.createTempFile("dbutils", ".rows", spillDir);
+                    file = new RandomAccessFile(path, "rw");
+                }
+                segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, fileLength, size);
+                fileLength += size;
+            } catch (IOException e) {
+                throw new SQLException("Cannot map result buffer: " + e.getMessage(), e);
+            }
+        }
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Makes room for <code>bytes</code> more bytes in the scratch buffer.
+     *
+     * @param bytes The number of bytes about to be written.
+     */
+    private void reserve(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            grown.put(scratch);
+            scratch = grown;
+        }
+    }
+
+    /**
+     * Encodes one value into the scratch buffer.
+     *
+     * @param value The value.
+     * @param name The column label, for error messages.
+     * @throws SQLException if the value cannot be stored
+     */
+    private void write(Object value, String name) throws SQLException {
+        if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+            value = clob.getSubString(1, (int) clob.length());
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            value = blob.getBytes(1, (int) blob.length());
+        }
+
+        if (value == null) {
+            this.reserve(1);
+            scratch.put(NULL);
+        } else if (value instanceof Integer) {
+            this.reserve(5);
+            scratch.put(INT).putInt(((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            this.reserve(9);
+            scratch.put(LONG).putLong(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            this.reserve(9);
+            scratch.put(DOUBLE).putDouble(((Double) value).doubleValue());
+        } else if (value instanceof Float) {
+            this.reserve(5);
+            scratch.put(FLOAT).putFloat(((Float) value).floatValue());
+        } else if (value instanceof Short) {
+            this.reserve(3);
+            scratch.put(SHORT).putShort(((Short) value).shortValue());
+        } else if (value instanceof Byte) {
+            this.reserve(2);
+            scratch.put(BYTE).put(((Byte) value).byteValue());
+        } else if (value instanceof Boolean) {
+            this.reserve(2);
+            scratch.put(BOOLEAN).put((byte) (((Boolean) value).booleanValue() ? 1 : 0));
+        } else if (value instanceof String) {
+            this.writeBytes(STRING, ((String) value).getBytes(UTF8));
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            this.writeBytes(DECIMAL, decimal.unscaledValue().toByteArray());
+            this.reserve(4);
+            scratch.putInt(decimal.scale());
+        } else if (value instanceof BigInteger) {
+            this.writeBytes(BIGINT, ((BigInteger) value).toByteArray());
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            this.reserve(13);
+            scratch.put(TIMESTAMP).putLong(timestamp.getTime()).putInt(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            this.reserve(9);
+            scratch.put(DATE).putLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Time) {
+            this.reserve(9);
+            scratch.put(TIME).putLong(((Time) value).getTime());
+        } else if (value instanceof byte[]) {
+            this.writeBytes(BYTES, (byte[]) value);
+        } else if (value instanceof Serializable) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(value);
+                out.close();
+                this.writeBytes(SERIALIZED, bytes.toByteArray());
+            } catch (IOException e) {
+                throw new SQLException("Cannot buffer " + name + ": " + e.getMessage(), e);
+            }
+        } else {
+            throw new SQLException(
+                "Cannot buffer " + name + ": " + value.getClass().getName() + " is not Serializable");
+        }
+    }
+
+    /**
+     * Encodes a tag followed by a length-prefixed byte array.
+     *
+     * @param tag The value tag.
+     * @param bytes The bytes.
+     */
+    private void writeBytes(byte tag, byte[] bytes) {
+        this.reserve(5 + bytes.length);
+        scratch.put(tag).putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Decodes one value.
+     *
+     * @param in The buffer positioned on the value.
+     * @return The value.
+     */
+    private static Object read(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+        case NULL:
+            return null;
+        case INT:
+            return Integer.valueOf(in.getInt());
+        case LONG:
+            return Long.valueOf(in.getLong());
+        case DOUBLE:
+            return Double.valueOf(in.getDouble());
+        case FLOAT:
+            return Float.valueOf(in.getFloat());
+        case SHORT:
+            return Short.valueOf(in.getShort());
+        case BYTE:
+            return Byte.valueOf(in.get());
+        case BOOLEAN:
+            return Boolean.valueOf(in.get() != 0);
+        case STRING:
+            return new String(readBytes(in), UTF8);
+        case DECIMAL:
+            BigInteger unscaled = new BigInteger(readBytes(in));
+            return new BigDecimal(unscaled, in.getInt());
+        case BIGINT:
+            return new BigInteger(readBytes(in));
+        case TIMESTAMP:
+            Timestamp timestamp = new Timestamp(in.getLong());
+            timestamp.setNanos(in.getInt());
+            return timestamp;
+        case DATE:
+            return new java.sql.Date(in.getLong());
+        case TIME:
+            return new Time(in.getLong());
+        case BYTES:
+            return readBytes(in);
+        case SERIALIZED:
+            try {
+                return new ObjectInputStream(new ByteArrayInputStream(readBytes(in))).readObject();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot decode buffered value: " + e.getMessage(), e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot decode buffered value: " + e.getMessage(), e);
+            }
+        default:
+            throw new IllegalStateException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Decodes a length-prefixed byte array.
+     *
+     * @param in The buffer positioned on the length.
+     * @return The bytes.
+     */
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * The <code>ResultSet</code> returned by <code>resultSet</code>.
+     */
+    private final class Cursor implements InvocationHandler {
+
+        /**
+         * The next row.
+         */
+        private int next;
+
+        /**
+         * The end of the range, exclusive.
+         */
+        private final int end;
+
+        /**
+         * The current row, <code>null</code> before the first and after the last.
+         */
+        private Object[] current;
+
+        /**
+         * Whether the last value read was <code>null</code>.
+         */
+        private boolean wasNull;
+
+        /**
+         * Whether <code>close</code> was called.
+         */
+        private boolean closed;
+
+        /**
+         * The metadata.
+         */
+        private final ResultSetMetaData metaData = ProxyFactory.instance().createResultSetMetaData(
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if (name.equals("getColumnCount")) {
+                        return Integer.valueOf(names.length);
+                    } else if (name.equals("getColumnLabel") || name.equals("getColumnName")) {
+                        return names[((Integer) args[0]).intValue() - 1];
+                    } else if (name.equals("getColumnType")) {
+                        return Integer.valueOf(types[((Integer) args[0]).intValue() - 1]);
+                    } else if (name.equals("getPrecision")) {
+                        return Integer.valueOf(precisions[((Integer) args[0]).intValue() - 1]);
+                    } else if (name.equals("getScale")) {
+                        return Integer.valueOf(scales[((Integer) args[0]).intValue() - 1]);
+                    } else if (name.equals("isSigned")) {
+                        return Boolean.valueOf(signed[((Integer) args[0]).intValue() - 1]);
+                    } else if (name.equals("isNullable")) {
+                        return Integer.valueOf(nullable[((Integer) args[0]).intValue() - 1]);
+                    }
+                    return unsupported(method);
+                }
+            });
+
+        /**
+         * Creates a cursor over a range of rows.
+         *
+         * @param from The first row, inclusive.
+         * @param end The last row, exclusive.
+         */
+        Cursor(int from, int end) {
+            this.next = from;
+            this.end = end;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("next")) {
+                this.checkOpen();
+                current = next < end ? OffHeapRows.this.get(next++) : null;
+                return Boolean.valueOf(current != null);
+            } else if (name.startsWith("get") && args != null && args.length == 1
+                    && (args[0] instanceof Integer || args[0] instanceof String)) {
+                return this.value(name, args[0]);
+            } else if (name.equals("wasNull")) {
+                return Boolean.valueOf(wasNull);
+            } else if (name.equals("findColumn")) {
+                return Integer.valueOf(this.column(args[0]));
+            } else if (name.equals("getMetaData")) {
+                return metaData;
+            } else if (name.equals("close")) {
+                closed = true;
+                current = null;
+                return null;
+            } else if (name.equals("isClosed")) {
+                return Boolean.valueOf(closed);
+            } else if (name.equals("getType")) {
+                return Integer.valueOf(ResultSet.TYPE_FORWARD_ONLY);
+            } else if (name.equals("getConcurrency")) {
+                return Integer.valueOf(ResultSet.CONCUR_READ_ONLY);
+            } else if (name.equals("getFetchSize")) {
+                return Integer.valueOf(0);
+            } else if (name.equals("setFetchSize") || name.equals("clearWarnings")) {
+                return null;
+            } else if (name.equals("getStatement") || name.equals("getWarnings")) {
+                return null;
+            } else if (name.equals("isWrapperFor")) {
+                return Boolean.FALSE;
+            } else if (name.equals("hashCode")) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+            } else if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            } else if (name.equals("toString")) {
+                return "OffHeapRows cursor";
+            }
+            return unsupported(method);
+        }
+
+        /**
+         * Fails unless the cursor is open.
+         *
+         * @throws SQLException if the cursor was closed
+         */
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("ResultSet is closed");
+            }
+        }
+
+        /**
+         * Resolves a column index or label.
+         *
+         * @param column An <code>Integer</code> index or a <code>String</code> label.
+         * @return The 1-based column index.
+         * @throws SQLException if there is no such column
+         */
+        private int column(Object column) throws SQLException {
+            if (column instanceof Integer) {
+                int index = ((Integer) column).intValue();
+                if (index < 1 || index > names.length) {
+                    throw new SQLException("Invalid column index " + index);
+                }
+                return index;
+            }
+            int index = schema.indexOf(column);
+            if (index < 0) {
+                throw new SQLException("Invalid column " + column);
+            }
+            return schema.getColumn(index);
+        }
+
+        /**
+         * Reads a value of the current row, converted for a getter.
+         *
+         * @param getter The getter name.
+         * @param column An <code>Integer</code> index or a <code>String</code> label.
+         * @return The converted value.
+         * @throws SQLException if there is no current row or no such column
+         */
+        private Object value(String getter, Object column) throws SQLException {
+            this.checkOpen();
+            if (current == null) {
+                throw new SQLException("No current row");
+            }
+            Object value = current[this.column(column) - 1];
+            wasNull = value == null;
+            return convert(getter, value);
+        }
+
+    }
+
+    /**
+     * Converts a buffered value for a <code>ResultSet</code> getter.
+     *
+     * @param getter The getter name.
+     * @param value The buffered value.
+     * @return The converted value.
+     * @throws SQLException if the value cannot be converted
+     */
+    private static Object convert(String getter, Object value) throws SQLException {
+        if (getter.equals("getObject")) {
+            return value;
+        } else if (getter.equals("getString") || getter.equals("getNString")) {
+            return value instanceof byte[] ? new String((byte[]) value, UTF8)
+                : value == null ? null : value.toString();
+        } else if (getter.equals("getBoolean")) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+            return Boolean.valueOf(value instanceof Number ? ((Number) value).doubleValue() != 0
+                : value != null && (value.toString().trim().equals("1")
+                    || value.toString().trim().equalsIgnoreCase("true")));
+        } else if (getter.equals("getBytes")) {
+            return value instanceof String ? ((String) value).getBytes(UTF8) : value;
+        } else if (getter.equals("getTimestamp")) {
+            return value instanceof java.util.Date && !(value instanceof Timestamp)
+                ? new Timestamp(((java.util.Date) value).getTime()) : value;
+        } else if (getter.equals("getDate")) {
+            return value instanceof java.util.Date && !(value instanceof java.sql.Date)
+                ? new java.sql.Date(((java.util.Date) value).getTime()) : value;
+        } else if (getter.equals("getTime")) {
+            return value instanceof java.util.Date && !(value instanceof Time)
+                ? new Time(((java.util.Date) value).getTime()) : value;
+        }
+
+        if (getter.equals("getDouble") || getter.equals("getFloat")) {
+            double number = toDouble(getter, value);
+            return getter.equals("getDouble") ? (Object) Double.valueOf(number) : Float.valueOf((float) number);
+        } else if ((value instanceof Double || value instanceof Float)
+                && (Double.isNaN(((Number) value).doubleValue()) || Double.isInfinite(((Number) value).doubleValue()))) {
+            throw new SQLException("Cannot convert " + value + " with " + getter);
+        }
+
+        BigDecimal number;
+        if (value == null) {
+            number = BigDecimal.ZERO;
+        } else if (value instanceof BigDecimal) {
+            number = (BigDecimal) value;
+        } else if (value instanceof Boolean) {
+            number = ((Boolean) value).booleanValue() ? BigDecimal.ONE : BigDecimal.ZERO;
+        } else {
+            try {
+                number = new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new SQLException("Cannot convert " + value + " with " + getter, e);
+            }
+        }
+        if (getter.equals("getBigDecimal")) {
+            return value == null ? null : number;
+        } else if (getter.equals("getInt")) {
+            return Integer.valueOf(number.intValue());
+        } else if (getter.equals("getLong")) {
+            return Long.valueOf(number.longValue());
+        } else if (getter.equals("getShort")) {
+            return Short.valueOf(number.shortValue());
+        } else if (getter.equals("getByte")) {
+            return Byte.valueOf(number.byteValue());
+        }
+        throw new SQLFeatureNotSupportedException(getter + " is not supported on buffered rows");
+    }
+
+    /**
+     * Converts a buffered value for <code>getDouble</code> or
+     * <code>getFloat</code>, without going through <code>BigDecimal</code>
+     * so that <code>NaN</code> and the infinities survive.
+     *
+     * @param getter The getter name.
+     * @param value The buffered value.
+     * @return The converted value.
+     * @throws SQLException if the value is not a number
+     */
+    private static double toDouble(String getter, Object value) throws SQLException {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? 1 : 0;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Cannot convert " + value + " with " + getter, e);
+        }
+    }
+
+    /**
+     * Fails a method the buffered <code>ResultSet</code> does not implement.
+     *
+     * @param method The method.
+     * @return Never returns.
+     * @throws SQLFeatureNotSupportedException always
+     */
+    private static Object unsupported(Method method) throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException(method.getName() + " is not supported on buffered rows");
+    }
+
+}
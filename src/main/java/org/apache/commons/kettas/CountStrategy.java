@@ -0,0 +1,253 @@
+package org.apache.commons.kettas;
+
+import java.lang.reflect.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 分页时统计总数的策略,通过JDBCPaginRunner.setCountStrategy设置:
+ * <ul>
+ * <li>EXACT: 每次执行countSql(默认)</li>
+ * <li>cached(ttl,maxEntries): 按countSql+参数缓存总数,ttl内翻页不再执行countSql;
+ * cached(strategy,ttl,maxEntries)缓存其他策略(如ESTIMATE)的总数</li>
+ * <li>ESTIMATE: 读取数据库执行计划中的估算行数(MySql/Oracle/PostgreSql,见SQLVersion.estimateRows),
+ * 不支持估算或估算失败时执行countSql。Oracle的explain plan向plan_table写入(随后删除)行,
+ * 这些语句属于调用者的事务:自动提交关闭时随调用者的事务提交或回滚,并可能与其他会话争用plan_table</li>
+ * <li>HAS_MORE: 不统计总数,多取一行判断是否有下一页</li>
+ * </ul>
+ * 使用的策略反映在Pagin.getTotal()中,缓存未命中时是实际统计的策略。
+ * @author kettas
+ */
+public abstract class CountStrategy {
+	private static Log log=LogFactory.getLog(CountStrategy.class);
+	/**
+	 * 每次执行countSql
+	 */
+	public static final CountStrategy EXACT=new CountStrategy(Pagin.Total.EXACT) {
+		@Override
+		public int count(JDBCPaginRunner runner, Connection connection, String countSql,
+				String queryAllSql, Object[] params) throws SQLException {
+			return runner.count(connection, countSql, params);
+		}
+	};
+	/**
+	 * 读取执行计划的估算行数,估算失败(如没有plan_table或explain的权限)时执行countSql。
+	 * 自动提交关闭时估算在保存点中执行,失败后回滚到保存点,PostgreSql的事务不会因此中止
+	 */
+	public static final CountStrategy ESTIMATE=new CountStrategy(Pagin.Total.ESTIMATED) {
+		@Override
+		public int count(JDBCPaginRunner runner, Connection connection, String countSql,
+				String queryAllSql, Object[] params) throws SQLException {
+			Savepoint savepoint=null;
+			if(!connection.getAutoCommit()){
+				try{
+					savepoint=connection.setSavepoint();
+				}catch(SQLException e){
+					savepoint=null;// 不支持保存点
+				}
+			}
+			long rows;
+			try{
+				rows=SQLVersion.estimateRows(connection, runner, queryAllSql, params);
+				if(savepoint!=null){
+					try{
+						connection.releaseSavepoint(savepoint);
+					}catch(SQLException e){
+						// Oracle不支持释放保存点,随事务结束
+					}
+				}
+			}catch(SQLException e){
+				if(log.isDebugEnabled()){
+					log.debug("估算行数失败,执行countSql: "+e.getMessage());
+				}
+				if(savepoint!=null){
+					connection.rollback(savepoint);
+				}
+				rows=-1;
+			}
+			if(rows<0){
+				return runner.count(connection, countSql, params);
+			}
+			return (int)Math.min(rows, Integer.MAX_VALUE);
+		}
+	};
+	/**
+	 * 不统计总数
+	 */
+	public static final CountStrategy HAS_MORE=new CountStrategy(Pagin.Total.UNKNOWN) {
+		@Override
+		public int count(JDBCPaginRunner runner, Connection connection, String countSql,
+				String queryAllSql, Object[] params) {
+			return -1;
+		}
+	};
+
+	private final Pagin.Total total;
+
+	protected CountStrategy(Pagin.Total total){
+		this.total=total;
+	}
+	/**
+	 * 按countSql+参数缓存总数,未命中时执行countSql
+	 * @param ttl 缓存的存活时间(毫秒)
+	 * @param maxEntries 最多缓存的总数个数,超过时淘汰最久未使用的
+	 */
+	public static Cached cached(long ttl,int maxEntries){
+		return new Cached(EXACT,ttl,maxEntries);
+	}
+	/**
+	 * 按countSql+参数缓存另一个策略统计的总数
+	 * @param strategy 未命中时统计总数的策略,不能是HAS_MORE
+	 * @param ttl 缓存的存活时间(毫秒)
+	 * @param maxEntries 最多缓存的总数个数,超过时淘汰最久未使用的
+	 */
+	public static Cached cached(CountStrategy strategy,long ttl,int maxEntries){
+		return new Cached(strategy,ttl,maxEntries);
+	}
+	/**
+	 * 统计总数
+	 * @param runner 执行查询的JDBCPaginRunner
+	 * @param connection 数据库连接
+	 * @param countSql 查询数据总记录的sql
+	 * @param queryAllSql 查询全部的sql
+	 * @param params 查询时的参数
+	 * @return 总数,-1表示不统计
+	 * @throws SQLException
+	 */
+	public abstract int count(JDBCPaginRunner runner,Connection connection,String countSql,
+			String queryAllSql,Object[] params)throws SQLException;
+	/**
+	 * 本策略得到的总数的来源
+	 */
+	public Pagin.Total getTotal(){
+		return total;
+	}
+	/**
+	 * 统计总数并返回这次总数的来源,默认是getTotal();Cached未命中时是实际统计的策略的来源
+	 */
+	Count counted(JDBCPaginRunner runner,Connection connection,String countSql,
+			String queryAllSql,Object[] params)throws SQLException{
+		return new Count(count(runner, connection, countSql, queryAllSql, params),getTotal());
+	}
+
+	/**
+	 * 一次统计的总数和来源
+	 */
+	static final class Count {
+		final int rows;
+		final Pagin.Total total;
+		Count(int rows,Pagin.Total total){
+			this.rows=rows;
+			this.total=total;
+		}
+	}
+
+	/**
+	 * 按countSql+参数缓存的总数,本类是线程安全的。参数中的数组按内容比较
+	 */
+	public static final class Cached extends CountStrategy {
+		private final CountStrategy strategy;
+		private final long ttl;
+		private final LinkedHashMap<List<Object>,long[]> counts;
+		private long hits=0;
+		private long misses=0;
+
+		Cached(CountStrategy strategy,long ttl,final int maxEntries){
+			super(Pagin.Total.CACHED);
+			if(strategy==null||strategy.getTotal()==Pagin.Total.UNKNOWN){
+				throw new IllegalArgumentException("strategy must count rows");
+			}
+			if(ttl<=0||maxEntries<1){
+				throw new IllegalArgumentException("ttl and maxEntries must be positive");
+			}
+			this.strategy=strategy;
+			this.ttl=ttl;
+			this.counts=new LinkedHashMap<List<Object>,long[]>(16,0.75f,true){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<List<Object>,long[]> eldest) {
+					return size()>maxEntries;
+				}
+			};
+		}
+		@Override
+		public int count(JDBCPaginRunner runner, Connection connection, String countSql,
+				String queryAllSql, Object[] params) throws SQLException {
+			return counted(runner, connection, countSql, queryAllSql, params).rows;
+		}
+		@Override
+		Count counted(JDBCPaginRunner runner, Connection connection, String countSql,
+				String queryAllSql, Object[] params) throws SQLException {
+			List<Object> key=new ArrayList<Object>();
+			key.add(countSql);
+			if(params!=null){
+				for(Object param:params){
+					key.add(keyOf(param));
+				}
+			}
+			long now=System.currentTimeMillis();
+			synchronized (this) {
+				long[] cached=counts.get(key);// {总数,过期时间}
+				if(cached!=null&&cached[1]>=now){
+					hits++;
+					return new Count((int)cached[0],Pagin.Total.CACHED);
+				}
+				misses++;
+			}
+			Count count=strategy.counted(runner, connection, countSql, queryAllSql, params);
+			synchronized (this) {
+				counts.put(key, new long[]{count.rows,now+ttl});
+			}
+			return count;
+		}
+		/**
+		 * 数组(包括基本类型数组和嵌套的数组)转为List,按内容比较,之后修改参数数组不影响缓存
+		 */
+		private static Object keyOf(Object param){
+			if(param==null||!param.getClass().isArray()){
+				return param;
+			}
+			int length=Array.getLength(param);
+			List<Object> list=new ArrayList<Object>(length);
+			for(int i=0;i<length;i++){
+				list.add(keyOf(Array.get(param, i)));
+			}
+			return list;
+		}
+		/**
+		 * 未命中时统计总数的策略
+		 */
+		public CountStrategy getStrategy(){
+			return strategy;
+		}
+		/**
+		 * 使某条countSql的缓存失效
+		 */
+		public synchronized void invalidate(String countSql){
+			for(Iterator<List<Object>> it=counts.keySet().iterator();it.hasNext();){
+				if(it.next().get(0).equals(countSql)){
+					it.remove();
+				}
+			}
+		}
+		public synchronized void clear(){
+			counts.clear();
+		}
+		public synchronized long getHits(){
+			return hits;
+		}
+		public synchronized long getMisses(){
+			return misses;
+		}
+	}
+}
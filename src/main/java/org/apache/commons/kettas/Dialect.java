@@ -0,0 +1,316 @@
+package org.apache.commons.kettas;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * 数据库方言:生成分页sql并选择JDBCPaginRunner的分页方式。
+ * 内置SqlServer(按版本选择2000/2005/2012的分页方式)、Oracle、MySql(含MariaDB)、Sqlite、PostgreSql、H2、DB2,
+ * 其他数据库可以继承本类后通过register注册,注册的方言优先于内置方言。
+ * <p>
+ * 方言按数据库产品名识别,识别结果按JDBC URL缓存,并按DataSource、Connection(弱引用)缓存,
+ * 同一个库只在第一次使用时读取DatabaseMetaData,多个数据库可以同时使用。例:
+ * <pre>
+ * Dialect.register(new Dialect("Informix", null) {
+ *     protected boolean accept(String productName) {
+ *         return productName.startsWith("informix");
+ *     }
+ *     public String limitSql(String sql, int start, int count) {
+ *         return "select skip " + start + " first " + count + " * from (" + sql + ")";
+ *     }
+ * });
+ * </pre>
+ * 本类是线程安全的。
+ * @author kettas
+ */
+public abstract class Dialect {
+	/**
+	 * SqlServer 2000及无法取得版本时:top end后在客户端跳过start行
+	 */
+	public static final Dialect SQLSERVER=new SqlServer("SqlServer") {
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.top(sql, start+count);
+		}
+		@Override
+		public <T> T limit(JDBCPaginRunner runner, Connection conn, String sql, Object[] params,
+				ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+			return runner.limitMSsql(conn, sql, params, rsh, start, start+count);
+		}
+	};
+	/**
+	 * SqlServer 2005/2008:row_number(),order by无法提到row_number()中时同SQLSERVER用top+跳过
+	 */
+	public static final Dialect SQLSERVER_2005=new SqlServer("SqlServer 2005") {
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			String limited=SQLRewriter.rowNumber(sql, start, start+count);
+			return limited!=null?limited:SQLRewriter.top(sql, start+count);
+		}
+		@Override
+		public <T> T limit(JDBCPaginRunner runner, Connection conn, String sql, Object[] params,
+				ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+			return runner.limitMSsql2005(conn, sql, params, rsh, start, start+count);
+		}
+	};
+	/**
+	 * SqlServer 2012及以上:offset/fetch
+	 */
+	public static final Dialect SQLSERVER_2012=new SqlServer("SqlServer 2012") {
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.offsetFetch(sql, start, count);
+		}
+		@Override
+		public <T> T limit(JDBCPaginRunner runner, Connection conn, String sql, Object[] params,
+				ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+			return runner.limitMSsql2012(conn, sql, params, rsh, start, count);
+		}
+	};
+	public static final Dialect ORACLE=new Dialect("Oracle",SQLVersion.VersionName.Oracle) {
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.rownum(sql, start, start+count);
+		}
+		@Override
+		public <T> T limit(JDBCPaginRunner runner, Connection conn, String sql, Object[] params,
+				ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+			return runner.limitOracle(conn, sql, params, rsh, start, start+count);
+		}
+	};
+	public static final Dialect MYSQL=new Dialect("MySql",SQLVersion.VersionName.MySql) {
+		@Override
+		protected boolean accept(String productName) {
+			return productName.indexOf("mysql")>-1||productName.indexOf("mariadb")>-1;
+		}
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.limit(sql, start, count);
+		}
+		@Override
+		public <T> T limit(JDBCPaginRunner runner, Connection conn, String sql, Object[] params,
+				ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+			return runner.limitMysql(conn, sql, params, rsh, start, count);
+		}
+	};
+	public static final Dialect SQLITE=new Dialect("Sqlite",SQLVersion.VersionName.Sqlite) {
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.limit(sql, start, count);
+		}
+		@Override
+		public <T> T limit(JDBCPaginRunner runner, Connection conn, String sql, Object[] params,
+				ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+			return runner.limitSqlLit(conn, sql, params, rsh, start, count);
+		}
+	};
+	public static final Dialect POSTGRESQL=new Dialect("PostgreSql",SQLVersion.VersionName.PostgreSql) {
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.limitOffset(sql, start, count);
+		}
+	};
+	public static final Dialect H2=new Dialect("H2",SQLVersion.VersionName.H2) {
+		@Override
+		protected boolean accept(String productName) {
+			return productName.equals("h2");
+		}
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.limitOffset(sql, start, count);
+		}
+	};
+	public static final Dialect DB2=new Dialect("DB2",SQLVersion.VersionName.DB2) {
+		@Override
+		protected boolean accept(String productName) {
+			return productName.startsWith("db2");
+		}
+		@Override
+		public String limitSql(String sql, int start, int count) {
+			return SQLRewriter.fetchFirst(sql, start, count);
+		}
+	};
+
+	/**
+	 * 按识别顺序排列的方言,注册的方言在前
+	 */
+	private static final List<Dialect> dialects=new CopyOnWriteArrayList<Dialect>(new Dialect[]{
+			SQLSERVER,ORACLE,MYSQL,SQLITE,POSTGRESQL,H2,DB2});
+	private static final ConcurrentHashMap<String,Dialect> urls=new ConcurrentHashMap<String,Dialect>();
+	private static final Map<DataSource,Dialect> dataSources=Collections.synchronizedMap(new WeakHashMap<DataSource,Dialect>());
+	private static final Map<Connection,Dialect> connections=Collections.synchronizedMap(new WeakHashMap<Connection,Dialect>());
+
+	private final String name;
+	private final SQLVersion.VersionName versionName;
+
+	/**
+	 * @param name 方言名称,同时是默认按产品名识别时匹配的关键字
+	 * @param versionName 对应的数据库类型,没有时为null
+	 */
+	protected Dialect(String name,SQLVersion.VersionName versionName){
+		this.name=name;
+		this.versionName=versionName;
+	}
+	/**
+	 * 是否处理该数据库,默认产品名中包含方言名称时处理
+	 * @param productName 小写的DatabaseMetaData.getDatabaseProductName()
+	 */
+	protected boolean accept(String productName){
+		return productName.indexOf(name.toLowerCase())>-1;
+	}
+	/**
+	 * 按数据库版本选择具体的方言,默认返回本身
+	 */
+	protected Dialect resolve(DatabaseMetaData metaData)throws SQLException{
+		return this;
+	}
+	/**
+	 * 生成只返回第start行之后count行的sql
+	 * @param sql 查询全部的sql
+	 * @param start 跳过的行数
+	 * @param count 返回的最大行数
+	 */
+	public abstract String limitSql(String sql,int start,int count);
+	/**
+	 * 分页查询,默认执行limitSql生成的sql
+	 */
+	public <T> T limit(JDBCPaginRunner runner,Connection conn,String sql,Object[] params,
+			ResultSetHandler<T> rsh,int start,int count)throws SQLException{
+		return runner.limitQuery(conn, limitSql(sql, start, count), params, rsh, versionName, count);
+	}
+	public String getName(){
+		return name;
+	}
+	/**
+	 * 对应的数据库类型,自定义方言可能为null
+	 */
+	public SQLVersion.VersionName getVersionName(){
+		return versionName;
+	}
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * 注册方言,优先于已注册的方言和内置方言;同时清空识别缓存
+	 */
+	public static void register(Dialect dialect){
+		if(dialect==null){
+			throw new IllegalArgumentException("dialect can't be null");
+		}
+		dialects.add(0,dialect);
+		clear();
+	}
+	/**
+	 * 清空识别缓存
+	 */
+	public static void clear(){
+		urls.clear();
+		dataSources.clear();
+		connections.clear();
+	}
+	/**
+	 * 连接对应的方言
+	 */
+	public static Dialect of(Connection conn)throws SQLException{
+		Dialect dialect=connections.get(conn);
+		if(dialect==null){
+			dialect=of(conn.getMetaData());
+			connections.put(conn,dialect);
+		}
+		return dialect;
+	}
+	/**
+	 * 数据源对应的方言,第一次调用时取一个连接识别
+	 */
+	public static Dialect of(DataSource dataSource)throws SQLException{
+		Dialect dialect=dataSources.get(dataSource);
+		if(dialect==null){
+			Connection conn=dataSource.getConnection();
+			try{
+				dialect=of(conn);
+			}finally{
+				DbUtils.closeQuietly(conn);
+			}
+			dataSources.put(dataSource,dialect);
+		}
+		return dialect;
+	}
+	/**
+	 * 数据源对应的方言,数据源还没有识别过时用从该数据源取得的连接conn识别,不再另取连接
+	 */
+	public static Dialect of(DataSource dataSource,Connection conn)throws SQLException{
+		Dialect dialect=dataSources.get(dataSource);
+		if(dialect==null){
+			dialect=of(conn);
+			dataSources.put(dataSource,dialect);
+		}
+		return dialect;
+	}
+	/**
+	 * 数据库对应的方言,按JDBC URL缓存
+	 */
+	public static Dialect of(DatabaseMetaData metaData)throws SQLException{
+		String url=metaData.getURL();
+		Dialect dialect=url==null?null:urls.get(url);
+		if(dialect==null){
+			dialect=detect(metaData);
+			if(url!=null){
+				urls.put(url,dialect);
+			}
+		}
+		return dialect;
+	}
+	private static Dialect detect(DatabaseMetaData metaData)throws SQLException{
+		String productName=String.valueOf(metaData.getDatabaseProductName()).toLowerCase();
+		for(Dialect dialect:dialects){
+			if(dialect.accept(productName)){
+				return dialect.resolve(metaData);
+			}
+		}
+		throw new SQLException("不明类型("+productName+")");
+	}
+
+	/**
+	 * SqlServer:按主版本号(2005=9,2008=10,2012=11)选择分页方式,取不到版本时用top+跳过
+	 */
+	private abstract static class SqlServer extends Dialect {
+		SqlServer(String name){
+			super(name,SQLVersion.VersionName.SqlServer);
+		}
+		@Override
+		protected boolean accept(String productName) {
+			return productName.indexOf("microsoft")>-1;
+		}
+		@Override
+		protected Dialect resolve(DatabaseMetaData metaData) {
+			int major;
+			try {
+				major=metaData.getDatabaseMajorVersion();
+			} catch (SQLException e) {
+				major=0;
+			} catch (AbstractMethodError e) {// JDBC2驱动
+				major=0;
+			}
+			if(major>=11){
+				return SQLSERVER_2012;
+			}else if(major>=9){
+				return SQLSERVER_2005;
+			}
+			return SQLSERVER;
+		}
+	}
+}
@@ -3,6 +3,8 @@ package org.apache.commons.kettas;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.Connection;
@@ -15,11 +17,19 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.KeysetPagin;
 import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.dbutils.ProxyFactory;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.RowProcessor;
 import org.apache.commons.logging.Log;
@@ -38,6 +48,30 @@ public class JDBCPaginRunner {
 	 */
 	private volatile boolean pmdKnownBroken = true;
 	private static Log log=LogFactory.getLog(JDBCPaginRunner.class);
+	/**
+	 * 分页缓存,为null时每次分页都查询数据库
+	 */
+	private volatile PaginCache paginCache;
+	/**
+	 * 并发分页时统计总数使用的默认线程池
+	 */
+	private static ExecutorService countExecutor;
+	/**
+	 * 分页时统计总数的策略
+	 */
+	private volatile CountStrategy countStrategy = CountStrategy.EXACT;
+	/**
+	 * 分页预取,为null时不预取
+	 */
+	private volatile PaginPrefetcher prefetcher;
+	/**
+	 * bulkLoad不使用COPY时每批insert的行数
+	 */
+	public static final int BULK_BATCH_SIZE = 1000;
+	/**
+	 * 指定的数据库方言,为null时按连接识别
+	 */
+	private volatile Dialect dialect;
 
 	/**
 	 * The DataSource to retrieve connections from.
@@ -171,6 +205,187 @@ public class JDBCPaginRunner {
 		}
 	}
 
+	/**
+	 * 批量导入:PostgreSql使用COPY table (columns) FROM STDIN,数据按行以csv格式流式写入,
+	 * 需要PostgreSql JDBC驱动(通过反射调用CopyManager,驱动不存在或连接无法unwrap时按其他数据库处理);
+	 * 其他数据库(如H2)按每批BULK_BATCH_SIZE行执行insert批处理。
+	 * 
+	 * @param conn
+	 *            数据库的连接,调用者负责关闭
+	 * @param table
+	 *            表名
+	 * @param columns
+	 *            列名
+	 * @param rows
+	 *            每行的值,顺序同columns
+	 * @return 导入的行数
+	 * @throws SQLException
+	 */
+	public long bulkLoad(Connection conn, String table, String[] columns,
+			Object[][] rows) throws SQLException {
+		StringBuilder names = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			names.append(i > 0 ? ", " : "").append(columns[i]);
+		}
+		if (this.dialect(conn).getVersionName() == SQLVersion.VersionName.PostgreSql) {
+			Object copyManager = copyManager(conn);
+			if (copyManager != null) {
+				String sql = "COPY " + table + " (" + names + ") FROM STDIN WITH CSV";
+				if (log.isDebugEnabled()) {
+					log.debug(sql);
+				}
+				try {
+					Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class);
+					return ((Number) copyIn.invoke(copyManager, sql, new CsvReader(rows))).longValue();
+				} catch (InvocationTargetException e) {
+					if (e.getCause() instanceof SQLException) {
+						// 只报告行数,整个导入的数据放进异常信息会占用大量内存
+						this.rethrow((SQLException) e.getCause(), sql + " (共" + rows.length + "行)", (Object[]) null);
+					}
+					throw new SQLException("COPY出错(" + e.getCause() + ")!", e.getCause());
+				} catch (Exception e) {
+					throw new SQLException("COPY出错(" + e + ")!", e);
+				}
+			}
+		}
+		StringBuilder sql = new StringBuilder("insert into ").append(table).append(" (")
+				.append(names).append(") values (");
+		for (int i = 0; i < columns.length; i++) {
+			sql.append(i > 0 ? ", ?" : "?");
+		}
+		sql.append(")");
+		if (log.isDebugEnabled()) {
+			log.debug(sql);
+		}
+		PreparedStatement stmt = null;
+		long count = 0;
+		int from = 0;// 当前批的第一行
+		int i = 0;
+		try {
+			stmt = this.prepareStatement(conn, sql.toString());
+			for (; i < rows.length; i++) {
+				this.fillStatement(stmt, rows[i]);
+				stmt.addBatch();
+				if ((i + 1) % BULK_BATCH_SIZE == 0 || i == rows.length - 1) {
+					for (int updated : stmt.executeBatch()) {
+						count += updated == Statement.SUCCESS_NO_INFO ? 1 : updated;
+					}
+					from = i + 1;
+				}
+			}
+		} catch (SQLException e) {
+			// 只报告出错的批次和行号,整个导入的数据放进异常信息会占用大量内存
+			this.rethrow(e, sql + " (第" + (from / BULK_BATCH_SIZE + 1) + "批,第" + (from + 1) + "-"
+					+ Math.min(i + 1, rows.length) + "行,共" + rows.length + "行)", (Object[]) null);
+		} finally {
+			close(stmt);
+		}
+		return count;
+	}
+
+	/**
+	 * 批量导入,连接从构造时传入的DataSource中获取
+	 * 
+	 * @see #bulkLoad(Connection, String, String[], Object[][])
+	 */
+	public long bulkLoad(String table, String[] columns, Object[][] rows)
+			throws SQLException {
+		Connection conn = this.prepareConnection();
+		try {
+			return this.bulkLoad(conn, table, columns, rows);
+		} finally {
+			close(conn);
+		}
+	}
+
+	/**
+	 * PostgreSql驱动的CopyManager,取不到时返回null
+	 */
+	private static Object copyManager(Connection conn) {
+		try {
+			Class<?> pgConnection = Class.forName("org.postgresql.PGConnection");
+			Object pg = pgConnection.isInstance(conn) ? conn : conn.unwrap(pgConnection);
+			return pgConnection.getMethod("getCopyAPI").invoke(pg);
+		} catch (Exception e) {
+			log.debug("PostgreSql CopyManager not available, using batch insert", e);
+		} catch (AbstractMethodError e) {// JDBC3驱动或连接池没有实现unwrap
+			log.debug("PostgreSql CopyManager not available, using batch insert", e);
+		}
+		return null;
+	}
+
+	/**
+	 * 按行生成COPY ... WITH CSV的输入:null为空值,字符串加双引号,byte[]为bytea的十六进制格式
+	 */
+	private static final class CsvReader extends Reader {
+		private final Object[][] rows;
+		private int row = 0;
+		private final StringBuilder buffer = new StringBuilder();
+		private int position = 0;
+
+		CsvReader(Object[][] rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (position == buffer.length()) {
+				if (row == rows.length) {
+					return -1;
+				}
+				buffer.setLength(0);
+				position = 0;
+				Object[] values = rows[row++];
+				for (int i = 0; i < values.length; i++) {
+					if (i > 0) {
+						buffer.append(',');
+					}
+					append(values[i]);
+				}
+				buffer.append('\n');
+			}
+			int n = Math.min(len, buffer.length() - position);
+			buffer.getChars(position, position + n, cbuf, off);
+			position += n;
+			return n;
+		}
+
+		private void append(Object value) {
+			if (value == null) {
+				return;
+			}
+			if (value instanceof byte[]) {
+				buffer.append("\\x");
+				for (byte b : (byte[]) value) {
+					buffer.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+				}
+				return;
+			}
+			if (value instanceof java.util.Date && !(value instanceof java.sql.Date)
+					&& !(value instanceof java.sql.Time) && !(value instanceof java.sql.Timestamp)) {
+				value = new java.sql.Timestamp(((java.util.Date) value).getTime());
+			}
+			String text = value.toString();
+			if (value instanceof Number || value instanceof Boolean) {
+				buffer.append(text);
+				return;
+			}
+			buffer.append('"');
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				buffer.append(c);
+				if (c == '"') {
+					buffer.append('"');
+				}
+			}
+			buffer.append('"');
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
 	/**
 	 * Fill the <code>PreparedStatement</code> replacement parameters with the
 	 * given objects.
@@ -461,9 +676,7 @@ public class JDBCPaginRunner {
 		T result = null;
 
 		try {
-//			if (dataBaseVersion == null) {
-			SQLVersion.VersionName	dataBaseVersion = SQLVersion.getVersionName(conn.getMetaData());
-//			}
+			SQLVersion.VersionName	dataBaseVersion = this.dialect(conn).getVersionName();
 			if(log.isDebugEnabled()){
 				log.debug(sql);
 			}
@@ -914,21 +1127,18 @@ public class JDBCPaginRunner {
 		ResultSet rs = null;
 		PreparedStatement ps = null;
 		try {
-			sql = "select * from (select row_.*,rownum rownum_  from ( " + sql
-					+ ")row_ where  rownum <= " + end + ")  where   rownum_ > "
-					+ start;
+			sql = SQLRewriter.rownum(sql, start, end);
 			if(log.isDebugEnabled()){
 				log.debug(sql);
 			}
-			ps = conn.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
-					java.sql.ResultSet.CONCUR_READ_ONLY);
+			ps = this.prepareForwardOnly(conn, sql,
+					this.fetchSize(SQLVersion.VersionName.Oracle, end - start));
 			if (params != null && params.length > 0) {
 				this.fillStatement(ps, params);
 			}
 			rs = ps.executeQuery();
 			if (rs.next()) {
-				rs.beforeFirst();
-				return rsh.handle(rs);
+				return rsh.handle(peeked(rs));
 			}
 		} finally {
 			if (rs != null) {
@@ -946,7 +1156,7 @@ public class JDBCPaginRunner {
 		ResultSet rs = null;
 		PreparedStatement ps = null;
 		try {
-			sql = sql + " limit " + (start > 0 ? (start + "," + end) : end);
+			sql = SQLRewriter.limit(sql, start, end);
 			if(log.isDebugEnabled()){
 				log.debug(sql);
 			}
@@ -984,18 +1194,18 @@ public class JDBCPaginRunner {
 		ResultSet rs = null;
 		PreparedStatement ps = null;
 		try {
-			sql = sql + " limit " + (start > 0 ? (start + "," + end) : end);
+			sql = SQLRewriter.limit(sql, start, end);
 			if(log.isDebugEnabled()){
 				log.debug(sql);
 			}
-			ps = conn.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE,java.sql.ResultSet.CONCUR_READ_ONLY);
+			ps = this.prepareForwardOnly(conn, sql,
+					this.fetchSize(SQLVersion.VersionName.MySql, end));
 			if (params != null && params.length > 0) {
 				this.fillStatement(ps, params);
 			}
 			rs = ps.executeQuery();
 			if (rs.next()) {
-				rs.beforeFirst();
-				return rsh.handle(rs);
+				return rsh.handle(peeked(rs));
 			}
 		} finally {
 			if (rs != null) {
@@ -1031,20 +1241,26 @@ public class JDBCPaginRunner {
 		ResultSet rs = null;
 		PreparedStatement ps = null;
 		try {
-			sql = sql.replaceFirst("select", "select top " + end + " ");
+			sql = SQLRewriter.top(sql, end);
 			if(log.isDebugEnabled()){
 				log.debug(sql);
 			}
-			ps = conn.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
-					java.sql.ResultSet.CONCUR_READ_ONLY);
+			ps = this.prepareForwardOnly(conn, sql,
+					this.fetchSize(SQLVersion.VersionName.SqlServer, end - start));
 			if (params != null && params.length > 0) {
 				this.fillStatement(ps, params);
 			}
 			ps.setMaxRows(end);
 			rs = ps.executeQuery();
 			if (rs.next()) {
-				rs.absolute(start);
-				result = rsh.handle(rs);
+				// 向前跳过start行,不使用可滚动的游标
+				if (start < 1) {
+					result = rsh.handle(peeked(rs));
+				} else {
+					for (int i = 1; i < start && rs.next(); i++) {
+					}
+					result = rsh.handle(rs);
+				}
 			}
 		} finally {
 			if (rs != null) {
@@ -1060,6 +1276,175 @@ public class JDBCPaginRunner {
 		return result;
 	}
 
+	/**
+	 * SqlServer 2012及以上分页:order by ... offset start rows fetch next count rows only,只有当前页的数据经过网络。
+	 * sql没有order by时按(select null)排序,此时各页之间的顺序不保证稳定
+	 * 
+	 * @param <T>
+	 * @param conn
+	 * @param sql
+	 * @param params
+	 * @param rsh
+	 * @param start 开始的位置(跳过的行数)
+	 * @param count 返回的最大记录数量
+	 * @return
+	 * @throws SQLException
+	 */
+	public <T> T limitMSsql2012(Connection conn, String sql, Object[] params,
+			ResultSetHandler<T> rsh, int start, int count) throws SQLException {
+		return this.limitQuery(conn, SQLRewriter.offsetFetch(sql, start, count),
+				params, rsh, SQLVersion.VersionName.SqlServer, count);
+	}
+
+	/**
+	 * SqlServer 2005/2008分页:把sql的order by提到row_number() over (...)中编号后只返回当前页,
+	 * 结果中多一列rownum_(同Oracle分页)。order by无法提出时(见SQLRewriter.rowNumber)改用top+跳过
+	 * 
+	 * @param <T>
+	 * @param conn
+	 * @param sql
+	 * @param params
+	 * @param rsh
+	 * @param start 开始的位置(跳过的行数)
+	 * @param end 结束的位置
+	 * @return
+	 * @throws SQLException
+	 */
+	public <T> T limitMSsql2005(Connection conn, String sql, Object[] params,
+			ResultSetHandler<T> rsh, int start, int end) throws SQLException {
+		String limited = SQLRewriter.rowNumber(sql, start, end);
+		if (limited == null) {
+			return this.limitMSsql(conn, sql, params, rsh, start, end);
+		}
+		return this.limitQuery(conn, limited, params, rsh, SQLVersion.VersionName.SqlServer, end - start);
+	}
+
+	/**
+	 * 执行已经带分页条件的sql
+	 * 
+	 * @param <T>
+	 * @param conn
+	 * @param sql 带分页条件的sql
+	 * @param params
+	 * @param rsh
+	 * @param dataBaseVersion 数据库类型,用于选择fetchSize,可以为null
+	 * @param count 返回的最大记录数量
+	 * @return
+	 * @throws SQLException
+	 */
+	public <T> T limitQuery(Connection conn, String sql, Object[] params,
+			ResultSetHandler<T> rsh, SQLVersion.VersionName dataBaseVersion, int count)
+			throws SQLException {
+		ResultSet rs = null;
+		PreparedStatement ps = null;
+		try {
+			if(log.isDebugEnabled()){
+				log.debug(sql);
+			}
+			ps = this.prepareForwardOnly(conn, sql,
+					this.fetchSize(dataBaseVersion, count));
+			if (params != null && params.length > 0) {
+				this.fillStatement(ps, params);
+			}
+			rs = ps.executeQuery();
+			return rsh.handle(rs);
+		} finally {
+			DbUtils.closeQuietly(rs);
+			DbUtils.closeQuietly(ps);
+		}
+	}
+
+	/**
+	 * 分页查询使用的fetchSize,0表示使用驱动默认值。Oracle驱动默认每次只取10行,按页大小取(最多500行);
+	 * MySql驱动默认把结果全部读入内存,超过1000行的页使用流式读取(Integer.MIN_VALUE);
+	 * PostgreSql超过1000行的页每次取1000行(只在非自动提交的事务中生效);
+	 * 其他数据库使用驱动默认值。子类可以覆盖
+	 * 
+	 * @param dataBaseVersion 数据库类型
+	 * @param rows 当前页最多的行数
+	 * @return fetchSize
+	 */
+	protected int fetchSize(SQLVersion.VersionName dataBaseVersion, int rows) {
+		if (dataBaseVersion == SQLVersion.VersionName.Oracle) {
+			return Math.min(Math.max(rows, 10), 500);
+		} else if (dataBaseVersion == SQLVersion.VersionName.MySql && rows > 1000) {
+			return Integer.MIN_VALUE;
+		} else if (dataBaseVersion == SQLVersion.VersionName.PostgreSql && rows > 1000) {
+			return 1000;
+		}
+		return 0;
+	}
+
+	/**
+	 * 用只向前、只读的语句执行查询并流式读取全部结果(fetchSize按不限行数取,MySql为Integer.MIN_VALUE),
+	 * 供分页缓存把结果写入临时文件;query()使用可滚动的结果集,MySql、Oracle等驱动会先把全部结果读入内存
+	 */
+	<T> T queryForwardOnly(Connection conn, String sql, ResultSetHandler<T> rsh,
+			Object[] params) throws SQLException {
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		T result = null;
+		try {
+			if (log.isDebugEnabled()) {
+				log.debug(sql);
+			}
+			stmt = this.prepareForwardOnly(conn, sql,
+					this.fetchSize(this.dialect(conn).getVersionName(), Integer.MAX_VALUE));
+			this.fillStatement(stmt, params);
+			rs = this.wrap(stmt.executeQuery());
+			result = rsh.handle(rs);
+		} catch (SQLException e) {
+			this.rethrow(e, sql, params);
+		} finally {
+			try {
+				close(rs);
+			} finally {
+				close(stmt);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 准备只向前、只读的分页语句,使驱动可以流式读取
+	 */
+	private PreparedStatement prepareForwardOnly(Connection conn, String sql, int fetchSize)
+			throws SQLException {
+		PreparedStatement ps = this.prepareStatement(conn, sql,
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		if (fetchSize != 0) {
+			try {
+				ps.setFetchSize(fetchSize);
+			} catch (SQLException e) {
+				// 驱动不支持该fetchSize时使用默认值
+			}
+		}
+		return ps;
+	}
+
+	/**
+	 * 包装已经调用过一次next()的结果集:第一次next()不再移动,直接返回true,
+	 * 这样判断是否有数据时不需要beforeFirst()
+	 */
+	private static ResultSet peeked(final ResultSet rs) {
+		return ProxyFactory.instance().createResultSet(new InvocationHandler() {
+			private boolean first = true;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (first && method.getName().equals("next") && method.getParameterTypes().length == 0) {
+					first = false;
+					return Boolean.TRUE;
+				}
+				try {
+					return method.invoke(rs, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
 	/**
 	 * 指针分页
 	 * 
@@ -1077,23 +1462,24 @@ public class JDBCPaginRunner {
 	 * @param count
 	 *            指针返回的最大记录数量(用此便可实现sqlserver 分页)
 	 * @throws Exception
+	 * @see Dialect#limit(JDBCPaginRunner, Connection, String, Object[], ResultSetHandler, int, int)
 	 */
 	public <T> T limit(Connection conn, String sql, Object[] params,
 			ResultSetHandler<T> rsh, int start, int count) throws SQLException {
-//		if (dataBaseVersion == null) {
-		SQLVersion.VersionName	dataBaseVersion = SQLVersion.getVersionName(conn.getMetaData());
-//		}
-		if (dataBaseVersion == SQLVersion.VersionName.SqlServer) {// 采用Sqlserver分页 jdts1.2.5+sql2005测试 start,count成功
-			return limitMSsql(conn, sql, params, rsh, start, start+count);
-		} else if (dataBaseVersion == SQLVersion.VersionName.MySql) {// 采用Mysql方式分页
-			return limitMysql(conn, sql, params, rsh, start, count);
-		} else if(dataBaseVersion == SQLVersion.VersionName.Sqlite){
-			return limitSqlLit(conn, sql, params, rsh, start, count);
-		}else if (dataBaseVersion == SQLVersion.VersionName.Oracle) {// 采用Oracle方式分页
-			return limitOracle(conn, sql, params, rsh, start, start + count);
-		}  else {
-			throw new SQLException("un support DataBase version to paginQuery!");
+		return this.dialect(conn).limit(this, conn, sql, params, rsh, start, count);
+	}
+
+	/**
+	 * 连接使用的数据库方言:设置了方言时使用设置的方言,构造时传入了DataSource时按数据源缓存(见Dialect.of),
+	 * 否则按连接识别
+	 */
+	protected Dialect dialect(Connection conn) throws SQLException {
+		Dialect dialect = this.dialect;
+		if (dialect != null) {
+			return dialect;
 		}
+		DataSource ds = this.getDataSource();
+		return ds != null ? Dialect.of(ds, conn) : Dialect.of(conn);
 	}
 
 	/**
@@ -1102,7 +1488,7 @@ public class JDBCPaginRunner {
 	 * @param dataSource
 	 *            数据源JNDI
 	 * @param countSql
-	 *            查询数据总记录的sql
+	 *            查询数据总记录的sql,为null时由queryAllSql生成
 	 * @param queryAllSql
 	 *            查询当前页内容的sql
 	 * @param params
@@ -1122,11 +1508,255 @@ public class JDBCPaginRunner {
 			final String queryAllSql, final Object[] params,
 			final ResultSetHandler rsh, final RowProcessor processor,
 			final int pageNum, final int maxRow) throws SQLException {
+		PaginPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher == null) {
+			return this.paginNow(connection, countSql, queryAllSql, params, rsh, processor, pageNum, maxRow);
+		}
+		Pagin page = prefetcher.take(PaginPrefetcher.key(countSql, queryAllSql, params,
+				rsh, processor, pageNum, maxRow));
+		if (page == null) {
+			page = this.paginNow(connection, countSql, queryAllSql, params, rsh, processor, pageNum, maxRow);
+		}
+		this.prefetchNext(prefetcher, this.getDataSource(), page, countSql, queryAllSql,
+				params, rsh, processor, maxRow);
+		return page;
+	}
+
+	/**
+	 * 不经过预取的顺序分页查询
+	 */
+	private Pagin paginNow(Connection connection, String countSql,
+			String queryAllSql, Object[] params, ResultSetHandler rsh,
+			RowProcessor processor, int pageNum, int maxRow) throws SQLException {
+		PaginCache cache = this.paginCache;
+		if (cache != null) {
+			return cache.pagin(this, connection, queryAllSql, params, rsh, pageNum, maxRow);
+		}
+		countSql = countSql(countSql, queryAllSql);
+		try {
+			CountStrategy strategy = this.countStrategy;
+			if (strategy.getTotal() == Pagin.Total.UNKNOWN) {
+				return hasMore(connection, queryAllSql, params, rsh, pageNum, maxRow);
+			}
+			CountStrategy.Count maxCount = strategy.counted(this, connection, countSql, queryAllSql, params);
+			List list = (List) limit(connection, queryAllSql, params, rsh,
+					(pageNum - 1) * maxRow, maxRow);
+			return counted(maxCount, pageNum, maxRow, list);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			this.rethrow(e, countSql + "\n" + queryAllSql, params);
+
+		} catch (Exception e) {
+			throw new SQLException("分页出错(" + e.getMessage() + ")!", e);
+
+		}
+		return new Pagin(pageNum, maxRow, maxRow, new ArrayList(0));
+	}
+
+	/**
+	 * 并发分页查询:从数据源取两个连接,统计总数和查询当前页同时执行,两者都完成后返回Pagin,
+	 * 耗时约为两者中较慢的一个,而不是两者之和。只有一个Connection时请使用顺序执行的
+	 * {@link #pagin(Connection, String, String, Object[], ResultSetHandler, RowProcessor, int, int)}
+	 * <p>
+	 * 每个调用者同时最多占用两个连接,连接池的大小应不小于并发调用者数的两倍才能真正并发;
+	 * 当前页查询完成后立即归还连接再等待总数,连接池较小时退化为顺序执行,但不会死锁。
+	 * 
+	 * @param dataSource
+	 *            数据源,需要能同时提供两个连接
+	 * @param executor
+	 *            执行统计总数的线程池(如创建AsyncQueryRunner时使用的线程池),为null时使用内置的线程池
+	 * @param countSql
+	 *            查询数据总记录的sql,为null时由queryAllSql生成
+	 * @param queryAllSql
+	 *            查询当前页内容的sql
+	 * @param params
+	 *            查询时的参数
+	 * @param rsh
+	 *            结果集
+	 * @param processor
+	 *            行处理类
+	 * @param pageNum
+	 *            当前页页码
+	 * @param maxRow
+	 *            每页显示总数
+	 * @return Pagin
+	 * @throws SQLException
+	 */
+	public Pagin pagin(final DataSource dataSource, ExecutorService executor,
+			final String countSql, final String queryAllSql, final Object[] params,
+			final ResultSetHandler rsh, final RowProcessor processor,
+			final int pageNum, final int maxRow) throws SQLException {
+		PaginPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher == null) {
+			return this.paginNow(dataSource, executor, countSql, queryAllSql, params, rsh, processor, pageNum, maxRow);
+		}
+		Pagin page = prefetcher.take(PaginPrefetcher.key(countSql, queryAllSql, params,
+				rsh, processor, pageNum, maxRow));
+		if (page == null) {
+			page = this.paginNow(dataSource, executor, countSql, queryAllSql, params, rsh, processor, pageNum, maxRow);
+		}
+		this.prefetchNext(prefetcher, dataSource, page, countSql, queryAllSql,
+				params, rsh, processor, maxRow);
+		return page;
+	}
+
+	/**
+	 * 不经过预取的并发分页查询
+	 */
+	private Pagin paginNow(final DataSource dataSource, ExecutorService executor,
+			final String countSql, final String queryAllSql, final Object[] params,
+			final ResultSetHandler rsh, final RowProcessor processor,
+			final int pageNum, final int maxRow) throws SQLException {
+		final CountStrategy strategy = this.countStrategy;
+		if (this.paginCache != null || strategy.getTotal() == Pagin.Total.UNKNOWN) {
+			Connection connection = dataSource.getConnection();
+			try {
+				return this.paginNow(connection, countSql, queryAllSql, params, rsh, processor, pageNum, maxRow);
+			} finally {
+				close(connection);
+			}
+		}
+		final String count = countSql(countSql, queryAllSql);
+		Future<CountStrategy.Count> total = (executor != null ? executor : countExecutor()).submit(
+				new Callable<CountStrategy.Count>() {
+					@Override
+					public CountStrategy.Count call() throws Exception {
+						Connection connection = dataSource.getConnection();
+						try {
+							return strategy.counted(JDBCPaginRunner.this,
+									connection, count, queryAllSql, params);
+						} finally {
+							close(connection);
+						}
+					}
+				});
+		Connection connection = null;
+		try {
+			connection = dataSource.getConnection();
+			List list = (List) limit(connection, queryAllSql, params, rsh,
+					(pageNum - 1) * maxRow, maxRow);
+			// 等待总数之前先归还连接,统计任务可以取得它;否则每个调用者都占着一个连接等待统计,连接池会死锁
+			close(connection);
+			connection = null;
+			return counted(total.get(), pageNum, maxRow, list);
+		} catch (SQLException e) {
+			this.rethrow(e, count + "\n" + queryAllSql, params);
+
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException) {
+				this.rethrow((SQLException) e.getCause(), count, params);
+			}
+			throw new SQLException("分页出错(" + e.getCause().getMessage() + ")!", e.getCause());
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("分页被中断", e);
+
+		} finally {
+			total.cancel(true);
+			close(connection);
+		}
+		return new Pagin(pageNum, maxRow, maxRow, new ArrayList(0));
+	}
+
+	/**
+	 * 使用构造时传入的DataSource并发分页查询
+	 * 
+	 * @see #pagin(DataSource, ExecutorService, String, String, Object[], ResultSetHandler, RowProcessor, int, int)
+	 */
+	public Pagin pagin(final String countSql, final String queryAllSql,
+			final Object[] params, final ResultSetHandler rsh,
+			final RowProcessor processor, final int pageNum, final int maxRow)
+			throws SQLException {
+		if (this.getDataSource() == null) {
+			throw new SQLException(
+					"JDBCPaginRunner requires a DataSource to be "
+							+ "invoked in this way, or a Connection should be passed in");
+		}
+		return this.pagin(this.getDataSource(), null, countSql, queryAllSql,
+				params, rsh, processor, pageNum, maxRow);
+	}
+
+	/**
+	 * 有下一页时提交下一页的预取,用新的连接顺序查询
+	 */
+	private void prefetchNext(PaginPrefetcher prefetcher, DataSource defaultSource,
+			Pagin page, final String countSql, final String queryAllSql,
+			final Object[] params, final ResultSetHandler rsh,
+			final RowProcessor processor, final int maxRow) {
+		final DataSource dataSource = prefetcher.getDataSource() != null
+				? prefetcher.getDataSource() : defaultSource;
+		if (dataSource == null || !page.isNextPage()) {
+			return;
+		}
+		final int nextPage = page.getCurrentPage() + 1;
+		prefetcher.prefetch(PaginPrefetcher.key(countSql, queryAllSql, params,
+				rsh, processor, nextPage, maxRow), new Callable<Pagin>() {
+			@Override
+			public Pagin call() throws Exception {
+				Connection connection = dataSource.getConnection();
+				try {
+					return paginNow(connection, countSql, queryAllSql, params, rsh,
+							processor, nextPage, maxRow);
+				} finally {
+					close(connection);
+				}
+			}
+		});
+	}
+
+	/**
+	 * countSql为null时由queryAllSql生成(见SQLRewriter.countSql)
+	 */
+	private static String countSql(String countSql, String queryAllSql) {
+		return countSql != null ? countSql : SQLRewriter.countSql(queryAllSql);
+	}
+
+	/**
+	 * 生成Pagin并记录总数的来源;总数不是精确值时,当前页满页也认为可能有下一页
+	 */
+	private static Pagin counted(CountStrategy.Count count, int pageNum,
+			int maxRow, List list) {
+		Pagin pagin = new Pagin(pageNum, count.rows, maxRow, list);
+		pagin.setTotal(count.total);
+		if (count.total != Pagin.Total.EXACT && list != null
+				&& list.size() >= maxRow && !pagin.isNextPage()) {
+			pagin.setNextPage(true);
+		}
+		return pagin;
+	}
+
+	/**
+	 * 不统计总数的分页:多取一行判断是否有下一页
+	 */
+	private Pagin hasMore(Connection connection, String queryAllSql, Object[] params,
+			ResultSetHandler rsh, int pageNum, int maxRow) throws SQLException {
+		List list = (List) limit(connection, queryAllSql, params, rsh,
+				(pageNum - 1) * maxRow, maxRow + 1);
+		boolean nextPage = list != null && list.size() > maxRow;
+		if (nextPage) {
+			list = new ArrayList(list.subList(0, maxRow));
+		}
+		return new Pagin(pageNum, maxRow, list == null ? new ArrayList(0) : list, nextPage);
+	}
+
+	/**
+	 * 统计总数
+	 * 
+	 * @param connection
+	 *            数据库的连接
+	 * @param countSql
+	 *            查询数据总记录的sql
+	 * @param params
+	 *            查询时的参数(countSql中没有?时忽略)
+	 * @return 总数
+	 * @throws SQLException
+	 */
+	protected int count(Connection connection, String countSql, Object[] params)
+			throws SQLException {
 		ResultSet rSet = null;
 		Statement statement = null;
-		PreparedStatement pStatement = null;
 		try {
-			int maxCount = 0;
 			if(log.isDebugEnabled()){
 				log.debug(countSql);
 			}
@@ -1135,53 +1765,279 @@ public class JDBCPaginRunner {
 					|| (params == null || params.length < 1)) {
 				statement = connection.createStatement();
 				rSet = statement.executeQuery(countSql);
-				rSet.next();
-				maxCount = rSet.getInt(1);
-				rSet.close();
 			} else {
-				pStatement = connection.prepareStatement(countSql,
-						ResultSet.TYPE_SCROLL_INSENSITIVE,
-						java.sql.ResultSet.CONCUR_READ_ONLY);
+				PreparedStatement pStatement = this.prepareForwardOnly(connection, countSql, 0);
+				statement = pStatement;
 				this.fillStatement(pStatement, params);
 				rSet = pStatement.executeQuery();
-				rSet.next();
-				maxCount = rSet.getInt(1);
-				rSet.close();
 			}
-			List list = (List) limit(connection, queryAllSql, params, rsh,
-					(pageNum - 1) * maxRow, maxRow);
-			return new Pagin(pageNum, maxCount, maxRow, list);
-		} catch (SQLException e) {
-			e.printStackTrace();
-			this.rethrow(e, countSql + "\n" + queryAllSql, params);
+			rSet.next();
+			return rSet.getInt(1);
+		} finally {
+			DbUtils.closeQuietly(rSet);
+			DbUtils.closeQuietly(statement);
+		}
+	}
 
-		} catch (Exception e) {
-			throw new SQLException("分页出错(" + e.getMessage() + ")!", e);
+	/**
+	 * 内置的统计总数线程池(守护线程,空闲60秒后回收)
+	 */
+	private static synchronized ExecutorService countExecutor() {
+		if (countExecutor == null) {
+			countExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private int threads = 0;
+
+				@Override
+				public synchronized Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "JDBCPaginRunner-count-" + (++threads));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return countExecutor;
+	}
 
+	/**
+	 * 键集(seek)分页:按排序键取游标之后的maxRow条记录,不使用offset,翻到多深都和第一页一样快。
+	 * 例:
+	 * <pre>
+	 * KeysetPagin page=run.seek(conn, "select id,name,created from t_user where dept=?", new Object[]{dept},
+	 *         new MapListHandler(rp), new String[]{"created desc","id"}, null, 20);
+	 * //下一页
+	 * page=run.seek(conn, sql, params, rsh, page.getKeyColumns(), page.getCursor(), 20);
+	 * </pre>
+	 *
+	 * @param conn
+	 *            数据库的连接
+	 * @param sql
+	 *            查询全部的sql,不能带order by,排序由keyColumns决定
+	 * @param params
+	 *            执行sql补充的参数
+	 * @param rsh
+	 *            数据处理方法(接口),需返回List
+	 * @param keyColumns
+	 *            排序键(sql结果中的列名),组合起来必须唯一且非空,降序的键写成"列名 desc"
+	 * @param after
+	 *            游标,即上一页最后一行的排序键值(KeysetPagin.getCursor()),第一页为null
+	 * @param maxRow
+	 *            每页显示总数
+	 * @return KeysetPagin
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public KeysetPagin seek(Connection conn, String sql, Object[] params,
+			ResultSetHandler rsh, String[] keyColumns, Object[] after, int maxRow)
+			throws SQLException {
+		String[] names = new String[keyColumns.length];
+		boolean[] desc = new boolean[keyColumns.length];
+		for (int i = 0; i < keyColumns.length; i++) {
+			String key = keyColumns[i].trim();
+			String lower = key.toLowerCase();
+			desc[i] = lower.endsWith(" desc");
+			if (desc[i] || lower.endsWith(" asc")) {
+				key = key.substring(0, key.lastIndexOf(' ')).trim();
+			}
+			names[i] = key;
+		}
+		if (after != null && after.length != names.length) {
+			throw new SQLException("Cursor has " + after.length + " values for "
+					+ names.length + " key columns");
+		}
+
+		SQLVersion.VersionName dataBaseVersion = this.dialect(conn).getVersionName();
+		List<Object> seekParams = new ArrayList<Object>();
+		if (params != null) {
+			seekParams.addAll(Arrays.asList(params));
+		}
+		String where = after == null ? "" : " where "
+				+ seekPredicate(dataBaseVersion, names, desc, after, seekParams);
+		StringBuilder order = new StringBuilder(" order by ");
+		for (int i = 0; i < names.length; i++) {
+			order.append(i > 0 ? ", " : "").append(names[i]).append(desc[i] ? " desc" : "");
+		}
+		int fetch = maxRow + 1;// 多取一行判断是否有下一页
+		String seekSql;
+		if (dataBaseVersion == SQLVersion.VersionName.SqlServer) {
+			seekSql = "select top " + fetch + " * from (" + sql + ") seek_" + where + order;
+		} else if (dataBaseVersion == SQLVersion.VersionName.Oracle) {
+			seekSql = "select * from (select * from (" + sql + ") seek_" + where + order
+					+ ") where rownum <= " + fetch;
+		} else if (dataBaseVersion == SQLVersion.VersionName.MySql
+				|| dataBaseVersion == SQLVersion.VersionName.Sqlite
+				|| dataBaseVersion == SQLVersion.VersionName.PostgreSql
+				|| dataBaseVersion == SQLVersion.VersionName.H2) {
+			seekSql = "select * from (" + sql + ") seek_" + where + order + " limit " + fetch;
+		} else if (dataBaseVersion == SQLVersion.VersionName.DB2) {
+			seekSql = "select * from (" + sql + ") seek_" + where + order
+					+ " fetch first " + fetch + " rows only";
+		} else {
+			throw new SQLException("un support DataBase version to seekQuery!");
+		}
+		if (log.isDebugEnabled()) {
+			log.debug(seekSql);
+		}
+
+		Object[] allParams = seekParams.toArray();
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		long begin = System.currentTimeMillis();
+		try {
+			ps = this.prepareForwardOnly(conn, seekSql, this.fetchSize(dataBaseVersion, fetch));
+			ps.setMaxRows(fetch);
+			this.fillStatement(ps, allParams);
+			rs = ps.executeQuery();
+			SeekResultSet seeker = new SeekResultSet(rs, names, after, maxRow);
+			List list = (List) rsh.handle(ProxyFactory.instance().createResultSet(seeker));
+			KeysetPagin page = new KeysetPagin(keyColumns, after, seeker.last, maxRow, seeker.more, list);
+			page.setTimes(System.currentTimeMillis() - begin);
+			return page;
+		} catch (SQLException e) {
+			this.rethrow(e, seekSql, allParams);
 		} finally {
-			if (rSet != null) {
-				try {
-					rSet.close();
-				} catch (Exception x) {
-				}
+			DbUtils.closeQuietly(rs);
+			DbUtils.closeQuietly(ps);
+		}
+		return null;
+	}
+
+	/**
+	 * 生成"排序键在游标之后"的条件:MySql/Sqlite/PostgreSql/H2在所有键同方向时用行值比较(a,b)&gt;(?,?),
+	 * 其他情况展开为 a&gt;? or (a=? and b&gt;?)
+	 */
+	private static String seekPredicate(SQLVersion.VersionName dataBaseVersion,
+			String[] names, boolean[] desc, Object[] after, List<Object> seekParams) {
+		boolean sameDirection = true;
+		for (int i = 1; i < desc.length; i++) {
+			sameDirection &= desc[i] == desc[0];
+		}
+		if (names.length == 1 || sameDirection
+				&& (dataBaseVersion == SQLVersion.VersionName.MySql
+				|| dataBaseVersion == SQLVersion.VersionName.Sqlite
+				|| dataBaseVersion == SQLVersion.VersionName.PostgreSql
+				|| dataBaseVersion == SQLVersion.VersionName.H2)) {
+			StringBuilder left = new StringBuilder();
+			StringBuilder right = new StringBuilder();
+			for (int i = 0; i < names.length; i++) {
+				left.append(i > 0 ? ", " : "").append(names[i]);
+				right.append(i > 0 ? ", ?" : "?");
+				seekParams.add(after[i]);
 			}
-			if (statement != null) {
-				try {
-					statement.close();
-				} catch (Exception x) {
-				}
+			String op = desc[0] ? " < " : " > ";
+			return names.length == 1 ? left + op + right
+					: "(" + left + ")" + op + "(" + right + ")";
+		}
+		StringBuilder predicate = new StringBuilder("(");
+		for (int i = 0; i < names.length; i++) {
+			predicate.append(i > 0 ? " or (" : "(");
+			for (int j = 0; j < i; j++) {
+				predicate.append(names[j]).append(" = ? and ");
+				seekParams.add(after[j]);
 			}
-			if (pStatement != null) {
+			predicate.append(names[i]).append(desc[i] ? " < ?" : " > ?").append(")");
+			seekParams.add(after[i]);
+		}
+		return predicate.append(")").toString();
+	}
+
+	/**
+	 * 键集分页的结果集包装:最多交给处理类maxRow行,记录最后一行的排序键值,并用多取的一行判断是否有下一页;
+	 * 一行都没有时游标保持为传入的after,再翻页不会回到第一页
+	 */
+	private static final class SeekResultSet implements InvocationHandler {
+		private final ResultSet rs;
+		private final String[] keys;
+		private final int maxRow;
+		private int delivered = 0;
+		Object[] last;
+		boolean more = false;
+
+		SeekResultSet(ResultSet rs, String[] keys, Object[] after, int maxRow) {
+			this.rs = rs;
+			this.keys = keys;
+			this.last = after;
+			this.maxRow = maxRow;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (!method.getName().equals("next") || method.getParameterTypes().length > 0) {
 				try {
-					pStatement.close();
-				} catch (Exception x) {
+					return method.invoke(rs, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
 				}
 			}
+			if (delivered >= maxRow) {
+				more = more || (delivered == maxRow && rs.next());
+				delivered = maxRow + 1;
+				return Boolean.FALSE;
+			}
+			if (!rs.next()) {
+				return Boolean.FALSE;
+			}
+			delivered++;
+			Object[] values = new Object[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				values[i] = rs.getObject(keys[i]);
+			}
+			last = values;
+			return Boolean.TRUE;
 		}
-		return new Pagin(pageNum, maxRow, maxRow, new ArrayList(0));
 	}
 
 	public static Long getCount() {
 		return count;
 	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * 设置分页时统计总数的策略,默认CountStrategy.EXACT
+	 * @param countStrategy 统计策略,不能为null
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		if (countStrategy == null) {
+			throw new IllegalArgumentException("countStrategy can't be null");
+		}
+		this.countStrategy = countStrategy;
+	}
+
+	public PaginPrefetcher getPrefetcher() {
+		return prefetcher;
+	}
+
+	/**
+	 * 设置分页预取:返回第N页后异步查询第N+1页
+	 * @param prefetcher 分页预取,null时关闭预取
+	 */
+	public void setPrefetcher(PaginPrefetcher prefetcher) {
+		this.prefetcher = prefetcher;
+	}
+
+	public PaginCache getPaginCache() {
+		return paginCache;
+	}
+
+	/**
+	 * 设置分页缓存:设置后pagin只在第一次执行完整查询,之后从缓存文件中取页,不再执行countSql
+	 * @param paginCache 分页缓存,null时关闭缓存
+	 */
+	public void setPaginCache(PaginCache paginCache) {
+		this.paginCache = paginCache;
+	}
+
+	public Dialect getDialect() {
+		return dialect;
+	}
+
+	/**
+	 * 指定数据库方言,不再按连接识别
+	 * @param dialect 数据库方言,null时按连接识别
+	 */
+	public void setDialect(Dialect dialect) {
+		this.dialect = dialect;
+	}
 }
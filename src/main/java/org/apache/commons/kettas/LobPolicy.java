@@ -0,0 +1,505 @@
+package org.apache.commons.kettas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.util.Map;
+
+import org.apache.commons.dbutils.RowMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Clob/Blob/SQLXML字段的读取策略,由NoClobRowProcessor在转换每一行时使用,可以按查询单独配置
+ * (SQLXML按Clob处理):
+ * <ul>
+ * <li>EAGER: 立即读取为String/byte[],按块读取,可以设置最大长度(默认策略)</li>
+ * <li>LAZY: 返回LazyLob,第一次访问时才读取,必须在连接关闭之前访问</li>
+ * <li>SPILL: 不超过阀值的立即读取,超过阀值的写入临时文件并返回SpilledLob。临时文件归调用者所有,
+ * 用完后调用SpilledLob.close()或者release(rows)删除</li>
+ * <li>STREAM: 直接把内容交给LobSink写出,行里保存LobSink的返回值</li>
+ * </ul>
+ * 例:
+ * <pre>
+ * NoClobRowProcessor rp=new NoClobRowProcessor();
+ * rp.setLobPolicy(LobPolicy.spill(1024*1024, null));
+ * List&lt;Map&lt;String,Object&gt;&gt; list=run.query(sql, new MapListHandler(rp));
+ * try{
+ *     ...
+ * }finally{
+ *     LobPolicy.release(list);
+ * }
+ * </pre>
+ * 本类也是RowMap.Decoder,NoClobRowProcessor延迟解码时由RowMap在第一次get()时调用。
+ * 本类是线程安全的。
+ * @author kettas
+ */
+public final class LobPolicy implements RowMap.Decoder {
+	private static Log log=LogFactory.getLog(LobPolicy.class);
+	/**
+	 * 读取策略
+	 */
+	public enum Mode {EAGER,LAZY,SPILL,STREAM}
+	/**
+	 * 每次读取的块大小
+	 */
+	private static final int CHUNK=8192;
+	/**
+	 * 默认策略:不限长度立即读取
+	 */
+	public static final LobPolicy DEFAULT=new LobPolicy(Mode.EAGER,-1,-1,null,null);
+
+	private final Mode mode;
+	/**
+	 * EAGER时允许的最大长度(字符数或字节数),小于0不限制
+	 */
+	private final long maxSize;
+	/**
+	 * SPILL时写入临时文件的阀值(字符数或字节数)
+	 */
+	private final long spillThreshold;
+	/**
+	 * 临时文件目录,null使用系统临时目录
+	 */
+	private final File spillDir;
+	private final LobSink sink;
+
+	private LobPolicy(Mode mode,long maxSize,long spillThreshold,File spillDir,LobSink sink){
+		this.mode=mode;
+		this.maxSize=maxSize;
+		this.spillThreshold=spillThreshold;
+		this.spillDir=spillDir;
+		this.sink=sink;
+	}
+	/**
+	 * 立即读取,超过maxSize时抛出SQLException
+	 * @param maxSize 最大字符数或字节数,小于0不限制
+	 * @return 策略
+	 */
+	public static LobPolicy eager(long maxSize){
+		return new LobPolicy(Mode.EAGER,maxSize,-1,null,null);
+	}
+	/**
+	 * 第一次访问时才读取
+	 * @return 策略
+	 */
+	public static LobPolicy lazy(){
+		return new LobPolicy(Mode.LAZY,-1,-1,null,null);
+	}
+	/**
+	 * 超过阀值的内容写入临时文件
+	 * @param threshold 阀值(字符数或字节数)
+	 * @param dir 临时文件目录,null使用系统临时目录
+	 * @return 策略
+	 */
+	public static LobPolicy spill(long threshold,File dir){
+		if(threshold<0){
+			throw new IllegalArgumentException("threshold<0");
+		}
+		return new LobPolicy(Mode.SPILL,-1,threshold,dir,null);
+	}
+	/**
+	 * 直接把内容写到sink
+	 * @param sink 接收Clob/Blob内容
+	 * @return 策略
+	 */
+	public static LobPolicy stream(LobSink sink){
+		if(sink==null){
+			throw new IllegalArgumentException("sink is null");
+		}
+		return new LobPolicy(Mode.STREAM,-1,-1,null,sink);
+	}
+	/**
+	 * 把所有Clob写入writer、所有Blob写入out,行里保存null
+	 * @param writer 接收Clob内容,可以为null(此时Clob立即读取)
+	 * @param out 接收Blob内容,可以为null(此时Blob立即读取)
+	 * @return 策略
+	 */
+	public static LobPolicy stream(final Writer writer,final OutputStream out){
+		return stream(new LobSink() {
+			public Object clob(String column, Reader reader) throws IOException {
+				if(writer==null){
+					return readChars(reader,-1);
+				}
+				copy(reader,writer);
+				return null;
+			}
+			public Object blob(String column, InputStream in) throws IOException {
+				if(out==null){
+					return readBytes(in,-1);
+				}
+				copy(in,out);
+				return null;
+			}
+		});
+	}
+	public Mode getMode() {
+		return mode;
+	}
+	/**
+	 * Clob/Blob/SQLXML需要转换
+	 */
+	public boolean isEncoded(Object value) {
+		return value instanceof Clob||value instanceof Blob||value instanceof SQLXML;
+	}
+	/**
+	 * 同convert(value,name)
+	 */
+	public Object decode(Object value, String name) throws SQLException {
+		return convert(value,name);
+	}
+	/**
+	 * 按策略转换一个字段值,不是Clob/Blob的值原样返回
+	 * @param value 字段值
+	 * @param column 字段名,用于错误信息和LobSink
+	 * @return 转换后的值
+	 * @throws SQLException 读取失败或者超过最大长度
+	 */
+	public Object convert(Object value,String column) throws SQLException {
+		if(!isEncoded(value)){
+			return value;
+		}
+		if(mode==Mode.LAZY){
+			return new LazyLob(value,column);
+		}
+		try{
+			if(value instanceof SQLXML){
+				SQLXML xml=(SQLXML)value;
+				if(mode==Mode.STREAM){
+					Reader reader=xml.getCharacterStream();
+					try{
+						return sink.clob(column,reader);
+					}finally{
+						reader.close();
+					}
+				}
+				return read(xml,maxSize,column);
+			}
+			if(value instanceof Clob){
+				Clob clob=(Clob)value;
+				if(mode==Mode.STREAM){
+					Reader reader=clob.getCharacterStream();
+					try{
+						return sink.clob(column,reader);
+					}finally{
+						reader.close();
+					}
+				}
+				if(mode==Mode.SPILL&&clob.length()>spillThreshold){
+					return spill(clob,column);
+				}
+				return read(clob,maxSize,column);
+			}
+			Blob blob=(Blob)value;
+			if(mode==Mode.STREAM){
+				InputStream in=blob.getBinaryStream();
+				try{
+					return sink.blob(column,in);
+				}finally{
+					in.close();
+				}
+			}
+			if(mode==Mode.SPILL&&blob.length()>spillThreshold){
+				return spill(blob,column);
+			}
+			return read(blob,maxSize,column);
+		}catch (IOException e) {
+			throw new SQLException("Cannot read "+column+": "+e.getMessage());
+		}
+	}
+	/**
+	 * 删除结果中所有SpilledLob的临时文件。依次处理Map的值、数组和集合的元素(可以嵌套,
+	 * 如MapListHandler、KeyedHandler的结果);RowMap中还没有解码的值不会生成临时文件,直接跳过。
+	 * 转换成bean的结果无法遍历,由调用者对SpilledLob属性调用close()
+	 * @param rows 一行、多行或者单个字段值,可以为null
+	 */
+	public static void release(Object rows){
+		if(rows instanceof SpilledLob){
+			((SpilledLob)rows).close();
+		}else if(rows instanceof RowMap){
+			RowMap row=(RowMap)rows;
+			for(String key:row.keySet()){
+				if(row.isDecoded(key)){
+					release(row.get(key));
+				}
+			}
+		}else if(rows instanceof Map){
+			for(Object value:((Map<?,?>)rows).values()){
+				release(value);
+			}
+		}else if(rows instanceof Object[]){
+			for(Object value:(Object[])rows){
+				release(value);
+			}
+		}else if(rows instanceof Iterable){
+			for(Object value:(Iterable<?>)rows){
+				release(value);
+			}
+		}
+	}
+	/**
+	 * 按块读取整个Clob
+	 */
+	static String read(Clob clob,long maxSize,String column) throws SQLException, IOException {
+		if(maxSize>=0&&clob.length()>maxSize){
+			throw new SQLException("Cannot read "+column+": "+clob.length()+" characters exceeds "+maxSize);
+		}
+		Reader reader=clob.getCharacterStream();
+		try{
+			return readChars(reader,maxSize);
+		}finally{
+			reader.close();
+		}
+	}
+	/**
+	 * 按块读取整个SQLXML
+	 */
+	static String read(SQLXML xml,long maxSize,String column) throws SQLException, IOException {
+		Reader reader=xml.getCharacterStream();
+		try{
+			return readChars(reader,maxSize);
+		}finally{
+			reader.close();
+		}
+	}
+	/**
+	 * 按块读取整个Blob
+	 */
+	static byte[] read(Blob blob,long maxSize,String column) throws SQLException, IOException {
+		if(maxSize>=0&&blob.length()>maxSize){
+			throw new SQLException("Cannot read "+column+": "+blob.length()+" bytes exceeds "+maxSize);
+		}
+		InputStream in=blob.getBinaryStream();
+		try{
+			return readBytes(in,maxSize);
+		}finally{
+			in.close();
+		}
+	}
+	private static String readChars(Reader reader,long maxSize) throws IOException {
+		StringBuilder sb=new StringBuilder();
+		char[] buf=new char[CHUNK];
+		int n;
+		while((n=reader.read(buf))!=-1){
+			sb.append(buf,0,n);
+			if(maxSize>=0&&sb.length()>maxSize){
+				throw new IOException(sb.length()+" characters exceeds "+maxSize);
+			}
+		}
+		return sb.toString();
+	}
+	private static byte[] readBytes(InputStream in,long maxSize) throws IOException {
+		ByteArrayOutputStream out=new ByteArrayOutputStream();
+		byte[] buf=new byte[CHUNK];
+		int n;
+		while((n=in.read(buf))!=-1){
+			out.write(buf,0,n);
+			if(maxSize>=0&&out.size()>maxSize){
+				throw new IOException(out.size()+" bytes exceeds "+maxSize);
+			}
+		}
+		return out.toByteArray();
+	}
+	private static void copy(Reader reader,Writer writer) throws IOException {
+		char[] buf=new char[CHUNK];
+		int n;
+		while((n=reader.read(buf))!=-1){
+			writer.write(buf,0,n);
+		}
+	}
+	private static void copy(InputStream in,OutputStream out) throws IOException {
+		byte[] buf=new byte[CHUNK];
+		int n;
+		while((n=in.read(buf))!=-1){
+			out.write(buf,0,n);
+		}
+	}
+	/**
+	 * Clob按UTF-8写入临时文件
+	 */
+	private SpilledLob spill(Clob clob,String column) throws SQLException, IOException {
+		File file=File.createTempFile("lob",".tmp",spillDir);
+		Reader reader=clob.getCharacterStream();
+		try{
+			Writer writer=new OutputStreamWriter(new FileOutputStream(file),"UTF-8");
+			try{
+				copy(reader,writer);
+			}finally{
+				writer.close();
+			}
+		}catch (IOException e) {
+			file.delete();
+			throw e;
+		}finally{
+			reader.close();
+		}
+		return new SpilledLob(file,true,clob.length());
+	}
+	/**
+	 * Blob写入临时文件
+	 */
+	private SpilledLob spill(Blob blob,String column) throws SQLException, IOException {
+		File file=File.createTempFile("lob",".tmp",spillDir);
+		InputStream in=blob.getBinaryStream();
+		try{
+			OutputStream out=new FileOutputStream(file);
+			try{
+				copy(in,out);
+			}finally{
+				out.close();
+			}
+		}catch (IOException e) {
+			file.delete();
+			throw e;
+		}finally{
+			in.close();
+		}
+		return new SpilledLob(file,false,blob.length());
+	}
+
+	/**
+	 * 接收STREAM策略下的Clob/Blob内容,返回值保存到行里
+	 */
+	public interface LobSink {
+		/**
+		 * @param column 字段名
+		 * @param reader Clob内容,返回后由调用者关闭
+		 * @return 保存到行里的值
+		 */
+		Object clob(String column,Reader reader) throws IOException, SQLException;
+		/**
+		 * @param column 字段名
+		 * @param in Blob内容,返回后由调用者关闭
+		 * @return 保存到行里的值
+		 */
+		Object blob(String column,InputStream in) throws IOException, SQLException;
+	}
+
+	/**
+	 * LAZY策略返回的值,第一次调用get()时才读取Clob/Blob,
+	 * 读取后缓存结果。必须在连接(或事务)关闭之前访问。
+	 */
+	public static final class LazyLob {
+		private final String column;
+		private Object lob;
+		private Object value;
+
+		LazyLob(Object lob,String column){
+			this.lob=lob;
+			this.column=column;
+		}
+		/**
+		 * @return true表示Clob,false表示Blob
+		 */
+		public synchronized boolean isCharacter(){
+			return lob==null?value instanceof String:!(lob instanceof Blob);
+		}
+		/**
+		 * 读取内容
+		 * @return Clob/SQLXML返回String,Blob返回byte[]
+		 * @throws SQLException 读取失败
+		 */
+		public synchronized Object get() throws SQLException {
+			if(lob!=null){
+				try{
+					if(lob instanceof Clob){
+						value=read((Clob)lob,-1,column);
+					}else if(lob instanceof SQLXML){
+						value=read((SQLXML)lob,-1,column);
+					}else{
+						value=read((Blob)lob,-1,column);
+					}
+				}catch (IOException e) {
+					throw new SQLException("Cannot read "+column+": "+e.getMessage());
+				}
+				lob=null;
+			}
+			return value;
+		}
+		/**
+		 * 已经读取时Clob返回内容,Blob返回长度说明;还没有读取时返回占位说明,不访问数据库,
+		 * 日志、调试器和字符串拼接不会因为连接已经关闭而失败。读取内容用get()
+		 */
+		public synchronized String toString(){
+			if(lob!=null){
+				return "<unread LOB: "+column+">";
+			}
+			return value instanceof String?(String)value:"byte["+((byte[])value).length+"]";
+		}
+	}
+
+	/**
+	 * SPILL策略写入临时文件的Clob/Blob,Clob按UTF-8编码保存。
+	 * 临时文件归调用者所有,不会自动删除:用完后调用close()(或delete()),
+	 * 也可以用LobPolicy.release(rows)删除整个结果中的临时文件。
+	 */
+	public static final class SpilledLob implements Closeable {
+		private final File file;
+		private final boolean character;
+		private final long length;
+
+		SpilledLob(File file,boolean character,long length){
+			this.file=file;
+			this.character=character;
+			this.length=length;
+		}
+		public File getFile() {
+			return file;
+		}
+		/**
+		 * @return true表示Clob,false表示Blob
+		 */
+		public boolean isCharacter() {
+			return character;
+		}
+		/**
+		 * @return 原始长度(字符数或字节数)
+		 */
+		public long length() {
+			return length;
+		}
+		/**
+		 * 打开Clob内容,由调用者关闭
+		 */
+		public Reader openReader() throws IOException {
+			return new InputStreamReader(new FileInputStream(file),"UTF-8");
+		}
+		/**
+		 * 打开文件内容,由调用者关闭
+		 */
+		public InputStream openStream() throws IOException {
+			return new FileInputStream(file);
+		}
+		/**
+		 * 删除临时文件
+		 * @return 文件已经不存在时返回true
+		 */
+		public boolean delete(){
+			return file.delete()||!file.exists();
+		}
+		/**
+		 * 删除临时文件,删除失败时记录日志,可以重复调用
+		 */
+		public void close(){
+			if(!delete()){
+				log.warn("Cannot delete spilled lob "+file.getPath());
+			}
+		}
+		public String toString(){
+			return (character?"clob":"blob")+"["+length+"]@"+file.getPath();
+		}
+	}
+}
@@ -1,20 +1,16 @@
 package org.apache.commons.kettas;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.Reader;
-import java.sql.Blob;
-import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.dbutils.BasicRowProcessor;
 import org.apache.commons.dbutils.BeanProcessor;
+import org.apache.commons.dbutils.ResultSetCache;
+import org.apache.commons.dbutils.RowMap;
 import org.apache.commons.dbutils.RowProcessor;
 /**
  * 过滤Clob字段,处理Clob字段查询的时候，全部都将其转换为String对象，希望能够统一数据库
@@ -41,6 +37,32 @@ public class NoClobRowProcessor implements RowProcessor {
     public void setKeyNameType(int keyNameType) {
 		this.keyNameType = keyNameType;
 	}
+    /**
+     * Clob/Blob字段的读取策略,默认LobPolicy.DEFAULT(立即读取)
+     */
+    private volatile LobPolicy lobPolicy=LobPolicy.DEFAULT;
+    /**
+     * 设置Clob/Blob字段的读取策略,需要按查询区分时每个查询使用自己的NoClobRowProcessor
+     * @param lobPolicy 读取策略,null恢复默认
+     */
+    public void setLobPolicy(LobPolicy lobPolicy) {
+		this.lobPolicy = lobPolicy==null?LobPolicy.DEFAULT:lobPolicy;
+	}
+    public LobPolicy getLobPolicy() {
+		return lobPolicy;
+	}
+    /**
+     * toMap是否延迟解码:只保存getObject的原始值,Clob/Blob/SQLXML在第一次get()时才按LobPolicy转换,
+     * 不读取的字段不产生转换开销。Map必须在连接(或事务)关闭之前读取。
+     */
+    private volatile boolean lazyDecoding=false;
+    /**
+     * 设置toMap是否延迟解码Clob/Blob/SQLXML
+     * @param lazyDecoding true延迟到第一次get()时解码
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+		this.lazyDecoding = lazyDecoding;
+	}
 
 	/**
      * Returns the Singleton instance of this class.
@@ -57,6 +79,10 @@ public class NoClobRowProcessor implements RowProcessor {
      * Use this to process beans.
      */
     private final BeanProcessor convert;
+    /**
+     * 每个ResultSet的字段名,同一个ResultSet的每一行不再重复读取元数据,并发查询共用处理器时互不替换
+     */
+    private final ResultSetCache<ColumnNames> columns=new ResultSetCache<ColumnNames>();
 
     /**
      * BasicRowProcessor constructor.  Bean processing defaults to a 
@@ -100,29 +126,8 @@ public class NoClobRowProcessor implements RowProcessor {
      */
     public static Object filterClob(Object object){
     	try{
-    		//过滤Clob
-        	if(object instanceof Clob){
-    			Clob clob=(Clob)object;
-    			Reader is = clob.getCharacterStream();// 得到流
-    			BufferedReader br = new BufferedReader(is);
-    			String s = br.readLine();
-    			StringBuffer sb = new StringBuffer();
-    			while (s != null) {// 执行循环将字符串全部取出付值给StringBuffer由StringBuffer转成STRING
-    				sb.append(s);
-    				s = br.readLine();
-    			}
-    			is.close();
-    			return sb.toString();
-    		//过滤Blob
-    		}else if(object instanceof Blob){
-    			Blob clob=(Blob)object;
-    			byte [] body=new byte[Integer.parseInt(String.valueOf(clob.length()))];
-    			InputStream is = clob.getBinaryStream();// 得到流
-    			is.read(body);
-    			is.close();
-//    			clob.free();
-    			return body;
-    		}
+    		//按默认策略(分块)读取Clob/Blob
+    		return LobPolicy.DEFAULT.convert(object,"lob");
     	}catch (Exception e) {
     		e.printStackTrace();
     	}
@@ -140,11 +145,11 @@ public class NoClobRowProcessor implements RowProcessor {
      * @return the newly created array
      */
     public Object[] toArray(ResultSet rs) throws SQLException {
-        ResultSetMetaData meta = rs.getMetaData();
-        int cols = meta.getColumnCount();
-        Object[] result = new Object[cols];
-        for (int i = 0; i < cols; i++) {
-            result[i] = filterClob(rs.getObject(i + 1));
+        String[] names = this.columnNames(rs).names;
+        LobPolicy lobs = this.lobPolicy;
+        Object[] result = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = lobs.convert(rs.getObject(i + 1), names[i]);
         }
 
         return result;
@@ -192,21 +197,67 @@ public class NoClobRowProcessor implements RowProcessor {
      * @return the newly created Map
      */
     public Map<String, Object> toMap(ResultSet rs) throws SQLException {
-        Map<String, Object> result = new CaseInsensitiveHashMap();
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int cols = rsmd.getColumnCount();
-        for (int i = 1; i <= cols; i++) {
-            if(this.keyNameType==0){
-                result.put(rsmd.getColumnName(i),filterClob(rs.getObject(i)));
-            }else if(this.keyNameType==2){
-            	result.put(rsmd.getColumnName(i).toUpperCase(),filterClob(rs.getObject(i)));
-            }else if(this.keyNameType==1){
-            	result.put(rsmd.getColumnName(i).toLowerCase(),filterClob(rs.getObject(i)));
-            }else{
-            	result.put(rsmd.getColumnName(i),filterClob(rs.getObject(i)));
+        RowMap.Schema schema = this.columnNames(rs).schema;
+        LobPolicy lobs = this.lobPolicy;
+        Object[] values = new Object[schema.size()];
+        if (this.lazyDecoding) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(schema.getColumn(i));
             }
+            return new RowMap(schema, values, lobs);
         }
-        return result;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = lobs.convert(rs.getObject(schema.getColumn(i)), schema.getName(i));
+        }
+        return new RowMap(schema, values);
+    }
+    /**
+     * 取得ResultSet的字段名(已按keyNameType转换大小写),每个ResultSet只读取一次元数据
+     * @param rs 当前转换的ResultSet
+     * @return 字段信息
+     * @throws SQLException
+     */
+    private ColumnNames columnNames(ResultSet rs) throws SQLException {
+    	ColumnNames names=this.columns.get(rs);
+    	if(names==null||names.keyNameType!=this.keyNameType){
+    		names=new ColumnNames(rs,this.keyNameType);
+    		this.columns.put(rs,names);
+    	}
+    	return names;
+    }
+    /**
+     * 一个ResultSet的字段名
+     */
+    private static final class ColumnNames {
+    	/**
+    	 * 生成字段名时使用的keyNameType
+    	 */
+    	private final int keyNameType;
+    	/**
+    	 * 按列顺序排列的字段名
+    	 */
+    	private final String[] names;
+    	/**
+    	 * 所有行共用的字段名索引(不区分大小写)
+    	 */
+    	private final RowMap.Schema schema;
+
+    	ColumnNames(ResultSet rs,int keyNameType) throws SQLException{
+    		this.keyNameType=keyNameType;
+    		ResultSetMetaData rsmd = rs.getMetaData();
+    		int cols = rsmd.getColumnCount();
+    		this.names=new String[cols];
+    		for (int i = 1; i <= cols; i++) {
+    			String name=rsmd.getColumnName(i);
+    			if(keyNameType==2){
+    				name=name.toUpperCase();
+    			}else if(keyNameType==1){
+    				name=name.toLowerCase();
+    			}
+    			names[i-1]=name;
+    		}
+    		this.schema=RowMap.Schema.of(names);
+    	}
     }
     /**
      * Convert all <code>ResultSet</code>  into a <code>List of Map</code>.  
@@ -232,106 +283,20 @@ public class NoClobRowProcessor implements RowProcessor {
      * @return the newly created Map
      */
     public Map<String, Object> toMap(javax.sql.RowSet rs) throws SQLException {
-        Map<String, Object> result = new CaseInsensitiveHashMap();
         ResultSetMetaData rsmd = rs.getMetaData();
         int cols = rsmd.getColumnCount();
-
+        String[] names = new String[cols];
         for (int i = 1; i <= cols; i++) {
-            result.put(rsmd.getColumnName(i),filterClob(rs.getObject(i)));
-        }
-
-        return result;
-    }
-    /**
-     * A Map that converts all keys to lowercase Strings for case insensitive
-     * lookups.  This is needed for the toMap() implementation because 
-     * databases don't consistenly handle the casing of column names. 
-     * 
-     * <p>The keys are stored as they are given [BUG #DBUTILS-34], so we maintain
-     * an internal mapping from lowercase keys to the real keys in order to 
-     * achieve the case insensitive lookup.
-     * 
-     * <p>Note: This implementation does not allow <tt>null</tt>
-     * for key, whereas {@link HashMap} does, because of the code:
-     * <pre>
-     * key.toString().toLowerCase()
-     * </pre>
-     */
-    private static class CaseInsensitiveHashMap extends HashMap<String, Object> {
-        /**
-         * The internal mapping from lowercase keys to the real keys.
-         * 
-         * <p>
-         * Any query operation using the key 
-         * ({@link #get(Object)}, {@link #containsKey(Object)})
-         * is done in three steps:
-         * <ul>
-         * <li>convert the parameter key to lower case</li>
-         * <li>get the actual key that corresponds to the lower case key</li>
-         * <li>query the map with the actual key</li>
-         * </ul>
-         * </p>
-         */
-        private final Map<String,String> lowerCaseMap = new HashMap<String,String>();
-
-        /**
-         * Required for serialization support.
-         * 
-         * @see java.io.Serializable
-         */ 
-        private static final long serialVersionUID = -2848100435296897392L;
-
-        /** {@inheritDoc} */
-        @Override
-        public boolean containsKey(Object key) {
-            Object realKey = lowerCaseMap.get(key.toString().toLowerCase());
-            return super.containsKey(realKey);
-            // Possible optimisation here:
-            // Since the lowerCaseMap contains a mapping for all the keys,
-            // we could just do this:
-            // return lowerCaseMap.containsKey(key.toString().toLowerCase());
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public Object get(Object key) {
-            Object realKey = lowerCaseMap.get(key.toString().toLowerCase());
-            return super.get(realKey);
-        }
-       
-        /** {@inheritDoc} */
-        @Override
-        public Object put(String key, Object value) {
-            /*
-             * In order to keep the map and lowerCaseMap synchronized,
-             * we have to remove the old mapping before putting the 
-             * new one. Indeed, oldKey and key are not necessaliry equals.
-             * (That's why we call super.remove(oldKey) and not just
-             * super.put(key, value))
-             */
-            Object oldKey = lowerCaseMap.put(key.toLowerCase(), key);
-            Object oldValue = super.remove(oldKey);
-            
-            super.put(key, value);
-            return oldValue;
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public void putAll(Map<? extends String,?> m) {
-            for (Map.Entry<? extends String, ?> entry : m.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-                this.put(key, value);
-            }
+            names[i - 1] = rsmd.getColumnName(i);
         }
 
-        /** {@inheritDoc} */
-        @Override
-        public Object remove(Object key) {
-            Object realKey = lowerCaseMap.remove(key.toString().toLowerCase());
-            return super.remove(realKey);
+        RowMap.Schema schema = RowMap.Schema.of(names);
+        LobPolicy lobs = this.lobPolicy;
+        Object[] values = new Object[schema.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = lobs.convert(rs.getObject(schema.getColumn(i)), schema.getName(i));
         }
+        return new RowMap(schema, values);
     }
     
 }
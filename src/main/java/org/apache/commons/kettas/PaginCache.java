@@ -0,0 +1,324 @@
+package org.apache.commons.kettas;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.handlers.OffHeapHandler;
+import org.apache.commons.dbutils.handlers.OffHeapRows;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * JDBCPaginRunner的分页缓存:第一次分页时用只向前的流式查询完整执行一次,把结果写入按行偏移索引的内存映射临时文件
+ * (见OffHeapRows),之后同一(sql,参数)的分页请求直接从文件中取出当前页,不再执行countSql和分页查询,
+ * 翻到很深的页也只是一次文件定位。
+ * 缓存项超过ttl后失效,超过最大项数时淘汰最久未使用的项,被淘汰的临时文件在没有正在读取的请求后删除。
+ * 例:
+ * <pre>
+ * JDBCPaginRunner run=new JDBCPaginRunner();
+ * run.setPaginCache(new PaginCache(5*60*1000L, 16));
+ * Pagin page=run.pagin(conn, countSql, sql, params, new MapListHandler(rp), rp, 100, 20);
+ * </pre>
+ * 数据变化后可调用invalidate/clear使缓存失效。本类是线程安全的。
+ * @author kettas
+ */
+public class PaginCache {
+	private static Log log=LogFactory.getLog(PaginCache.class);
+	/**
+	 * 缓存项的存活时间(毫秒)
+	 */
+	private final long ttl;
+	/**
+	 * 最多缓存的查询数
+	 */
+	private final int maxEntries;
+	/**
+	 * 每个查询允许使用的直接内存,超出部分写入内存映射文件;默认0,全部写入文件
+	 */
+	private final long memoryBudget;
+	/**
+	 * 临时文件目录,null时使用系统临时目录
+	 */
+	private final File spillDir;
+	/**
+	 * 按访问顺序排列的缓存项
+	 */
+	private final LinkedHashMap<Key,CacheEntry> entries;
+	/**
+	 * 正在执行的查询,同一查询同时只执行一次
+	 */
+	private final Map<Key,FutureTask<OffHeapRows>> loading=new HashMap<Key,FutureTask<OffHeapRows>>();
+	private long hits=0;
+	private long misses=0;
+
+	/**
+	 * @param ttl 缓存项的存活时间(毫秒)
+	 * @param maxEntries 最多缓存的查询数
+	 */
+	public PaginCache(long ttl,int maxEntries){
+		this(ttl,maxEntries,0,null);
+	}
+	/**
+	 * @param ttl 缓存项的存活时间(毫秒)
+	 * @param maxEntries 最多缓存的查询数
+	 * @param memoryBudget 每个查询允许使用的直接内存(字节),超出部分写入内存映射文件
+	 * @param spillDir 临时文件目录,null时使用系统临时目录
+	 */
+	public PaginCache(long ttl,int maxEntries,long memoryBudget,File spillDir){
+		if(ttl<=0||maxEntries<1){
+			throw new IllegalArgumentException("ttl and maxEntries must be positive");
+		}
+		this.ttl=ttl;
+		this.maxEntries=maxEntries;
+		this.memoryBudget=memoryBudget;
+		this.spillDir=spillDir;
+		this.entries=new LinkedHashMap<Key,CacheEntry>(16,0.75f,true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,CacheEntry> eldest) {
+				if(size()>PaginCache.this.maxEntries){
+					evict(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	/**
+	 * 从缓存中取出一页;缓存中没有时用只向前的流式查询完整读取一次并写入缓存。总记录数即缓存的行数,不执行countSql。
+	 * 同一查询同时未命中时只有一个请求执行查询,其他请求等待它的结果。
+	 * 缓存按数据源区分:runner有DataSource时按DataSource,否则按连接的JDBC URL
+	 * @param runner 执行查询的JDBCPaginRunner
+	 * @param connection 数据库连接(缓存命中时不使用)
+	 * @param sql 查询全部的sql
+	 * @param params 查询时的参数
+	 * @param rsh 转换当前页的结果集处理类,需返回List
+	 * @param pageNum 当前页页码
+	 * @param maxRow 每页显示总数
+	 * @return Pagin
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public Pagin pagin(final JDBCPaginRunner runner,final Connection connection,final String sql,final Object[] params,
+			ResultSetHandler rsh,int pageNum,int maxRow)throws SQLException{
+		Object scope=runner.getDataSource();
+		if(scope==null){
+			scope=connection.getMetaData().getURL();
+		}
+		Key key=new Key(scope,sql,params);
+		CacheEntry entry=null;
+		while(entry==null){
+			FutureTask<OffHeapRows> load;
+			boolean loader=false;
+			synchronized (this) {
+				entry=acquire(key);
+				if(entry!=null){
+					break;
+				}
+				load=loading.get(key);
+				if(load==null){
+					load=new FutureTask<OffHeapRows>(new Callable<OffHeapRows>() {
+						@Override
+						public OffHeapRows call() throws SQLException {
+							return runner.queryForwardOnly(connection, sql,
+									new OffHeapHandler(memoryBudget,spillDir), params);
+						}
+					});
+					loading.put(key,load);
+					loader=true;
+				}
+			}
+			if(loader){
+				try{
+					load.run();
+					entry=new CacheEntry(await(load),System.currentTimeMillis()+ttl);
+					put(key,entry);
+				}finally{
+					synchronized (this) {
+						loading.remove(key);
+					}
+				}
+			}else{
+				// 等待正在执行的同一查询,完成后重新从缓存中取
+				await(load);
+			}
+		}
+		try{
+			OffHeapRows rows=entry.rows;
+			int start=(int)Math.min(Math.max(pageNum-1,0)*(long)maxRow,rows.size());
+			int end=(int)Math.min((long)start+maxRow,rows.size());
+			List list=(List)rsh.handle(rows.resultSet(start,end));
+			Pagin pagin=new Pagin(pageNum,rows.size(),maxRow,list);
+			pagin.setTotal(Pagin.Total.CACHED);
+			return pagin;
+		}finally{
+			release(entry);
+		}
+	}
+	/**
+	 * 使某条sql的所有缓存项失效
+	 * @param sql 查询全部的sql
+	 */
+	public synchronized void invalidate(String sql){
+		for(Iterator<Map.Entry<Key,CacheEntry>> it=entries.entrySet().iterator();it.hasNext();){
+			Map.Entry<Key,CacheEntry> e=it.next();
+			if(e.getKey().sql.equals(sql)){
+				it.remove();
+				evict(e.getValue());
+			}
+		}
+	}
+	/**
+	 * 清空缓存
+	 */
+	public synchronized void clear(){
+		for(CacheEntry entry:entries.values()){
+			evict(entry);
+		}
+		entries.clear();
+	}
+	public synchronized int size(){
+		return entries.size();
+	}
+	public synchronized long getHits(){
+		return hits;
+	}
+	public synchronized long getMisses(){
+		return misses;
+	}
+	/**
+	 * 等待查询完成,查询出错时抛出原来的SQLException
+	 */
+	private static OffHeapRows await(FutureTask<OffHeapRows> load)throws SQLException{
+		try{
+			return load.get();
+		}catch(ExecutionException e){
+			Throwable cause=e.getCause();
+			if(cause instanceof SQLException){
+				throw (SQLException)cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException)cause;
+			}
+			if(cause instanceof Error){
+				throw (Error)cause;
+			}
+			throw new SQLException("分页缓存查询出错("+cause+")!",cause);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new SQLException("分页被中断",e);
+		}
+	}
+	/**
+	 * 取出未过期的缓存项并登记一个读取者
+	 */
+	private synchronized CacheEntry acquire(Key key){
+		CacheEntry entry=entries.get(key);
+		if(entry!=null&&entry.expires<System.currentTimeMillis()){
+			entries.remove(key);
+			evict(entry);
+			entry=null;
+		}
+		if(entry==null){
+			misses++;
+			return null;
+		}
+		hits++;
+		entry.users++;
+		return entry;
+	}
+	/**
+	 * 放入新查询的缓存项,同时清理过期项;新项登记为正在读取
+	 */
+	private synchronized void put(Key key,CacheEntry entry){
+		long now=System.currentTimeMillis();
+		for(Iterator<CacheEntry> it=entries.values().iterator();it.hasNext();){
+			CacheEntry e=it.next();
+			if(e.expires<now){
+				it.remove();
+				evict(e);
+			}
+		}
+		entry.users++;
+		CacheEntry old=entries.put(key,entry);
+		if(old!=null){
+			evict(old);
+		}
+	}
+	private synchronized void release(CacheEntry entry){
+		entry.users--;
+		if(entry.evicted&&entry.users==0){
+			close(entry);
+		}
+	}
+	/**
+	 * 标记为已淘汰,没有读取者时立即删除临时文件
+	 */
+	private void evict(CacheEntry entry){
+		entry.evicted=true;
+		if(entry.users==0){
+			close(entry);
+		}
+	}
+	private void close(CacheEntry entry){
+		try{
+			entry.rows.close();
+		}catch(IOException e){
+			log.warn("cannot delete pagin cache file", e);
+		}
+	}
+	/**
+	 * 缓存键:数据源(DataSource或JDBC URL)+sql+参数
+	 */
+	private static final class Key {
+		final Object scope;
+		final String sql;
+		final Object[] params;
+		final int hash;
+		Key(Object scope,String sql,Object[] params){
+			this.scope=scope;
+			this.sql=sql;
+			this.params=params==null?new Object[0]:params.clone();
+			this.hash=((scope==null?0:scope.hashCode())*31+sql.hashCode())*31+Arrays.deepHashCode(this.params);
+		}
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)){
+				return false;
+			}
+			Key other=(Key)obj;
+			return hash==other.hash&&(scope==null?other.scope==null:scope.equals(other.scope))
+					&&sql.equals(other.sql)&&Arrays.deepEquals(params,other.params);
+		}
+	}
+	/**
+	 * 缓存项
+	 */
+	private static final class CacheEntry {
+		final OffHeapRows rows;
+		final long expires;
+		int users=0;
+		boolean evicted=false;
+		CacheEntry(OffHeapRows rows,long expires){
+			this.rows=rows;
+			this.expires=expires;
+		}
+	}
+}
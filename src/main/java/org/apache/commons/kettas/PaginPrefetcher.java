@@ -0,0 +1,282 @@
+package org.apache.commons.kettas;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.Pagin;
+
+/**
+ * 分页预取:JDBCPaginRunner返回第N页后,在有界线程池中用新的连接异步查询第N+1页,
+ * 放入按查询区分的LRU缓存;用户接着请求第N+1页时直接取缓存(预取尚未完成时最多等到它过期,
+ * 仍未完成时由调用者直接查询)。超过ttl没有被使用的预取由定时任务取消并计入浪费次数。
+ * 不再使用时应调用shutdown()停止线程池和定时任务。
+ * 例:
+ * <pre>
+ * JDBCPaginRunner run=new JDBCPaginRunner(dataSource);
+ * run.setPrefetcher(new PaginPrefetcher(null, 2, 64, 30*1000L));
+ * </pre>
+ * 预取需要DataSource(调用者的Connection在分页返回后通常已经关闭),为null时使用JDBCPaginRunner的DataSource,
+ * 都没有时不预取。
+ * 预取按sql、参数、页码以及ResultSetHandler和RowProcessor实例区分:handler的配置(如BeanListHandler的bean类型)
+ * 无法从外部比较,只有重复使用同一个handler实例的分页才能命中预取;每次新建handler时预取不会命中,应该关闭预取。
+ * 预取的页在ttl内可能已经过时,数据变化后可调用clear()。本类是线程安全的。
+ * @author kettas
+ */
+public class PaginPrefetcher {
+	/**
+	 * 定时清除的最短间隔(毫秒)
+	 */
+	private static final long MIN_PURGE_PERIOD=10;
+	private final DataSource dataSource;
+	private final long ttl;
+	private final int maxEntries;
+	private final ThreadPoolExecutor executor;
+	/**
+	 * 定时清除过期的预取
+	 */
+	private final ScheduledThreadPoolExecutor purger;
+	/**
+	 * 按访问顺序排列的预取
+	 */
+	private final LinkedHashMap<List<Object>,Prefetch> pages;
+	private long requests=0;
+	private long hits=0;
+	private long prefetched=0;
+	private long wasted=0;
+	private long rejected=0;
+
+	/**
+	 * @param dataSource 预取使用的数据源,null时使用JDBCPaginRunner的DataSource
+	 * @param threads 预取线程数,同时也是等待队列的长度,队列满时放弃预取
+	 * @param maxEntries 最多保留的预取页数,超过时取消最久未使用的
+	 * @param ttl 预取页的存活时间(毫秒)
+	 */
+	public PaginPrefetcher(DataSource dataSource,int threads,int maxEntries,long ttl){
+		if(threads<1||maxEntries<1||ttl<=0){
+			throw new IllegalArgumentException("threads, maxEntries and ttl must be positive");
+		}
+		this.dataSource=dataSource;
+		this.ttl=ttl;
+		this.maxEntries=maxEntries;
+		this.executor=new ThreadPoolExecutor(threads,threads,60,TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(threads),new ThreadFactory() {
+					private int count=0;
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread=new Thread(r,"PaginPrefetcher-"+(++count));
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+		this.pages=new LinkedHashMap<List<Object>,Prefetch>(16,0.75f,true);
+		this.purger=new ScheduledThreadPoolExecutor(1,new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread=new Thread(r,"PaginPrefetcher-purge");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long period=Math.max(ttl, MIN_PURGE_PERIOD);
+		this.purger.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (PaginPrefetcher.this) {
+					purge(System.currentTimeMillis());
+				}
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * 预取使用的数据源,可能为null
+	 */
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+	/**
+	 * 取出预取的页,没有、已过期或到过期时仍未完成时返回null
+	 */
+	Pagin take(List<Object> key)throws SQLException{
+		Prefetch prefetch;
+		long remaining;
+		synchronized (this) {
+			requests++;
+			long now=System.currentTimeMillis();
+			purge(now);
+			prefetch=pages.remove(key);
+			if(prefetch==null){
+				return null;
+			}
+			remaining=prefetch.submitted+ttl-now;
+		}
+		try{
+			Pagin page=prefetch.future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+			synchronized (this) {
+				hits++;
+			}
+			return page;
+		}catch(ExecutionException e){
+			// 预取失败时按未命中处理,由调用者重新查询并报告错误
+			return null;
+		}catch(CancellationException e){
+			return null;
+		}catch(TimeoutException e){
+			// 到过期时仍未完成(如连接池耗尽),不再等待,由调用者直接查询
+			synchronized (this) {
+				waste(prefetch);
+			}
+			return null;
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new SQLException("分页被中断", e);
+		}
+	}
+	/**
+	 * 提交一页的预取,已有相同的预取或线程池已满时忽略
+	 */
+	void prefetch(List<Object> key,Callable<Pagin> query){
+		synchronized (this) {
+			purge(System.currentTimeMillis());
+			if(pages.containsKey(key)){
+				return;
+			}
+			try{
+				pages.put(key,new Prefetch(executor.submit(query),System.currentTimeMillis()));
+				prefetched++;
+			}catch(RejectedExecutionException e){
+				rejected++;
+				return;
+			}
+			for(Iterator<Prefetch> it=pages.values().iterator();pages.size()>maxEntries&&it.hasNext();){
+				waste(it.next());
+				it.remove();
+			}
+		}
+	}
+	/**
+	 * 生成预取的键,handler和processor按实例比较
+	 */
+	static List<Object> key(String countSql,String queryAllSql,Object[] params,Object handler,Object processor,
+			int pageNum,int maxRow){
+		List<Object> key=new ArrayList<Object>();
+		key.add(countSql);
+		key.add(queryAllSql);
+		key.add(new Identity(handler));
+		key.add(new Identity(processor));
+		key.add(Integer.valueOf(pageNum));
+		key.add(Integer.valueOf(maxRow));
+		if(params!=null){
+			key.addAll(Arrays.asList(params));
+		}
+		return key;
+	}
+	/**
+	 * 取消所有预取
+	 */
+	public synchronized void clear(){
+		for(Prefetch prefetch:pages.values()){
+			waste(prefetch);
+		}
+		pages.clear();
+	}
+	/**
+	 * 取消所有预取并关闭线程池和定时任务
+	 */
+	public void shutdown(){
+		purger.shutdownNow();
+		clear();
+		executor.shutdownNow();
+	}
+	/**
+	 * 请求过的页数
+	 */
+	public synchronized long getRequests(){
+		return requests;
+	}
+	/**
+	 * 直接使用预取结果的页数
+	 */
+	public synchronized long getHits(){
+		return hits;
+	}
+	/**
+	 * 预取命中率(0-1)
+	 */
+	public synchronized double getHitRate(){
+		return requests==0?0:(double)hits/requests;
+	}
+	/**
+	 * 提交的预取数
+	 */
+	public synchronized long getPrefetched(){
+		return prefetched;
+	}
+	/**
+	 * 没有被使用就过期、被淘汰或被清除的预取数
+	 */
+	public synchronized long getWasted(){
+		return wasted;
+	}
+	/**
+	 * 因线程池已满而放弃的预取数
+	 */
+	public synchronized long getRejected(){
+		return rejected;
+	}
+	private void purge(long now){
+		for(Iterator<Prefetch> it=pages.values().iterator();it.hasNext();){
+			Prefetch prefetch=it.next();
+			if(prefetch.submitted+ttl<now){
+				waste(prefetch);
+				it.remove();
+			}
+		}
+	}
+	private void waste(Prefetch prefetch){
+		prefetch.future.cancel(true);
+		wasted++;
+	}
+	/**
+	 * 按实例比较的键
+	 */
+	private static final class Identity {
+		final Object target;
+		Identity(Object target){
+			this.target=target;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Identity&&((Identity)obj).target==target;
+		}
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(target);
+		}
+	}
+	private static final class Prefetch {
+		final Future<Pagin> future;
+		final long submitted;
+		Prefetch(Future<Pagin> future,long submitted){
+			this.future=future;
+			this.submitted=submitted;
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package org.apache.commons.kettas;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分页用的SQL改写:用一个轻量的词法分析找出最外层查询的结构(with子句、select[distinct|all]、from、
+ * order by、group by、union等,忽略字符串、带引号的标识符、注释和括号里的子查询),据此
+ * <ul>
+ * <li>由查询全部的sql生成统计总数的sql:去掉order by,简单查询直接投影count(*),
+ * 带distinct/group by/union/分页子句的查询包装成子查询后统计</li>
+ * <li>按数据库在正确的位置插入分页子句(limit、rownum、top、offset/fetch、row_number)</li>
+ * </ul>
+ * 分析结果按sql字符串缓存,同一条sql只分析一次。不是完整的SQL解析器,无法识别的语句按子查询包装处理。
+ * 本类是线程安全的。
+ * @author kettas
+ */
+public final class SQLRewriter {
+	/**
+	 * 缓存的最大条数,超过时清空重新缓存
+	 */
+	private static final int MAX_CACHED = 2048;
+	private static final ConcurrentHashMap<String,Parsed> cache = new ConcurrentHashMap<String,Parsed>();
+
+	private SQLRewriter(){
+	}
+
+	/**
+	 * 由查询全部的sql生成统计总数的sql,结果按sql缓存
+	 * @param sql 查询全部的sql
+	 * @return select count(*) ...
+	 */
+	public static String countSql(String sql){
+		Parsed parsed=parse(sql);
+		String count=parsed.count;
+		if(count==null){
+			count=parsed.count();
+			parsed.count=count;
+		}
+		return count;
+	}
+	/**
+	 * MySql/Sqlite分页:在最后加limit start,count,已有limit时包装成子查询
+	 */
+	public static String limit(String sql,int start,int count){
+		Parsed p=parse(sql);
+		String limit=" limit " + (start > 0 ? (start + "," + count) : count);
+		if(p.select<0||p.limited){
+			return p.prefix()+"select * from ("+p.body()+") page_"+limit;
+		}
+		return p.sql.substring(0,p.end)+limit;
+	}
+	/**
+	 * PostgreSql/H2分页:在最后加limit count offset start,已有limit时包装成子查询
+	 */
+	public static String limitOffset(String sql,int start,int count){
+		Parsed p=parse(sql);
+		String limit=" limit "+count+(start>0?" offset "+start:"");
+		if(p.select<0||p.limited){
+			return p.prefix()+"select * from ("+p.body()+") page_"+limit;
+		}
+		return p.sql.substring(0,p.end)+limit;
+	}
+	/**
+	 * DB2分页:第一页用fetch first count rows only,之后的页用row_number()编号,结果中多一列rownum_
+	 */
+	public static String fetchFirst(String sql,int start,int count){
+		Parsed p=parse(sql);
+		if(start<=0&&p.select>=0&&!p.limited){
+			return p.sql.substring(0,p.end)+" fetch first "+count+" rows only";
+		}
+		return p.prefix()+"select * from (select row_.*, row_number() over () rownum_ from ("+p.body()
+				+") row_) page_ where rownum_ > "+start+" and rownum_ <= "+((long)start+count)+" order by rownum_";
+	}
+	/**
+	 * Oracle分页:rownum嵌套查询,结果中多一列rownum_
+	 */
+	public static String rownum(String sql,int start,int end){
+		Parsed p=parse(sql);
+		return p.prefix()+"select * from (select row_.*,rownum rownum_  from ( "+p.body()
+				+")row_ where  rownum <= "+end+")  where   rownum_ > "+start;
+	}
+	/**
+	 * SqlServer:在最外层的select[distinct|all]之后插入top n;union等无法直接插入时包装成子查询
+	 */
+	public static String top(String sql,int n){
+		Parsed p=parse(sql);
+		return p.prefix()+p.top(n);
+	}
+	/**
+	 * SqlServer 2012及以上:offset start rows fetch next count rows only,没有order by时按(select null)排序。
+	 * distinct和union等的order by只能引用结果列,没有order by时包装成子查询后再排序
+	 */
+	public static String offsetFetch(String sql,int start,int count){
+		Parsed p=parse(sql);
+		String page=" offset "+start+" rows fetch next "+count+" rows only";
+		if(p.select<0||p.limited||p.orderBy<0&&(p.distinct||p.setOperation)){
+			return p.prefix()+"select * from ("+p.body()+") page_ order by (select null)"+page;
+		}
+		return p.sql.substring(0,p.end)+(p.orderBy<0?" order by (select null)":"")+page;
+	}
+	/**
+	 * SqlServer 2005/2008:把最外层的order by提到select列表的row_number() over (...)中编号,外层只返回当前页,
+	 * 结果中多一列rownum_。没有order by时按(select null)编号,各页之间的顺序不保证稳定。
+	 * order by无法提出时(distinct、union等、已有top/offset、含参数、列序号或select中的别名)返回null,
+	 * 调用者应改用top+跳过的方式
+	 */
+	public static String rowNumber(String sql,int start,int end){
+		Parsed p=parse(sql);
+		String page=" where rownum_ > "+start+" and rownum_ <= "+end+" order by rownum_";
+		if(p.orderBy<0){
+			return p.prefix()+"select * from (select row_.*, row_number() over (order by (select null)) rownum_ from ("
+					+p.body()+") row_) page_"+page;
+		}
+		if(p.select<0||p.from<0||p.from>p.orderBy||p.distinct||p.limited||p.setOperation
+				||p.orderByParam||p.orderByOrdinal||p.orderByAlias){
+			return null;
+		}
+		return p.prefix()+"select * from ("+p.sql.substring(p.select,p.from).trim()+", row_number() over ("
+				+p.sql.substring(p.orderBy,p.end).trim()+") rownum_ "+p.sql.substring(p.from,p.orderBy).trim()+") page_"+page;
+	}
+	/**
+	 * 最外层是否有order by
+	 */
+	public static boolean hasOrderBy(String sql){
+		return parse(sql).orderBy>=0;
+	}
+
+	private static Parsed parse(String sql){
+		Parsed parsed=cache.get(sql);
+		if(parsed==null){
+			parsed=new Parsed(sql);
+			if(cache.size()>=MAX_CACHED){
+				cache.clear();
+			}
+			cache.put(sql,parsed);
+		}
+		return parsed;
+	}
+
+	/**
+	 * 最外层查询的结构,位置都是sql中的下标,没有时为-1
+	 */
+	private static final class Parsed {
+		final String sql;
+		/** 去掉末尾空白、注释和分号后的长度 */
+		int end;
+		/** 主查询select关键字的位置(with子句之后) */
+		int select=-1;
+		/** select[distinct|all]之后的位置,top插在这里 */
+		int selectEnd=-1;
+		int from=-1;
+		int orderBy=-1;
+		boolean distinct;
+		boolean top;
+		/** 有group by/having */
+		boolean grouped;
+		/** 有union/intersect/except/minus */
+		boolean setOperation;
+		/** 已经有limit/offset/fetch/top */
+		boolean limited;
+		/** select列表中有参数 */
+		boolean projectionParam;
+		/** order by中有参数 */
+		boolean orderByParam;
+		/** order by中有按列序号排序的项 */
+		boolean orderByOrdinal;
+		/** order by中引用了select列表中定义的别名 */
+		boolean orderByAlias;
+		/** select列表中定义的别名,包括省略as的(紧跟在列、括号、字符串或数字之后的单词) */
+		private Set<String> aliases;
+		/** select列表中未结束的case表达式个数,其中的单词不是别名 */
+		private int cases;
+		volatile String count;
+		/** 上一个最外层的记号是select[distinct|all] */
+		private boolean afterSelect;
+
+		Parsed(String sql){
+			this.sql=sql;
+			int len=sql.length();
+			while(len>0&&(Character.isWhitespace(sql.charAt(len-1))||sql.charAt(len-1)==';')){
+				len--;
+			}
+			this.end=len;
+			scan();
+		}
+
+		private void scan(){
+			int depth=0;
+			int i=0;
+			int last=0;// 最后一个记号的结束位置
+			String previous=null;// 上一个最外层的单词
+			int previousStart=-1;// 上一个最外层的单词的位置
+			boolean item=false;// 当前位置是order by中一项的开始
+			boolean operand=false;// 上一个最外层的记号是单词、右括号、字符串或数字,其后的单词可能是别名
+			while(i<end){
+				char c=sql.charAt(i);
+				if(Character.isWhitespace(c)){
+					i++;
+					continue;
+				}else if(c=='-'&&i+1<end&&sql.charAt(i+1)=='-'){
+					int nl=sql.indexOf('\n',i);
+					i=nl<0?end:nl+1;
+					continue;
+				}else if(c=='/'&&i+1<end&&sql.charAt(i+1)=='*'){
+					int close=sql.indexOf("*/",i+2);
+					i=close<0?end:close+2;
+					continue;
+				}else if(c=='\''||c=='"'||c=='`'||c=='['){
+					char quote=c=='['?']':c;
+					i++;
+					while(i<end){
+						if(sql.charAt(i)==quote){
+							if(i+1<end&&sql.charAt(i+1)==quote&&quote!=']'){
+								i+=2;// 转义的引号
+								continue;
+							}
+							break;
+						}
+						i++;
+					}
+					i++;
+					if(depth==0){
+						previous=null;
+						operand=true;
+					}
+				}else if(c=='('){
+					depth++;
+					operand=false;
+					i++;
+				}else if(c==')'){
+					depth--;
+					operand=depth==0;
+					i++;
+				}else if(c=='?'){
+					if(orderBy>=0){
+						orderByParam=true;
+					}else if(select>=0&&from<0){
+						projectionParam=true;
+					}
+					i++;
+				}else if(Character.isLetter(c)||c=='_'){
+					int start=i;
+					while(i<end&&(Character.isLetterOrDigit(sql.charAt(i))||sql.charAt(i)=='_'
+							||sql.charAt(i)=='$'||sql.charAt(i)=='#')){
+						i++;
+					}
+					if(depth==0){
+						String word=sql.substring(start,i).toLowerCase(Locale.ENGLISH);
+						boolean first=afterSelect;
+						afterSelect=false;
+						word(word,previous,previousStart,first,operand,start,i);
+						previous=word;
+						previousStart=start;
+						operand=true;
+					}
+				}else if(c!=';'){
+					if(depth==0){
+						previous=null;
+						if(item&&Character.isDigit(c)){
+							orderByOrdinal=true;
+						}
+						operand=Character.isDigit(c)||c=='.'&&i+1<end&&Character.isDigit(sql.charAt(i+1));
+					}
+					i++;
+				}else{
+					i++;
+					continue;
+				}
+				last=Math.min(i,end);
+				item=depth==0&&orderBy>=0&&(c==','||"by".equals(previous)&&(Character.isLetter(c)||c=='_'));
+				if(!Character.isLetter(c)&&c!='_'){
+					afterSelect=false;
+				}
+			}
+			end=last;
+		}
+
+		private void word(String word,String previous,int previousStart,boolean first,boolean operand,int start,int stop){
+			if(select<0){
+				// with子句中的名称和列都在括号外,主查询是第一个最外层的select
+				if(word.equals("select")){
+					select=start;
+					selectEnd=stop;
+					afterSelect=true;
+				}
+				return;
+			}
+			if(first){
+				// 紧跟在select之后的单词
+				if(!top&&(word.equals("distinct")||word.equals("all"))){
+					distinct=word.equals("distinct");
+					selectEnd=stop;
+					afterSelect=true;
+					return;
+				}
+				if(word.equals("top")){
+					top=true;
+					limited=true;
+					return;
+				}
+			}
+			if(from<0&&!word.equals("from")){
+				if(word.equals("case")){
+					cases++;
+				}else if(word.equals("end")&&cases>0){
+					cases--;
+				}else if(cases==0&&!first&&operand&&!word.equals("as")){
+					// name n、name as n、count(*) n、'x' n、1 n
+					if(aliases==null){
+						aliases=new HashSet<String>();
+					}
+					aliases.add(word);
+				}
+			}else if(orderBy>=0&&aliases!=null&&aliases.contains(word)){
+				orderByAlias=true;
+			}
+			if(word.equals("from")){
+				if(from<0){
+					from=start;
+				}
+			}else if(word.equals("by")&&"order".equals(previous)){
+				orderBy=previousStart;
+				orderByParam=false;
+				orderByOrdinal=false;
+				orderByAlias=false;
+			}else if(word.equals("by")&&"group".equals(previous)||word.equals("having")){
+				grouped=true;
+			}else if(word.equals("union")||word.equals("intersect")||word.equals("except")||word.equals("minus")){
+				// union之前的order by属于子查询,之后的order by作用于整个结果
+				setOperation=true;
+				orderBy=-1;
+				orderByParam=false;
+				orderByOrdinal=false;
+				orderByAlias=false;
+			}else if(word.equals("limit")||word.equals("offset")||word.equals("fetch")){
+				limited=true;
+			}
+		}
+
+		/** with子句 */
+		String prefix(){
+			return select>0?sql.substring(0,select):"";
+		}
+		/** 主查询 */
+		String body(){
+			return sql.substring(select<0?0:select,end);
+		}
+
+		String count(){
+			boolean keepOrder=limited||orderByParam;
+			int bodyEnd=orderBy>=0&&!keepOrder?orderBy:end;
+			String body=sql.substring(select<0?0:select,bodyEnd).trim();
+			if(select<0||from<0||distinct||grouped||setOperation||limited||projectionParam){
+				return prefix()+"select count(*) from ("+body+") count_";
+			}
+			return prefix()+"select count(*) "+sql.substring(from,bodyEnd).trim();
+		}
+
+		String top(int n){
+			if(select<0||top){
+				return "select top "+n+" * from ("+body()+") top_";
+			}
+			if(setOperation){
+				// union的top只作用于第一个查询,整体包装;union的order by只能引用结果列,放在外层
+				if(orderBy<0||orderByParam){
+					return "select top "+n+" * from ("+body()+") top_";
+				}
+				return "select top "+n+" * from ("+sql.substring(select,orderBy).trim()+") top_ "
+						+sql.substring(orderBy,end);
+			}
+			return sql.substring(select,selectEnd)+" top "+n+sql.substring(selectEnd,end);
+		}
+	}
+}
@@ -12,6 +12,11 @@ import org.apache.commons.dbutils.DbUtils;
  * 3:24:04 PM
  */
 public class SQLVersion {
+	/**
+	 * 最后一次调用getVersion的数据库信息,只记录一个数据库
+	 * @deprecated 数据库类型请使用Dialect.of识别
+	 */
+	@Deprecated
 	public static Map dbInfo=null;
 	
 	private static void checkDbType(java.sql.DatabaseMetaData dataBaseMetaData){
@@ -41,7 +46,7 @@ public class SQLVersion {
 	 * 3:03:29 PM
 	 */
 	public enum VersionName {
-        SqlServer,Oracle,MySql,Sqlite;
+        SqlServer,Oracle,MySql,Sqlite,PostgreSql,H2,DB2;
     }
 	
 	//判断数据库的采用的类型
@@ -59,34 +64,118 @@ public class SQLVersion {
 	 * @return SQLVersion.VersionName
 	 */
 	public static VersionName getVersionName(javax.sql.DataSource datasource) {
-		java.sql.Connection con=null;
 		try{
-			con=datasource.getConnection();
-			return getVersionName(con.getMetaData());
+			VersionName versionName=Dialect.of(datasource).getVersionName();
+			if(versionName!=null){
+				return versionName;
+			}
 		}catch(Exception x){	
 		   x.printStackTrace();
-		}finally{
-			DbUtils.closeQuietly(con);
 		}
 		return SQLVersion.VersionName.SqlServer;
 	}
 	/**
 	 * 获得数据库版(通过JDBC获得)注意，此方法执行后不会关闭连
+	 * 识别结果按JDBC URL缓存(见Dialect.of)
 	 * @param connection
 	 * @return SQLVersion.VersionName
 	 */
 	public static VersionName getVersionName(java.sql.DatabaseMetaData dataBaseMetaData)throws java.sql.SQLException {
-		String versionNameString=getVersion(dataBaseMetaData).toLowerCase();
-		versionNameString=versionNameString==null?"":versionNameString;
-		if(versionNameString.indexOf("microsoft")>-1){
-			return SQLVersion.VersionName.SqlServer;
-		}else if(versionNameString.indexOf("oracle")>-1){
-			return SQLVersion.VersionName.Oracle;
-		}else if(versionNameString.indexOf("mysql")>-1){
-			return SQLVersion.VersionName.MySql;
-		}else if(versionNameString.indexOf("sqlite")>-1){
-			return SQLVersion.VersionName.Sqlite;
+		Dialect dialect=Dialect.of(dataBaseMetaData);
+		if(dialect.getVersionName()==null){
+			throw new SQLException("不明类型("+dialect+")");
+		}
+		return dialect.getVersionName();
+	}
+	/**
+	 * 通过数据库的执行计划估算sql返回的行数,不执行sql本身:
+	 * MySql取explain结果中最大的rows,Oracle取explain plan根节点的cardinality,
+	 * PostgreSql取explain第一行(根节点)的rows=;其他数据库没有可用的估算,返回-1。
+	 * Oracle的explain plan在调用者的事务中向plan_table插入并删除行,需要plan_table和相应的权限
+	 * @param con 数据库连接
+	 * @param runner 用于识别数据库(设置了方言或DataSource时不再按连接识别)和填充参数
+	 * @param sql 查询的sql
+	 * @param params sql的参数
+	 * @return 估算的行数,不支持时返回-1
+	 */
+	public static long estimateRows(java.sql.Connection con,JDBCPaginRunner runner,String sql,Object[] params)throws SQLException{
+		VersionName versionName=runner.dialect(con).getVersionName();
+		java.sql.PreparedStatement ps=null;
+		java.sql.ResultSet rs=null;
+		try{
+			if(versionName==VersionName.MySql){
+				ps=con.prepareStatement("explain "+sql);
+				runner.fillStatement(ps, params);
+				rs=ps.executeQuery();
+				long rows=0;
+				while(rs.next()){
+					rows=Math.max(rows, rs.getLong("rows"));
+				}
+				return rows;
+			}else if(versionName==VersionName.Oracle){
+				String statementId="kettas_"+Long.toHexString(System.nanoTime())+"_"+Thread.currentThread().getId();
+				long rows;
+				boolean estimated=false;
+				try{
+					ps=con.prepareStatement("explain plan set statement_id = '"+statementId+"' for "+sql);
+					runner.fillStatement(ps, params);
+					ps.execute();
+					DbUtils.closeQuietly(ps);
+					ps=con.prepareStatement("select cardinality from plan_table where statement_id = ? and id = 0");
+					ps.setString(1, statementId);
+					rs=ps.executeQuery();
+					rows=rs.next()?rs.getLong(1):-1;
+					estimated=true;
+				}finally{
+					DbUtils.closeQuietly(rs);
+					DbUtils.closeQuietly(ps);
+					rs=null;
+					ps=null;
+					// explain或查询失败时也删除已写入plan_table的行;删除的异常不掩盖估算的异常
+					try{
+						deletePlan(con, statementId);
+					}catch(SQLException e){
+						if(estimated){
+							throw e;
+						}
+					}
+				}
+				return rows;
+			}else if(versionName==VersionName.PostgreSql){
+				ps=con.prepareStatement("explain "+sql);
+				runner.fillStatement(ps, params);
+				rs=ps.executeQuery();
+				if(!rs.next()){
+					return -1;
+				}
+				String plan=rs.getString(1);
+				int start=plan==null?-1:plan.indexOf("rows=");
+				if(start<0){
+					return -1;
+				}
+				start+=5;
+				int end=start;
+				while(end<plan.length()&&Character.isDigit(plan.charAt(end))){
+					end++;
+				}
+				return end>start?Long.parseLong(plan.substring(start,end)):-1;
+			}
+			return -1;
+		}finally{
+			DbUtils.closeQuietly(rs);
+			DbUtils.closeQuietly(ps);
+		}
+	}
+	/**
+	 * 删除explain plan写入plan_table的行
+	 */
+	private static void deletePlan(java.sql.Connection con,String statementId)throws SQLException{
+		java.sql.PreparedStatement ps=con.prepareStatement("delete from plan_table where statement_id = ?");
+		try{
+			ps.setString(1, statementId);
+			ps.executeUpdate();
+		}finally{
+			DbUtils.closeQuietly(ps);
 		}
-		throw new SQLException("不明类型("+versionNameString+")");
 	}
 }
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+/**
+ * Compares the bean processors on an in-memory <code>CachedRowSet</code>,
+ * so that the driver does not dominate the timing.  Not a unit test; run
+ * it by hand:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.apache.commons.dbutils.BeanProcessorBenchmark [rows] [rounds]
+ * </pre>
+ * Each processor converts all rows <code>rounds</code> times after the same
+ * number of warm-up rounds; the best round is reported in nanoseconds per
+ * row.
+ */
+public class BeanProcessorBenchmark {
+
+    private static final String[] COLUMNS = {"id", "name", "score", "total", "nickname", "active"};
+
+    private static CachedRowSet rows(int count) throws SQLException {
+        RowSetMetaDataImpl md = new RowSetMetaDataImpl();
+        int[] types = {Types.INTEGER, Types.VARCHAR, Types.DOUBLE, Types.BIGINT, Types.VARCHAR, Types.BOOLEAN};
+        md.setColumnCount(COLUMNS.length);
+        for (int i = 0; i < types.length; i++) {
+            md.setColumnName(i + 1, COLUMNS[i]);
+            md.setColumnLabel(i + 1, COLUMNS[i]);
+            md.setColumnType(i + 1, types[i]);
+        }
+        CachedRowSet rs = RowSetProvider.newFactory().createCachedRowSet();
+        rs.setMetaData(md);
+        for (int i = 0; i < count; i++) {
+            rs.moveToInsertRow();
+            rs.updateInt(1, i);
+            rs.updateString(2, "name" + i);
+            rs.updateDouble(3, i * 1.5);
+            rs.updateLong(4, i * 10L);
+            rs.updateString(5, (i % 3 == 0) ? null : "nick" + i);
+            rs.updateBoolean(6, i % 2 == 0);
+            rs.insertRow();
+        }
+        rs.moveToCurrentRow();
+        return rs;
+    }
+
+    private static long round(BeanProcessor processor, CachedRowSet rs) throws SQLException {
+        rs.beforeFirst();
+        long start = System.nanoTime();
+        int size = processor.toBeanList(rs, RowBean.class).size();
+        long elapsed = System.nanoTime() - start;
+        if (size != rs.size()) {
+            throw new IllegalStateException("converted " + size + " rows");
+        }
+        return elapsed;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        CachedRowSet rs = rows(count);
+        BeanProcessor[] processors = {
+            new BeanProcessor(),
+            new CompiledBeanProcessor(),
+            new GeneratedBeanProcessor(),
+            new FieldBeanProcessor(),
+        };
+        for (BeanProcessor processor : processors) {
+            for (int i = 0; i < rounds; i++) {
+                round(processor, rs);
+            }
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < rounds; i++) {
+                best = Math.min(best, round(processor, rs));
+            }
+            System.out.println(processor.getClass().getSimpleName() + ": " + (best / count) + " ns/row");
+        }
+    }
+}
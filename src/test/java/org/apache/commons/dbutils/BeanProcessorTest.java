@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * BeanProcessorTest.  The processor variants extend this test and override
+ * {@link #newProcessor(Map)}, so every variant must map rows exactly like
+ * <code>BeanProcessor</code>.
+ */
+public class BeanProcessorTest extends TestCase {
+
+    static final String[] COLUMNS = {"id", "name", "score", "total", "nickname", "active"};
+
+    static final Object[][] ROWS = {
+        {Integer.valueOf(1), "one", Double.valueOf(1.5), Long.valueOf(10), "uno", Boolean.TRUE},
+        {Integer.valueOf(2), "two", null, null, null, Boolean.FALSE},
+        {null, null, Double.valueOf(3.5), Long.valueOf(30), "tres", null},
+    };
+
+    static ResultSet rs() {
+        return MockResultSet.create(COLUMNS, ROWS);
+    }
+
+    /**
+     * Creates the processor under test.
+     *
+     * @param overrides The column to property overrides, may be <code>null</code>.
+     * @return the processor
+     */
+    protected BeanProcessor newProcessor(Map<String, String> overrides) {
+        return newProcessor(overrides == null ? new HashMap<String, String>() : overrides,
+            Collections.<ColumnHandler>emptyList(), Collections.<PropertyHandler>emptyList());
+    }
+
+    /**
+     * Creates the processor under test with additional handlers.
+     *
+     * @param overrides The column to property overrides.
+     * @param columnHandlers Column handlers to use ahead of the classpath ones.
+     * @param propertyHandlers Property handlers to use ahead of the classpath ones.
+     * @return the processor
+     */
+    protected BeanProcessor newProcessor(Map<String, String> overrides,
+            List<ColumnHandler> columnHandlers, List<PropertyHandler> propertyHandlers) {
+        return new BeanProcessor(overrides, columnHandlers, propertyHandlers);
+    }
+
+    public void testToBeanList() throws SQLException {
+        List<RowBean> rows = newProcessor(null).toBeanList(rs(), RowBean.class);
+        assertEquals(3, rows.size());
+        assertEquals("1 one 1.5 10 uno true", rows.get(0).toString());
+        assertEquals("2 two 0.0 null null false", rows.get(1).toString());
+        assertEquals("0 null 3.5 30 tres false", rows.get(2).toString());
+    }
+
+    public void testToBean() throws SQLException {
+        ResultSet rs = rs();
+        assertTrue(rs.next());
+        assertEquals("1 one 1.5 10 uno true", newProcessor(null).toBean(rs, RowBean.class).toString());
+    }
+
+    public void testPopulateBean() throws SQLException {
+        ResultSet rs = rs();
+        assertTrue(rs.next());
+        assertTrue(rs.next());
+        RowBean row = new RowBean();
+        row.setTotal(Long.valueOf(99));
+        assertSame(row, newProcessor(null).populateBean(rs, row));
+        assertEquals("2 two 0.0 null null false", row.toString());
+    }
+
+    public void testColumnToPropertyOverrides() throws SQLException {
+        Map<String, String> overrides = new HashMap<String, String>();
+        overrides.put("nickname", "name");
+        ResultSet rs = MockResultSet.create(new String[] {"id", "nickname"},
+            new Object[][] {{Integer.valueOf(7), "siete"}});
+        List<RowBean> rows = newProcessor(overrides).toBeanList(rs, RowBean.class);
+        assertEquals("7 siete 0.0 null null false", rows.get(0).toString());
+    }
+
+    public void testLayouts() throws SQLException {
+        BeanProcessor processor = newProcessor(null);
+        for (int i = 0; i < BeanProcessor.MAX_CACHED_LAYOUTS + 2; i++) {
+            ResultSet rs = MockResultSet.create(new String[] {"id", "c" + i},
+                new Object[][] {{Integer.valueOf(i), "x"}});
+            assertEquals(i, processor.toBeanList(rs, RowBean.class).get(0).getId());
+        }
+        List<RowBean> rows = processor.toBeanList(rs(), RowBean.class);
+        assertEquals("1 one 1.5 10 uno true", rows.get(0).toString());
+    }
+
+    public void testEnumProperty() throws SQLException {
+        ResultSet rs = MockResultSet.create(new String[] {"color"},
+            new Object[][] {{"RED"}, {null}, {"BLUE"}});
+        List<ColorBean> rows = newProcessor(null).toBeanList(rs, ColorBean.class);
+        assertEquals(Color.RED, rows.get(0).getColor());
+        assertNull(rows.get(1).getColor());
+        assertEquals(Color.BLUE, rows.get(2).getColor());
+    }
+
+    public void testHandlersResolvedPerLayout() throws SQLException {
+        CountingHandler handler = new CountingHandler();
+        BeanProcessor processor = newProcessor(new HashMap<String, String>(),
+            Arrays.<ColumnHandler>asList(handler), Arrays.<PropertyHandler>asList(handler));
+        Object[][] data = {{"a"}, {"b"}, {"c"}};
+
+        List<TagBean> rows = processor.toBeanList(MockResultSet.create(new String[] {"tag"}, data), TagBean.class);
+        assertEquals("[a]", rows.get(0).getTag().toString());
+        assertEquals("[c]", rows.get(2).getTag().toString());
+        int columnMatches = handler.columnMatches;
+        assertTrue(columnMatches > 0);
+        assertEquals(1, handler.propertyMatches);
+
+        processor.toBeanList(MockResultSet.create(new String[] {"tag"}, data), TagBean.class);
+        assertEquals(columnMatches, handler.columnMatches);
+        assertEquals(1, handler.propertyMatches);
+    }
+
+    public void testProcessColumnOverride() throws SQLException {
+        BeanProcessor processor = new BeanProcessor() {
+            @Override
+            protected Object processColumn(ResultSet rs, int index, Class<?> propType) throws SQLException {
+                Object value = super.processColumn(rs, index, propType);
+                return (value instanceof String) ? ((String) value).toUpperCase() : value;
+            }
+        };
+        assertEquals("1 ONE 1.5 10 UNO true", processor.toBeanList(rs(), RowBean.class).get(0).toString());
+    }
+
+    public enum Color {
+        RED, BLUE
+    }
+
+    public static class ColorBean {
+
+        private Color color;
+
+        public Color getColor() {
+            return color;
+        }
+
+        public void setColor(Color color) {
+            this.color = color;
+        }
+    }
+
+    /**
+     * An application type read by {@link CountingHandler}.
+     */
+    public static class Tag {
+
+        private final String value;
+
+        public Tag(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + value + "]";
+        }
+    }
+
+    public static class TagBean {
+
+        private Tag tag;
+
+        public Tag getTag() {
+            return tag;
+        }
+
+        public void setTag(Tag tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Reads <code>Tag</code> columns and counts how often it is consulted.
+     */
+    static class CountingHandler implements ColumnHandler, PropertyHandler {
+
+        int columnMatches = 0;
+
+        int propertyMatches = 0;
+
+        @Override
+        public boolean match(Class<?> propType) {
+            columnMatches++;
+            return propType == Tag.class;
+        }
+
+        @Override
+        public Object apply(ResultSet rs, int columnIndex) throws SQLException {
+            return new Tag(rs.getString(columnIndex));
+        }
+
+        @Override
+        public boolean match(Class<?> parameter, Object value) {
+            propertyMatches++;
+            return false;
+        }
+
+        @Override
+        public Object apply(Class<?> parameter, Object value) {
+            return value;
+        }
+    }
+}
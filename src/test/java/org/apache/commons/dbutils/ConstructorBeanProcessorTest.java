@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.beans.ConstructorProperties;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ConstructorBeanProcessorTest.  Beans with a no-argument constructor are
+ * populated through setters, so the <code>BeanProcessor</code> tests apply
+ * unchanged.
+ */
+public class ConstructorBeanProcessorTest extends BeanProcessorTest {
+
+    @Override
+    protected BeanProcessor newProcessor(Map<String, String> overrides,
+            List<ColumnHandler> columnHandlers, List<PropertyHandler> propertyHandlers) {
+        return new ConstructorBeanProcessor(overrides, columnHandlers, propertyHandlers);
+    }
+
+    public void testConstructor() throws SQLException {
+        List<Value> values = new ConstructorBeanProcessor().toBeanList(rs(), Value.class);
+        assertEquals(3, values.size());
+        assertEquals("1 one", values.get(0).toString());
+        assertEquals("2 two", values.get(1).toString());
+        assertEquals("0 null", values.get(2).toString());
+    }
+
+    /**
+     * An immutable value created through its constructor.
+     */
+    public static class Value {
+        private final int id;
+        private final String name;
+
+        @ConstructorProperties({"id", "name"})
+        public Value(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + name;
+        }
+    }
+}
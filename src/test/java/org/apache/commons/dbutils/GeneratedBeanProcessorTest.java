@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GeneratedBeanProcessorTest runs the <code>BeanProcessor</code> tests through
+ * the generated bean writers.
+ */
+public class GeneratedBeanProcessorTest extends BeanProcessorTest {
+
+    @Override
+    protected BeanProcessor newProcessor(Map<String, String> overrides,
+            List<ColumnHandler> columnHandlers, List<PropertyHandler> propertyHandlers) {
+        return new GeneratedBeanProcessor(overrides, columnHandlers, propertyHandlers);
+    }
+
+    public void testGeneratedForPublicBean() throws SQLException {
+        GeneratedBeanProcessor processor = new GeneratedBeanProcessor();
+        assertNotSame(CompiledBeanProcessor.RowMapper.class,
+            processor.compile(RowBean.class, rs().getMetaData()).getClass());
+        assertSame(CompiledBeanProcessor.RowMapper.class,
+            processor.compile(HiddenBean.class, rs().getMetaData()).getClass());
+    }
+
+    public void testPrimitives() throws SQLException {
+        String[] columns = {"i", "l", "d", "f", "s", "b", "z", "boxedI", "boxedL", "boxedD"};
+        ResultSet rs = MockResultSet.create(columns, new Object[][] {
+            {Integer.valueOf(1), Long.valueOf(2), Double.valueOf(3.5), Float.valueOf(4.5f), Short.valueOf((short) 5),
+                Byte.valueOf((byte) 6), Boolean.TRUE, Integer.valueOf(7), Long.valueOf(8), Double.valueOf(9.5)},
+            {null, null, null, null, null, null, null, null, null, null},
+        });
+        List<PrimitiveBean> beans = new GeneratedBeanProcessor().toBeanList(rs, PrimitiveBean.class);
+        assertEquals("1 2 3.5 4.5 5 6 true 7 8 9.5", beans.get(0).toString());
+        assertEquals("0 0 0.0 0.0 0 0 false null null null", beans.get(1).toString());
+    }
+
+    public void testInheritedSetters() throws SQLException {
+        ResultSet rs = MockResultSet.create(new String[] {"id", "name", "extra"},
+            new Object[][] {{Integer.valueOf(3), "three", "more"}});
+        List<ChildBean> beans = new GeneratedBeanProcessor().toBeanList(rs, ChildBean.class);
+        assertEquals("3 three 0.0 null null false more", beans.get(0).toString());
+    }
+
+    public void testNonPublicBean() throws SQLException {
+        List<HiddenBean> beans = new GeneratedBeanProcessor().toBeanList(rs(), HiddenBean.class);
+        assertEquals(3, beans.size());
+        assertEquals("1 one 1.5 10 uno true", beans.get(0).toString());
+        assertEquals("0 null 3.5 30 tres false", beans.get(2).toString());
+    }
+
+    /**
+     * A bean with every primitive type and some wrappers.
+     */
+    public static class PrimitiveBean {
+        private int i;
+        private long l;
+        private double d;
+        private float f;
+        private short s;
+        private byte b;
+        private boolean z;
+        private Integer boxedI;
+        private Long boxedL;
+        private Double boxedD;
+
+        public void setI(int i) {
+            this.i = i;
+        }
+
+        public void setL(long l) {
+            this.l = l;
+        }
+
+        public void setD(double d) {
+            this.d = d;
+        }
+
+        public void setF(float f) {
+            this.f = f;
+        }
+
+        public void setS(short s) {
+            this.s = s;
+        }
+
+        public void setB(byte b) {
+            this.b = b;
+        }
+
+        public void setZ(boolean z) {
+            this.z = z;
+        }
+
+        public void setBoxedI(Integer boxedI) {
+            this.boxedI = boxedI;
+        }
+
+        public void setBoxedL(Long boxedL) {
+            this.boxedL = boxedL;
+        }
+
+        public void setBoxedD(Double boxedD) {
+            this.boxedD = boxedD;
+        }
+
+        @Override
+        public String toString() {
+            return i + " " + l + " " + d + " " + f + " " + s + " " + b + " " + z + " "
+                + boxedI + " " + boxedL + " " + boxedD;
+        }
+    }
+
+    /**
+     * A bean whose setters are partly inherited.
+     */
+    public static class ChildBean extends RowBean {
+        private String extra;
+
+        public void setExtra(String extra) {
+            this.extra = extra;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + " " + extra;
+        }
+    }
+
+    /**
+     * A bean that is not public, so it is populated by reflection.
+     */
+    static class HiddenBean extends RowBean {
+    }
+}
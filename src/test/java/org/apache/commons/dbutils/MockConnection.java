@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MockConnection dynamically implements the Connection interface for
+ * tests that need a database product but no driver.  Every executed
+ * statement is recorded in {@link #getExecuted()} and queries are answered
+ * by a {@link Responder}.
+ */
+public class MockConnection implements InvocationHandler {
+
+    /**
+     * Answers the queries executed on a <code>MockConnection</code>.
+     */
+    public interface Responder {
+        /**
+         * @param sql The executed SQL.
+         * @param params The bound parameters, in order.
+         * @return the result of the query
+         * @throws SQLException to simulate a database error
+         */
+        ResultSet respond(String sql, List<Object> params) throws SQLException;
+    }
+
+    private final String productName;
+
+    private final int majorVersion;
+
+    private final Responder responder;
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    private int prepared = 0;
+
+    private volatile int resultSetType = ResultSet.TYPE_FORWARD_ONLY;
+
+    private volatile int fetchSize = 0;
+
+    private int failingBatch = 0;
+
+    private int batches = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Create a <code>MockConnection</code> proxy object.  This is equivalent to:
+     * <pre>
+     * ProxyFactory.instance().createConnection(new MockConnection(productName, majorVersion, responder));
+     * </pre>
+     *
+     * @param productName The database product name reported by the metadata.
+     * @param majorVersion The database major version reported by the metadata.
+     * @param responder Answers the queries, may be <code>null</code> when no query is run.
+     * @return the proxy object
+     */
+    public static Connection create(String productName, int majorVersion, Responder responder) {
+        return ProxyFactory.instance().createConnection(
+            new MockConnection(productName, majorVersion, responder));
+    }
+
+    /**
+     * Returns the handler behind a proxy created by {@link #create}.
+     *
+     * @param conn A proxy created by this class.
+     * @return the handler
+     */
+    public static MockConnection of(Connection conn) {
+        return (MockConnection) java.lang.reflect.Proxy.getInvocationHandler(conn);
+    }
+
+    public MockConnection(String productName, int majorVersion, Responder responder) {
+        super();
+        this.productName = productName;
+        this.majorVersion = majorVersion;
+        this.responder = responder;
+    }
+
+    /**
+     * The statements executed so far: queries and updates as
+     * <code>sql [params]</code>, batches as <code>sql xN</code>.
+     *
+     * @return the executed statements
+     */
+    public List<String> getExecuted() {
+        return this.executed;
+    }
+
+    /**
+     * The number of statements prepared or created so far.
+     *
+     * @return the statement count
+     */
+    public int getPrepared() {
+        return this.prepared;
+    }
+
+    /**
+     * The result set type requested by the last <code>prepareStatement</code>.
+     *
+     * @return the result set type
+     */
+    public int getResultSetType() {
+        return this.resultSetType;
+    }
+
+    /**
+     * The fetch size last set on a statement of this connection.
+     *
+     * @return the fetch size, 0 if none was set
+     */
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    /**
+     * Makes the given batch (counted from 1 over the connection) fail with
+     * a <code>SQLException</code>.
+     *
+     * @param failingBatch The batch to fail, 0 for none.
+     */
+    public void setFailingBatch(int failingBatch) {
+        this.failingBatch = failingBatch;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+
+        if (methodName.equals("getMetaData")) {
+            return ProxyFactory.instance().newProxyInstance(DatabaseMetaData.class, new MetaData());
+
+        } else if (methodName.equals("prepareStatement")) {
+            this.prepared++;
+            this.resultSetType = (args.length == 3) ? ((Integer) args[1]).intValue() : ResultSet.TYPE_FORWARD_ONLY;
+            return ProxyFactory.instance().createPreparedStatement(new MockStatement((String) args[0]));
+
+        } else if (methodName.equals("createStatement")) {
+            this.prepared++;
+            return ProxyFactory.instance().createStatement(new MockStatement(null));
+
+        } else if (methodName.equals("close")) {
+            this.closed = true;
+            return null;
+
+        } else if (methodName.equals("isClosed")) {
+            return Boolean.valueOf(this.closed);
+
+        } else if (methodName.equals("getAutoCommit")) {
+            return Boolean.TRUE;
+
+        } else if (methodName.equals("hashCode")) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+
+        } else if (methodName.equals("toString")) {
+            return "MockConnection " + this.productName;
+
+        } else if (methodName.equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        }
+
+        return defaultValue(method);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return Integer.valueOf(0);
+        } else if (type == long.class) {
+            return Long.valueOf(0);
+        }
+        return null;
+    }
+
+    private class MetaData implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+
+            if (methodName.equals("getDatabaseProductName")) {
+                return productName;
+
+            } else if (methodName.equals("getDatabaseProductVersion")) {
+                return majorVersion + ".0";
+
+            } else if (methodName.equals("getDatabaseMajorVersion")) {
+                return Integer.valueOf(majorVersion);
+
+            } else if (methodName.equals("getURL")) {
+                return "jdbc:mock:" + productName + ":" + majorVersion;
+            }
+
+            return defaultValue(method);
+        }
+    }
+
+    private class MockStatement implements InvocationHandler {
+
+        private final String sql;
+
+        private final List<Object> params = new ArrayList<Object>();
+
+        private int batched = 0;
+
+        private boolean closed = false;
+
+        MockStatement(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+
+            if (methodName.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = ((Integer) args[0]).intValue();
+                while (params.size() < index) {
+                    params.add(null);
+                }
+                params.set(index - 1, methodName.equals("setNull") ? null : args[1]);
+                return null;
+
+            } else if (methodName.equals("setFetchSize")) {
+                fetchSize = ((Integer) args[0]).intValue();
+                return null;
+
+            } else if (methodName.equals("clearParameters")) {
+                params.clear();
+                return null;
+
+            } else if (methodName.equals("addBatch")) {
+                batched++;
+                return null;
+
+            } else if (methodName.equals("clearBatch")) {
+                batched = 0;
+                return null;
+
+            } else if (methodName.equals("executeBatch")) {
+                int size = batched;
+                batched = 0;
+                if (++batches == failingBatch) {
+                    throw new SQLException("batch " + batches + " failed");
+                }
+                executed.add(sql + " x" + size);
+                int[] counts = new int[size];
+                Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                return counts;
+
+            } else if (methodName.equals("executeQuery")) {
+                String query = (args != null && args.length > 0) ? (String) args[0] : sql;
+                executed.add(query + " " + params);
+                return responder.respond(query, new ArrayList<Object>(params));
+
+            } else if (methodName.equals("executeUpdate")) {
+                String update = (args != null && args.length > 0) ? (String) args[0] : sql;
+                executed.add(update + " " + params);
+                return Integer.valueOf(1);
+
+            } else if (methodName.equals("getParameterMetaData")) {
+                return null;
+
+            } else if (methodName.equals("close")) {
+                this.closed = true;
+                return null;
+
+            } else if (methodName.equals("isClosed")) {
+                return Boolean.valueOf(this.closed || MockConnection.this.closed);
+
+            } else if (methodName.equals("hashCode")) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+
+            } else if (methodName.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+
+            return defaultValue(method);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * MockResultSet dynamically implements the forward only, read only parts
+ * of the ResultSet interface over an array of rows.  The typed getters
+ * convert values the way lenient drivers do.
+ */
+public class MockResultSet implements InvocationHandler {
+
+    private final ResultSetMetaData metaData;
+
+    private final String[] columnNames;
+
+    private final Object[][] rows;
+
+    private int row = -1;
+
+    private boolean wasNull = false;
+
+    private boolean closed = false;
+
+    /**
+     * Create a <code>MockResultSet</code> proxy object.  This is equivalent to:
+     * <pre>
+     * ProxyFactory.instance().createResultSet(new MockResultSet(columnNames, rows));
+     * </pre>
+     *
+     * @param columnNames The column labels.
+     * @param rows The rows, each with one value per column.
+     * @return the proxy object
+     */
+    public static ResultSet create(String[] columnNames, Object[][] rows) {
+        return ProxyFactory.instance().createResultSet(new MockResultSet(columnNames, rows));
+    }
+
+    public MockResultSet(String[] columnNames, Object[][] rows) {
+        super();
+        this.columnNames = columnNames;
+        this.rows = rows;
+        this.metaData = MockResultSetMetaData.create(columnNames, rows.length > 0 ? rows[0] : null);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+
+        if (methodName.equals("next")) {
+            this.checkOpen();
+            if (row < rows.length) {
+                row++;
+            }
+            return Boolean.valueOf(row < rows.length);
+
+        } else if (methodName.equals("getMetaData")) {
+            return this.metaData;
+
+        } else if (methodName.equals("wasNull")) {
+            return Boolean.valueOf(this.wasNull);
+
+        } else if (methodName.equals("findColumn")) {
+            return Integer.valueOf(this.findColumn((String) args[0]));
+
+        } else if (methodName.startsWith("get") && args != null && args.length == 1
+                && (args[0] instanceof Integer || args[0] instanceof String)) {
+            return this.getValue(method, args[0]);
+
+        } else if (methodName.equals("close")) {
+            this.closed = true;
+            return null;
+
+        } else if (methodName.equals("isClosed")) {
+            return Boolean.valueOf(this.closed);
+
+        } else if (methodName.equals("getType")) {
+            return Integer.valueOf(ResultSet.TYPE_FORWARD_ONLY);
+
+        } else if (methodName.equals("getConcurrency")) {
+            return Integer.valueOf(ResultSet.CONCUR_READ_ONLY);
+
+        } else if (methodName.equals("getFetchSize")) {
+            return Integer.valueOf(0);
+
+        } else if (methodName.equals("setFetchSize")) {
+            return null;
+
+        } else if (methodName.equals("getStatement")) {
+            return null;
+
+        } else if (methodName.equals("hashCode")) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+
+        } else if (methodName.equals("toString")) {
+            return "MockResultSet " + System.identityHashCode(proxy);
+
+        } else if (methodName.equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        }
+
+        throw new UnsupportedOperationException("Unsupported method: " + methodName);
+    }
+
+    private void checkOpen() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("ResultSet is closed");
+        }
+    }
+
+    private int findColumn(String label) throws SQLException {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Invalid column " + label);
+    }
+
+    private Object getValue(Method method, Object column) throws SQLException {
+        this.checkOpen();
+        if (row < 0 || row >= rows.length) {
+            throw new SQLException("No current row");
+        }
+        int index = (column instanceof Integer) ? ((Integer) column).intValue() : this.findColumn((String) column);
+        Object value = rows[row][index - 1];
+        this.wasNull = (value == null);
+
+        Class<?> type = method.getReturnType();
+        if (type == String.class) {
+            return (value == null) ? null : value.toString();
+        } else if (type == int.class) {
+            return Integer.valueOf((value == null) ? 0 : ((Number) value).intValue());
+        } else if (type == long.class) {
+            return Long.valueOf((value == null) ? 0 : ((Number) value).longValue());
+        } else if (type == double.class) {
+            return Double.valueOf((value == null) ? 0 : ((Number) value).doubleValue());
+        } else if (type == float.class) {
+            return Float.valueOf((value == null) ? 0 : ((Number) value).floatValue());
+        } else if (type == short.class) {
+            return Short.valueOf((value == null) ? 0 : ((Number) value).shortValue());
+        } else if (type == byte.class) {
+            return Byte.valueOf((value == null) ? 0 : ((Number) value).byteValue());
+        } else if (type == boolean.class) {
+            return Boolean.valueOf(value != null && ((Boolean) value).booleanValue());
+        }
+        return value;
+    }
+}
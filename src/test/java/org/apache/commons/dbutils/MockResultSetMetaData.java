@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * MockResultSetMetaData dynamically implements the ResultSetMetaData
+ * interface.  Column types are taken from the values of the first row.
+ */
+public class MockResultSetMetaData implements InvocationHandler {
+
+    private final String[] columnNames;
+
+    private final int[] columnTypes;
+
+    /**
+     * Create a <code>MockResultSetMetaData</code> proxy object.  This is
+     * equivalent to:
+     * <pre>
+     * ProxyFactory.instance().createResultSetMetaData(new MockResultSetMetaData(columnNames, firstRow));
+     * </pre>
+     *
+     * @param columnNames The column labels.
+     * @param firstRow The values used to choose the column types, may be <code>null</code>.
+     * @return the proxy object
+     */
+    public static ResultSetMetaData create(String[] columnNames, Object[] firstRow) {
+        return ProxyFactory.instance().createResultSetMetaData(
+            new MockResultSetMetaData(columnNames, firstRow));
+    }
+
+    public MockResultSetMetaData(String[] columnNames, Object[] firstRow) {
+        super();
+        this.columnNames = columnNames;
+        this.columnTypes = new int[columnNames.length];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columnTypes[i] = typeOf(firstRow == null ? null : firstRow[i]);
+        }
+    }
+
+    private static int typeOf(Object value) {
+        if (value instanceof Integer) {
+            return Types.INTEGER;
+        } else if (value instanceof Long) {
+            return Types.BIGINT;
+        } else if (value instanceof Double) {
+            return Types.DOUBLE;
+        } else if (value instanceof BigDecimal) {
+            return Types.NUMERIC;
+        } else if (value instanceof Timestamp) {
+            return Types.TIMESTAMP;
+        }
+        return Types.VARCHAR;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+
+        if (methodName.equals("getColumnCount")) {
+            return Integer.valueOf(this.columnNames.length);
+
+        } else if (methodName.equals("getColumnName") || methodName.equals("getColumnLabel")) {
+            return this.columnNames[((Integer) args[0]).intValue() - 1];
+
+        } else if (methodName.equals("getColumnType")) {
+            return Integer.valueOf(this.columnTypes[((Integer) args[0]).intValue() - 1]);
+
+        } else if (methodName.equals("getPrecision")) {
+            return Integer.valueOf(10);
+
+        } else if (methodName.equals("getScale")) {
+            return Integer.valueOf(0);
+
+        } else if (methodName.equals("isSigned")) {
+            return Boolean.TRUE;
+
+        } else if (methodName.equals("isNullable")) {
+            return Integer.valueOf(ResultSetMetaData.columnNullable);
+
+        } else if (methodName.equals("getColumnClassName")) {
+            return Object.class.getName();
+
+        } else if (methodName.equals("hashCode")) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+
+        } else if (methodName.equals("toString")) {
+            return "MockResultSetMetaData " + System.identityHashCode(proxy);
+
+        } else if (methodName.equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        }
+
+        throw new UnsupportedOperationException("Unsupported method: " + methodName);
+    }
+}
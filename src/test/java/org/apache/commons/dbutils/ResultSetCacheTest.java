@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+/**
+ * ResultSetCacheTest
+ */
+public class ResultSetCacheTest extends TestCase {
+
+    private static final String[] COLUMNS = {"id", "name"};
+
+    private int metaDataReads;
+
+    /**
+     * Wraps a result set so that its <code>getMetaData</code> calls are counted.
+     */
+    private ResultSet counted(final ResultSet rs) {
+        return ProxyFactory.instance().createResultSet(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getMetaData")) {
+                    metaDataReads++;
+                }
+                try {
+                    return method.invoke(rs, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    private ResultSet rs(int rows) {
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[] {Integer.valueOf(i), "n" + i};
+        }
+        return counted(MockResultSet.create(COLUMNS, data));
+    }
+
+    public void testIdentity() {
+        ResultSetCache<String> cache = new ResultSetCache<String>();
+        ResultSet first = rs(1);
+        ResultSet second = rs(1);
+        cache.put(first, "first");
+        assertEquals("first", cache.get(first));
+        assertNull(cache.get(second));
+        cache.put(second, "second");
+        cache.put(first, "again");
+        assertEquals("again", cache.get(first));
+        assertEquals("second", cache.get(second));
+        assertEquals(2, cache.size());
+    }
+
+    public void testReclaimed() throws InterruptedException {
+        ResultSetCache<String> cache = new ResultSetCache<String>();
+        cache.put(rs(1), "gone");
+        for (int i = 0; i < 50 && cache.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.size());
+    }
+
+    public void testInterleavedResultSets() throws SQLException {
+        BasicRowProcessor processor = new BasicRowProcessor();
+        ResultSet first = rs(3);
+        ResultSet second = rs(3);
+        while (first.next() && second.next()) {
+            assertEquals(first.getObject(2), processor.toMap(first).get("NAME"));
+            assertEquals(second.getObject(1), processor.toArray(second)[0]);
+        }
+        assertEquals(2, metaDataReads);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * RowMapTest
+ */
+public class RowMapTest extends TestCase {
+
+    private static RowMap row(String[] labels, Object... values) {
+        return new RowMap(RowMap.Schema.of(labels), values);
+    }
+
+    public void testCaseInsensitiveLookup() {
+        RowMap row = row(new String[] {"id", "Name", "\u00e9t\u00e9"}, Integer.valueOf(1), "one", "summer");
+        assertEquals(Integer.valueOf(1), row.get("ID"));
+        assertEquals("one", row.get("name"));
+        assertEquals("one", row.get("NAME"));
+        assertEquals("summer", row.get("\u00c9T\u00c9"));
+        assertTrue(row.containsKey("iD"));
+        assertFalse(row.containsKey("nam"));
+        assertNull(row.get("missing"));
+        assertNull(row.get(null));
+    }
+
+    public void testOrderAndOriginalKeys() {
+        RowMap row = row(new String[] {"b", "A", "c"}, "1", "2", "3");
+        assertEquals("[b, A, c]", new ArrayList<String>(row.keySet()).toString());
+        assertEquals("{b=1, A=2, c=3}", row.toString());
+    }
+
+    public void testDuplicateLabelsLastWins() {
+        RowMap.Schema schema = RowMap.Schema.of(new String[] {"id", "name", "ID"});
+        assertEquals(2, schema.size());
+        assertEquals("name", schema.getName(0));
+        assertEquals("ID", schema.getName(1));
+        assertEquals(3, schema.getColumn(1));
+        assertEquals("last", new RowMap(schema, new Object[] {"n", "last"}).get("id"));
+    }
+
+    public void testPutAndRemove() {
+        RowMap row = row(new String[] {"id", "name"}, Integer.valueOf(1), "one");
+        assertEquals("one", row.put("name", "uno"));
+        assertEquals("uno", row.get("NAME"));
+
+        // a key spelled differently replaces the old one at the end
+        assertEquals(Integer.valueOf(1), row.put("ID", Integer.valueOf(2)));
+        assertEquals("{name=uno, ID=2}", row.toString());
+
+        assertNull(row.put("extra", "x"));
+        assertEquals("x", row.get("EXTRA"));
+        assertEquals("uno", row.remove("Name"));
+        assertEquals("{ID=2, extra=x}", row.toString());
+        row.clear();
+        assertTrue(row.isEmpty());
+    }
+
+    public void testSchemaShared() {
+        RowMap.Schema schema = RowMap.Schema.of(new String[] {"id"});
+        RowMap first = new RowMap(schema, new Object[] {"1"});
+        RowMap second = new RowMap(schema, new Object[] {"2"});
+        first.put("other", "x");
+        assertFalse(second.containsKey("other"));
+        assertEquals(1, schema.size());
+    }
+
+    public void testEqualsHashMap() {
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("id", Integer.valueOf(1));
+        expected.put("name", null);
+        RowMap row = row(new String[] {"id", "name"}, Integer.valueOf(1), null);
+        assertEquals(expected, row);
+        assertEquals(expected.hashCode(), row.hashCode());
+    }
+
+    public void testSerialization() throws Exception {
+        RowMap row = row(new String[] {"id", "name"}, Integer.valueOf(1), "one");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(row);
+        out.close();
+        RowMap copy = (RowMap) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(row, copy);
+        assertEquals("one", copy.get("NAME"));
+    }
+
+    public void testBasicRowProcessor() throws Exception {
+        ResultSet rs = MockResultSet.create(new String[] {"ID", "name"},
+            new Object[][] {{Integer.valueOf(1), "one"}, {Integer.valueOf(2), "two"}});
+        BasicRowProcessor processor = new BasicRowProcessor();
+        assertTrue(rs.next());
+        Map<String, Object> first = processor.toMap(rs);
+        assertTrue(rs.next());
+        Map<String, Object> second = processor.toMap(rs);
+        assertEquals(Integer.valueOf(1), first.get("id"));
+        assertEquals("two", second.get("NAME"));
+        assertEquals("[ID, name]", new ArrayList<String>(second.keySet()).toString());
+    }
+
+    /**
+     * Decodes strings starting with a dash, counting its calls.
+     */
+    private static class CountingDecoder implements RowMap.Decoder {
+
+        int decoded = 0;
+
+        @Override
+        public boolean isEncoded(Object value) {
+            return value instanceof String && ((String) value).startsWith("-");
+        }
+
+        @Override
+        public Object decode(Object value, String name) throws SQLException {
+            decoded++;
+            if (value.equals("-bad")) {
+                throw new SQLException("bad value");
+            }
+            return ((String) value).substring(1);
+        }
+    }
+
+    public void testLazyDecoding() {
+        CountingDecoder decoder = new CountingDecoder();
+        RowMap row = new RowMap(RowMap.Schema.of(new String[] {"a", "b", "c"}),
+            new Object[] {"-x", "plain", null}, decoder);
+
+        assertFalse(row.isDecoded("A"));
+        assertTrue(row.isDecoded("b"));
+        assertTrue(row.isDecoded("c"));
+        assertTrue(row.isDecoded("missing"));
+        assertEquals(0, decoder.decoded);
+
+        assertEquals("x", row.get("a"));
+        assertEquals("x", row.get("A"));
+        assertTrue(row.isDecoded("a"));
+        assertEquals("plain", row.get("b"));
+        assertEquals(1, decoder.decoded);
+    }
+
+    public void testDecodingFailure() {
+        RowMap row = new RowMap(RowMap.Schema.of(new String[] {"a"}),
+            new Object[] {"-bad"}, new CountingDecoder());
+        try {
+            row.get("a");
+            fail("the value cannot be decoded");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("a"));
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    public void testSerializationDecodes() throws Exception {
+        CountingDecoder decoder = new CountingDecoder();
+        RowMap row = new RowMap(RowMap.Schema.of(new String[] {"a", "b"}),
+            new Object[] {"-x", "-y"}, decoder);
+        ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+        out.writeObject(row);
+        out.close();
+        assertEquals(2, decoder.decoded);
+        assertTrue(row.isDecoded("b"));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+/**
+ * Measures how often a shared <code>BasicRowProcessor</code> reads result
+ * set metadata when the rows of two queries are converted interleaved, as
+ * they are when concurrent queries share the processor of the default
+ * handlers.  Not a unit test; run it by hand:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.apache.commons.dbutils.RowProcessorBenchmark [rows] [rounds]
+ * </pre>
+ * Both result sets are converted with <code>toMap</code>, first one after
+ * the other and then a row of each in turn.  The best round is reported in
+ * nanoseconds per row, with the number of <code>getMetaData</code> calls.
+ */
+public class RowProcessorBenchmark {
+
+    private static final int COLUMNS = 8;
+
+    private static long metaDataReads = 0;
+
+    private static CachedRowSet rows(int count) throws SQLException {
+        RowSetMetaDataImpl md = new RowSetMetaDataImpl();
+        md.setColumnCount(COLUMNS);
+        for (int i = 1; i <= COLUMNS; i++) {
+            md.setColumnName(i, "column" + i);
+            md.setColumnLabel(i, "column" + i);
+            md.setColumnType(i, (i % 2 == 0) ? Types.VARCHAR : Types.INTEGER);
+        }
+        CachedRowSet rs = RowSetProvider.newFactory().createCachedRowSet();
+        rs.setMetaData(md);
+        for (int row = 0; row < count; row++) {
+            rs.moveToInsertRow();
+            for (int i = 1; i <= COLUMNS; i++) {
+                if (i % 2 == 0) {
+                    rs.updateString(i, "value" + row);
+                } else {
+                    rs.updateInt(i, row);
+                }
+            }
+            rs.insertRow();
+        }
+        rs.moveToCurrentRow();
+        return rs;
+    }
+
+    private static ResultSet counted(final ResultSet rs) {
+        return ProxyFactory.instance().createResultSet(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getMetaData")) {
+                    metaDataReads++;
+                }
+                try {
+                    return method.invoke(rs, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    private static long round(RowProcessor processor, CachedRowSet first, CachedRowSet second,
+            boolean interleaved) throws SQLException {
+        first.beforeFirst();
+        second.beforeFirst();
+        ResultSet a = counted(first);
+        ResultSet b = counted(second);
+        long start = System.nanoTime();
+        if (interleaved) {
+            while (a.next() && b.next()) {
+                processor.toMap(a);
+                processor.toMap(b);
+            }
+        } else {
+            while (a.next()) {
+                processor.toMap(a);
+            }
+            while (b.next()) {
+                processor.toMap(b);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        CachedRowSet first = rows(count);
+        CachedRowSet second = rows(count);
+        RowProcessor processor = new BasicRowProcessor();
+        boolean[] modes = {false, true};
+        for (boolean interleaved : modes) {
+            for (int i = 0; i < rounds; i++) {
+                round(processor, first, second, interleaved);
+            }
+            metaDataReads = 0;
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < rounds; i++) {
+                best = Math.min(best, round(processor, first, second, interleaved));
+            }
+            System.out.println((interleaved ? "interleaved" : "sequential") + ": "
+                + (best / (2L * count)) + " ns/row, "
+                + (metaDataReads / rounds) + " getMetaData calls per round");
+        }
+    }
+}
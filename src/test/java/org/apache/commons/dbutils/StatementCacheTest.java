@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+
+/**
+ * StatementCacheTest
+ */
+public class StatementCacheTest extends TestCase {
+
+    private Connection conn;
+
+    private StatementCache cache;
+
+    private QueryRunner runner;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        conn = MockConnection.create("H2", 1, new MockConnection.Responder() {
+            @Override
+            public ResultSet respond(String sql, List<Object> params) throws SQLException {
+                return MockResultSet.create(new String[] {"n"}, new Object[][] {{params.get(0)}});
+            }
+        });
+        cache = new StatementCache(2);
+        runner = new QueryRunner(true);
+        runner.setStatementCache(cache);
+    }
+
+    private Object query(String sql, Object param) throws SQLException {
+        return runner.query(conn, sql, new ScalarHandler<Object>(), param);
+    }
+
+    public void testReuse() throws SQLException {
+        assertEquals(Integer.valueOf(1), query("select ?", Integer.valueOf(1)));
+        assertEquals(Integer.valueOf(2), query("select ?", Integer.valueOf(2)));
+        assertEquals(1, MockConnection.of(conn).getPrepared());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    public void testEviction() throws SQLException {
+        query("select ? a", Integer.valueOf(1));
+        query("select ? b", Integer.valueOf(1));
+        query("select ? c", Integer.valueOf(1));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        // "a" was evicted, "c" is still cached
+        query("select ? a", Integer.valueOf(1));
+        query("select ? c", Integer.valueOf(1));
+        assertEquals(4, MockConnection.of(conn).getPrepared());
+    }
+
+    public void testInUseNotShared() throws SQLException {
+        PreparedStatement first = runner.prepareStatement(conn, "select ?");
+        PreparedStatement second = runner.prepareStatement(conn, "select ?");
+        assertNotSame(first, second);
+        runner.close(first);
+        runner.close(second);
+        assertEquals(1, cache.size());
+        assertTrue(second.isClosed());
+        assertFalse(first.isClosed());
+    }
+
+    public void testInvalidate() throws SQLException {
+        PreparedStatement stmt = runner.prepareStatement(conn, "select ?");
+        runner.close(stmt);
+        cache.invalidate(conn);
+        assertEquals(0, cache.size());
+        assertTrue(stmt.isClosed());
+    }
+
+    public void testClosedConnection() throws SQLException {
+        query("select ?", Integer.valueOf(1));
+        conn.close();
+        assertNull(cache.take(conn, "select ?", ResultSet.TYPE_FORWARD_ONLY, java.sql.Statement.NO_GENERATED_KEYS));
+        assertEquals(0, cache.size());
+    }
+
+    public void testLimits() {
+        try {
+            new StatementCache(0);
+            fail("maxStatements must be positive");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockResultSet;
+
+/**
+ * BeanGraphHandlerTest
+ */
+public class BeanGraphHandlerTest extends TestCase {
+
+    private static final String[] COLUMNS = {"id", "customer.id", "customer.name", "line_id", "line_qty"};
+
+    private static final Object[][] ROWS = {
+        {Integer.valueOf(1), Integer.valueOf(7), "acme", Integer.valueOf(2), Integer.valueOf(5)},
+        {Integer.valueOf(1), Integer.valueOf(7), "acme", Integer.valueOf(1), Integer.valueOf(3)},
+        {Integer.valueOf(2), Integer.valueOf(8), "bolt", null, null},
+    };
+
+    private static ResultSet rs() {
+        return MockResultSet.create(COLUMNS, ROWS);
+    }
+
+    public void testGraph() throws SQLException {
+        List<Order> orders = new BeanGraphHandler<Order>(Order.class, "id")
+            .association("customer", Customer.class, "id")
+            .collection("lines", "line_", Line.class, "id")
+            .handle(rs());
+
+        assertEquals(2, orders.size());
+        assertEquals("acme", orders.get(0).getCustomer().getName());
+        assertEquals("[2x5, 1x3]", orders.get(0).getLines().toString());
+        assertEquals("bolt", orders.get(1).getCustomer().getName());
+        assertNull(orders.get(1).getLines());
+    }
+
+    public void testColumnView() throws SQLException {
+        ResultSet rs = rs();
+        assertTrue(rs.next());
+        ResultSet view = new ColumnViewResultSet(rs, new int[] {4, 5}, new String[] {"id", "qty"});
+
+        ResultSetMetaData rsmd = view.getMetaData();
+        assertEquals(2, rsmd.getColumnCount());
+        assertEquals("qty", rsmd.getColumnLabel(2));
+        assertEquals(Integer.valueOf(2), view.getObject(1));
+        assertEquals(5, view.getInt("QTY"));
+        assertEquals(2, view.findColumn("qty"));
+        try {
+            view.getObject(3);
+            fail("the view has two columns");
+        } catch (SQLException e) {
+            // expected
+        }
+        try {
+            view.getObject("name");
+            fail("the view has no name column");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    public void testUnmodifiableCollection() throws SQLException {
+        List<ReadOnlyOrder> orders = new BeanGraphHandler<ReadOnlyOrder>(ReadOnlyOrder.class, "id")
+            .collection("lines", "line_", Line.class, "id")
+            .handle(rs());
+
+        assertEquals("[2x5, 1x3]", orders.get(0).getLines().toString());
+        assertEquals("[]", orders.get(1).getLines().toString());
+    }
+
+    public void testSortedSet() throws SQLException {
+        List<SortedOrder> orders = new BeanGraphHandler<SortedOrder>(SortedOrder.class, "id")
+            .collection("lines", "line_", SortedLine.class, "id")
+            .handle(rs());
+        assertEquals("[1x3, 2x5]", orders.get(0).getLines().toString());
+
+        try {
+            new BeanGraphHandler<SortedOrder>(SortedOrder.class, "id")
+                .collection("lines", "line_", Line.class, "id")
+                .handle(rs());
+            fail("Line is not Comparable");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not Comparable"));
+        }
+
+        try {
+            new BeanGraphHandler<WriteOnlyOrder>(WriteOnlyOrder.class, "id")
+                .collection("lines", "line_", Line.class, "id");
+            fail("Line is not Comparable");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not Comparable"));
+        }
+    }
+
+    public static class Customer {
+
+        private int id;
+
+        private String name;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Line {
+
+        private int id;
+
+        private int qty;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+
+        public void setQty(int qty) {
+            this.qty = qty;
+        }
+
+        @Override
+        public String toString() {
+            return id + "x" + qty;
+        }
+    }
+
+    public static class SortedLine extends Line implements Comparable<SortedLine> {
+
+        @Override
+        public int compareTo(SortedLine other) {
+            return getId() - other.getId();
+        }
+    }
+
+    public static class Order {
+
+        private int id;
+
+        private Customer customer;
+
+        private List<Line> lines;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<Line> lines) {
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Exposes its lines read only, as an empty list when it has none.
+     */
+    public static class ReadOnlyOrder {
+
+        private int id;
+
+        private List<Line> lines = new ArrayList<Line>();
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public List<Line> getLines() {
+            return Collections.unmodifiableList(lines);
+        }
+
+        public void setLines(List<Line> lines) {
+            this.lines = lines;
+        }
+    }
+
+    public static class SortedOrder {
+
+        private int id;
+
+        private SortedSet<Line> lines;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public SortedSet<Line> getLines() {
+            return lines;
+        }
+
+        public void setLines(SortedSet<Line> lines) {
+            this.lines = lines;
+        }
+    }
+
+    public static class WriteOnlyOrder {
+
+        private int id;
+
+        private SortedSet<Line> lines;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public void setLines(SortedSet<Line> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + lines;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.MockResultSetMetaData;
+import org.apache.commons.dbutils.ProxyFactory;
+
+/**
+ * ColumnarHandlerTest
+ */
+public class ColumnarHandlerTest extends TestCase {
+
+    private static final String[] COLUMNS = {"id", "total", "score", "region", "at"};
+
+    private static final Timestamp AT = new Timestamp(0);
+
+    private static ColumnarBatch handle(Object[][] rows) throws SQLException {
+        return new ColumnarHandler().handle(MockResultSet.create(COLUMNS, rows));
+    }
+
+    public void testTypes() throws SQLException {
+        ColumnarBatch batch = handle(new Object[][] {
+            {Integer.valueOf(1), Long.valueOf(10), Double.valueOf(1.5), "north", AT},
+        });
+        assertEquals(1, batch.getRowCount());
+        assertEquals(5, batch.getColumnCount());
+        assertEquals(ColumnarBatch.Type.INT, batch.getColumn("ID").getType());
+        assertEquals(ColumnarBatch.Type.LONG, batch.getColumn(1).getType());
+        assertEquals(ColumnarBatch.Type.DOUBLE, batch.getColumn("score").getType());
+        assertEquals(ColumnarBatch.Type.STRING, batch.getColumn("region").getType());
+        assertEquals(ColumnarBatch.Type.OBJECT, batch.getColumn("at").getType());
+        assertNull(batch.getColumn("missing"));
+
+        assertEquals(1, batch.getColumn("id").getInt(0));
+        assertEquals(1L, batch.getColumn("id").getLong(0));
+        assertEquals(10L, batch.getColumn("total").getLong(0));
+        assertEquals(1.5, batch.getColumn("score").getDouble(0), 0);
+        assertEquals("north", batch.getColumn("region").getString(0));
+        assertEquals(AT, batch.getColumn("at").getObject(0));
+        try {
+            batch.getColumn("region").getInt(0);
+            fail("region is stored as STRING");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testNullBitmap() throws SQLException {
+        ColumnarBatch batch = handle(new Object[][] {
+            {Integer.valueOf(1), Long.valueOf(10), Double.valueOf(1.5), "north", AT},
+            {null, null, null, null, null},
+            {Integer.valueOf(3), Long.valueOf(30), Double.valueOf(3.5), "south", null},
+        });
+
+        ColumnarBatch.Column id = batch.getColumn("id");
+        assertFalse(id.isNull(0));
+        assertTrue(id.isNull(1));
+        assertFalse(id.isNull(2));
+        assertEquals(0, id.getInt(1));
+        assertNull(id.getObject(1));
+        assertEquals(Integer.valueOf(3), id.getObject(2));
+        assertEquals(0, ((int[]) id.getChunk(0))[1]);
+        long[] nulls = id.getNulls(0);
+        assertEquals(1L << 1, nulls[0]);
+
+        assertTrue(batch.getColumn("total").isNull(1));
+        assertEquals(0.0, batch.getColumn("score").getDouble(1), 0);
+        assertTrue(batch.getColumn("score").isNull(1));
+        assertTrue(batch.getColumn("at").isNull(2));
+    }
+
+    public void testDictionaryStrings() throws SQLException {
+        ColumnarBatch batch = handle(new Object[][] {
+            {Integer.valueOf(1), Long.valueOf(1), Double.valueOf(1), "north", AT},
+            {Integer.valueOf(2), Long.valueOf(2), Double.valueOf(2), "south", AT},
+            {Integer.valueOf(3), Long.valueOf(3), Double.valueOf(3), null, AT},
+            {Integer.valueOf(4), Long.valueOf(4), Double.valueOf(4), "north", AT},
+        });
+
+        ColumnarBatch.Column region = batch.getColumn("region");
+        assertEquals("[north, south]", Arrays.toString(region.getDictionary()));
+        assertEquals(0, region.getCode(0));
+        assertEquals(1, region.getCode(1));
+        assertEquals(-1, region.getCode(2));
+        assertEquals(0, region.getCode(3));
+        assertTrue(region.isNull(2));
+        assertNull(region.getString(2));
+        assertEquals("north", region.getString(3));
+        assertEquals(0, ((int[]) region.getChunk(0))[3]);
+
+        // the dictionary is a copy
+        region.getDictionary()[0] = "changed";
+        assertEquals("north", region.getString(0));
+    }
+
+    public void testChunks() throws SQLException {
+        int count = ColumnarBatch.CHUNK_SIZE + 10;
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            Integer id = (i == ColumnarBatch.CHUNK_SIZE + 1) ? null : Integer.valueOf(i);
+            rows[i] = new Object[] {id, Long.valueOf(i), Double.valueOf(i), "r" + (i % 3), AT};
+        }
+        ColumnarBatch batch = handle(rows);
+
+        assertEquals(count, batch.getRowCount());
+        assertEquals(2, batch.getChunkCount());
+        assertEquals(ColumnarBatch.CHUNK_SIZE, batch.getChunkLength(0));
+        assertEquals(10, batch.getChunkLength(1));
+
+        ColumnarBatch.Column id = batch.getColumn("id");
+        assertNull(id.getNulls(0));
+        assertEquals(1L << 1, id.getNulls(1)[0]);
+        assertTrue(id.isNull(ColumnarBatch.CHUNK_SIZE + 1));
+        assertEquals(ColumnarBatch.CHUNK_SIZE + 2, id.getInt(ColumnarBatch.CHUNK_SIZE + 2));
+        assertEquals(3, batch.getColumn("region").getDictionary().length);
+
+        long sum = 0;
+        ColumnarBatch.Column total = batch.getColumn("total");
+        for (int c = 0; c < batch.getChunkCount(); c++) {
+            long[] values = (long[]) total.getChunk(c);
+            for (int i = 0; i < batch.getChunkLength(c); i++) {
+                sum += values[i];
+            }
+        }
+        assertEquals((long) count * (count - 1) / 2, sum);
+    }
+
+    public void testUnsigned() throws SQLException {
+        final ResultSetMetaData signed = MockResultSetMetaData.create(new String[] {"i", "b"},
+            new Object[] {Integer.valueOf(1), Long.valueOf(1)});
+        ResultSetMetaData unsigned = ProxyFactory.instance().createResultSetMetaData(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("isSigned")) {
+                    return Boolean.FALSE;
+                }
+                return method.invoke(signed, args);
+            }
+        });
+
+        assertEquals(ColumnarBatch.Type.INT, ColumnarBatch.typeOf(signed, 1));
+        assertEquals(ColumnarBatch.Type.LONG, ColumnarBatch.typeOf(signed, 2));
+        assertEquals(ColumnarBatch.Type.LONG, ColumnarBatch.typeOf(unsigned, 1));
+        assertEquals(ColumnarBatch.Type.OBJECT, ColumnarBatch.typeOf(unsigned, 2));
+    }
+
+    public void testEmpty() throws SQLException {
+        ResultSet rs = MockResultSet.create(COLUMNS, new Object[0][]);
+        ColumnarBatch batch = new ColumnarHandler().handle(rs);
+        assertEquals(0, batch.getRowCount());
+        assertEquals(0, batch.getChunkCount());
+        assertEquals(5, batch.getColumnCount());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import org.apache.commons.dbutils.ProxyFactory;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Compares the heap kept and the garbage collection caused by
+ * <code>ArrayListHandler</code> and <code>OffHeapHandler</code> for the same
+ * rows.  Not a unit test; run it by hand with a fixed heap:
+ * <pre>
+ * java -Xmx1g -cp target/classes:target/test-classes org.apache.commons.dbutils.handlers.OffHeapBenchmark [rows]
+ * </pre>
+ * The rows are generated as they are read, so the heap holds nothing but
+ * what the handler keeps.  For each handler the result is built and every
+ * row read once; reported are the heap retained by the result, the direct
+ * memory in use, and the collections and collection time spent.
+ */
+public class OffHeapBenchmark {
+
+    private static final int COLUMNS = 8;
+
+    private static ResultSet rows(final int count) {
+        final ResultSetMetaData md = ProxyFactory.instance().createResultSetMetaData(new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("getColumnCount")) {
+                    return Integer.valueOf(COLUMNS);
+                } else if (name.equals("getColumnLabel") || name.equals("getColumnName")) {
+                    return "column" + args[0];
+                } else if (name.equals("getColumnType")) {
+                    return Integer.valueOf((((Integer) args[0]).intValue() % 2 == 0) ? Types.VARCHAR : Types.BIGINT);
+                } else if (name.equals("isSigned")) {
+                    return Boolean.TRUE;
+                }
+                return Integer.valueOf(0);
+            }
+        });
+        return ProxyFactory.instance().createResultSet(new InvocationHandler() {
+            private int row = 0;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("next")) {
+                    return Boolean.valueOf(++row <= count);
+                } else if (name.equals("getMetaData")) {
+                    return md;
+                } else if (name.equals("getObject")) {
+                    int column = ((Integer) args[0]).intValue();
+                    return (column % 2 == 0) ? (Object) ("value " + row + "/" + column) : Long.valueOf(row * column);
+                }
+                return null;
+            }
+        });
+    }
+
+    private static long heapUsed() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directUsed() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            used += pool.getMemoryUsed();
+        }
+        return used;
+    }
+
+    private static long[] collections() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += gc.getCollectionCount();
+            totals[1] += gc.getCollectionTime();
+        }
+        return totals;
+    }
+
+    private static void run(String label, ResultSetHandler<? extends List<Object[]>> handler, int count)
+            throws SQLException, IOException {
+        long heapBefore = heapUsed();
+        long directBefore = directUsed();
+        long[] gcBefore = collections();
+        long start = System.nanoTime();
+
+        List<Object[]> result = handler.handle(rows(count));
+        long checksum = 0;
+        for (Object[] row : result) {
+            checksum += ((Long) row[0]).longValue();
+        }
+
+        long millis = (System.nanoTime() - start) / 1000000;
+        long[] gcAfter = collections();
+        long retained = heapUsed() - heapBefore;
+        long direct = directUsed() - directBefore;
+        System.out.println(label + ": " + millis + " ms, heap retained " + (retained >> 20) + " MiB, direct "
+            + (direct >> 20) + " MiB, " + (gcAfter[0] - gcBefore[0]) + " collections, "
+            + (gcAfter[1] - gcBefore[1]) + " ms in GC (checksum " + checksum + ")");
+        if (result instanceof Closeable) {
+            ((Closeable) result).close();
+            System.out.println(label + ": direct after close " + ((directUsed() - directBefore) >> 20) + " MiB");
+        }
+        result = null;
+    }
+
+    public static void main(String[] args) throws SQLException, IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        for (int i = 0; i < 2; i++) {
+            run("ArrayListHandler", new ArrayListHandler(), count);
+            run("OffHeapHandler", new OffHeapHandler(1L << 30, null), count);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.dbutils.handlers;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockResultSet;
+
+/**
+ * OffHeapRowsTest
+ */
+public class OffHeapRowsTest extends TestCase {
+
+    private static final String[] COLUMNS = {"id", "score", "name", "total", "at"};
+
+    private static final Timestamp AT = new Timestamp(1000);
+
+    private static ResultSet results(Object[][] rows) {
+        return MockResultSet.create(COLUMNS, rows);
+    }
+
+    public void testRoundTrip() throws SQLException, IOException {
+        OffHeapRows rows = new OffHeapHandler().handle(results(new Object[][] {
+            {Integer.valueOf(1), Double.valueOf(1.5), "a", new BigDecimal("12.30"), AT},
+            {Integer.valueOf(2), null, null, null, null},
+        }));
+        try {
+            assertEquals(2, rows.size());
+            assertTrue(Arrays.equals(COLUMNS, rows.getColumnNames()));
+            assertTrue(Arrays.equals(
+                new Object[] {Integer.valueOf(1), Double.valueOf(1.5), "a", new BigDecimal("12.30"), AT},
+                rows.get(0)));
+            assertTrue(Arrays.equals(new Object[] {Integer.valueOf(2), null, null, null, null}, rows.get(1)));
+            assertEquals("a", rows.getMap(0).get("NAME"));
+            assertTrue(rows.getDirectBytes() > 0);
+            assertEquals(0, rows.getMappedBytes());
+        } finally {
+            rows.close();
+        }
+    }
+
+    public void testCloseFreesMemory() throws SQLException, IOException {
+        OffHeapRows rows = new OffHeapHandler().handle(results(new Object[][] {
+            {Integer.valueOf(1), Double.valueOf(1.5), "a", null, AT},
+        }));
+        Object[] first = rows.get(0);
+        rows.close();
+        assertEquals(0, rows.size());
+        assertEquals(0, rows.getDirectBytes());
+        assertEquals("a", first[2]);
+        try {
+            rows.get(0);
+            fail("closed rows are empty");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        rows.close();
+    }
+
+    public void testSpill() throws SQLException, IOException {
+        File dir = File.createTempFile("offheap", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        try {
+            OffHeapRows rows = new OffHeapHandler(0, dir).handle(results(new Object[][] {
+                {Integer.valueOf(1), Double.valueOf(1.5), "a", null, AT},
+                {Integer.valueOf(2), Double.valueOf(2.5), "b", null, AT},
+            }));
+            assertEquals(0, rows.getDirectBytes());
+            assertTrue(rows.getMappedBytes() > 0);
+            assertEquals(1, dir.list().length);
+            assertEquals("b", rows.get(1)[2]);
+            rows.close();
+            assertEquals(0, dir.list().length);
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    public void testResultSet() throws SQLException, IOException {
+        OffHeapRows rows = new OffHeapHandler().handle(results(new Object[][] {
+            {Integer.valueOf(1), Double.valueOf(1.5), "7", new BigDecimal("12.30"), AT},
+            {Integer.valueOf(2), null, null, null, null},
+        }));
+        try {
+            ResultSet rs = rows.resultSet(0, rows.size());
+            assertTrue(rs.next());
+            assertEquals(1L, rs.getLong("id"));
+            assertEquals(1.5, rs.getDouble("score"), 0);
+            assertEquals(7, rs.getInt("name"));
+            assertEquals(new BigDecimal("12.30"), rs.getBigDecimal(4));
+            assertEquals(12, rs.getInt(4));
+            assertEquals(AT, rs.getTimestamp("at"));
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt("score"));
+            assertTrue(rs.wasNull());
+            assertNull(rs.getBigDecimal("total"));
+            assertFalse(rs.next());
+        } finally {
+            rows.close();
+        }
+    }
+
+    public void testNotFinite() throws SQLException, IOException {
+        OffHeapRows rows = new OffHeapHandler().handle(results(new Object[][] {
+            {Integer.valueOf(1), Double.valueOf(Double.NaN), "NaN", null, null},
+            {Integer.valueOf(2), Double.valueOf(Double.POSITIVE_INFINITY), "-Infinity", null, null},
+        }));
+        try {
+            ResultSet rs = rows.resultSet(0, rows.size());
+            assertTrue(rs.next());
+            assertTrue(Double.isNaN(rs.getDouble("score")));
+            assertTrue(Float.isNaN(rs.getFloat("score")));
+            assertTrue(Double.isNaN(rs.getDouble("name")));
+            try {
+                rs.getBigDecimal("score");
+                fail("NaN is not a BigDecimal");
+            } catch (SQLException e) {
+                // expected
+            }
+            try {
+                rs.getInt("score");
+                fail("NaN is not an int");
+            } catch (SQLException e) {
+                // expected
+            }
+            assertTrue(rs.next());
+            assertEquals(Double.POSITIVE_INFINITY, rs.getDouble("score"), 0);
+            assertEquals(Float.NEGATIVE_INFINITY, rs.getFloat("name"), 0);
+            try {
+                rs.getLong("score");
+                fail("Infinity is not a long");
+            } catch (SQLException e) {
+                // expected
+            }
+        } finally {
+            rows.close();
+        }
+    }
+}
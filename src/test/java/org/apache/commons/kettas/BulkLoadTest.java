@@ -0,0 +1,77 @@
+package org.apache.commons.kettas;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockConnection;
+
+/**
+ * H2下的bulkLoad:按BULK_BATCH_SIZE分批insert,出错时只报告批次和行号。
+ * 离线环境没有H2驱动,用MockConnection模拟产品名为H2的连接。
+ *
+ * @author kettas
+ */
+public class BulkLoadTest extends TestCase {
+	private static final String[] COLUMNS = { "id", "name" };
+
+	private Connection conn;
+
+	private JDBCPaginRunner runner;
+
+	@Override
+	protected void setUp() throws Exception {
+		Dialect.clear();
+		conn = MockConnection.create("H2", 1, null);
+		runner = new JDBCPaginRunner(true);
+	}
+
+	private static Object[][] rows(int n) {
+		Object[][] rows = new Object[n][];
+		for (int i = 0; i < n; i++) {
+			rows[i] = new Object[] { Integer.valueOf(i + 1), "secret-" + (i + 1) };
+		}
+		return rows;
+	}
+
+	public void testDialect() throws SQLException {
+		assertSame(Dialect.H2, Dialect.of(conn));
+		assertEquals("select id from t order by id limit 10 offset 20",
+				Dialect.H2.limitSql("select id from t order by id", 20, 10));
+	}
+
+	public void testBatches() throws SQLException {
+		assertEquals(2500, runner.bulkLoad(conn, "t", COLUMNS, rows(2500)));
+		List<String> executed = MockConnection.of(conn).getExecuted();
+		assertEquals(3, executed.size());
+		assertEquals("insert into t (id, name) values (?, ?) x1000", executed.get(0));
+		assertEquals("insert into t (id, name) values (?, ?) x1000", executed.get(1));
+		assertEquals("insert into t (id, name) values (?, ?) x500", executed.get(2));
+	}
+
+	public void testFailingBatchReportsRange() {
+		MockConnection.of(conn).setFailingBatch(2);
+		try {
+			runner.bulkLoad(conn, "t", COLUMNS, rows(2500));
+			fail("批处理出错应抛出SQLException");
+		} catch (SQLException e) {
+			String message = e.getMessage();
+			assertTrue(message, message.indexOf("第2批") > -1);
+			assertTrue(message, message.indexOf("第1001-2000行") > -1);
+			assertTrue(message, message.indexOf("共2500行") > -1);
+			assertTrue(message, message.indexOf("secret-") < 0);
+		}
+	}
+
+	public void testFailingLastBatch() {
+		MockConnection.of(conn).setFailingBatch(3);
+		try {
+			runner.bulkLoad(conn, "t", COLUMNS, rows(2500));
+			fail("批处理出错应抛出SQLException");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("第3批,第2001-2500行") > -1);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package org.apache.commons.kettas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockConnection;
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.dbutils.ProxyFactory;
+import org.apache.commons.dbutils.handlers.MapListHandler;
+
+/**
+ * 并发分页:统计总数或当前页出错时异常传给调用者,连接都归还
+ *
+ * @author kettas
+ */
+public class ConcurrentPaginTest extends TestCase {
+	private static final String QUERY = "select id, name from t";
+
+	/** 统计总数时抛出的异常,为null时返回总数 */
+	private volatile Exception countError;
+
+	/** 查询当前页时抛出的异常,为null时返回数据 */
+	private volatile SQLException pageError;
+
+	private final List<Connection> connections = new ArrayList<Connection>();
+
+	private DataSource dataSource;
+
+	private JDBCPaginRunner runner;
+
+	@Override
+	protected void setUp() throws Exception {
+		Dialect.clear();
+		final MockConnection.Responder responder = new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) throws SQLException {
+				if (sql.startsWith("select count(*)")) {
+					if (countError instanceof SQLException) {
+						throw (SQLException) countError;
+					} else if (countError != null) {
+						throw (RuntimeException) countError;
+					}
+					return MockResultSet.create(new String[] { "c" }, new Object[][] { { 25 } });
+				}
+				if (pageError != null) {
+					throw pageError;
+				}
+				return MockResultSet.create(new String[] { "id", "name" }, new Object[][] { { 1, "a" }, { 2, "b" } });
+			}
+		};
+		dataSource = ProxyFactory.instance().newProxyInstance(DataSource.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getConnection")) {
+					Connection conn = MockConnection.create("H2", 1, responder);
+					synchronized (connections) {
+						connections.add(conn);
+					}
+					return conn;
+				}
+				if (method.getName().equals("hashCode")) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				}
+				if (method.getName().equals("equals")) {
+					return Boolean.valueOf(proxy == args[0]);
+				}
+				return null;
+			}
+		});
+		runner = new JDBCPaginRunner(dataSource);
+	}
+
+	private Pagin pagin() throws SQLException {
+		return runner.pagin(null, QUERY, null, new MapListHandler(), null, 1, 2);
+	}
+
+	/**
+	 * 统计任务在其他线程中归还连接,等待最多一秒;expected为0时不检查取过的连接数
+	 * (当前页出错时统计任务可能在取连接之前就被取消)
+	 */
+	private void assertConnectionsClosed(int expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 1000;
+		while (true) {
+			int open = 0;
+			synchronized (connections) {
+				if (expected > 0) {
+					assertEquals(expected, connections.size());
+				}
+				for (Connection conn : connections) {
+					if (!conn.isClosed()) {
+						open++;
+					}
+				}
+			}
+			if (open == 0) {
+				return;
+			}
+			if (System.currentTimeMillis() > deadline) {
+				fail(open + "个连接没有归还");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	public void testCounted() throws Exception {
+		Pagin page = pagin();
+		assertEquals(2, page.getRows().size());
+		assertEquals(25, page.getTotalRows());
+		assertTrue(page.isNextPage());
+		assertConnectionsClosed(2);
+	}
+
+	public void testCountSQLException() throws Exception {
+		countError = new SQLException("count failed", "42000", 17);
+		try {
+			pagin();
+			fail("统计总数出错应抛出SQLException");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("count failed Query: select count(*) from t"));
+			assertEquals("42000", e.getSQLState());
+			assertEquals(17, e.getErrorCode());
+			assertSame(countError, e.getNextException());
+		}
+		assertConnectionsClosed(2);
+	}
+
+	public void testCountRuntimeException() throws Exception {
+		countError = new IllegalStateException("count broken");
+		try {
+			pagin();
+			fail("统计总数出错应抛出SQLException");
+		} catch (SQLException e) {
+			assertSame(countError, e.getCause());
+			assertTrue(e.getMessage(), e.getMessage().indexOf("count broken") >= 0);
+		}
+		assertConnectionsClosed(2);
+	}
+
+	public void testPageSQLException() throws Exception {
+		pageError = new SQLException("page failed");
+		try {
+			pagin();
+			fail("查询当前页出错应抛出SQLException");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("page failed Query: "));
+			assertSame(pageError, e.getNextException());
+		}
+		assertConnectionsClosed(0);
+	}
+}
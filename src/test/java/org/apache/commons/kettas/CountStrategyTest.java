@@ -0,0 +1,133 @@
+package org.apache.commons.kettas;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockConnection;
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.dbutils.handlers.MapListHandler;
+
+/**
+ * 统计总数的策略:缓存的键和总数的来源、Oracle估算后删除plan_table中的行
+ *
+ * @author kettas
+ */
+public class CountStrategyTest extends TestCase {
+	private static final String QUERY = "select id, name from t where a in (?)";
+
+	private static final String COUNT = "select count(*) from t where a in (?)";
+
+	/** 查询plan_table时抛出的异常,为null时返回估算的行数 */
+	private SQLException planError;
+
+	private Connection oracle;
+
+	private JDBCPaginRunner runner;
+
+	@Override
+	protected void setUp() throws Exception {
+		Dialect.clear();
+		oracle = MockConnection.create("Oracle", 11, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) throws SQLException {
+				if (sql.startsWith("select cardinality")) {
+					if (planError != null) {
+						throw planError;
+					}
+					return MockResultSet.create(new String[] { "cardinality" }, new Object[][] { { 40L } });
+				}
+				if (sql.startsWith("select count(*)")) {
+					return MockResultSet.create(new String[] { "c" }, new Object[][] { { 25 } });
+				}
+				return MockResultSet.create(new String[] { "id", "name" }, new Object[][] { { 1, "a" }, { 2, "b" } });
+			}
+		});
+		runner = new JDBCPaginRunner(true);
+	}
+
+	private List<String> executed() {
+		return MockConnection.of(oracle).getExecuted();
+	}
+
+	private int counts() {
+		int counts = 0;
+		for (String sql : executed()) {
+			if (sql.startsWith("select count(*)")) {
+				counts++;
+			}
+		}
+		return counts;
+	}
+
+	private Pagin pagin(Object... params) throws SQLException {
+		return runner.pagin(oracle, COUNT, QUERY, params, new MapListHandler(), null, 1, 2);
+	}
+
+	public void testEstimateDeletesPlan() throws SQLException {
+		assertEquals(40, SQLVersion.estimateRows(oracle, runner, QUERY, new Object[] { "x" }));
+		String last = executed().get(executed().size() - 1);
+		assertTrue(last, last.startsWith("delete from plan_table where statement_id = ? [kettas_"));
+	}
+
+	public void testFailedEstimateDeletesPlan() {
+		planError = new SQLException("no plan_table");
+		try {
+			SQLVersion.estimateRows(oracle, runner, QUERY, new Object[] { "x" });
+			fail("查询plan_table出错应抛出SQLException");
+		} catch (SQLException e) {
+			assertSame(planError, e);
+		}
+		String last = executed().get(executed().size() - 1);
+		assertTrue(last, last.startsWith("delete from plan_table where statement_id = ? [kettas_"));
+	}
+
+	public void testCachedTotal() throws SQLException {
+		CountStrategy.Cached cached = CountStrategy.cached(60 * 1000L, 10);
+		runner.setCountStrategy(cached);
+		Pagin miss = pagin("x");
+		assertEquals(25, miss.getTotalRows());
+		assertEquals(Pagin.Total.EXACT, miss.getTotal());
+		Pagin hit = pagin("x");
+		assertEquals(25, hit.getTotalRows());
+		assertEquals(Pagin.Total.CACHED, hit.getTotal());
+		assertEquals(1, counts());
+		assertEquals(1, cached.getHits());
+		assertEquals(1, cached.getMisses());
+	}
+
+	public void testCachedEstimate() throws SQLException {
+		runner.setCountStrategy(CountStrategy.cached(CountStrategy.ESTIMATE, 60 * 1000L, 10));
+		Pagin miss = pagin("x");
+		assertEquals(40, miss.getTotalRows());
+		assertEquals(Pagin.Total.ESTIMATED, miss.getTotal());
+		assertEquals(Pagin.Total.CACHED, pagin("x").getTotal());
+		assertEquals(0, counts());
+	}
+
+	public void testCachedArrayParams() throws SQLException {
+		CountStrategy.Cached cached = CountStrategy.cached(60 * 1000L, 10);
+		runner.setCountStrategy(cached);
+		int[] ids = { 1, 2 };
+		pagin(ids, new Object[] { "a", new long[] { 3 } });
+		assertEquals(Pagin.Total.CACHED,
+				pagin(new int[] { 1, 2 }, new Object[] { "a", new long[] { 3 } }).getTotal());
+		ids[1] = 5;
+		assertEquals(Pagin.Total.EXACT, pagin(ids, new Object[] { "a", new long[] { 3 } }).getTotal());
+		assertEquals(Pagin.Total.EXACT, pagin(new int[] { 1, 2 }, new Object[] { "a", new long[] { 4 } }).getTotal());
+		assertEquals(1, cached.getHits());
+		assertEquals(3, counts());
+	}
+
+	public void testCachedNeedsCount() {
+		try {
+			CountStrategy.cached(CountStrategy.HAS_MORE, 60 * 1000L, 10);
+			fail("HAS_MORE不统计总数,不能缓存");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package org.apache.commons.kettas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.MockConnection;
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.ProxyFactory;
+
+/**
+ * 方言识别:按数据源缓存、按连接识别和设置的方言,DbUtils按数据源识别一次
+ *
+ * @author kettas
+ */
+public class DialectTest extends TestCase {
+	private int connections;
+
+	/** 数据源取得的连接,按取得的顺序 */
+	private final List<Connection> opened = new ArrayList<Connection>();
+
+	private static final MockConnection.Responder ROWS = new MockConnection.Responder() {
+		public ResultSet respond(String sql, List<Object> params) throws SQLException {
+			if (sql.startsWith("select cardinality")) {
+				return MockResultSet.create(new String[] { "cardinality" }, new Object[][] { { 7L } });
+			}
+			return MockResultSet.create(new String[] { "id" }, new Object[][] { { 1 } });
+		}
+	};
+
+	@Override
+	protected void setUp() throws Exception {
+		Dialect.clear();
+		connections = 0;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		new DbUtils().refresh();
+	}
+
+	/**
+	 * 依次返回各数据库产品的连接,最后一个重复使用
+	 */
+	private DataSource products(final String... productNames) {
+		return ProxyFactory.instance().newProxyInstance(DataSource.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getConnection")) {
+					Connection conn = MockConnection.create(
+							productNames[Math.min(connections++, productNames.length - 1)], 5, ROWS);
+					opened.add(conn);
+					return conn;
+				}
+				if (method.getName().equals("hashCode")) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				}
+				if (method.getName().equals("equals")) {
+					return Boolean.valueOf(proxy == args[0]);
+				}
+				return null;
+			}
+		});
+	}
+
+	private String executed(int connection) {
+		return MockConnection.of(opened.get(connection)).getExecuted().get(0);
+	}
+
+	private DataSource dataSource(final String productName, final int majorVersion) {
+		return ProxyFactory.instance().newProxyInstance(DataSource.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getConnection")) {
+					connections++;
+					return MockConnection.create(productName, majorVersion, null);
+				}
+				if (method.getName().equals("hashCode")) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				}
+				if (method.getName().equals("equals")) {
+					return Boolean.valueOf(proxy == args[0]);
+				}
+				return null;
+			}
+		});
+	}
+
+	public void testProducts() throws SQLException {
+		assertSame(Dialect.H2, Dialect.of(MockConnection.create("H2", 1, null)));
+		assertSame(Dialect.POSTGRESQL, Dialect.of(MockConnection.create("PostgreSQL", 9, null)));
+		assertSame(Dialect.SQLSERVER_2012, Dialect.of(MockConnection.create("Microsoft SQL Server", 11, null)));
+		assertSame(Dialect.SQLSERVER_2005, Dialect.of(MockConnection.create("Microsoft SQL Server", 9, null)));
+		try {
+			Dialect.of(MockConnection.create("Unknown", 1, null));
+			fail("不明类型应抛出SQLException");
+		} catch (SQLException e) {
+			// expected
+		}
+	}
+
+	public void testDataSource() throws SQLException {
+		DataSource ds = dataSource("H2", 1);
+		JDBCPaginRunner runner = new JDBCPaginRunner(ds);
+		Connection conn = ds.getConnection();
+		assertSame(Dialect.H2, runner.dialect(conn));
+		// 已按数据源识别,后面的连接不再识别
+		assertSame(Dialect.H2, runner.dialect(MockConnection.create("PostgreSQL", 9, null)));
+		assertSame(Dialect.H2, Dialect.of(ds));
+		assertEquals(1, connections);
+	}
+
+	public void testConnection() throws SQLException {
+		JDBCPaginRunner runner = new JDBCPaginRunner(true);
+		assertSame(Dialect.H2, runner.dialect(MockConnection.create("H2", 1, null)));
+		assertSame(Dialect.POSTGRESQL, runner.dialect(MockConnection.create("PostgreSQL", 9, null)));
+	}
+
+	public void testSetDialect() throws SQLException {
+		JDBCPaginRunner runner = new JDBCPaginRunner(dataSource("H2", 1));
+		runner.setDialect(Dialect.DB2);
+		assertSame(Dialect.DB2, runner.dialect(MockConnection.create("H2", 1, null)));
+		assertEquals(0, connections);
+	}
+
+	public void testDbUtilsOncePerDataSource() throws SQLException {
+		// 第一个连接识别为MySql后,同一数据源的连接不再识别
+		DataSource mysql = products("MySQL", "Oracle");
+		new DbUtils(mysql).queryToMapList("select id from t", null, 0, 10);
+		new DbUtils(mysql).queryToMapList("select id from t", null, 0, 10);
+		assertEquals(2, connections);
+		assertEquals("select id from t limit 10 []", executed(0));
+		assertEquals("select id from t limit 10 []", executed(1));
+		assertSame(Dialect.MYSQL, Dialect.of(mysql));
+
+		// 换数据源后重新识别
+		new DbUtils(products("Oracle")).queryToMapList("select id from t", null, 0, 10);
+		assertTrue(executed(2), executed(2).indexOf("rownum") > 0);
+	}
+
+	public void testDbUtilsRefresh() throws SQLException {
+		DataSource mysql = products("MySQL");
+		new DbUtils(mysql).queryToMapList("select id from t", null, 0, 10);
+		new DbUtils().refresh();
+		Dialect.clear();
+		connections = 0;
+		opened.clear();
+		DataSource oracle = products("Oracle");
+		new DbUtils(oracle).queryToMapList("select id from t", null, 0, 10);
+		assertTrue(executed(0), executed(0).indexOf("rownum") > 0);
+	}
+
+	public void testEstimateUsesRunnerDialect() throws SQLException {
+		JDBCPaginRunner runner = new JDBCPaginRunner(true);
+		runner.setDialect(Dialect.ORACLE);
+		Connection conn = MockConnection.create("MySQL", 5, ROWS);
+		assertEquals(7, SQLVersion.estimateRows(conn, runner, "select id from t", null));
+		List<String> executed = MockConnection.of(conn).getExecuted();
+		assertTrue(executed.toString(), executed.get(executed.size() - 1).startsWith("delete from plan_table"));
+	}
+}
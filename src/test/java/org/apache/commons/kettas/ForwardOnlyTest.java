@@ -0,0 +1,74 @@
+package org.apache.commons.kettas;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockConnection;
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.handlers.MapListHandler;
+
+/**
+ * 只向前的分页游标:判断是否有数据时已读的第一行不能丢失
+ *
+ * @author kettas
+ */
+public class ForwardOnlyTest extends TestCase {
+	private static final String[] LABELS = { "id", "name" };
+
+	private Object[][] rows;
+
+	private Connection conn;
+
+	private JDBCPaginRunner runner;
+
+	@Override
+	protected void setUp() throws Exception {
+		rows = new Object[][] { { 1, "a" }, { 2, "b" }, { 3, "c" } };
+		conn = MockConnection.create("H2", 1, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) throws SQLException {
+				return MockResultSet.create(LABELS, rows);
+			}
+		});
+		runner = new JDBCPaginRunner(true);
+	}
+
+	private static void assertIds(List<Map<String, Object>> page, int... ids) {
+		assertEquals(ids.length, page.size());
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(Integer.valueOf(ids[i]), page.get(i).get("id"));
+		}
+	}
+
+	public void testMysqlKeepsFirstRow() throws SQLException {
+		assertIds(runner.limitMysql(conn, "select id, name from t", null, new MapListHandler(), 0, 3), 1, 2, 3);
+		assertEquals(ResultSet.TYPE_FORWARD_ONLY, MockConnection.of(conn).getResultSetType());
+		assertEquals(0, MockConnection.of(conn).getFetchSize());
+		runner.limitMysql(conn, "select id, name from t", null, new MapListHandler(), 0, 5000);
+		assertEquals(Integer.MIN_VALUE, MockConnection.of(conn).getFetchSize());
+	}
+
+	public void testOracleKeepsFirstRow() throws SQLException {
+		assertIds(runner.limitOracle(conn, "select id, name from t", null, new MapListHandler(), 20, 40), 1, 2, 3);
+		assertEquals(ResultSet.TYPE_FORWARD_ONLY, MockConnection.of(conn).getResultSetType());
+		assertEquals(20, MockConnection.of(conn).getFetchSize());
+	}
+
+	public void testMSsqlSkipsForward() throws SQLException {
+		assertIds(runner.limitMSsql(conn, "select id, name from t", null, new MapListHandler(), 0, 3), 1, 2, 3);
+		assertIds(runner.limitMSsql(conn, "select id, name from t", null, new MapListHandler(), 1, 3), 2, 3);
+		assertIds(runner.limitMSsql(conn, "select id, name from t", null, new MapListHandler(), 2, 3), 3);
+		assertEquals(ResultSet.TYPE_FORWARD_ONLY, MockConnection.of(conn).getResultSetType());
+	}
+
+	public void testEmpty() throws SQLException {
+		rows = new Object[0][];
+		assertNull(runner.limitMysql(conn, "select id, name from t", null, new MapListHandler(), 0, 3));
+		assertNull(runner.limitOracle(conn, "select id, name from t", null, new MapListHandler(), 0, 3));
+		assertNull(runner.limitMSsql(conn, "select id, name from t", null, new MapListHandler(), 0, 3));
+	}
+}
@@ -0,0 +1,138 @@
+package org.apache.commons.kettas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.kettas.LobPolicy.LazyLob;
+import org.apache.commons.kettas.LobPolicy.SpilledLob;
+
+/**
+ * Clob/Blob读取策略:EAGER、LAZY、SPILL、STREAM
+ *
+ * @author kettas
+ */
+public class LobPolicyTest extends TestCase {
+	private static final String TEXT = "hello lob";
+
+	private static final byte[] BYTES = { 1, 2, 3, 4, 5, 6 };
+
+	private static SerialClob clob() throws SQLException {
+		return new SerialClob(TEXT.toCharArray());
+	}
+
+	private static SerialBlob blob() throws SQLException {
+		return new SerialBlob(BYTES);
+	}
+
+	public void testEager() throws SQLException {
+		assertEquals(TEXT, LobPolicy.DEFAULT.convert(clob(), "c"));
+		assertTrue(Arrays.equals(BYTES, (byte[]) LobPolicy.DEFAULT.convert(blob(), "b")));
+		assertEquals(Integer.valueOf(1), LobPolicy.DEFAULT.convert(Integer.valueOf(1), "n"));
+		assertNull(LobPolicy.DEFAULT.convert(null, "n"));
+		assertEquals(TEXT, LobPolicy.eager(TEXT.length()).convert(clob(), "c"));
+		try {
+			LobPolicy.eager(5).convert(clob(), "c");
+			fail("超过最大长度应抛出SQLException");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("c"));
+		}
+		try {
+			LobPolicy.eager(5).convert(blob(), "b");
+			fail("超过最大长度应抛出SQLException");
+		} catch (SQLException e) {
+			// expected
+		}
+	}
+
+	public void testLazy() throws SQLException {
+		LobPolicy lazy = LobPolicy.lazy();
+		LazyLob text = (LazyLob) lazy.convert(clob(), "c");
+		assertTrue(text.isCharacter());
+		assertEquals("<unread LOB: c>", text.toString());
+		assertEquals(TEXT, text.get());
+		assertEquals(TEXT, text.toString());
+
+		LazyLob bytes = (LazyLob) lazy.convert(blob(), "b");
+		assertFalse(bytes.isCharacter());
+		assertTrue(Arrays.equals(BYTES, (byte[]) bytes.get()));
+		assertEquals("byte[6]", bytes.toString());
+	}
+
+	public void testSpill() throws Exception {
+		LobPolicy spill = LobPolicy.spill(5, null);
+		assertEquals("abc", spill.convert(new SerialClob("abc".toCharArray()), "c"));
+
+		SpilledLob text = (SpilledLob) spill.convert(clob(), "c");
+		SpilledLob bytes = (SpilledLob) spill.convert(blob(), "b");
+		File file = text.getFile();
+		assertTrue(file.exists());
+		assertTrue(text.isCharacter());
+		assertEquals(TEXT.length(), text.length());
+		Reader reader = text.openReader();
+		char[] buf = new char[64];
+		int n = reader.read(buf);
+		reader.close();
+		assertEquals(TEXT, new String(buf, 0, n));
+		assertFalse(bytes.isCharacter());
+		assertEquals(BYTES.length, bytes.getFile().length());
+
+		List<Object> rows = new ArrayList<Object>();
+		rows.add(new Object[] { text, "x" });
+		rows.add(bytes);
+		LobPolicy.release(rows);
+		assertFalse(file.exists());
+		assertFalse(bytes.getFile().exists());
+		// 可以重复调用
+		text.close();
+
+		try {
+			LobPolicy.spill(-1, null);
+			fail("阀值不能小于0");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testStream() throws SQLException {
+		StringWriter writer = new StringWriter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LobPolicy stream = LobPolicy.stream(writer, out);
+		assertNull(stream.convert(clob(), "c"));
+		assertNull(stream.convert(blob(), "b"));
+		assertEquals(TEXT, writer.toString());
+		assertTrue(Arrays.equals(BYTES, out.toByteArray()));
+
+		// 没有writer时Clob立即读取
+		assertEquals(TEXT, LobPolicy.stream(null, out).convert(clob(), "c"));
+		assertEquals(LobPolicy.Mode.STREAM, stream.getMode());
+	}
+
+	public void testRowProcessor() throws SQLException {
+		ResultSet rs = MockResultSet.create(new String[] { "id", "body" },
+				new Object[][] { { Integer.valueOf(1), clob() } });
+		NoClobRowProcessor rp = new NoClobRowProcessor();
+		rp.setLobPolicy(LobPolicy.lazy());
+		assertTrue(rs.next());
+		Map<String, Object> row = rp.toMap(rs);
+		assertEquals(TEXT, ((LazyLob) row.get("BODY")).get());
+		assertEquals(Integer.valueOf(1), rp.toArray(rs)[0]);
+
+		rp.setLobPolicy(null);
+		assertSame(LobPolicy.DEFAULT, rp.getLobPolicy());
+		assertEquals(TEXT, rp.toArray(rs)[1]);
+	}
+}
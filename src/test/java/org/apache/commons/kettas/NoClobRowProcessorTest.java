@@ -0,0 +1,72 @@
+package org.apache.commons.kettas;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.rowset.serial.SerialClob;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.RowMap;
+
+/**
+ * NoClobRowProcessor:延迟解码、字段名大小写和每个ResultSet的字段名缓存
+ *
+ * @author kettas
+ */
+public class NoClobRowProcessorTest extends TestCase {
+	private static final String[] LABELS = { "id", "Body" };
+
+	private static ResultSet rs() throws SQLException {
+		return MockResultSet.create(LABELS, new Object[][] {
+				{ Integer.valueOf(1), new SerialClob("one".toCharArray()) },
+				{ Integer.valueOf(2), new SerialClob("two".toCharArray()) } });
+	}
+
+	public void testLazyDecoding() throws SQLException {
+		NoClobRowProcessor rp = new NoClobRowProcessor();
+		rp.setLazyDecoding(true);
+		ResultSet rs = rs();
+		assertTrue(rs.next());
+		RowMap row = (RowMap) rp.toMap(rs);
+		assertFalse(row.isDecoded("body"));
+		assertTrue(row.isDecoded("id"));
+		assertEquals("one", row.get("BODY"));
+		assertTrue(row.isDecoded("body"));
+	}
+
+	public void testEagerDecoding() throws SQLException {
+		NoClobRowProcessor rp = new NoClobRowProcessor();
+		ResultSet rs = rs();
+		assertTrue(rs.next());
+		RowMap row = (RowMap) rp.toMap(rs);
+		assertTrue(row.isDecoded("body"));
+		assertEquals("one", row.get("body"));
+	}
+
+	public void testKeyNameType() throws SQLException {
+		NoClobRowProcessor rp = new NoClobRowProcessor();
+		ResultSet rs = rs();
+		assertTrue(rs.next());
+		assertEquals("[id, Body]", rp.toMap(rs).keySet().toString());
+		rp.setKeyNameType(2);
+		assertEquals("[ID, BODY]", rp.toMap(rs).keySet().toString());
+		rp.setKeyNameType(1);
+		Map<String, Object> row = rp.toMap(rs);
+		assertEquals("[id, body]", row.keySet().toString());
+		assertEquals("one", row.get("BODY"));
+	}
+
+	public void testInterleavedResultSets() throws SQLException {
+		NoClobRowProcessor rp = new NoClobRowProcessor();
+		ResultSet first = rs();
+		ResultSet second = MockResultSet.create(new String[] { "name" },
+				new Object[][] { { "a" }, { "b" } });
+		while (first.next() && second.next()) {
+			assertEquals(first.getObject(1), rp.toMap(first).get("id"));
+			assertEquals(second.getObject(1), rp.toMap(second).get("name"));
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package org.apache.commons.kettas;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.MockConnection;
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.dbutils.handlers.MapListHandler;
+
+/**
+ * 分页缓存:第一次完整查询,之后从缓存文件取页
+ *
+ * @author kettas
+ */
+public class PaginCacheTest extends TestCase {
+	private static final String SQL = "select id, name from t where dept = ?";
+
+	private Connection conn;
+
+	private JDBCPaginRunner runner;
+
+	private PaginCache cache;
+
+	private volatile CountDownLatch release;
+
+	@Override
+	protected void setUp() throws Exception {
+		conn = MockConnection.create("H2", 1, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) throws SQLException {
+				if (release != null) {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new SQLException(e);
+					}
+				}
+				Object[][] rows = new Object[25][];
+				for (int i = 0; i < rows.length; i++) {
+					rows[i] = new Object[] { Integer.valueOf(i + 1), params.get(0) + "-" + (i + 1) };
+				}
+				return MockResultSet.create(new String[] { "id", "name" }, rows);
+			}
+		});
+		runner = new JDBCPaginRunner(true);
+		cache = new PaginCache(60 * 1000L, 2);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		cache.clear();
+	}
+
+	private List<String> executed() {
+		return MockConnection.of(conn).getExecuted();
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testPages() throws SQLException {
+		Pagin page = cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 2, 10);
+		assertEquals(25, page.getTotalRows());
+		assertEquals(Pagin.Total.CACHED, page.getTotal());
+		List<Map<String, Object>> rows = page.getRows();
+		assertEquals(10, rows.size());
+		assertEquals(Integer.valueOf(11), rows.get(0).get("id"));
+		assertEquals("a-20", rows.get(9).get("name"));
+
+		page = cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 3, 10);
+		rows = page.getRows();
+		assertEquals(5, rows.size());
+		assertEquals(Integer.valueOf(21), rows.get(0).get("id"));
+		assertEquals(1, executed().size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	public void testPageBeyondEnd() throws SQLException {
+		Pagin page = cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 9, 10);
+		assertEquals(0, page.getRows().size());
+		assertEquals(25, page.getTotalRows());
+	}
+
+	public void testParamsAreKey() throws SQLException {
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		cache.pagin(runner, conn, SQL, new Object[] { "b" }, new MapListHandler(), 1, 10);
+		assertEquals(2, executed().size());
+		assertEquals(2, cache.size());
+	}
+
+	public void testEviction() throws SQLException {
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		cache.pagin(runner, conn, SQL, new Object[] { "b" }, new MapListHandler(), 1, 10);
+		cache.pagin(runner, conn, SQL, new Object[] { "c" }, new MapListHandler(), 1, 10);
+		assertEquals(2, cache.size());
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		assertEquals(4, executed().size());
+	}
+
+	public void testInvalidate() throws SQLException {
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		cache.invalidate(SQL);
+		assertEquals(0, cache.size());
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		assertEquals(2, executed().size());
+	}
+
+	public void testForwardOnlyStreaming() throws SQLException {
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		assertEquals(ResultSet.TYPE_FORWARD_ONLY, MockConnection.of(conn).getResultSetType());
+
+		Connection mysql = MockConnection.create("MySQL", 5, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) {
+				return MockResultSet.create(new String[] { "id" }, new Object[][] { { Integer.valueOf(1) } });
+			}
+		});
+		cache.pagin(runner, mysql, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		assertEquals(ResultSet.TYPE_FORWARD_ONLY, MockConnection.of(mysql).getResultSetType());
+		assertEquals(Integer.MIN_VALUE, MockConnection.of(mysql).getFetchSize());
+	}
+
+	public void testKeyedByDatabase() throws SQLException {
+		Connection other = MockConnection.create("H2", 2, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) {
+				return MockResultSet.create(new String[] { "id" }, new Object[][] { { Integer.valueOf(1) } });
+			}
+		});
+		cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		Pagin page = cache.pagin(runner, other, SQL, new Object[] { "a" }, new MapListHandler(), 1, 10);
+		assertEquals(1, page.getTotalRows());
+		assertEquals(2, cache.size());
+		assertEquals(1, MockConnection.of(other).getExecuted().size());
+	}
+
+	public void testConcurrentMissesQueryOnce() throws Exception {
+		release = new CountDownLatch(1);
+		final Pagin[] pages = new Pagin[4];
+		final Throwable[] errors = new Throwable[pages.length];
+		Thread[] threads = new Thread[pages.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int n = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						pages[n] = cache.pagin(runner, conn, SQL, new Object[] { "a" }, new MapListHandler(), n + 1, 10);
+					} catch (Throwable e) {
+						errors[n] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		Thread.sleep(100);
+		release.countDown();
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			assertNull(errors[i]);
+			assertEquals(25, pages[i].getTotalRows());
+		}
+		assertEquals(1, executed().size());
+	}
+
+	public void testFailedLoadIsNotCached() {
+		Connection failing = MockConnection.create("H2", 3, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) throws SQLException {
+				throw new SQLException("boom");
+			}
+		});
+		try {
+			cache.pagin(runner, failing, SQL, null, new MapListHandler(), 1, 10);
+			fail("查询出错应抛出SQLException");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("boom") > -1);
+		}
+		assertEquals(0, cache.size());
+	}
+
+	public void testLimits() {
+		try {
+			new PaginCache(0, 1);
+			fail("ttl必须大于0");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
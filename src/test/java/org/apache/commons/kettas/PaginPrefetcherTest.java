@@ -0,0 +1,183 @@
+package org.apache.commons.kettas;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.Pagin;
+import org.apache.commons.dbutils.handlers.MapListHandler;
+
+/**
+ * 分页预取:按查询和handler实例命中、过期、定时清除、等待超时、淘汰和线程池已满
+ *
+ * @author kettas
+ */
+public class PaginPrefetcherTest extends TestCase {
+	private PaginPrefetcher prefetcher;
+
+	private final MapListHandler handler = new MapListHandler();
+
+	@Override
+	protected void setUp() throws Exception {
+		prefetcher = new PaginPrefetcher(null, 1, 2, 60 * 1000L);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		prefetcher.shutdown();
+	}
+
+	private static List<Object> key(Object handler, int pageNum) {
+		return PaginPrefetcher.key(null, "select id from t", new Object[] { "a" }, handler, null, pageNum, 10);
+	}
+
+	private static Callable<Pagin> page(final int pageNum) {
+		return new Callable<Pagin>() {
+			public Pagin call() {
+				return new Pagin(pageNum, 100, 10, new ArrayList<Object>());
+			}
+		};
+	}
+
+	public void testHit() throws SQLException {
+		prefetcher.prefetch(key(handler, 2), page(2));
+		Pagin page = prefetcher.take(key(handler, 2));
+		assertNotNull(page);
+		assertEquals(2, page.getCurrentPage());
+		assertNull(prefetcher.take(key(handler, 2)));
+		assertEquals(2, prefetcher.getRequests());
+		assertEquals(1, prefetcher.getHits());
+		assertEquals(0.5, prefetcher.getHitRate(), 0.0001);
+	}
+
+	public void testKeyedByHandlerInstance() throws SQLException {
+		prefetcher.prefetch(key(handler, 2), page(2));
+		assertNull(prefetcher.take(key(new MapListHandler(), 2)));
+		assertNull(prefetcher.take(key(handler, 3)));
+		assertEquals(key(handler, 2), key(handler, 2));
+		assertFalse(key(handler, 2).equals(key(new MapListHandler(), 2)));
+	}
+
+	public void testFailedPrefetchMisses() throws SQLException {
+		prefetcher.prefetch(key(handler, 2), new Callable<Pagin>() {
+			public Pagin call() throws SQLException {
+				throw new SQLException("prefetch failed");
+			}
+		});
+		assertNull(prefetcher.take(key(handler, 2)));
+		assertEquals(0, prefetcher.getHits());
+	}
+
+	public void testEvictionAndRejection() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<Pagin> blocked = new Callable<Pagin>() {
+			public Pagin call() throws InterruptedException {
+				release.await();
+				return new Pagin(1, 100, 10, new ArrayList<Object>());
+			}
+		};
+		// 一个线程执行,一个排队,第三个被拒绝
+		prefetcher.prefetch(key(handler, 1), blocked);
+		prefetcher.prefetch(key(handler, 2), blocked);
+		prefetcher.prefetch(key(handler, 3), blocked);
+		assertEquals(2, prefetcher.getPrefetched());
+		assertEquals(1, prefetcher.getRejected());
+		release.countDown();
+		prefetcher.clear();
+		assertEquals(2, prefetcher.getWasted());
+	}
+
+	public void testMaxEntries() throws Exception {
+		PaginPrefetcher wide = new PaginPrefetcher(null, 4, 2, 60 * 1000L);
+		try {
+			wide.prefetch(key(handler, 1), page(1));
+			wide.prefetch(key(handler, 2), page(2));
+			wide.prefetch(key(handler, 3), page(3));
+			assertEquals(1, wide.getWasted());
+			assertNull(wide.take(key(handler, 1)));
+			assertNotNull(wide.take(key(handler, 3)));
+		} finally {
+			wide.shutdown();
+		}
+	}
+
+	public void testExpired() throws Exception {
+		PaginPrefetcher shortLived = new PaginPrefetcher(null, 1, 2, 1L);
+		try {
+			shortLived.prefetch(key(handler, 2), page(2));
+			Thread.sleep(20);
+			assertNull(shortLived.take(key(handler, 2)));
+			assertEquals(1, shortLived.getWasted());
+		} finally {
+			shortLived.shutdown();
+		}
+	}
+
+	public void testPurgedWithoutRequests() throws Exception {
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		PaginPrefetcher shortLived = new PaginPrefetcher(null, 1, 2, 50L);
+		try {
+			shortLived.prefetch(key(handler, 2), new Callable<Pagin>() {
+				public Pagin call() {
+					try {
+						Thread.sleep(60 * 1000L);
+					} catch (InterruptedException e) {
+						cancelled.countDown();
+					}
+					return null;
+				}
+			});
+			// 没有take()也会被定时任务取消,线程被中断
+			assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+			assertEquals(1, shortLived.getWasted());
+			assertEquals(0, shortLived.getRequests());
+		} finally {
+			shortLived.shutdown();
+		}
+	}
+
+	public void testTakeWaitsUntilExpiry() throws Exception {
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		PaginPrefetcher slow = new PaginPrefetcher(null, 1, 2, 200L);
+		try {
+			slow.prefetch(key(handler, 2), new Callable<Pagin>() {
+				public Pagin call() {
+					try {
+						Thread.sleep(60 * 1000L);
+					} catch (InterruptedException e) {
+						cancelled.countDown();
+					}
+					return null;
+				}
+			});
+			long start = System.currentTimeMillis();
+			assertNull(slow.take(key(handler, 2)));
+			long waited = System.currentTimeMillis() - start;
+			assertTrue("waited " + waited + "ms", waited < 5000);
+			assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+			assertEquals(1, slow.getWasted());
+			assertEquals(0, slow.getHits());
+		} finally {
+			slow.shutdown();
+		}
+	}
+
+	public void testTakeWaitsForRunningPrefetch() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		prefetcher.prefetch(key(handler, 2), new Callable<Pagin>() {
+			public Pagin call() throws InterruptedException {
+				started.countDown();
+				Thread.sleep(50);
+				return new Pagin(2, 100, 10, new ArrayList<Object>());
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertNotNull(prefetcher.take(key(handler, 2)));
+		assertEquals(1, prefetcher.getHits());
+	}
+}
@@ -0,0 +1,113 @@
+package org.apache.commons.kettas;
+
+import junit.framework.TestCase;
+
+/**
+ * 分页SQL改写
+ *
+ * @author kettas
+ */
+public class SQLRewriterTest extends TestCase {
+	private static final String SIMPLE = "select id, name from t where a = 'x' order by id";
+
+	public void testCountSql() {
+		assertEquals("select count(*) from t where a = 'x'", SQLRewriter.countSql(SIMPLE));
+		assertEquals("select count(*) from (select distinct name from t) count_",
+				SQLRewriter.countSql("select distinct name from t"));
+		assertEquals("select count(*) from (select a from t union select b from u) count_",
+				SQLRewriter.countSql("select a from t union select b from u"));
+		assertEquals("select count(*) from (select dept, count(*) from t group by dept) count_",
+				SQLRewriter.countSql("select dept, count(*) from t group by dept order by dept"));
+		assertEquals("with w as (select id from t) select count(*) from w",
+				SQLRewriter.countSql("with w as (select id from t) select id from w order by id"));
+		assertEquals("select count(*) from (select id from t limit 5) count_",
+				SQLRewriter.countSql("select id from t limit 5"));
+	}
+
+	public void testIgnoresNestedAndQuoted() {
+		String sql = "select id, 'order by' as s from (select id from u order by id) x";
+		assertFalse(SQLRewriter.hasOrderBy(sql));
+		assertTrue(SQLRewriter.hasOrderBy(sql + " order by 1"));
+		assertFalse(SQLRewriter.hasOrderBy("select id from t -- order by x\n;"));
+		assertEquals("select id from t limit 10 offset 20",
+				SQLRewriter.limitOffset("select id from t -- order by x\n;", 20, 10));
+	}
+
+	public void testLimit() {
+		assertEquals(SIMPLE + " limit 20,10", SQLRewriter.limit(SIMPLE, 20, 10));
+		assertEquals(SIMPLE + " limit 10", SQLRewriter.limit(SIMPLE, 0, 10));
+		assertEquals("select * from (select id from t limit 5) page_ limit 20,10",
+				SQLRewriter.limit("select id from t limit 5", 20, 10));
+	}
+
+	public void testLimitOffset() {
+		assertEquals(SIMPLE + " limit 10 offset 20", SQLRewriter.limitOffset(SIMPLE, 20, 10));
+		assertEquals(SIMPLE + " limit 10", SQLRewriter.limitOffset(SIMPLE, 0, 10));
+		assertEquals("select * from (select id from t limit 5) page_ limit 10 offset 20",
+				SQLRewriter.limitOffset("select id from t limit 5", 20, 10));
+	}
+
+	public void testFetchFirst() {
+		assertEquals(SIMPLE + " fetch first 10 rows only", SQLRewriter.fetchFirst(SIMPLE, 0, 10));
+		assertEquals("select * from (select row_.*, row_number() over () rownum_ from (" + SIMPLE
+				+ ") row_) page_ where rownum_ > 20 and rownum_ <= 30 order by rownum_",
+				SQLRewriter.fetchFirst(SIMPLE, 20, 10));
+	}
+
+	public void testRownum() {
+		assertEquals("select * from (select row_.*,rownum rownum_  from ( " + SIMPLE
+				+ ")row_ where  rownum <= 30)  where   rownum_ > 20", SQLRewriter.rownum(SIMPLE, 20, 30));
+	}
+
+	public void testTop() {
+		assertEquals("select top 30 id, name from t where a = 'x' order by id", SQLRewriter.top(SIMPLE, 30));
+		assertEquals("select distinct top 30 name from t", SQLRewriter.top("select distinct name from t", 30));
+		assertEquals("select top 30 * from (select a from t union select b from u) top_",
+				SQLRewriter.top("select a from t union select b from u", 30));
+		assertEquals("with w as (select id from t) select top 30 id from w order by id",
+				SQLRewriter.top("with w as (select id from t) select id from w order by id", 30));
+	}
+
+	public void testOffsetFetch() {
+		assertEquals(SIMPLE + " offset 20 rows fetch next 10 rows only", SQLRewriter.offsetFetch(SIMPLE, 20, 10));
+		assertEquals("select id from t order by (select null) offset 20 rows fetch next 10 rows only",
+				SQLRewriter.offsetFetch("select id from t", 20, 10));
+		assertEquals("select * from (select distinct name from t) page_ order by (select null)"
+				+ " offset 20 rows fetch next 10 rows only",
+				SQLRewriter.offsetFetch("select distinct name from t", 20, 10));
+		assertEquals("select * from (select a from t union select b from u) page_ order by (select null)"
+				+ " offset 20 rows fetch next 10 rows only",
+				SQLRewriter.offsetFetch("select a from t union select b from u", 20, 10));
+	}
+
+	public void testRowNumber() {
+		assertEquals("select * from (select id, name, row_number() over (order by id) rownum_ from t where a = 'x')"
+				+ " page_ where rownum_ > 20 and rownum_ <= 30 order by rownum_", SQLRewriter.rowNumber(SIMPLE, 20, 30));
+		assertEquals("with w as (select id from t) select * from (select id, row_number() over (order by id) rownum_"
+				+ " from w) page_ where rownum_ > 20 and rownum_ <= 30 order by rownum_",
+				SQLRewriter.rowNumber("with w as (select id from t) select id from w order by id", 20, 30));
+		assertEquals("select * from (select row_.*, row_number() over (order by (select null)) rownum_ from"
+				+ " (select distinct name from t) row_) page_ where rownum_ > 20 and rownum_ <= 30 order by rownum_",
+				SQLRewriter.rowNumber("select distinct name from t", 20, 30));
+	}
+
+	public void testRowNumberCannotLift() {
+		assertNull(SQLRewriter.rowNumber("select id from t order by 1", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select id as k from t order by k", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select name n from t order by n", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select t.name n, id from t order by n, id", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select dept, count(*) c from t order by c", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select case when a = 1 then 'x' else 'y' end k from t order by k", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select distinct id from t order by id", 20, 30));
+		assertNull(SQLRewriter.rowNumber("select a from t union select b from u order by a", 20, 30));
+	}
+
+	public void testRowNumberNotAlias() {
+		assertEquals("select * from (select t.name, id, row_number() over (order by name) rownum_ from t)"
+				+ " page_ where rownum_ > 20 and rownum_ <= 30 order by rownum_",
+				SQLRewriter.rowNumber("select t.name, id from t order by name", 20, 30));
+		assertEquals("select * from (select case when a = 1 then name else code end k, id, row_number() over (order by name)"
+				+ " rownum_ from t) page_ where rownum_ > 20 and rownum_ <= 30 order by rownum_",
+				SQLRewriter.rowNumber("select case when a = 1 then name else code end k, id from t order by name", 20, 30));
+	}
+}
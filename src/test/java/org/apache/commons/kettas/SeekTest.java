@@ -0,0 +1,100 @@
+package org.apache.commons.kettas;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbutils.KeysetPagin;
+import org.apache.commons.dbutils.MockConnection;
+import org.apache.commons.dbutils.MockResultSet;
+import org.apache.commons.dbutils.handlers.MapListHandler;
+
+/**
+ * 键集分页:游标、下一页判断和seek条件
+ *
+ * @author kettas
+ */
+public class SeekTest extends TestCase {
+	private static final String[] LABELS = { "id", "name" };
+
+	private Object[][] rows;
+
+	private Connection conn;
+
+	private JDBCPaginRunner runner;
+
+	@Override
+	protected void setUp() throws Exception {
+		Dialect.clear();
+		conn = MockConnection.create("H2", 1, new MockConnection.Responder() {
+			public ResultSet respond(String sql, List<Object> params) throws SQLException {
+				return MockResultSet.create(LABELS, rows);
+			}
+		});
+		runner = new JDBCPaginRunner(true);
+	}
+
+	public void testFirstPage() throws SQLException {
+		rows = new Object[][] { { 1, "a" }, { 2, "b" }, { 3, "c" } };
+		KeysetPagin page = runner.seek(conn, "select id, name from t", null,
+				new MapListHandler(), new String[] { "id" }, null, 2);
+		assertEquals(2, page.getRows().size());
+		assertTrue(page.isNextPage());
+		assertFalse(page.isPreviousPage());
+		assertEquals(2, page.getCursor()[0]);
+		assertTrue(page.getTimes() >= 0);
+		assertEquals("select * from (select id, name from t) seek_ order by id limit 3 []",
+				MockConnection.of(conn).getExecuted().get(0));
+	}
+
+	public void testNextPage() throws SQLException {
+		rows = new Object[][] { { 3, "c" } };
+		KeysetPagin page = runner.seek(conn, "select id, name from t", null,
+				new MapListHandler(), new String[] { "id" }, new Object[] { 2 }, 2);
+		assertEquals(1, page.getRows().size());
+		assertFalse(page.isNextPage());
+		assertTrue(page.isPreviousPage());
+		assertEquals(3, page.getCursor()[0]);
+		assertEquals("select * from (select id, name from t) seek_ where id > ? order by id limit 3 [2]",
+				MockConnection.of(conn).getExecuted().get(0));
+	}
+
+	public void testEmptyPageKeepsCursor() throws SQLException {
+		rows = new Object[0][];
+		Object[] after = { 3 };
+		KeysetPagin page = runner.seek(conn, "select id, name from t", null,
+				new MapListHandler(), new String[] { "id" }, after, 2);
+		assertEquals(0, page.getRows().size());
+		assertFalse(page.isNextPage());
+		assertSame(after, page.getCursor());
+	}
+
+	public void testRowValuePredicate() throws SQLException {
+		rows = new Object[0][];
+		runner.seek(conn, "select id, name from t", null, new MapListHandler(),
+				new String[] { "name desc", "id desc" }, new Object[] { "c", 3 }, 2);
+		assertEquals("select * from (select id, name from t) seek_ where (name, id) < (?, ?)"
+				+ " order by name desc, id desc limit 3 [c, 3]", MockConnection.of(conn).getExecuted().get(0));
+	}
+
+	public void testExpandedPredicate() throws SQLException {
+		rows = new Object[0][];
+		runner.seek(conn, "select id, name from t", null, new MapListHandler(),
+				new String[] { "name", "id desc" }, new Object[] { "c", 3 }, 2);
+		assertEquals("select * from (select id, name from t) seek_ where ((name > ?) or (name = ? and id < ?))"
+				+ " order by name, id desc limit 3 [c, c, 3]", MockConnection.of(conn).getExecuted().get(0));
+	}
+
+	public void testCursorSize() {
+		try {
+			runner.seek(conn, "select id, name from t", null, new MapListHandler(),
+					new String[] { "name", "id" }, new Object[] { "c" }, 2);
+			fail("游标和排序键个数不同应抛出SQLException");
+		} catch (SQLException e) {
+			assertTrue(MockConnection.of(conn).getExecuted().isEmpty());
+		}
+	}
+}